@@ -0,0 +1,60 @@
+package com.hida.benchmark;
+
+import com.hida.model.CustomIdGenerator;
+import com.hida.model.IdGenerator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of the work a CustomIdGenerator does for every mint.
+ *
+ * setting creates the generator of a setting and asks it for the size of its
+ * namespace, as every mint request does. createId creates the Pid of an
+ * ordinal and its name, as every randomly minted Pid does.
+ *
+ * @author lruffin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomIdBenchmark {
+
+    @Param({"ddddd", "eeeeeeeeee", "lldddeeeeeeeeeee"})
+    public String charMap;
+
+    private IdGenerator Generator;
+
+    private long Total;
+
+    private long Ordinal;
+
+    @Setup
+    public void setUp() {
+        Generator = new CustomIdGenerator("ark", false, charMap);
+        Total = Generator.calculatePermutations();
+    }
+
+    @Benchmark
+    public long setting() {
+        return new CustomIdGenerator("ark", false, charMap).calculatePermutations();
+    }
+
+    @Benchmark
+    public String createId() {
+        Ordinal = (Ordinal + 1000000007L) % Total;
+        return Generator.createId(Ordinal).getName();
+    }
+}
@@ -0,0 +1,195 @@
+package com.hida.benchmark;
+
+import com.hida.dao.HibernatePidStore;
+import com.hida.dao.PidDao;
+import com.hida.dao.PidDaoImpl;
+import com.hida.dao.PidStore;
+import com.hida.model.AutoId;
+import com.hida.model.CustomId;
+import com.hida.model.Pid;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate4.HibernateTransactionManager;
+import org.springframework.orm.hibernate4.LocalSessionFactoryBuilder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Measures exporting every name of the PIDS table of an HSQLDB file database
+ * with cached tables, in a heap that is much smaller than the table.
+ *
+ * export pages through the names with exportNames of a PidDao on top of a
+ * HibernatePidStore; list loads every Pid with findAllPids for comparison.
+ * Every iteration prints the peak heap used while it ran, most of which is
+ * the row cache of HSQLDB.
+ *
+ * @author lruffin
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx128m", "-Dhsqldb.reconfig_logging=false"})
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+
+    /**
+     * The number of stored Pids
+     */
+    @Param({"1000000", "4000000"})
+    public int count;
+
+    private File Directory;
+
+    private Connection Connection;
+
+    private SessionFactory Factory;
+
+    private TransactionTemplate Template;
+
+    private HibernatePidStore Store;
+
+    private PidDao PidDao;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        Directory = Files.createTempDirectory("export").toFile();
+        String url = "jdbc:hsqldb:file:" + Directory + "/pids;hsqldb.default_table_type=cached";
+        Connection = DriverManager.getConnection(url, "sa", "");
+        Connection.setAutoCommit(false);
+        try (Statement statement = Connection.createStatement()) {
+            statement.execute("CREATE TABLE PIDS (DTYPE VARCHAR(31) NOT NULL, "
+                    + "NAME VARCHAR(255) NOT NULL PRIMARY KEY)");
+        }
+        try (PreparedStatement insert = Connection.prepareStatement(
+                "INSERT INTO PIDS (DTYPE, NAME) VALUES ('AutoId', ?)")) {
+            for (int i = 0; i < count; i++) {
+                insert.setString(1, String.format("%010d", i));
+                insert.addBatch();
+                if ((i + 1) % 10000 == 0) {
+                    insert.executeBatch();
+                    Connection.commit();
+                }
+            }
+        }
+
+        LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(
+                new DriverManagerDataSource(url, "sa", ""));
+        builder.addAnnotatedClasses(Pid.class, AutoId.class, CustomId.class);
+        builder.setProperty("hibernate.dialect", "org.hibernate.dialect.HSQLDialect");
+        builder.setProperty("hibernate.current_session_context_class",
+                "org.springframework.orm.hibernate4.SpringSessionContext");
+        Factory = builder.buildSessionFactory();
+        Template = new TransactionTemplate(new HibernateTransactionManager(Factory));
+        Template.setReadOnly(true);
+
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("sessionFactory", Factory);
+        AutowiredAnnotationBeanPostProcessor autowirer = new AutowiredAnnotationBeanPostProcessor();
+        autowirer.setBeanFactory(beans);
+        beans.addBeanPostProcessor(autowirer);
+        Store = new HibernatePidStore();
+        beans.autowireBean(Store);
+        PidDao = new PidDaoImpl(Store);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        Factory.close();
+        try (Statement statement = Connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        Connection.close();
+        File[] files = Directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                File[] children = file.listFiles();
+                if (children != null) {
+                    for (File child : children) {
+                        child.delete();
+                    }
+                }
+                file.delete();
+            }
+        }
+        Directory.delete();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.printf("%npeak heap=%d MB%n", peak >> 20);
+    }
+
+    @Benchmark
+    public long export() {
+        return Template.execute(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                final long[] exported = new long[1];
+                try {
+                    PidDao.exportNames("", new PidStore.NameHandler() {
+                        @Override
+                        public void handle(String name) {
+                            exported[0]++;
+                        }
+                    });
+                }
+                catch (IOException exception) {
+                    throw new IllegalStateException(exception);
+                }
+                return exported[0];
+            }
+        });
+    }
+
+    @Benchmark
+    public long list() {
+        return Template.execute(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                return (long) Store.findAllPids().size();
+            }
+        });
+    }
+}
@@ -0,0 +1,182 @@
+package com.hida.benchmark;
+
+import com.hida.model.AutoIdGenerator;
+import com.hida.model.PidNamespace;
+import com.hida.model.TokenType;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares storing Pids by their names in the PIDS table with storing them by
+ * their namespace and ordinal in the PID_ORDINAL table, in an HSQLDB file
+ * database with cached tables like the one the minter uses.
+ *
+ * The setup fills the table of the layout with count randomly minted Pids and
+ * prints how long that took and how much of the data file, which holds the
+ * rows and the primary key, was used by then.
+ * findByName measures looking up an existing Pid by its name, which for the
+ * ordinal layout includes parsing the name.
+ *
+ * @author lruffin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class PidLayoutBenchmark {
+
+    /**
+     * The number of Pids that are looked up, drawn from every stored Pid
+     */
+    private static final int LOOKUPS = 1 << 16;
+
+    /**
+     * How the Pids are stored: name or ordinal
+     */
+    @Param({"name", "ordinal"})
+    public String layout;
+
+    /**
+     * The number of stored Pids
+     */
+    @Param({"1000000"})
+    public long count;
+
+    private File Directory;
+
+    private Connection Connection;
+
+    private PreparedStatement Lookup;
+
+    private PidNamespace Namespace;
+
+    private String[] Names;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        AutoIdGenerator generator = new AutoIdGenerator("bench", true,
+                TokenType.LOWER_EXTENDED, 8);
+        long total = generator.calculatePermutations();
+        Namespace = PidNamespace.of(1, generator.createId(0));
+
+        Directory = Files.createTempDirectory("pidlayout").toFile();
+        Connection = DriverManager.getConnection("jdbc:hsqldb:file:" + Directory + "/pids;"
+                + "hsqldb.default_table_type=cached", "SA", "");
+        Connection.setAutoCommit(false);
+        boolean byName = layout.equals("name");
+        try (Statement statement = Connection.createStatement()) {
+            statement.execute(byName
+                    ? "CREATE TABLE PIDS (DTYPE VARCHAR(31) NOT NULL, "
+                    + "NAME VARCHAR(255) NOT NULL PRIMARY KEY)"
+                    : "CREATE TABLE PID_ORDINAL (NAMESPACE_ID INTEGER NOT NULL, "
+                    + "ORDINAL BIGINT NOT NULL, PRIMARY KEY (NAMESPACE_ID, ORDINAL))");
+        }
+
+        // distinct ordinals spread over the namespace as random mints are
+        long stride = 1000000007L;
+        long start = System.nanoTime();
+        try (PreparedStatement insert = Connection.prepareStatement(byName
+                ? "INSERT INTO PIDS (DTYPE, NAME) VALUES ('AutoId', ?)"
+                : "INSERT INTO PID_ORDINAL (NAMESPACE_ID, ORDINAL) VALUES (1, ?)")) {
+            for (long i = 0; i < count; i++) {
+                // both layouts start from the name, as stores are given Pids
+                String name = generator.createId((i * stride) % total).getName();
+                if (byName) {
+                    insert.setString(1, name);
+                }
+                else {
+                    insert.setLong(1, Namespace.parse(name));
+                }
+                insert.addBatch();
+                if ((i + 1) % 10000 == 0) {
+                    insert.executeBatch();
+                    Connection.commit();
+                }
+            }
+            if (count % 10000 != 0) {
+                insert.executeBatch();
+                Connection.commit();
+            }
+        }
+        long insertMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        try (Statement statement = Connection.createStatement();
+                ResultSet result = statement.executeQuery(
+                        "SELECT FILE_FREE_POS FROM INFORMATION_SCHEMA.SYSTEM_CACHEINFO")) {
+            result.next();
+            System.out.printf("%nlayout=%s rows=%d insert=%d ms data=%d bytes%n", layout,
+                    count, insertMillis, result.getLong(1));
+        }
+
+        Random random = new Random(1);
+        Names = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            long ordinal = ((long) (random.nextDouble() * count) * stride) % total;
+            Names[i] = generator.createId(ordinal).getName();
+        }
+        Lookup = Connection.prepareStatement(byName
+                ? "SELECT DTYPE FROM PIDS WHERE NAME = ?"
+                : "SELECT ORDINAL FROM PID_ORDINAL WHERE NAMESPACE_ID = ? AND ORDINAL = ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = Connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        Connection.close();
+        File[] files = Directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Directory.delete();
+    }
+
+    /**
+     * The names a single thread looks up
+     */
+    @State(Scope.Thread)
+    public static class Lookups {
+
+        private int Next = 0;
+    }
+
+    @Benchmark
+    public boolean findByName(Lookups lookups) throws SQLException {
+        String name = Names[lookups.Next++ & (LOOKUPS - 1)];
+        if (layout.equals("name")) {
+            Lookup.setString(1, name);
+        }
+        else {
+            Lookup.setInt(1, Namespace.getId());
+            Lookup.setLong(2, Namespace.parse(name));
+        }
+        try (ResultSet result = Lookup.executeQuery()) {
+            return result.next();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.hida.benchmark;
+
+import com.hida.model.OrdinalBitmap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of finding the ordinal of one randomly minted Pid as the
+ * space of a setting fills up.
+ *
+ * drawFree is the strategy used by the minter: a uniform draw from the free
+ * ordinals. rollForward is the strategy it replaced: a random ordinal that is
+ * incremented until it is free. Every probe of rollForward used to be a
+ * database query, so its cost here is a lower bound.
+ *
+ * @author lruffin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RandomMintBenchmark {
+
+    /**
+     * The number of ids the setting can create, for example a DIGIT root of
+     * length 6
+     */
+    @Param({"1000000"})
+    public long size;
+
+    /**
+     * The fraction of ids that were already created
+     */
+    @Param({"0.0", "0.5", "0.9", "0.99", "0.999"})
+    public double fill;
+
+    private OrdinalBitmap Used;
+
+    @Setup
+    public void setUp() {
+        Used = new OrdinalBitmap();
+        Random random = new Random(1);
+        long taken = (long) (size * fill);
+        while (Used.getCardinality() < taken) {
+            Used.add((long) (random.nextDouble() * size));
+        }
+        Used.optimize();
+    }
+
+    /**
+     * The random numbers of a single thread
+     */
+    @State(Scope.Thread)
+    public static class Draws {
+
+        private final Random Random = new Random(Thread.currentThread().getId());
+    }
+
+    @Benchmark
+    public long drawFree(Draws draws) {
+        return Used.randomClear(draws.Random, size);
+    }
+
+    @Benchmark
+    public long rollForward(Draws draws) {
+        long ordinal = (long) (draws.Random.nextDouble() * size);
+        while (Used.contains(ordinal)) {
+            ordinal = (ordinal + 1 == size) ? 0 : ordinal + 1;
+        }
+        return ordinal;
+    }
+}
@@ -0,0 +1,183 @@
+package com.hida.benchmark;
+
+import com.hida.dao.HibernatePidStore;
+import com.hida.model.AutoId;
+import com.hida.model.CustomId;
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
+import com.hida.model.Pid;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.Query;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate4.HibernateTransactionManager;
+import org.springframework.orm.hibernate4.LocalSessionFactoryBuilder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Measures finding a page of 100 names deep into the names under a prefix of
+ * the PIDS table of an HSQLDB file database with cached tables.
+ *
+ * The names are ten digits, so the prefix 0000 holds a million of them
+ * however many are stored. search finds the page that starts after the
+ * 900,000th of them with searchNames; charMap does the same with a CharMap
+ * that every name matches; offset skips to the page with an offset, as
+ * searches did before they were paged by cursors.
+ *
+ * @author lruffin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx512m", "-Dhsqldb.reconfig_logging=false"})
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final String PREFIX = "0000";
+
+    private static final String AFTER = "0000900000";
+
+    private static final int LIMIT = 100;
+
+    /**
+     * The number of stored Pids
+     */
+    @Param({"1000000", "10000000"})
+    public int count;
+
+    private File Directory;
+
+    private Connection Connection;
+
+    private SessionFactory Factory;
+
+    private TransactionTemplate Template;
+
+    private HibernatePidStore Store;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        Directory = Files.createTempDirectory("search").toFile();
+        String url = "jdbc:hsqldb:file:" + Directory + "/pids;hsqldb.default_table_type=cached";
+        Connection = DriverManager.getConnection(url, "sa", "");
+        Connection.setAutoCommit(false);
+        try (Statement statement = Connection.createStatement()) {
+            statement.execute("CREATE TABLE PIDS (DTYPE VARCHAR(31) NOT NULL, "
+                    + "NAME VARCHAR(255) NOT NULL PRIMARY KEY)");
+        }
+        try (PreparedStatement insert = Connection.prepareStatement(
+                "INSERT INTO PIDS (DTYPE, NAME) VALUES ('AutoId', ?)")) {
+            for (int i = 0; i < count; i++) {
+                insert.setString(1, String.format("%010d", i));
+                insert.addBatch();
+                if ((i + 1) % 10000 == 0) {
+                    insert.executeBatch();
+                    Connection.commit();
+                }
+            }
+        }
+
+        LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(
+                new DriverManagerDataSource(url, "sa", ""));
+        builder.addAnnotatedClasses(Pid.class, AutoId.class, CustomId.class);
+        builder.setProperty("hibernate.dialect", "org.hibernate.dialect.HSQLDialect");
+        builder.setProperty("hibernate.current_session_context_class",
+                "org.springframework.orm.hibernate4.SpringSessionContext");
+        Factory = builder.buildSessionFactory();
+        Template = new TransactionTemplate(new HibernateTransactionManager(Factory));
+        Template.setReadOnly(true);
+
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("sessionFactory", Factory);
+        AutowiredAnnotationBeanPostProcessor autowirer = new AutowiredAnnotationBeanPostProcessor();
+        autowirer.setBeanFactory(beans);
+        beans.addBeanPostProcessor(autowirer);
+        Store = new HibernatePidStore();
+        beans.autowireBean(Store);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        Factory.close();
+        try (Statement statement = Connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        Connection.close();
+        File[] files = Directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                File[] children = file.listFiles();
+                if (children != null) {
+                    for (File child : children) {
+                        child.delete();
+                    }
+                }
+                file.delete();
+            }
+        }
+        Directory.delete();
+    }
+
+    @Benchmark
+    public List<String> search() {
+        return search(new NamePattern(PREFIX));
+    }
+
+    @Benchmark
+    public List<String> charMap() {
+        return search(new NamePattern(PREFIX, "dddddd"));
+    }
+
+    @Benchmark
+    public List<String> offset() {
+        return Template.execute(new TransactionCallback<List<String>>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public List<String> doInTransaction(TransactionStatus status) {
+                Query query = Factory.getCurrentSession().createQuery(
+                        "select p.Name from Pid p where locate(:prefix, p.Name) = 1 "
+                        + "order by p.Name");
+                query.setString("prefix", PREFIX);
+                query.setFirstResult(900000);
+                query.setMaxResults(LIMIT);
+                return (List<String>) query.list();
+            }
+        });
+    }
+
+    private List<String> search(final NamePattern pattern) {
+        return Template.execute(new TransactionCallback<List<String>>() {
+            @Override
+            public List<String> doInTransaction(TransactionStatus status) {
+                NamePage page = Store.searchNames(pattern, AFTER, LIMIT);
+                return page.getNames();
+            }
+        });
+    }
+}
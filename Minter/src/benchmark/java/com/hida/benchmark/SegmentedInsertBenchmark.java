@@ -0,0 +1,183 @@
+package com.hida.benchmark;
+
+import com.hida.model.AutoIdGenerator;
+import com.hida.model.OrdinalBitmap;
+import com.hida.model.TokenType;
+import com.hida.service.OrdinalSegments;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how randomly minted Pids are inserted into the primary key of the
+ * PIDS table, with ordinals drawn from the whole namespace and from segments.
+ *
+ * The primary key is modelled by the leaf pages of a B+tree that hold a fixed
+ * number of names and split in half when they overflow. Names of a DIGIT root
+ * sort like their ordinals, so the ordinals are inserted in their place. Every
+ * iteration mints count Pids into an empty table and prints the number of
+ * leaves of the index, how full they are and how many distinct leaves every
+ * window of inserts touched, which is the part of the index that has to stay
+ * cached to insert without reading pages. The time doesn't include any I/O.
+ *
+ * @author lruffin
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class SegmentedInsertBenchmark {
+
+    /**
+     * The number of names a leaf holds, about an 8 KB page of short names
+     */
+    private static final int LEAF_CAPACITY = 256;
+
+    /**
+     * The number of inserts whose distinct leaves are counted together
+     */
+    private static final int WINDOW = 100000;
+
+    /**
+     * The number of Pids to mint
+     */
+    @Param({"10000000"})
+    public long count;
+
+    /**
+     * The length of the DIGIT root, 8 for a table that is a tenth full
+     */
+    @Param({"8"})
+    public int rootLength;
+
+    /**
+     * The smallest number of ordinals in a segment, 0 to draw from the whole
+     * namespace as randomMint does
+     */
+    @Param({"0", "100000"})
+    public long segmentSize;
+
+    private AutoIdGenerator Generator;
+
+    private Index Index;
+
+    @Setup
+    public void setUp() {
+        Generator = new AutoIdGenerator("", true, TokenType.DIGIT, rootLength);
+    }
+
+    @Benchmark
+    public Index insert() {
+        long total = Generator.calculatePermutations();
+        OrdinalSegments segments = new OrdinalSegments(segmentSize);
+        long segmentLength = (segments.isEnabled()) ? segments.getSegmentLength(Generator) : 0;
+        OrdinalBitmap used = new OrdinalBitmap();
+        Random random = new Random(1);
+
+        Index = new Index();
+        for (long i = 0; i < count; i++) {
+            long ordinal = (segmentLength > 0)
+                    ? segments.randomClear("benchmark", used, random, total, segmentLength)
+                    : used.randomClear(random, total);
+            used.add(ordinal);
+            Index.insert(ordinal);
+        }
+        return Index;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        if (Index != null) {
+            System.out.printf("%nsegmentSize=%d leaves=%d fill=%.3f leaves per %d inserts=%.0f%n",
+                    segmentSize, Index.Leaves.size(),
+                    (double) count / ((long) Index.Leaves.size() * LEAF_CAPACITY),
+                    WINDOW, Index.getLeavesPerWindow());
+        }
+    }
+
+    /**
+     * The leaf level of a B+tree, by the first key of every leaf
+     */
+    public static final class Index {
+
+        private final TreeMap<Long, Leaf> Leaves = new TreeMap<>();
+
+        private final Set<Leaf> Touched = Collections.newSetFromMap(
+                new IdentityHashMap<Leaf, Boolean>());
+
+        private long Inserts = 0;
+
+        private long TouchedTotal = 0;
+
+        private Index() {
+            Leaves.put(Long.MIN_VALUE, new Leaf());
+        }
+
+        private void insert(long key) {
+            Map.Entry<Long, Leaf> entry = Leaves.floorEntry(key);
+            Leaf leaf = entry.getValue();
+            leaf.insert(key);
+            Touched.add(leaf);
+            if (leaf.Size == LEAF_CAPACITY) {
+                Leaf right = leaf.split();
+                Leaves.put(right.Keys[0], right);
+                Touched.add(right);
+            }
+            if (++Inserts % WINDOW == 0) {
+                TouchedTotal += Touched.size();
+                Touched.clear();
+            }
+        }
+
+        private double getLeavesPerWindow() {
+            long windows = Inserts / WINDOW;
+            return (windows > 0) ? (double) TouchedTotal / windows : Touched.size();
+        }
+    }
+
+    /**
+     * A leaf page holding sorted keys
+     */
+    private static final class Leaf {
+
+        private final long[] Keys = new long[LEAF_CAPACITY];
+
+        private int Size = 0;
+
+        private void insert(long key) {
+            int index = -Arrays.binarySearch(Keys, 0, Size, key) - 1;
+            System.arraycopy(Keys, index, Keys, index + 1, Size - index);
+            Keys[index] = key;
+            Size++;
+        }
+
+        private Leaf split() {
+            Leaf right = new Leaf();
+            int half = Size / 2;
+            right.Size = Size - half;
+            System.arraycopy(Keys, half, right.Keys, 0, right.Size);
+            Size = half;
+            return right;
+        }
+    }
+}
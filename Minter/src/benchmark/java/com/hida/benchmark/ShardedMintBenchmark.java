@@ -0,0 +1,179 @@
+package com.hida.benchmark;
+
+import com.hida.dao.ShardedPidStore;
+import com.hida.model.AutoId;
+import com.hida.model.AutoIdGenerator;
+import com.hida.model.CustomId;
+import com.hida.model.Pid;
+import com.hida.model.TokenType;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate4.LocalSessionFactoryBuilder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Measures the throughput of mints that store their Pids in a ShardedPidStore
+ * of one or of four HSQLDB file databases with cached tables.
+ *
+ * Every operation is a transaction that stores a batch of Pids of one of
+ * eight namespaces whose roots have different lengths, so that four shards
+ * each hold two of them. Ordinals are spread over each namespace as random
+ * mints are. The transaction of the minter itself runs against an in-memory
+ * database, so that only the shards are measured. Mints are serialized by the
+ * controller, so the default single thread is the relevant figure; pass -t 4
+ * to see how the shards behave under concurrent transactions.
+ *
+ * @author lruffin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 6, time = 5)
+@Measurement(iterations = 10, time = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx2g", "-Dhsqldb.reconfig_logging=false"})
+@State(Scope.Benchmark)
+public class ShardedMintBenchmark {
+
+    /**
+     * The number of namespaces, with roots of 7 to 14 digits
+     */
+    private static final int NAMESPACES = 8;
+
+    /**
+     * The number of Pids a mint stores
+     */
+    private static final int BATCH = 1000;
+
+    /**
+     * The number of shards
+     */
+    @Param({"1", "4"})
+    public int shards;
+
+    private File Directory;
+
+    private List<SessionFactory> Factories;
+
+    /**
+     * A connection to every shard that keeps its database open between
+     * transactions, as the pool of a server would
+     */
+    private List<Connection> Connections;
+
+    private ShardedPidStore Store;
+
+    private TransactionTemplate Template;
+
+    private AutoIdGenerator[] Generators;
+
+    private AtomicLong[] Counters;
+
+    private final AtomicLong Mints = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        Directory = Files.createTempDirectory("shardedmint").toFile();
+        Factories = new ArrayList<>();
+        Connections = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            String url = "jdbc:hsqldb:file:" + Directory + "/shard" + i
+                    + ";hsqldb.default_table_type=cached";
+            Connections.add(DriverManager.getConnection(url, "sa", ""));
+            Factories.add(createShard(url));
+        }
+        Store = new ShardedPidStore(Factories, Collections.<Integer, Integer>emptyMap());
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:hsqldb:mem:minter", "sa", "");
+        Template = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        Generators = new AutoIdGenerator[NAMESPACES];
+        Counters = new AtomicLong[NAMESPACES];
+        for (int i = 0; i < NAMESPACES; i++) {
+            Generators[i] = new AutoIdGenerator("", true, TokenType.DIGIT, 7 + i);
+            Counters[i] = new AtomicLong();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        Store.close();
+        for (Connection connection : Connections) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+            connection.close();
+        }
+        File[] files = Directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                File[] children = file.listFiles();
+                if (children != null) {
+                    for (File child : children) {
+                        child.delete();
+                    }
+                }
+                file.delete();
+            }
+        }
+        Directory.delete();
+    }
+
+    @Benchmark
+    public void mint() {
+        final int namespace = (int) (Mints.getAndIncrement() % NAMESPACES);
+        final AutoIdGenerator generator = Generators[namespace];
+        final long first = Counters[namespace].getAndAdd(BATCH);
+        Template.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                long total = generator.calculatePermutations();
+                long stride = 1000000007L;
+                for (long i = first; i < first + BATCH; i++) {
+                    Store.savePid(generator.createId((i * stride) % total));
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates the SessionFactory of a shard
+     *
+     * @param url The JDBC url of the shard
+     * @return the SessionFactory
+     */
+    private static SessionFactory createShard(String url) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(dataSource);
+        builder.addAnnotatedClasses(Pid.class, AutoId.class, CustomId.class);
+        builder.setProperty("hibernate.dialect", "org.hibernate.dialect.HSQLDialect");
+        builder.setProperty("hibernate.hbm2ddl.auto", "create");
+        return builder.buildSessionFactory();
+    }
+}
@@ -24,4 +24,15 @@ public class AppInitializer extends AbstractAnnotationConfigDispatcherServletIni
         return new String[]{"/"};
     }
 
+    /**
+     * Lets mint requests release their container thread while they wait on
+     * the MintQueue
+     *
+     * @return true
+     */
+    @Override
+    protected boolean isAsyncSupported() {
+        return true;
+    }
+
 }
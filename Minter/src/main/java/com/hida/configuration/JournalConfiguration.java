@@ -0,0 +1,40 @@
+package com.hida.configuration;
+
+import com.hida.service.MintJournal;
+import java.io.File;
+import java.io.IOException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+
+/**
+ * This class is used to configure the audit journal of minted Pids.
+ *
+ * @author lruffin
+ */
+@Configuration
+@PropertySource(value = {"classpath:minter_config.properties"})
+public class JournalConfiguration {
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Opens the mint journal. The journal is disabled whenever
+     * minter.journal.file is left empty.
+     *
+     * @return the mint journal
+     * @throws IOException Thrown if the journal could not be opened
+     */
+    @Bean(destroyMethod = "close")
+    public MintJournal mintJournal() throws IOException {
+        String path = environment.getProperty("minter.journal.file", "").trim();
+        if (path.isEmpty()) {
+            return new MintJournal();
+        }
+        int capacity = environment.getProperty("minter.journal.capacity", Integer.class, 1024);
+        return new MintJournal(new File(path), capacity);
+    }
+}
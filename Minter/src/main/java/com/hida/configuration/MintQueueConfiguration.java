@@ -0,0 +1,47 @@
+package com.hida.configuration;
+
+import com.hida.service.MintQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+
+/**
+ * This class is used to configure the threads mint requests are run on.
+ *
+ * @author lruffin
+ */
+@Configuration
+@PropertySource(value = {"classpath:minter_config.properties"})
+public class MintQueueConfiguration {
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Creates the queue of mint requests. minter.mint.threads mints run at a
+     * time, minter.mint.queueCapacity more may wait, and a request is
+     * answered with 503 if its mint has not started within minter.mint.timeout
+     * milliseconds.
+     *
+     * @return the mint queue
+     */
+    @Bean(destroyMethod = "shutdown")
+    public MintQueue mintQueue() {
+        int threads = environment.getProperty("minter.mint.threads", Integer.class, 1);
+        int capacity = environment.getProperty("minter.mint.queueCapacity", Integer.class, 16);
+        long timeout = environment.getProperty("minter.mint.timeout", Long.class, 60000L);
+        if (threads < 1) {
+            throw new IllegalArgumentException("minter.mint.threads must be positive: " + threads);
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    "minter.mint.queueCapacity must not be negative: " + capacity);
+        }
+        if (timeout < 1) {
+            throw new IllegalArgumentException("minter.mint.timeout must be positive: " + timeout);
+        }
+        return new MintQueue(threads, capacity, timeout);
+    }
+}
@@ -0,0 +1,121 @@
+package com.hida.configuration;
+
+import com.hida.dao.HibernatePidStore;
+import com.hida.dao.MappedPidStore;
+import com.hida.dao.OrdinalPidStore;
+import com.hida.dao.PidStore;
+import com.hida.dao.ShardedPidStore;
+import com.hida.model.AutoId;
+import com.hida.model.CustomId;
+import com.hida.model.Pid;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate4.LocalSessionFactoryBuilder;
+
+/**
+ * This class is used to select where minted Pids are stored.
+ *
+ * @author lruffin
+ */
+@Configuration
+@PropertySource(value = {"classpath:minter_config.properties"})
+public class PidStoreConfiguration {
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Creates the store given by minter.store.type: hibernate keeps the Pids
+     * in the PIDS table, ordinal keeps their namespaces and ordinals in the
+     * PID_ORDINAL table, sharded spreads the PIDS table over the databases
+     * listed in minter.store.shards by the lengths of the names, following
+     * minter.store.shardMap, and mapped keeps them in memory-mapped segment
+     * files in minter.store.directory. Sharded and mapped stores are closed
+     * together with the application context.
+     *
+     * @return the store of the Pids
+     * @throws IOException Thrown if the mapped store could not be opened
+     */
+    @Bean
+    public PidStore pidStore() throws IOException {
+        String type = environment.getProperty("minter.store.type", "hibernate").trim();
+        if (type.equals("hibernate")) {
+            return new HibernatePidStore();
+        }
+        else if (type.equals("ordinal")) {
+            return new OrdinalPidStore();
+        }
+        else if (type.equals("sharded")) {
+            List<SessionFactory> shards = new ArrayList<>();
+            for (String url : environment.getRequiredProperty("minter.store.shards").split(",")) {
+                shards.add(shardSessionFactory(url.trim()));
+            }
+            return new ShardedPidStore(shards,
+                    parseShardMap(environment.getProperty("minter.store.shardMap", "")));
+        }
+        else if (type.equals("mapped")) {
+            String directory = environment.getProperty("minter.store.directory", "pidstore").trim();
+            int segmentEntries = environment.getProperty("minter.store.segmentEntries",
+                    Integer.class, 1 << 20);
+            return new MappedPidStore(new File(directory), segmentEntries);
+        }
+        throw new IllegalArgumentException("Unknown minter.store.type: " + type);
+    }
+
+    /**
+     * Creates the SessionFactory of a shard, which only holds the PIDS table
+     * and uses the driver, credentials and Hibernate settings of the main
+     * database
+     *
+     * @param url The JDBC url of the shard
+     * @return the SessionFactory
+     */
+    private SessionFactory shardSessionFactory(String url) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName(environment.getRequiredProperty("jdbc.driverClassName"));
+        dataSource.setUrl(url);
+        dataSource.setUsername(environment.getRequiredProperty("jdbc.username"));
+        dataSource.setPassword(environment.getRequiredProperty("jdbc.password"));
+
+        LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(dataSource);
+        builder.addAnnotatedClasses(Pid.class, AutoId.class, CustomId.class);
+        builder.setProperty("hibernate.dialect",
+                environment.getRequiredProperty("hibernate.dialect"));
+        builder.setProperty("hibernate.hbm2ddl.auto",
+                environment.getRequiredProperty("hibernate.hbm2ddl.auto"));
+        return builder.buildSessionFactory();
+    }
+
+    /**
+     * Parses a shard map of the form length=shard, separated by commas
+     *
+     * @param shardMap The shard map
+     * @return the shard of every name length in the map
+     */
+    private static Map<Integer, Integer> parseShardMap(String shardMap) {
+        Map<Integer, Integer> map = new HashMap<>();
+        for (String entry : shardMap.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            String[] pair = entry.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Malformed minter.store.shardMap entry: "
+                        + entry);
+            }
+            map.put(Integer.parseInt(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+        return map;
+    }
+}
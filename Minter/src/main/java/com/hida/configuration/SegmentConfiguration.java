@@ -0,0 +1,38 @@
+package com.hida.configuration;
+
+import com.hida.service.OrdinalSegments;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+
+/**
+ * This class is used to configure how randomly minted Pids are spread over
+ * their namespace.
+ *
+ * @author lruffin
+ */
+@Configuration
+@PropertySource(value = {"classpath:minter_config.properties"})
+public class SegmentConfiguration {
+
+    @Autowired
+    private Environment environment;
+
+    /**
+     * Creates the segments of randomly minted Pids. Random Pids are drawn from
+     * the whole namespace whenever minter.random.segmentSize is 0.
+     *
+     * @return the segments
+     */
+    @Bean
+    public OrdinalSegments ordinalSegments() {
+        long segmentSize = environment.getProperty("minter.random.segmentSize", Long.class, 0L);
+        if (segmentSize < 0) {
+            throw new IllegalArgumentException(
+                    "minter.random.segmentSize must not be negative: " + segmentSize);
+        }
+        return new OrdinalSegments(segmentSize);
+    }
+}
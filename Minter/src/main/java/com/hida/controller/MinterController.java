@@ -1,23 +1,43 @@
 package com.hida.controller;
 
+import com.hida.dao.PidStore;
 import com.hida.model.BadParameterException;
 import com.hida.model.DefaultSetting;
+import com.hida.model.MintRanges;
+import com.hida.model.MinterBusyException;
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
 import com.hida.model.NotEnoughPermutationsException;
 import com.hida.model.Pid;
 import com.hida.model.TokenType;
+import com.hida.service.MintJournal;
+import com.hida.service.MintQueue;
 import com.hida.service.MinterService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonArrayBuilder;
@@ -26,8 +46,12 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.View;
 
 /**
  * A controller class that paths the user to all jsp files in WEB_INF/jsp.
@@ -48,12 +72,73 @@ public class MinterController {
      */
     private static final ReentrantLock RequestLock = new ReentrantLock(true);
 
+    /**
+     * Numbers the mint requests so that they can be found in the mint journal.
+     * Starts at the current time so that ids are not reused after a restart.
+     */
+    private static final AtomicLong RequestCounter = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * The largest number of names a search returns at a time
+     */
+    static final int MAX_SEARCH_LIMIT = 1000;
+
+    /**
+     * The formats a mint can be returned in: every name, or the namespace of
+     * the names and the ranges of their ordinals
+     */
+    static final String LIST_FORMAT = "list";
+    static final String RANGES_FORMAT = "ranges";
+
+    /**
+     * The formats that are streamed to the response rather than shown by
+     * mint.jsp, and their content types: one name per line, one Json object
+     * per line, CSV with a header row, and the binary form of MintRanges.
+     */
+    private static final Map<String, String> STREAMED_FORMATS = new LinkedHashMap<>();
+
+    static {
+        STREAMED_FORMATS.put("names", "text/plain");
+        STREAMED_FORMATS.put("ndjson", "application/x-ndjson");
+        STREAMED_FORMATS.put("csv", "text/csv");
+        STREAMED_FORMATS.put("binary", "application/octet-stream");
+    }
+
+    /**
+     * The view of mints that were streamed to the response, which leaves
+     * nothing to render
+     */
+    private static final View STREAMED_VIEW = new View() {
+        @Override
+        public String getContentType() {
+            return null;
+        }
+
+        @Override
+        public void render(Map<String, ?> model, HttpServletRequest request,
+                HttpServletResponse response) {
+        }
+    };
+
+    /**
+     * The valid charMaps and prefixes, compiled once rather than by every
+     * request that overrides them
+     */
+    private static final Pattern CHAR_MAP_PATTERN = Pattern.compile("[dlume]+");
+    private static final Pattern PREFIX_PATTERN = Pattern.compile("[a-zA-z0-9]*");
+
     /**
      * create a database to be used to create and count number of ids
      */
     @Autowired
     private MinterService MinterService;
 
+    /**
+     * Runs mint requests off the threads of the servlet container
+     */
+    @Autowired
+    private MintQueue MintQueue;
+
     /**
      * Redirects to the index after retrieving updated settings from the
      * administration panel.
@@ -175,20 +260,60 @@ public class MinterController {
     }
 
     /**
-     * Creates a path to mint ids. If parameters aren't given then printPids
-     * will resort to using the default values found in minter_config.properties
+     * Creates a path to mint ids. The mint is queued on the MintQueue and run
+     * by printPids on one of its threads, so the thread of the request is
+     * returned to the container while the mint waits for the minter.
      *
      * @param requestedAmount requested number of ids to mint
      * @param model serves as a holder for the model so that attributes can be
      * added.
      * @param parameters parameters given by user to instill variety in ids
-     * @return paths user to mint.jsp
+     * @param request HTTP request
+     * @param response HTTP response
+     * @return the result of the queued mint, which paths user to mint.jsp
+     * unless the ids were streamed
+     * @throws MinterBusyException Thrown if too many mints are queued
+     */
+    @RequestMapping(value = {"/mint/{requestedAmount}"}, method = {RequestMethod.GET})
+    public DeferredResult<ModelAndView> mintPids(@PathVariable final long requestedAmount,
+            final ModelMap model, @RequestParam final Map<String, String> parameters,
+            final HttpServletRequest request, final HttpServletResponse response) {
+        return MintQueue.submit(new Callable<ModelAndView>() {
+            @Override
+            public ModelAndView call() throws Exception {
+                String view = printPids(requestedAmount, model, parameters, request, response);
+                return (view == null) ? new ModelAndView(STREAMED_VIEW) : new ModelAndView(view);
+            }
+        });
+    }
+
+    /**
+     * Mints ids. If parameters aren't given then printPids will resort to
+     * using the default values found in minter_config.properties
+     *
+     * @param requestedAmount requested number of ids to mint
+     * @param model serves as a holder for the model so that attributes can be
+     * added.
+     * @param parameters parameters given by user to instill variety in ids.
+     * The format parameter chooses between a list of every name, the default,
+     * the ranges of their ordinals, and the streamed formats names, ndjson,
+     * csv and binary. Without it, a streamed format is chosen when the Accept
+     * header lists its content type.
+     * @param request HTTP request whose Accept and Accept-Encoding headers are
+     * read
+     * @param response HTTP response streamed formats are written to, gzipped
+     * if the request accepts it
+     * @return paths user to mint.jsp, or null if the ids were streamed or
+     * the request timed out before the mint started
      * @throws Exception catches all sorts of exceptions that may be thrown by
      * any methods
      */
-    @RequestMapping(value = {"/mint/{requestedAmount}"}, method = {RequestMethod.GET})
     public String printPids(@PathVariable long requestedAmount, ModelMap model,
-            @RequestParam Map<String, String> parameters) throws Exception {
+            @RequestParam Map<String, String> parameters, HttpServletRequest request,
+            HttpServletResponse response) throws Exception {
+
+        // tag the log and the mint journal with the id of this request
+        MDC.put(MintJournal.REQUEST_ID, Long.toString(RequestCounter.incrementAndGet()));
 
         // ensure that only one thread access the minter at any given time
         RequestLock.lock();
@@ -196,35 +321,219 @@ public class MinterController {
 
         // message variable to be sent to mint.jsp
         String message;
+        String format;
+        DefaultSetting tempSetting;
+        Set<Pid> idList;
         try {
-            // validate amount
+            // skip the mint if the request timed out while it waited
+            if (!MintQueue.startMint()) {
+                Logger.warn("Request timed out before its mint started, skipping");
+                return null;
+            }
+
+            // validate amount and format
             validateAmount(requestedAmount);
+            format = negotiateFormat(parameters.get("format"), request.getHeader("Accept"));
 
             // override default settings where applicable
-            DefaultSetting tempSetting = overrideDefaultSetting(parameters,
+            tempSetting = overrideDefaultSetting(parameters,
                     MinterService.getCurrentSetting());
 
             // create the set of ids
-            Set<Pid> idList = MinterService.mint(requestedAmount, tempSetting);
-
-            // convert the set of ids into a json array
-            message = convertListToJson(idList, tempSetting.getPrepend());
-            Logger.info("Message from Minter: " + message);
-
-            // print list of ids to screen
-            Logger.debug(message);
-            model.addAttribute("message", message);
-
+            idList = MinterService.mint(requestedAmount, tempSetting);
+            Logger.info("Minted " + idList.size() + " ids");
+
+            // convert the set of ids into a json array or its ranges
+            if (format.equals(RANGES_FORMAT)) {
+                message = new ObjectMapper().writeValueAsString(
+                        MintRanges.of(tempSetting.getPrepend(), idList));
+                model.addAttribute("message", message);
+            }
+            else if (format.equals(LIST_FORMAT)) {
+                message = convertListToJson(idList, tempSetting.getPrepend());
+                model.addAttribute("message", message);
+            }
         }
         finally {
             // unlocks RequestLock and gives access to longest waiting thread            
             RequestLock.unlock();
             Logger.warn("Request to Minter Finished, UNLOCKING MINTER");
+            MDC.remove(MintJournal.REQUEST_ID);
+        }
+
+        // ids are streamed once the minter is unlocked so that slow clients
+        // don't hold up other requests
+        if (STREAMED_FORMATS.containsKey(format)) {
+            writePids(idList, tempSetting.getPrepend(), format, request, response);
+            return null;
         }
         // return to mint.jsp
         return "mint";
     }
 
+    /**
+     * Writes minted ids to the response in a streamed format, gzipped if the
+     * request accepts it
+     *
+     * @param set The minted ids
+     * @param prepend A value to attach to the beginning of every id
+     * @param format One of the streamed formats
+     * @param request HTTP request whose Accept-Encoding header is read
+     * @param response HTTP response the ids are written to
+     * @throws IOException Thrown whenever the ids could not be written
+     */
+    private void writePids(Set<Pid> set, String prepend, String format,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(STREAMED_FORMATS.get(format));
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Vary", "Accept, Accept-Encoding");
+
+        OutputStream output = response.getOutputStream();
+        GZIPOutputStream gzip = null;
+        if (acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            response.setHeader("Content-Encoding", "gzip");
+            gzip = new GZIPOutputStream(output, 8192);
+            output = gzip;
+        }
+
+        if (format.equals("binary")) {
+            DataOutputStream data = new DataOutputStream(output);
+            MintRanges.of(prepend, set).writeTo(data);
+            data.flush();
+        }
+        else {
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(output, StandardCharsets.UTF_8), 8192);
+            if (format.equals("csv")) {
+                writer.write("name\n");
+            }
+            for (Pid id : set) {
+                String name = prepend + id.getName();
+                if (format.equals("csv")) {
+                    writer.write(toCsvField(name));
+                }
+                else if (format.equals("ndjson")) {
+                    writer.write(toJsonLine(name));
+                }
+                else {
+                    writer.write(name);
+                }
+                writer.write('\n');
+            }
+            writer.flush();
+        }
+        if (gzip != null) {
+            gzip.finish();
+        }
+    }
+
+    /**
+     * Reports how full every setting that was used to mint Pids is and how
+     * quickly it is filling up. The report is served from counters kept in
+     * memory, so it doesn't wait for mint requests to finish.
+     *
+     * @return a Json array with the status of every setting
+     * @throws IOException thrown whenever the statuses could not be formatted
+     */
+    @RequestMapping(value = {"/namespaces"}, method = {RequestMethod.GET},
+            produces = "application/json")
+    @ResponseBody
+    public String listNamespaces() throws IOException {
+        Logger.info("namespaces called");
+        ObjectMapper mapper = new ObjectMapper();
+        return mapper.writerWithDefaultPrettyPrinter().
+                writeValueAsString(MinterService.getNamespaceStatuses());
+    }
+
+    /**
+     * Streams the name of every minted Pid that starts with the given prefix
+     * to the response, either as CSV with a header row or as NDJSON with one
+     * Json object per line. Names are written as they are read from the
+     * store, so the export takes the same memory however many Pids there
+     * are. Names are exported as they are stored, without a prepend.
+     *
+     * @param format Either csv or ndjson
+     * @param prefix The start of the exported names, empty for every name
+     * @param response HTTP response the names are written to
+     * @throws Exception Thrown whenever the format is unknown or the names
+     * could not be written
+     */
+    @RequestMapping(value = {"/pids"}, method = {RequestMethod.GET})
+    public void exportPids(@RequestParam(value = "format", defaultValue = "csv") String format,
+            @RequestParam(value = "prefix", defaultValue = "") String prefix,
+            HttpServletResponse response) throws Exception {
+        Logger.info("pids called");
+        final boolean csv;
+        if (format.equals("csv")) {
+            csv = true;
+            response.setContentType("text/csv");
+        }
+        else if (format.equals("ndjson")) {
+            csv = false;
+            response.setContentType("application/x-ndjson");
+        }
+        else {
+            throw new BadParameterException(format, "format");
+        }
+        response.setCharacterEncoding("UTF-8");
+
+        final Writer writer = response.getWriter();
+        if (csv) {
+            writer.write("name\n");
+        }
+        MinterService.exportNames(prefix, new PidStore.NameHandler() {
+            @Override
+            public void handle(String name) throws IOException {
+                writer.write(csv ? toCsvField(name) : toJsonLine(name));
+                writer.write('\n');
+            }
+        });
+        writer.flush();
+    }
+
+    /**
+     * Returns a page of the names of the minted Pids that start with the given
+     * prefix and, if given, continue with the given charMap, as Json with the
+     * names and the cursor to pass as after for the next page, which is null
+     * after the last page. Pages start after the cursor rather than at an
+     * offset, so every page is as quick to find however deep into the names
+     * it is. Names are found as they are stored, without a prepend.
+     *
+     * @param prefix The start of the names to find, empty for every name
+     * @param charMap The classes of the characters after the prefix, empty
+     * for any characters
+     * @param after The cursor of the previous page, absent for the first page
+     * @param limit The largest number of names of the page
+     * @return a Json object with the names of the page and the next cursor
+     * @throws Exception Thrown whenever a parameter is invalid or the page
+     * could not be formatted
+     */
+    @RequestMapping(value = {"/search"}, method = {RequestMethod.GET},
+            produces = "application/json")
+    @ResponseBody
+    public String searchPids(@RequestParam(value = "prefix", defaultValue = "") String prefix,
+            @RequestParam(value = "charMap", defaultValue = "") String charMap,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) throws Exception {
+        Logger.info("search called");
+        validatePrefix(prefix);
+        if (!charMap.isEmpty()) {
+            validateCharMap(charMap);
+        }
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new BadParameterException(limit, "limit");
+        }
+        NamePage page;
+        try {
+            page = MinterService.searchNames(new NamePattern(prefix, charMap), after, limit);
+        }
+        catch (IllegalArgumentException exception) {
+            throw new BadParameterException(after, "after");
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        return mapper.writeValueAsString(page);
+    }
+
     /**
      * Maps to the admin panel on the home page.
      *
@@ -275,6 +584,26 @@ public class MinterController {
 
     }
 
+    /**
+     * Returns a view that displays the error message of MinterBusyException
+     * with the status 503, so that clients know to retry later.
+     *
+     * @param req The HTTP request.
+     * @param exception MinterBusyException.
+     * @return The view of the error message in json format.
+     */
+    @ExceptionHandler(MinterBusyException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ModelAndView handleBusyError(HttpServletRequest req, Exception exception) {
+        Logger.warn("Request: " + req.getRequestURL() + " raised " + exception);
+        ModelAndView mav = new ModelAndView();
+        mav.addObject("status", 503);
+        mav.addObject("exception", exception.getClass().getSimpleName());
+        mav.addObject("message", exception.getMessage());
+        mav.setViewName("error");
+        return mav;
+    }
+
     /**
      * Returns a view that displays the error message of BadParameterException.
      *
@@ -394,6 +723,101 @@ public class MinterController {
         }
     }
 
+    /**
+     * Quotes a CSV field if it contains a separator, a quote or a line break
+     *
+     * @param value The value of the field
+     * @return the field
+     */
+    private static String toCsvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Creates the NDJSON line of a name, a Json object with the name as its
+     * only member, without the line break
+     *
+     * @param name The name of the line
+     * @return the line
+     */
+    private static String toJsonLine(String name) {
+        StringBuilder line = new StringBuilder(name.length() + 12).append("{\"name\":\"");
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        line.append(c);
+                    }
+            }
+        }
+        return line.append("\"}").toString();
+    }
+
+    /**
+     * Checks whether an Accept-Encoding header accepts gzip. gzip is accepted
+     * when its quality is above 0, or, when it isn't listed, when the quality
+     * of * is. A coding without a quality has a quality of 1.
+     *
+     * @param acceptEncoding The Accept-Encoding header, null if there is none
+     * @return true if the response may be gzipped
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.toLowerCase().split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    }
+                    catch (NumberFormatException exception) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = quality;
+            }
+            else if (name.equals("*")) {
+                any = quality;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+
     /**
      * Creates a Json object based off a set of ids given in the parameter
      *
@@ -442,12 +866,45 @@ public class MinterController {
      * detected.
      */
     private String validateCharMap(String charMap) throws BadParameterException {
-        if (!charMap.matches("[dlume]+")) {
+        if (!CHAR_MAP_PATTERN.matcher(charMap).matches()) {
             throw new BadParameterException(charMap, "charMap");
         }
         return charMap;
     }
 
+    /**
+     * Chooses the format of a mint. A format parameter is used if it is
+     * valid; otherwise the first content type of the Accept header that is
+     * produced by a streamed format chooses that format, and anything else,
+     * browsers included, gets the default list.
+     *
+     * @param format The requested format, null if none was requested
+     * @param accept The Accept header of the request, null if there is none
+     * @return Returns the format to use
+     * @throws BadParameterException Thrown whenever a bad parameter is
+     * detected.
+     */
+    private String negotiateFormat(String format, String accept) throws BadParameterException {
+        if (format != null) {
+            if (!format.equals(LIST_FORMAT) && !format.equals(RANGES_FORMAT)
+                    && !STREAMED_FORMATS.containsKey(format)) {
+                throw new BadParameterException(format, "format");
+            }
+            return format;
+        }
+        if (accept != null) {
+            for (String mediaRange : accept.split(",")) {
+                String type = mediaRange.split(";")[0].trim().toLowerCase();
+                for (Map.Entry<String, String> entry : STREAMED_FORMATS.entrySet()) {
+                    if (entry.getValue().equals(type)) {
+                        return entry.getKey();
+                    }
+                }
+            }
+        }
+        return LIST_FORMAT;
+    }
+
     /**
      * Checks to see if the amount is valid
      *
@@ -471,7 +928,7 @@ public class MinterController {
      * detected.
      */
     private String validatePrefix(String prefix) throws BadParameterException {
-        if (!prefix.matches("[a-zA-z0-9]*")) {
+        if (!PREFIX_PATTERN.matcher(prefix).matches()) {
             throw new BadParameterException(prefix, "prefix");
         }
         return prefix;
@@ -0,0 +1,144 @@
+package com.hida.dao;
+
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
+import com.hida.model.Pid;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.Criteria;
+import org.hibernate.Query;
+import org.hibernate.Session;
+
+/**
+ * Stores every Pid as an entity of the PIDS table.
+ *
+ * @author lruffin
+ */
+public class HibernatePidStore extends AbstractDao<String, Pid> implements PidStore {
+
+    /**
+     * The smallest number of names or ordinals read from the database at a
+     * time by searchNames
+     */
+    static final int FETCH_SIZE = 1000;
+
+    /**
+     * Finds a PID by its unique name 
+     *
+     * @param name 
+     * @return PID
+     */
+    @Override
+    public Pid findByName(String name) {
+        return getByKey(name);
+    }
+
+    /**
+     * Finds the stored PID with the root of the name of a PID, which is its
+     * primary key
+     *
+     * @param pid
+     * @return PID
+     */
+    @Override
+    public Pid findPid(Pid pid) {
+        return getByKey(pid.getRootName());
+    }
+
+    /**
+     * Saves a PID 
+     *
+     * @param pid 
+     */
+    @Override
+    public void savePid(Pid pid) {
+        persist(pid);
+    }
+
+    /**
+     * Lists all PIDs stored in the database
+     *
+     * @return List of all PIDs
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Pid> findAllPids() {
+        Criteria criteria = createEntityCriteria();
+        return (List<Pid>) criteria.list();
+    }
+
+    /**
+     * Finds a page of the names of the PIDS table that match a pattern, in
+     * order. The names that start with the prefix of the pattern are read as
+     * a range of the primary key, which every page enters after the last name
+     * of the previous page.
+     *
+     * @param pattern The names to find
+     * @param after The last name of the previous page, or null for the first
+     * page
+     * @param limit The largest number of names of the page
+     * @return the page
+     */
+    @Override
+    public NamePage searchNames(NamePattern pattern, String after, int limit) {
+        return searchNames(getSession(), pattern, after, limit);
+    }
+
+    /**
+     * Finds a page of the names of the PIDS table of a session that match a
+     * pattern, in order. Names outside of the CharMap of the pattern are read
+     * and skipped a fetch at a time until the page is full.
+     *
+     * @param session The session of the database
+     * @param pattern The names to find
+     * @param after The last name of the previous page, or null for the first
+     * page
+     * @param limit The largest number of names of the page
+     * @return the page
+     */
+    @SuppressWarnings("unchecked")
+    static NamePage searchNames(Session session, NamePattern pattern, String after, int limit) {
+        String start = pattern.getPrefix();
+        boolean started = after != null && after.compareTo(start) >= 0;
+        if (started) {
+            start = after;
+        }
+        String end = NamePattern.getUpperBound(pattern.getPrefix());
+        int fetchSize = Math.max(limit, FETCH_SIZE);
+        List<String> names = new ArrayList<>();
+        while (end == null || start.compareTo(end) < 0) {
+            // a single lower bound, so that the range of the index starts at
+            // the end of the previous fetch
+            Query query = session.createQuery("select p.Name from Pid p where "
+                    + ((started) ? "p.Name > :start" : "p.Name >= :start")
+                    + ((end == null) ? "" : " and p.Name < :end")
+                    + ((pattern.getLength() < 0) ? "" : " and length(p.Name) = :length")
+                    + " order by p.Name");
+            query.setString("start", start);
+            if (end != null) {
+                query.setString("end", end);
+            }
+            if (pattern.getLength() >= 0) {
+                query.setInteger("length", pattern.getLength());
+            }
+            query.setMaxResults(fetchSize);
+            query.setFetchSize(fetchSize);
+            query.setReadOnly(true);
+            List<String> fetched = (List<String>) query.list();
+            for (String name : fetched) {
+                if (pattern.matches(name)) {
+                    names.add(name);
+                    if (names.size() == limit) {
+                        return new NamePage(names, name);
+                    }
+                }
+            }
+            if (fetched.size() < fetchSize) {
+                break;
+            }
+            start = fetched.get(fetched.size() - 1);
+            started = true;
+        }
+        return new NamePage(names, null);
+    }
+}
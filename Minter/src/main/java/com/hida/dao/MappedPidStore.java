@@ -0,0 +1,444 @@
+package com.hida.dao;
+
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
+import com.hida.model.Pid;
+import com.hida.model.PidNamespace;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.hibernate.NonUniqueObjectException;
+
+/**
+ * Stores Pids as ordinals in append-only, memory-mapped segment files instead
+ * of the PIDS table.
+ *
+ * Every Pid belongs to a namespace: its type, prefix and the characters each
+ * of its positions may take. A Pid is stored as its ordinal within that
+ * namespace, so that a Pid costs 8 bytes on disk regardless of its length.
+ * The namespaces are listed in a catalog file and every namespace appends its
+ * ordinals to its own sequence of fixed-size segments. Existing ordinals are
+ * held in memory as sorted ranges, which keeps sequentially minted Pids down
+ * to a single range, and are rebuilt by scanning the segments when the store
+ * is opened.
+ *
+ * Names are unique across namespaces, just as they are in the PIDS table.
+ * Saved Pids are written to the segments immediately rather than when the
+ * surrounding transaction commits, so a rolled back mint leaves its Pids
+ * behind as used; they are never minted again. The segments survive the
+ * minter being killed at any point, but only segments that were forced,
+ * which happens when a segment fills up and when the store is closed, are
+ * guaranteed to survive a crash of the operating system.
+ *
+ * Namespaces may be wider than 64 bits, but only Pids whose ordinals fit in a
+ * long can be stored, which rules out randomly minted Pids of wide namespaces.
+ *
+ * @author lruffin
+ */
+public class MappedPidStore implements PidStore, Closeable {
+
+    /**
+     * The name of the file that lists every namespace
+     */
+    private static final String CATALOG = "namespaces.dat";
+
+    /**
+     * The number of bytes of an entry in a segment
+     */
+    private static final int ENTRY_SIZE = 8;
+
+    private final File Directory;
+
+    private final int SegmentEntries;
+
+    private final List<Namespace> Namespaces = new ArrayList<>();
+
+    private final Map<String, Namespace> NamespacesByKey = new HashMap<>();
+
+    private DataOutputStream Catalog;
+
+    /**
+     * Opens the store in the given directory, creating it if necessary, and
+     * recovers every namespace from its segments.
+     *
+     * @param directory The directory that holds the catalog and the segments
+     * @param segmentEntries The number of Pids a segment can hold
+     * @throws IOException Thrown if the store could not be opened
+     */
+    public MappedPidStore(File directory, int segmentEntries) throws IOException {
+        if (segmentEntries <= 0) {
+            throw new IllegalArgumentException("segmentEntries must be positive");
+        }
+        this.Directory = directory;
+        this.SegmentEntries = segmentEntries;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        recover();
+    }
+
+    /**
+     * Finds a Pid by its unique name by checking whether the name is an
+     * ordinal of any namespace
+     *
+     * @param name
+     * @return the Pid or null if it has not been stored
+     */
+    @Override
+    public synchronized Pid findByName(String name) {
+        for (Namespace namespace : Namespaces) {
+            long ordinal = namespace.Codec.parse(name);
+            if (ordinal >= 0 && namespace.Ordinals.contains(ordinal)) {
+                return namespace.Codec.toPid(ordinal);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the stored Pid with the full name of a Pid
+     *
+     * @param pid
+     * @return the Pid or null if it has not been stored
+     */
+    @Override
+    public Pid findPid(Pid pid) {
+        return findByName(pid.getName());
+    }
+
+    /**
+     * Appends a Pid to the segments of its namespace
+     *
+     * @param pid
+     * @throws NonUniqueObjectException Thrown if a Pid with the same name was
+     * already stored
+     * @throws UnsupportedOperationException Thrown if the ordinal of the Pid
+     * doesn't fit in a long
+     */
+    @Override
+    public synchronized void savePid(Pid pid) {
+        String name = pid.getName();
+        if (findByName(name) != null) {
+            throw new NonUniqueObjectException(name, pid.getClass().getName());
+        }
+        long ordinal;
+        try {
+            ordinal = pid.getOrdinal();
+        }
+        catch (ArithmeticException exception) {
+            throw new UnsupportedOperationException(
+                    "Only Pids whose ordinals fit in a long can be stored: " + name, exception);
+        }
+        try {
+            Namespace namespace = getNamespace(pid);
+            namespace.append(ordinal);
+            namespace.Ordinals.add(ordinal);
+        }
+        catch (IOException exception) {
+            throw new IllegalStateException("Unable to store " + name, exception);
+        }
+    }
+
+    /**
+     * Lists every stored Pid, namespace by namespace in the order of their
+     * ordinals
+     *
+     * @return List of all Pids
+     */
+    @Override
+    public synchronized List<Pid> findAllPids() {
+        List<Pid> list = new ArrayList<>();
+        for (Namespace namespace : Namespaces) {
+            for (Map.Entry<Long, Long> range : namespace.Ordinals.Ranges.entrySet()) {
+                for (long ordinal = range.getKey(); ordinal < range.getValue(); ordinal++) {
+                    list.add(namespace.Codec.toPid(ordinal));
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Finds a page of the names of every namespace whose names may match a
+     * pattern, namespace by namespace in the order of their ordinals. The
+     * names of a namespace that start with the prefix of the pattern are a
+     * range of its ordinals, of which only the stored ranges are visited. The
+     * store is only locked to look up the next stored range, so mints aren't
+     * held up by a search.
+     *
+     * @param pattern The names to find
+     * @param after The cursor of the previous page, or null for the first
+     * page
+     * @param limit The largest number of names of the page
+     * @return the page
+     * @throws IllegalArgumentException Thrown if the cursor wasn't returned
+     * by this store
+     */
+    @Override
+    public NamePage searchNames(NamePattern pattern, String after, int limit) {
+        long[] cursor = OrdinalPidStore.parseCursor(after);
+        List<Namespace> namespaces;
+        synchronized (this) {
+            namespaces = new ArrayList<>(Namespaces);
+        }
+        List<String> names = new ArrayList<>();
+        for (Namespace namespace : namespaces) {
+            int id = namespace.Codec.getId();
+            long[] range = namespace.Codec.getOrdinalRange(pattern.getPrefix());
+            if (id < cursor[0] || range == null || !pattern.mayMatch(namespace.Codec)) {
+                continue;
+            }
+            long next = (id == cursor[0]) ? Math.max(range[0], cursor[1] + 1) : range[0];
+            while (next < range[1]) {
+                long from;
+                long to;
+                synchronized (this) {
+                    Map.Entry<Long, Long> stored = namespace.Ordinals.Ranges.floorEntry(next);
+                    if (stored == null || stored.getValue() <= next) {
+                        stored = namespace.Ordinals.Ranges.higherEntry(next);
+                    }
+                    if (stored == null) {
+                        break;
+                    }
+                    from = Math.max(stored.getKey(), next);
+                    to = Math.min(stored.getValue(), range[1]);
+                }
+                for (long ordinal = from; ordinal < to; ordinal++) {
+                    String name = namespace.Codec.toPid(ordinal).getName();
+                    if (pattern.matches(name)) {
+                        names.add(name);
+                        if (names.size() == limit) {
+                            return new NamePage(names, OrdinalPidStore.toCursor(id, ordinal));
+                        }
+                    }
+                }
+                next = Math.max(to, from);
+            }
+        }
+        return new NamePage(names, null);
+    }
+
+    /**
+     * Forces the segments that are being written to disk
+     *
+     * @throws IOException
+     */
+    public synchronized void sync() throws IOException {
+        for (Namespace namespace : Namespaces) {
+            if (namespace.Active != null) {
+                namespace.Active.force();
+            }
+        }
+        Catalog.flush();
+    }
+
+    /**
+     * Forces the segments to disk and closes the catalog
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (Catalog != null) {
+            sync();
+            Catalog.close();
+            Catalog = null;
+        }
+    }
+
+    /**
+     * Returns the number of Pids stored
+     *
+     * @return the number of Pids
+     */
+    public synchronized long size() {
+        long size = 0;
+        for (Namespace namespace : Namespaces) {
+            size += namespace.Ordinals.Size;
+        }
+        return size;
+    }
+
+    /**
+     * Reads the catalog and scans the segments of every namespace in it. A
+     * namespace that was only partially written to the catalog is discarded.
+     *
+     * @throws IOException
+     */
+    private void recover() throws IOException {
+        File catalog = new File(Directory, CATALOG);
+        long length = 0;
+        if (catalog.exists()) {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(
+                    Files.readAllBytes(catalog.toPath()));
+            try (DataInputStream in = new DataInputStream(bytes)) {
+                while (true) {
+                    byte kind = in.readByte();
+                    String prefix = in.readUTF();
+                    String[] alphabets = new String[in.readInt()];
+                    for (int i = 0; i < alphabets.length; i++) {
+                        alphabets[i] = in.readUTF();
+                    }
+                    addNamespace(new Namespace(
+                            new PidNamespace(Namespaces.size(), kind, prefix, alphabets)));
+                    length = catalog.length() - bytes.available();
+                }
+            }
+            catch (EOFException exception) {
+                // the end of the catalog or a namespace interrupted by a crash
+            }
+            try (RandomAccessFile file = new RandomAccessFile(catalog, "rw")) {
+                file.setLength(length);
+            }
+        }
+        for (Namespace namespace : Namespaces) {
+            namespace.recover();
+        }
+        Catalog = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(catalog, true)));
+    }
+
+    /**
+     * Returns the namespace of a Pid, adding it to the catalog if it is new
+     *
+     * @param pid
+     * @return the namespace
+     * @throws IOException
+     */
+    private Namespace getNamespace(Pid pid) throws IOException {
+        PidNamespace codec = PidNamespace.of(Namespaces.size(), pid);
+        Namespace namespace = NamespacesByKey.get(codec.getKey());
+        if (namespace == null) {
+            namespace = new Namespace(codec);
+            Catalog.writeByte(codec.getKind());
+            Catalog.writeUTF(codec.getPrefix());
+            Catalog.writeInt(codec.getAlphabets().length);
+            for (String alphabet : codec.getAlphabets()) {
+                Catalog.writeUTF(alphabet);
+            }
+            Catalog.flush();
+            addNamespace(namespace);
+        }
+        return namespace;
+    }
+
+    private void addNamespace(Namespace namespace) {
+        Namespaces.add(namespace);
+        NamespacesByKey.put(namespace.Codec.getKey(), namespace);
+    }
+
+    /**
+     * A namespace together with the ordinals stored in it. Every entry of a
+     * segment holds an ordinal plus one, so that the zeros a new segment is
+     * filled with mark its end.
+     */
+    private final class Namespace {
+
+        private final PidNamespace Codec;
+
+        private final OrdinalRanges Ordinals = new OrdinalRanges();
+
+        private MappedByteBuffer Active;
+
+        private int NextSegment = 0;
+
+        private Namespace(PidNamespace codec) {
+            this.Codec = codec;
+        }
+
+        /**
+         * Appends an ordinal to the active segment, mapping a new segment
+         * once it is full
+         *
+         * @param ordinal
+         * @throws IOException
+         */
+        private void append(long ordinal) throws IOException {
+            if (Active == null || !Active.hasRemaining()) {
+                if (Active != null) {
+                    Active.force();
+                }
+                Active = map(NextSegment++);
+            }
+            Active.putLong(ordinal + 1);
+        }
+
+        /**
+         * Scans the segments in order and leaves the last one positioned
+         * after its last entry
+         *
+         * @throws IOException
+         */
+        private void recover() throws IOException {
+            while (segment(NextSegment).exists()) {
+                Active = map(NextSegment++);
+                while (Active.hasRemaining()) {
+                    long entry = Active.getLong(Active.position());
+                    if (entry == 0) {
+                        break;
+                    }
+                    Ordinals.add(entry - 1);
+                    Active.position(Active.position() + ENTRY_SIZE);
+                }
+            }
+        }
+
+        private MappedByteBuffer map(int segment) throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(segment(segment), "rw");
+                    FileChannel channel = file.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        (long) SegmentEntries * ENTRY_SIZE);
+            }
+        }
+
+        private File segment(int segment) {
+            return new File(Directory, String.format("%d-%d.seg", Codec.getId(), segment));
+        }
+    }
+
+    /**
+     * A set of ordinals kept as disjoint, non-adjacent ranges that map their
+     * first ordinal to the ordinal after their last.
+     */
+    private static final class OrdinalRanges {
+
+        private final TreeMap<Long, Long> Ranges = new TreeMap<>();
+
+        private long Size = 0;
+
+        private boolean contains(long ordinal) {
+            Map.Entry<Long, Long> floor = Ranges.floorEntry(ordinal);
+            return floor != null && floor.getValue() > ordinal;
+        }
+
+        private boolean add(long ordinal) {
+            Map.Entry<Long, Long> floor = Ranges.floorEntry(ordinal);
+            if (floor != null && floor.getValue() > ordinal) {
+                return false;
+            }
+            long start = (floor != null && floor.getValue() == ordinal)
+                    ? floor.getKey()
+                    : ordinal;
+            Long end = Ranges.remove(ordinal + 1);
+            Ranges.put(start, (end != null) ? end : ordinal + 1);
+            Size++;
+            return true;
+        }
+    }
+}
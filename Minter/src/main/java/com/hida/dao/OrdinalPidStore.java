@@ -0,0 +1,314 @@
+package com.hida.dao;
+
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
+import com.hida.model.Pid;
+import com.hida.model.PidNamespace;
+import com.hida.model.PidOrdinal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.hibernate.Criteria;
+import org.hibernate.NonUniqueObjectException;
+import org.hibernate.Query;
+import org.hibernate.criterion.Order;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Stores every Pid as the id of its namespace and its ordinal in the
+ * PID_ORDINAL table instead of as its name in the PIDS table.
+ *
+ * The namespaces are kept in the PID_NAMESPACE table and held in memory. A
+ * name is looked up by parsing it in every namespace it may belong to and
+ * looking up the resulting key, so that the database compares two numbers
+ * instead of strings, and the primary key holds 12 bytes per Pid regardless
+ * of the length of its name.
+ *
+ * Names are unique across namespaces, just as they are in the PIDS table.
+ * The minter looks every name up before saving it, so the names that were
+ * not found are remembered until they are saved, and saving them doesn't
+ * look them up again.
+ * Only Pids whose ordinals fit in a long can be stored, which rules out
+ * randomly minted Pids of namespaces wider than 64 bits.
+ *
+ * @author lruffin
+ */
+public class OrdinalPidStore extends AbstractDao<PidOrdinal, PidOrdinal> implements PidStore {
+
+    /**
+     * The largest number of names remembered as missing
+     */
+    private static final int MISSING_NAMES = 100000;
+
+    /**
+     * Every namespace by its key, null until read from the database
+     */
+    private Map<String, PidNamespace> Namespaces;
+
+    /**
+     * The id of the next namespace, known once the namespaces are read
+     */
+    private int NextId;
+
+    /**
+     * The names findByName didn't find since they were last saved, oldest
+     * first
+     */
+    private final Set<String> MissingNames = Collections.newSetFromMap(
+            new LinkedHashMap<String, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MISSING_NAMES;
+                }
+            });
+
+    /**
+     * Finds a Pid by its unique name by looking up its ordinal in every
+     * namespace the name is part of
+     *
+     * @param name
+     * @return the Pid or null if it has not been stored
+     */
+    @Override
+    public synchronized Pid findByName(String name) {
+        Pid pid = lookUp(name);
+        if (pid == null) {
+            MissingNames.add(name);
+        }
+        return pid;
+    }
+
+    /**
+     * Looks up the ordinal of a name in every namespace the name is part of
+     *
+     * @param name
+     * @return the Pid or null if it has not been stored
+     */
+    private Pid lookUp(String name) {
+        for (PidNamespace namespace : getNamespaces().values()) {
+            long ordinal = namespace.parse(name);
+            if (ordinal >= 0 && getByKey(new PidOrdinal(namespace.getId(), ordinal)) != null) {
+                return namespace.toPid(ordinal);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the stored Pid with the full name of a Pid
+     *
+     * @param pid
+     * @return the Pid or null if it has not been stored
+     */
+    @Override
+    public Pid findPid(Pid pid) {
+        return findByName(pid.getName());
+    }
+
+    /**
+     * Saves the ordinal of a Pid, adding its namespace if it is new
+     *
+     * @param pid
+     * @throws NonUniqueObjectException Thrown if a Pid with the same name was
+     * already stored
+     * @throws UnsupportedOperationException Thrown if the ordinal of the Pid
+     * doesn't fit in a long
+     */
+    @Override
+    public synchronized void savePid(Pid pid) {
+        String name = pid.getName();
+        if (!MissingNames.remove(name) && lookUp(name) != null) {
+            throw new NonUniqueObjectException(name, pid.getClass().getName());
+        }
+        long ordinal;
+        try {
+            ordinal = pid.getOrdinal();
+        }
+        catch (ArithmeticException exception) {
+            throw new UnsupportedOperationException(
+                    "Only Pids whose ordinals fit in a long can be stored: " + name, exception);
+        }
+        persist(new PidOrdinal(getNamespace(pid).getId(), ordinal));
+    }
+
+    /**
+     * Lists every stored Pid, namespace by namespace in the order of their
+     * ordinals
+     *
+     * @return List of all Pids
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized List<Pid> findAllPids() {
+        Map<Integer, PidNamespace> namespaces = new LinkedHashMap<>();
+        for (PidNamespace namespace : getNamespaces().values()) {
+            namespaces.put(namespace.getId(), namespace);
+        }
+        Criteria criteria = createEntityCriteria()
+                .addOrder(Order.asc("NamespaceId"))
+                .addOrder(Order.asc("Ordinal"));
+        List<Pid> list = new ArrayList<>();
+        for (PidOrdinal stored : (List<PidOrdinal>) criteria.list()) {
+            list.add(namespaces.get(stored.getNamespaceId()).toPid(stored.getOrdinal()));
+        }
+        return list;
+    }
+
+    /**
+     * Finds a page of the names of every namespace whose names may match a
+     * pattern, namespace by namespace in the order of their ordinals. The
+     * names of a namespace that start with the prefix of the pattern are a
+     * range of its ordinals, which is read from the primary key and entered
+     * after the last ordinal of the previous page. Only the ordinals are
+     * selected, so no entity enters the session.
+     *
+     * @param pattern The names to find
+     * @param after The cursor of the previous page, or null for the first
+     * page
+     * @param limit The largest number of names of the page
+     * @return the page
+     * @throws IllegalArgumentException Thrown if the cursor wasn't returned
+     * by this store
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public NamePage searchNames(NamePattern pattern, String after, int limit) {
+        long[] cursor = parseCursor(after);
+        List<PidNamespace> namespaces;
+        synchronized (this) {
+            namespaces = new ArrayList<>(getNamespaces().values());
+        }
+        int fetchSize = Math.max(limit, HibernatePidStore.FETCH_SIZE);
+        List<String> names = new ArrayList<>();
+        for (PidNamespace namespace : namespaces) {
+            long[] range = namespace.getOrdinalRange(pattern.getPrefix());
+            if (namespace.getId() < cursor[0] || range == null || !pattern.mayMatch(namespace)) {
+                continue;
+            }
+            long start = (namespace.getId() == cursor[0])
+                    ? Math.max(range[0], cursor[1] + 1)
+                    : range[0];
+            while (start < range[1]) {
+                Query query = getSession().createQuery("select o.Ordinal from PidOrdinal o "
+                        + "where o.NamespaceId = :namespace "
+                        + "and o.Ordinal >= :start and o.Ordinal < :end "
+                        + "order by o.NamespaceId, o.Ordinal");
+                query.setInteger("namespace", namespace.getId());
+                query.setLong("start", start);
+                query.setLong("end", range[1]);
+                query.setMaxResults(fetchSize);
+                query.setFetchSize(fetchSize);
+                query.setReadOnly(true);
+                List<Long> fetched = (List<Long>) query.list();
+                for (long ordinal : fetched) {
+                    String name = namespace.toPid(ordinal).getName();
+                    if (pattern.matches(name)) {
+                        names.add(name);
+                        if (names.size() == limit) {
+                            return new NamePage(names, toCursor(namespace.getId(), ordinal));
+                        }
+                    }
+                }
+                if (fetched.size() < fetchSize) {
+                    break;
+                }
+                start = fetched.get(fetched.size() - 1) + 1;
+            }
+        }
+        return new NamePage(names, null);
+    }
+
+    /**
+     * Returns the cursor of a page that ends with the given ordinal
+     *
+     * @param namespace The id of the namespace of the ordinal
+     * @param ordinal
+     * @return the cursor
+     */
+    static String toCursor(int namespace, long ordinal) {
+        return namespace + ":" + ordinal;
+    }
+
+    /**
+     * Returns the id of the namespace and the ordinal that a page ended with
+     *
+     * @param cursor The cursor of the page, or null for no page
+     * @return the id and the ordinal, 0 and -1 if there was no page
+     * @throws IllegalArgumentException Thrown if the cursor wasn't created by
+     * toCursor
+     */
+    static long[] parseCursor(String cursor) {
+        if (cursor == null) {
+            return new long[]{0, -1};
+        }
+        int separator = cursor.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return new long[]{Integer.parseInt(cursor.substring(0, separator)),
+            Long.parseLong(cursor.substring(separator + 1))};
+    }
+
+    /**
+     * Returns every namespace, reading them from the database the first time
+     *
+     * @return the namespaces by their keys
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, PidNamespace> getNamespaces() {
+        if (Namespaces == null) {
+            Map<String, PidNamespace> namespaces = new LinkedHashMap<>();
+            Criteria criteria = getSession().createCriteria(PidNamespace.class)
+                    .addOrder(Order.asc("Id"));
+            int nextId = 1;
+            for (PidNamespace namespace : (List<PidNamespace>) criteria.list()) {
+                namespaces.put(namespace.getKey(), namespace);
+                nextId = Math.max(nextId, namespace.getId() + 1);
+            }
+            Namespaces = namespaces;
+            NextId = nextId;
+        }
+        return Namespaces;
+    }
+
+    /**
+     * Returns the namespace of a Pid, adding it if it is new. A namespace
+     * added by a transaction that is rolled back is forgotten again, without
+     * reusing its id.
+     *
+     * @param pid
+     * @return the namespace
+     */
+    private PidNamespace getNamespace(Pid pid) {
+        PidNamespace existing = getNamespaces().get(PidNamespace.keyOf(pid));
+        if (existing != null) {
+            return existing;
+        }
+        final PidNamespace namespace = PidNamespace.of(NextId++, pid);
+        getSession().persist(namespace);
+        Namespaces.put(namespace.getKey(), namespace);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                                forget(namespace);
+                            }
+                        }
+                    });
+        }
+        return namespace;
+    }
+
+    private synchronized void forget(PidNamespace namespace) {
+        if (Namespaces != null) {
+            Namespaces.remove(namespace.getKey());
+        }
+    }
+}
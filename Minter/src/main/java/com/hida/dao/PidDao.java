@@ -1,6 +1,9 @@
 package com.hida.dao;
 
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
 import com.hida.model.Pid;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -13,10 +16,14 @@ public interface PidDao {
 
     public Pid findByName(String name);
 
+    public Pid findPid(Pid pid);
+
     public void savePid(Pid pid);
 
     public List<Pid> findAllPids();
 
-    public Pid findPidByRegex(String regex);
+    public NamePage searchNames(NamePattern pattern, String after, int limit);
+
+    public void exportNames(String prefix, PidStore.NameHandler handler) throws IOException;
 
 }
@@ -1,17 +1,44 @@
 package com.hida.dao;
 
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
 import com.hida.model.Pid;
+import java.io.IOException;
 import java.util.List;
-import org.hibernate.Criteria;
-import org.hibernate.criterion.Restrictions;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 /**
- * Programmatic implementation of PidDao
+ * Programmatic implementation of PidDao that delegates to the configured
+ * PidStore
  * @author lruffin
  */
 @Repository("pidDao")
-public class PidDaoImpl extends AbstractDao<String, Pid> implements PidDao {
+public class PidDaoImpl implements PidDao {
+
+    /**
+     * The number of names exportNames reads from the store at a time
+     */
+    static final int EXPORT_PAGE_SIZE = 1000;
+
+    @Autowired
+    private PidStore PidStore;
+
+    /**
+     * No-arg constructor used by Spring
+     */
+    public PidDaoImpl() {
+
+    }
+
+    /**
+     * Creates a PidDao on top of the given store
+     *
+     * @param pidStore the store of the Pids
+     */
+    public PidDaoImpl(PidStore pidStore) {
+        this.PidStore = pidStore;
+    }
     
     /**
      * Finds a PID by its unique name 
@@ -21,7 +48,18 @@ public class PidDaoImpl extends AbstractDao<String, Pid> implements PidDao {
      */
     @Override
     public Pid findByName(String name) {
-        return getByKey(name);
+        return PidStore.findByName(name);
+    }
+
+    /**
+     * Finds the stored PID that a PID would collide with
+     *
+     * @param pid
+     * @return PID
+     */
+    @Override
+    public Pid findPid(Pid pid) {
+        return PidStore.findPid(pid);
     }
     
     /**
@@ -31,7 +69,7 @@ public class PidDaoImpl extends AbstractDao<String, Pid> implements PidDao {
      */
     @Override
     public void savePid(Pid pid) {
-        persist(pid);
+        PidStore.savePid(pid);
     }
 
     /**
@@ -39,24 +77,48 @@ public class PidDaoImpl extends AbstractDao<String, Pid> implements PidDao {
      *
      * @return List of all PIDs
      */
-    @SuppressWarnings("unchecked")
     @Override
     public List<Pid> findAllPids() {
-        Criteria criteria = createEntityCriteria();
-        return (List<Pid>) criteria.list();
+        return PidStore.findAllPids();
+    }
+
+    /**
+     * Finds a page of the names of the stored PIDs that match a pattern
+     *
+     * @param pattern The names to find
+     * @param after The cursor of the previous page, or null for the first
+     * page
+     * @param limit The largest number of names of the page
+     * @return the page
+     * @throws IllegalArgumentException Thrown if the cursor wasn't returned
+     * by the store
+     */
+    @Override
+    public NamePage searchNames(NamePattern pattern, String after, int limit) {
+        return PidStore.searchNames(pattern, after, limit);
     }
 
     /**
-     * Currently incomplete and should not be used, subject to deletion
+     * Hands the name of every stored PID that starts with the given prefix to
+     * the handler, one at a time. The names are read a page at a time, so
+     * that no more than a page of them is held in memory however many there
+     * are.
      *
-     * @param regex
-     * @return
+     * @param prefix The start of the exported names, empty for every name
+     * @param handler Receives the names
+     * @throws IOException Thrown if the handler fails
      */
     @Override
-    public Pid findPidByRegex(String regex) {
-        Criteria criteria = createEntityCriteria();
-        criteria.add(Restrictions.eq("ssn", regex));
-        return (Pid) criteria.uniqueResult();
+    public void exportNames(String prefix, PidStore.NameHandler handler) throws IOException {
+        NamePattern pattern = new NamePattern(prefix);
+        String after = null;
+        do {
+            NamePage page = PidStore.searchNames(pattern, after, EXPORT_PAGE_SIZE);
+            for (String name : page.getNames()) {
+                handler.handle(name);
+            }
+            after = page.getNext();
+        } while (after != null);
     }
 
 }
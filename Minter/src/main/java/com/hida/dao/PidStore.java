@@ -0,0 +1,48 @@
+package com.hida.dao;
+
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
+import com.hida.model.Pid;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Defines how Pids are stored. PidDao delegates to the PidStore selected by
+ * minter.store.type, which is either the PIDS table, the PID_ORDINAL table,
+ * PIDS tables sharded over several databases or memory-mapped segment files.
+ *
+ * Every store treats the name of a Pid as unique, regardless of the settings
+ * it was created with, and throws a NonUniqueObjectException when a Pid with
+ * an existing name is saved. findPid finds the stored Pid that a Pid would
+ * collide with by the same key the store saves it by: the root of its name in
+ * the PIDS tables and its full name otherwise.
+ *
+ * searchNames returns the names that match a pattern a page at a time. A page
+ * starts after the cursor of the previous one rather than at an offset, so
+ * that every page is a range of an index and costs the same however deep into
+ * the names it is. The order of the names depends on the store, but is the
+ * same for every page.
+ *
+ * @author lruffin
+ */
+public interface PidStore {
+
+    public Pid findByName(String name);
+
+    public Pid findPid(Pid pid);
+
+    public void savePid(Pid pid);
+
+    public List<Pid> findAllPids();
+
+    public NamePage searchNames(NamePattern pattern, String after, int limit);
+
+    /**
+     * Receives the names of stored Pids one at a time
+     */
+    public interface NameHandler {
+
+        public void handle(String name) throws IOException;
+    }
+
+}
@@ -0,0 +1,333 @@
+package com.hida.dao;
+
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
+import com.hida.model.Pid;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.Criteria;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Spreads the PIDS table over several databases, each with its own
+ * SessionFactory.
+ *
+ * Pids are routed by the length of the names they are stored by, which are
+ * their roots: names of different lengths can never be equal, so every
+ * namespace belongs to exactly one shard, a name is only ever looked up in one
+ * shard and the primary key of that shard keeps names unique just as a single
+ * PIDS table does. A length is routed to the
+ * shard given by the shard map, or to the shard of its length modulo the
+ * number of shards. The shard map must not change once Pids are stored.
+ *
+ * Every shard that is used within a transaction of the minter gets a
+ * transaction of its own. Its Pids are written before the surrounding
+ * transaction commits, and it commits after the surrounding transaction
+ * committed or rolls back when it rolled back. A shard that fails to commit
+ * leaves its Pids recorded as used in their UsedSetting, so they are never
+ * minted again. Outside of a transaction, every operation runs in a
+ * transaction of its own.
+ *
+ * @author lruffin
+ */
+public class ShardedPidStore implements PidStore, Closeable {
+
+    private static final Logger Logger = LoggerFactory.getLogger(ShardedPidStore.class);
+
+    private final List<SessionFactory> Shards;
+
+    /**
+     * The shards of name lengths that aren't routed by their modulo
+     */
+    private final Map<Integer, Integer> ShardMap;
+
+    /**
+     * Creates a store over the given shards
+     *
+     * @param shards The SessionFactory of every shard
+     * @param shardMap The shard of every name length that isn't routed to
+     * the shard of its length modulo the number of shards
+     */
+    public ShardedPidStore(List<SessionFactory> shards, Map<Integer, Integer> shardMap) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        for (Map.Entry<Integer, Integer> entry : shardMap.entrySet()) {
+            if (entry.getValue() < 0 || entry.getValue() >= shards.size()) {
+                throw new IllegalArgumentException("Names of length " + entry.getKey()
+                        + " are mapped to unknown shard " + entry.getValue());
+            }
+        }
+        this.Shards = new ArrayList<>(shards);
+        this.ShardMap = new HashMap<>(shardMap);
+    }
+
+    /**
+     * Returns the shard that stores a name, which is the root of the name of
+     * a Pid
+     *
+     * @param name
+     * @return the index of the shard
+     */
+    public int getShard(String name) {
+        return getShard(name.length());
+    }
+
+    /**
+     * Returns the shard that stores the names of a length
+     *
+     * @param length
+     * @return the index of the shard
+     */
+    private int getShard(int length) {
+        Integer shard = ShardMap.get(length);
+        return (shard != null) ? shard : length % Shards.size();
+    }
+
+    /**
+     * Finds a PID by the name it is stored by, the root of its name, in the
+     * shard of that name
+     *
+     * @param name
+     * @return PID
+     */
+    @Override
+    public Pid findByName(final String name) {
+        return execute(getShard(name), new Work<Pid>() {
+            @Override
+            public Pid run(Session session) {
+                return (Pid) session.get(Pid.class, name);
+            }
+        });
+    }
+
+    /**
+     * Finds the stored PID with the root of the name of a PID in the shard
+     * the PID would be saved in
+     *
+     * @param pid
+     * @return PID
+     */
+    @Override
+    public Pid findPid(Pid pid) {
+        return findByName(pid.getRootName());
+    }
+
+    /**
+     * Saves a PID in the shard of the root of its name, which it is stored by
+     *
+     * @param pid
+     */
+    @Override
+    public void savePid(final Pid pid) {
+        execute(getShard(pid.getRootName()), new Work<Void>() {
+            @Override
+            public Void run(Session session) {
+                session.persist(pid);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Lists the PIDs of every shard, shard by shard
+     *
+     * @return List of all PIDs
+     */
+    @Override
+    public List<Pid> findAllPids() {
+        List<Pid> list = new ArrayList<>();
+        for (int shard = 0; shard < Shards.size(); shard++) {
+            list.addAll(execute(shard, new Work<List<Pid>>() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public List<Pid> run(Session session) {
+                    Criteria criteria = session.createCriteria(Pid.class);
+                    return (List<Pid>) criteria.list();
+                }
+            }));
+        }
+        return list;
+    }
+
+    /**
+     * Finds a page of the names of every shard that match a pattern, shard
+     * by shard and in order within a shard. A pattern with a CharMap only
+     * matches names of one length, so only the shard of that length is
+     * searched.
+     *
+     * @param pattern The names to find
+     * @param after The cursor of the previous page, or null for the first
+     * page
+     * @param limit The largest number of names of the page
+     * @return the page
+     * @throws IllegalArgumentException Thrown if the cursor wasn't returned
+     * by this store
+     */
+    @Override
+    public NamePage searchNames(final NamePattern pattern, String after, int limit) {
+        int first = 0;
+        String last = null;
+        if (after != null) {
+            int separator = after.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + after);
+            }
+            first = Integer.parseInt(after.substring(0, separator));
+            last = after.substring(separator + 1);
+        }
+        List<String> names = new ArrayList<>();
+        for (int shard = first; shard < Shards.size(); shard++) {
+            if (pattern.getLength() >= 0 && shard != getShard(pattern.getLength())) {
+                continue;
+            }
+            final String start = (shard == first) ? last : null;
+            final int remaining = limit - names.size();
+            NamePage page = execute(shard, new Work<NamePage>() {
+                @Override
+                public NamePage run(Session session) {
+                    return HibernatePidStore.searchNames(session, pattern, start, remaining);
+                }
+            });
+            names.addAll(page.getNames());
+            if (page.getNext() != null) {
+                return new NamePage(names, shard + ":" + page.getNext());
+            }
+        }
+        return new NamePage(names, null);
+    }
+
+    /**
+     * Closes the SessionFactory of every shard
+     */
+    @Override
+    public void close() {
+        for (SessionFactory shard : Shards) {
+            shard.close();
+        }
+    }
+
+    /**
+     * An operation on the session of a shard
+     *
+     * @param <T> The result of the operation
+     */
+    private interface Work<T> {
+
+        T run(Session session);
+    }
+
+    /**
+     * Runs an operation in the transaction of a shard that belongs to the
+     * current transaction, or in a transaction of its own if there is no
+     * current transaction
+     *
+     * @param shard The index of the shard
+     * @param work The operation
+     * @return the result of the operation
+     */
+    private <T> T execute(int shard, Work<T> work) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            return work.run(join(shard));
+        }
+        Session session = Shards.get(shard).openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            try {
+                T result = work.run(session);
+                transaction.commit();
+                return result;
+            }
+            catch (RuntimeException exception) {
+                transaction.rollback();
+                throw exception;
+            }
+        }
+        finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Returns the session of a shard within the current transaction, beginning
+     * a transaction of the shard the first time the shard is used
+     *
+     * @param shard The index of the shard
+     * @return the session
+     */
+    private Session join(int shard) {
+        ShardSynchronization synchronization =
+                (ShardSynchronization) TransactionSynchronizationManager.getResource(this);
+        if (synchronization == null) {
+            synchronization = new ShardSynchronization();
+            TransactionSynchronizationManager.bindResource(this, synchronization);
+            TransactionSynchronizationManager.registerSynchronization(synchronization);
+        }
+        Session session = synchronization.Sessions.get(shard);
+        if (session == null) {
+            session = Shards.get(shard).openSession();
+            session.beginTransaction();
+            synchronization.Sessions.put(shard, session);
+        }
+        return session;
+    }
+
+    /**
+     * Completes the transactions of the shards together with the transaction
+     * they belong to. It is bound as the transactional resource of the store
+     * rather than its sessions, which are expensive to print when Spring
+     * traces the resources it hands out.
+     */
+    private final class ShardSynchronization extends TransactionSynchronizationAdapter {
+
+        private final Map<Integer, Session> Sessions = new HashMap<>();
+
+        /**
+         * Writes the Pids of every shard, so that a Pid that is rejected by
+         * a shard rolls back the surrounding transaction
+         *
+         * @param readOnly
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            for (Session session : Sessions.values()) {
+                session.flush();
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            for (Session session : Sessions.values()) {
+                session.getTransaction().commit();
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(ShardedPidStore.this);
+            for (Map.Entry<Integer, Session> entry : Sessions.entrySet()) {
+                Session session = entry.getValue();
+                try {
+                    if (session.getTransaction().isActive()) {
+                        session.getTransaction().rollback();
+                    }
+                }
+                catch (RuntimeException exception) {
+                    Logger.error("Unable to roll back shard " + entry.getKey(), exception);
+                }
+                finally {
+                    session.close();
+                }
+            }
+        }
+    }
+}
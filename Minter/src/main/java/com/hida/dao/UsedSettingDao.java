@@ -1,5 +1,6 @@
 package com.hida.dao;
 
+import com.hida.model.UsedOrdinalContainer;
 import com.hida.model.UsedSetting;
 import java.util.List;
 
@@ -19,4 +20,10 @@ public interface UsedSettingDao {
 
     public UsedSetting findUsedSetting(UsedSetting setting);
 
+    public List<UsedOrdinalContainer> findOrdinalContainers(int settingId);
+
+    public void saveOrdinalContainer(UsedOrdinalContainer container);
+
+    public int deleteOrdinalContainers(int settingId);
+
 }
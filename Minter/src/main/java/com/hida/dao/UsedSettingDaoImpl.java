@@ -1,5 +1,6 @@
 package com.hida.dao;
 
+import com.hida.model.UsedOrdinalContainer;
 import com.hida.model.UsedSetting;
 import java.util.List;
 import org.hibernate.Criteria;
@@ -75,4 +76,64 @@ public class UsedSettingDaoImpl extends AbstractDao<Integer, UsedSetting> implem
             return findUsedSettingById(id);
         }
     }
+
+    /**
+     * Returns the stored containers of the used ordinals of a UsedSetting
+     *
+     * @param settingId Unique id of the UsedSetting
+     * @return the containers, in ascending order of key
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<UsedOrdinalContainer> findOrdinalContainers(int settingId) {
+        return (List<UsedOrdinalContainer>) getSession()
+                .createQuery("from UsedOrdinalContainer c where c.SettingId = :setting "
+                        + "order by c.ContainerKey")
+                .setInteger("setting", settingId)
+                .list();
+    }
+
+    /**
+     * Stores a container of the used ordinals of a UsedSetting, replacing the
+     * stored container with the same key. The container is updated with a
+     * single statement and only inserted if there was nothing to update;
+     * neither statement loads the container.
+     *
+     * @param container The container
+     */
+    @Override
+    public void saveOrdinalContainer(UsedOrdinalContainer container) {
+        int updated = getSession()
+                .createQuery("update UsedOrdinalContainer c set c.Container = :container "
+                        + "where c.SettingId = :setting and c.ContainerKey = :key")
+                .setBinary("container", container.getContainer())
+                .setInteger("setting", container.getSettingId())
+                .setLong("key", container.getContainerKey())
+                .executeUpdate();
+        if (updated == 0) {
+            // inserted with a statement as well, so that no stale copy is kept
+            // in the session once the container is updated again
+            getSession()
+                    .createSQLQuery("insert into USED_ORDINAL_CONTAINER "
+                            + "(SETTING_ID, CONTAINER_KEY, CONTAINER) values (?, ?, ?)")
+                    .setInteger(0, container.getSettingId())
+                    .setLong(1, container.getContainerKey())
+                    .setBinary(2, container.getContainer())
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Deletes every stored container of the used ordinals of a UsedSetting
+     *
+     * @param settingId Unique id of the UsedSetting
+     * @return the number of deleted containers
+     */
+    @Override
+    public int deleteOrdinalContainers(int settingId) {
+        return getSession()
+                .createQuery("delete from UsedOrdinalContainer c where c.SettingId = :setting")
+                .setInteger("setting", settingId)
+                .executeUpdate();
+    }
 }
@@ -73,6 +73,11 @@ public class AutoId extends Pid {
         return !overflow;
     }
 
+    @Override
+    public int getRadix(int position) {
+        return TokenMap.length();
+    }
+
     @Override
     public String toString() {
         return getName();
@@ -86,11 +91,23 @@ public class AutoId extends Pid {
      */
     @Override
     public String getName() {
-        Name = "";
-        for (int i = 0; i < this.getBaseMap().length; i++) {
-            Name += TokenMap.charAt(this.getBaseMap()[i]);
+        return this.getPrefix() + getRootName();
+    }
+
+    /**
+     * Creates the root of the name based on the indices contained in the
+     * BaseMap and the characters in the TokenMap
+     *
+     * @return The root of the name of the Pid
+     */
+    @Override
+    public String getRootName() {
+        char[] root = new char[BaseMap.length];
+        for (int i = 0; i < root.length; i++) {
+            root[i] = TokenMap.charAt(BaseMap[i]);
         }
-        return this.getPrefix() + Name;
+        Name = new String(root);
+        return Name;
     }
 
     public String getTokenMap() {
@@ -1,7 +1,8 @@
 package com.hida.model;
 
 import static com.hida.model.IdGenerator.Rng;
-import static com.hida.model.IdGenerator.Logger;
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.TreeSet;
@@ -100,7 +101,6 @@ public class AutoIdGenerator extends IdGenerator {
                 tempIdBaseMap[j] = Rng.nextInt(tokenMap.length());
             }
             Pid currentId = new AutoId(Prefix, tempIdBaseMap, tokenMap);
-            Logger.info("Generated Auto Random ID: " + currentId);
 
             while (tempIdList.contains(currentId)) {
                 currentId.incrementId();
@@ -135,7 +135,6 @@ public class AutoIdGenerator extends IdGenerator {
         for (int i = 0; i < amount; i++) {
             AutoId nextId = new AutoId(currentId);
             idSet.add(currentId);
-            Logger.info("Generated Auto Sequential ID: " + currentId);
             nextId.incrementId();
             currentId = new AutoId(nextId);
         }
@@ -143,6 +142,45 @@ public class AutoIdGenerator extends IdGenerator {
         return idSet;
     }
 
+    /**
+     * Creates the Pid with the given ordinal
+     *
+     * @param ordinal A value between 0 and calculatePermutations() - 1
+     * @return the Pid
+     */
+    @Override
+    public Pid createId(long ordinal) {
+        Pid id = new AutoId(Prefix, new int[RootLength], BaseMap.get(TokenType));
+        id.setOrdinal(ordinal);
+        return id;
+    }
+
+    /**
+     * Creates the Pid with the given ordinal in namespaces of any size
+     *
+     * @param ordinal A value between 0 and calculateExactPermutations() - 1
+     * @return the Pid
+     */
+    @Override
+    public Pid createId(BigInteger ordinal) {
+        Pid id = new AutoId(Prefix, new int[RootLength], BaseMap.get(TokenType));
+        id.setOrdinal(ordinal);
+        return id;
+    }
+
+    /**
+     * Returns the characters that each position of the root may take, which
+     * is the token map of the TokenType at every position.
+     *
+     * @return the alphabet of every position
+     */
+    @Override
+    public String[] getAlphabets() {
+        String[] alphabets = new String[RootLength];
+        Arrays.fill(alphabets, BaseMap.get(TokenType));
+        return alphabets;
+    }
+
     /**
      * This method calculates and returns the total possible number of
      * permutations using the values given in the constructor.
@@ -150,7 +188,7 @@ public class AutoIdGenerator extends IdGenerator {
      * @return number of permutations
      */
     @Override
-    public long calculatePermutations() {
+    public BigInteger calculateExactPermutations() {
         // get the base of each character
         int base = 0;
         switch (TokenType) {
@@ -173,8 +211,11 @@ public class AutoIdGenerator extends IdGenerator {
                 break;
         }
 
-        // raise it to the power of how ever long the rootLength is
-        return ((long) Math.pow(base, RootLength));
+        // raise it to the power of how ever long the rootLength is, in integer
+        // arithmetic as doubles can't represent every power of the bases exactly
+        int[] radices = new int[RootLength];
+        Arrays.fill(radices, base);
+        return multiplyRadices(radices);
     }
 
     /* getters and setters */
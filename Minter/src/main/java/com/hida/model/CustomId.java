@@ -76,6 +76,11 @@ public class CustomId extends Pid {
         return !overflow;
     }
 
+    @Override
+    public int getRadix(int position) {
+        return TokenMapArray[position].length();
+    }
+
     @Override
     public String toString() {
         return getName();
@@ -89,12 +94,23 @@ public class CustomId extends Pid {
      */
     @Override
     public String getName() {
-        Name = "";
+        return this.getPrefix() + getRootName();
+    }
 
-        for (int i = 0; i < this.getBaseMap().length; i++) {
-            Name += TokenMapArray[i].charAt(this.getBaseMap()[i]);
+    /**
+     * Creates the root of the name based on the indices contained in the
+     * BaseMap and the characters in the TokenMap
+     *
+     * @return The root of the name of the Pid
+     */
+    @Override
+    public String getRootName() {
+        char[] root = new char[BaseMap.length];
+        for (int i = 0; i < root.length; i++) {
+            root[i] = TokenMapArray[i].charAt(BaseMap[i]);
         }
-        return this.getPrefix() + Name;
+        Name = new String(root);
+        return Name;
     }
 
     /**
@@ -1,7 +1,7 @@
 package com.hida.model;
 
 import static com.hida.model.IdGenerator.Rng;
-import static com.hida.model.IdGenerator.Logger;
+import java.math.BigInteger;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.TreeSet;
@@ -29,6 +29,12 @@ public class CustomIdGenerator extends IdGenerator {
      */
     private String CharMap;
 
+    /**
+     * The compiled prefix and CharMap, shared with every generator of the
+     * same setting
+     */
+    private IdTemplate Template;
+
     /**
      * Instantiates an Id Generator that creates Pids primarily based on a
      * charMap. The only valid charMap characters are regex("[dlume]+"). No 
@@ -38,26 +44,13 @@ public class CustomIdGenerator extends IdGenerator {
      * PIDs
      * @param sansVowel Dictates whether or not vowels are allowed
      * @param charMap A sequence of characters used to configure Pids
+     * @throws IllegalArgumentException Thrown if the charMap contains other
+     * characters
      */
     public CustomIdGenerator(String prefix, boolean sansVowel, String charMap) {
         super(prefix, sansVowel);
         this.CharMap = charMap;
-
-        // assign base map the appropriate values
-        if (sansVowel) {
-            this.BaseMap.put("d", DIGIT_TOKEN);
-            this.BaseMap.put("l", SANS_VOWEL_TOKEN);
-            this.BaseMap.put("u", SANS_VOWEL_TOKEN.toUpperCase());
-            this.BaseMap.put("m", SANS_VOWEL_TOKEN + SANS_VOWEL_TOKEN.toUpperCase());
-            this.BaseMap.put("e", DIGIT_TOKEN + SANS_VOWEL_TOKEN + SANS_VOWEL_TOKEN.toUpperCase());
-        }
-        else {
-            this.BaseMap.put("d", DIGIT_TOKEN);
-            this.BaseMap.put("l", VOWEL_TOKEN);
-            this.BaseMap.put("u", VOWEL_TOKEN.toUpperCase());
-            this.BaseMap.put("m", VOWEL_TOKEN + VOWEL_TOKEN.toUpperCase());
-            this.BaseMap.put("e", DIGIT_TOKEN + VOWEL_TOKEN + VOWEL_TOKEN.toUpperCase());
-        }
+        this.Template = IdTemplate.compile(prefix, sansVowel, charMap);
     }
 
     /**
@@ -74,16 +67,16 @@ public class CustomIdGenerator extends IdGenerator {
             throw new NotEnoughPermutationsException();
         }
         // generate ids
-        String[] tokenMapArray = getBaseCharMapping();
+        IdTemplate template = getTemplate();
+        String[] tokenMapArray = template.getAlphabets();
         Set<Pid> tempIdList = new LinkedHashSet();
 
         for (int i = 0; i < amount; i++) {
-            int[] tempIdBaseMap = new int[CharMap.length()];
-            for (int j = 0; j < CharMap.length(); j++) {
-                tempIdBaseMap[j] = Rng.nextInt(tokenMapArray[j].length());
+            int[] tempIdBaseMap = new int[template.getLength()];
+            for (int j = 0; j < tempIdBaseMap.length; j++) {
+                tempIdBaseMap[j] = Rng.nextInt(template.getRadix(j));
             }
             Pid currentId = new CustomId(Prefix, tempIdBaseMap, tokenMapArray);
-            Logger.info("Generated Custom Random ID: " + currentId);
             while (!tempIdList.add(currentId)) {
                 currentId.incrementId();
             }
@@ -108,26 +101,68 @@ public class CustomIdGenerator extends IdGenerator {
         }
 
         // generate ids
-        String[] tokenMapArray = getBaseCharMapping();
+        IdTemplate template = getTemplate();
         Set<Pid> idSet = new TreeSet();
 
-        int[] previousIdBaseMap = new int[CharMap.length()];
-        CustomId currentId = new CustomId(Prefix, previousIdBaseMap, tokenMapArray);
-        for (int i = CharMap.length() - 1; i >= 0; i--) {
-            for (int j = CharMap.length() - 1; j >= 0; j--) {
-
-            }
-        }
+        int[] previousIdBaseMap = new int[template.getLength()];
+        CustomId currentId = new CustomId(Prefix, previousIdBaseMap, template.getAlphabets());
         for (int i = 0; i < amount; i++) {
             CustomId nextId = new CustomId(currentId);
             idSet.add(currentId);
-            Logger.info("Generated Custom Sequential ID: " + currentId);
             nextId.incrementId();
             currentId = new CustomId(nextId);
         }
         return idSet;
     }
 
+    /**
+     * Creates the Pid with the given ordinal
+     *
+     * @param ordinal A value between 0 and calculatePermutations() - 1
+     * @return the Pid
+     */
+    @Override
+    public Pid createId(long ordinal) {
+        IdTemplate template = getTemplate();
+        return new CustomId(Prefix, template.toBaseMap(ordinal), template.getAlphabets());
+    }
+
+    /**
+     * Creates the Pid with the given ordinal in namespaces of any size
+     *
+     * @param ordinal A value between 0 and calculateExactPermutations() - 1
+     * @return the Pid
+     */
+    @Override
+    public Pid createId(BigInteger ordinal) {
+        IdTemplate template = getTemplate();
+        Pid id = new CustomId(Prefix, new int[template.getLength()], template.getAlphabets());
+        id.setOrdinal(ordinal);
+        return id;
+    }
+
+    /**
+     * Returns the characters that each position of the root may take, as
+     * given by the CharMap.
+     *
+     * @return the alphabet of every position
+     */
+    @Override
+    public String[] getAlphabets() {
+        return getTemplate().getAlphabets();
+    }
+
+    /**
+     * Returns the total number of Pids this generator can create, as
+     * precomputed by its template.
+     *
+     * @return number of permutations
+     */
+    @Override
+    public long calculatePermutations() {
+        return getTemplate().getCapacity();
+    }
+
     /**
      * This method calculates and returns the total possible number of
      * permutations using the values given in the constructor.
@@ -135,39 +170,21 @@ public class CustomIdGenerator extends IdGenerator {
      * @return number of permutations
      */
     @Override
-    public long calculatePermutations() {
-        long totalPermutations = 1;
-        for (int i = 0; i < CharMap.length(); i++) {
-            if (CharMap.charAt(i) == 'd') {
-                totalPermutations *= 10;
-            }
-            else if (CharMap.charAt(i) == 'l' || CharMap.charAt(i) == 'u') {
-                totalPermutations *= (SansVowel) ? 20 : 26;
-            }
-            else if (CharMap.charAt(i) == 'm') {
-                totalPermutations *= (SansVowel) ? 40 : 52;
-            }
-            else if (CharMap.charAt(i) == 'e') {
-                totalPermutations *= (SansVowel) ? 50 : 62;
-            }
-        }
-        return totalPermutations;
+    public BigInteger calculateExactPermutations() {
+        return getTemplate().getExactCapacity();
     }
 
     /**
-     * Creates an array that stores a range of characters that designates a
-     * sequence of possible characters at that specific location.
+     * Returns the template of the current prefix, CharMap and vowel setting,
+     * which changes whenever one of them is set.
      *
-     * @return the range of characters.
+     * @return the template
      */
-    private String[] getBaseCharMapping() {
-        String[] baseTokenMapArray = new String[CharMap.length()];
-        for (int i = 0; i < CharMap.length(); i++) {
-            // more efficient than charMap.charAt(i) + ""
-            String c = String.valueOf(CharMap.charAt(i));
-            baseTokenMapArray[i] = BaseMap.get(c);
+    public IdTemplate getTemplate() {
+        if (!Template.isCompiledFrom(Prefix, SansVowel, CharMap)) {
+            Template = IdTemplate.compile(Prefix, SansVowel, CharMap);
         }
-        return baseTokenMapArray;
+        return Template;
     }
 
     /* getters and setters */
@@ -1,7 +1,9 @@
 package com.hida.model;
 
+import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +37,12 @@ public abstract class IdGenerator {
      */
     protected final static String VOWEL_TOKEN = "abcdefghijklmnopqrstuvwxyz";
 
+    /**
+     * The longest root an AutoIdGenerator may create, which keeps every
+     * namespace of a token type within 128 bits: 62^21 is less than 2^128.
+     */
+    public static final int MAX_ROOT_LENGTH = 21;
+
     /**
      * Logger; logfile to be stored in resource folder
      */
@@ -74,7 +82,123 @@ public abstract class IdGenerator {
 
     public abstract Set<Pid> sequentialMint(long amount);
 
-    public abstract long calculatePermutations();   
+    /**
+     * Returns the total number of Pids this generator can create, or
+     * Long.MAX_VALUE if there are more than a long can hold.
+     *
+     * @return number of permutations
+     */
+    public long calculatePermutations() {
+        BigInteger permutations = calculateExactPermutations();
+        return (isWideNamespace(permutations)) ? Long.MAX_VALUE : permutations.longValue();
+    }
+
+    /**
+     * Returns the total number of Pids this generator can create, however
+     * large.
+     *
+     * @return number of permutations
+     */
+    public abstract BigInteger calculateExactPermutations();
+
+    /**
+     * Creates the Pid with the given ordinal, where the first Pid of a
+     * sequential mint has the ordinal 0.
+     *
+     * @param ordinal A value between 0 and calculatePermutations() - 1
+     * @return the Pid
+     */
+    public abstract Pid createId(long ordinal);
+
+    /**
+     * Creates the Pid with the given ordinal in namespaces of any size.
+     *
+     * @param ordinal A value between 0 and calculateExactPermutations() - 1
+     * @return the Pid
+     */
+    public abstract Pid createId(BigInteger ordinal);
+
+    /**
+     * Determines whether this generator can create more Pids than a long can
+     * count, in which case the ordinals of its Pids must be handled with
+     * BigIntegers.
+     *
+     * @return true if the namespace is wider than 63 bits
+     */
+    public boolean isWideNamespace() {
+        return isWideNamespace(calculateExactPermutations());
+    }
+
+    private static boolean isWideNamespace(BigInteger permutations) {
+        return permutations.bitLength() > 63;
+    }
+
+    /**
+     * Multiplies the radices of every position of a root, which is the number
+     * of Pids that can be created with it.
+     *
+     * @param radices The number of possible characters at each position
+     * @return the product of the radices
+     */
+    protected static BigInteger multiplyRadices(int[] radices) {
+        // multiply in longs for as long as the product fits
+        long product = 1;
+        int i = 0;
+        for (; i < radices.length; i++) {
+            if (product > Long.MAX_VALUE / radices[i]) {
+                break;
+            }
+            product *= radices[i];
+        }
+        BigInteger exact = BigInteger.valueOf(product);
+        for (; i < radices.length; i++) {
+            exact = exact.multiply(BigInteger.valueOf(radices[i]));
+        }
+        return exact;
+    }
+
+    /**
+     * Returns the characters that each position of the root may take.
+     *
+     * @return the alphabet of every position
+     */
+    public abstract String[] getAlphabets();
+
+    /**
+     * Determines whether this generator and another one could create a Pid
+     * with the same stored name. Pids are stored by their root alone, without
+     * the prefix, so only the roots are compared, character by character.
+     * Generators whose roots differ in length or that have no character in
+     * common at some position can never create the same stored name. Letters
+     * are compared regardless of case, as databases may compare names that
+     * way.
+     *
+     * @param other The other generator
+     * @return false if no stored name can be created by both generators
+     */
+    public boolean overlaps(IdGenerator other) {
+        String[] alphabets = getAlphabets();
+        String[] otherAlphabets = other.getAlphabets();
+        if (alphabets.length != otherAlphabets.length) {
+            return false;
+        }
+        for (int i = 0; i < alphabets.length; i++) {
+            if (!intersects(alphabets[i], otherAlphabets[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean intersects(String characters, String otherCharacters) {
+        String lowerCharacters = otherCharacters.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < characters.length(); i++) {
+            if (lowerCharacters.indexOf(Character.toLowerCase(characters.charAt(i))) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     /**
      * Checks whether or not the prefix is valid.
@@ -101,10 +225,11 @@ public abstract class IdGenerator {
      * Checks whether or not the requested root length is valid
      *
      * @param rootLength Designates the length of the id's root.
-     * @return True if rootLength is non-negative and less than or equal to 10.
+     * @return True if rootLength is non-negative and less than or equal to
+     * MAX_ROOT_LENGTH.
      */
     public final boolean isValidRootLength(long rootLength) {
-        return rootLength >= 0 && rootLength <= 10;
+        return rootLength >= 0 && rootLength <= MAX_ROOT_LENGTH;
     }
 
     /**
@@ -0,0 +1,210 @@
+package com.hida.model;
+
+import java.math.BigInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The plan a CustomIdGenerator mints with: a prefix and a CharMap compiled
+ * into the characters each position of the root may take, their radices and
+ * the number of Pids the template can create.
+ *
+ * Templates are immutable. They are compiled once for every prefix, CharMap
+ * and vowel setting and shared by every generator and thread that mints with
+ * that setting, so a mint request no longer derives its alphabets from the
+ * letters of the CharMap, and creating a Pid only walks primitive arrays.
+ *
+ * @author lruffin
+ */
+public final class IdTemplate {
+
+    /**
+     * The number of templates that are kept. Templates are cheap to compile
+     * again, so the cache is simply emptied once it is full.
+     */
+    static final int MAX_CACHED_TEMPLATES = 1024;
+
+    private static final ConcurrentMap<String, IdTemplate> Templates = new ConcurrentHashMap<>();
+
+    private final String Prefix;
+
+    private final boolean SansVowel;
+
+    private final String CharMap;
+
+    /**
+     * The characters every position of the root may take
+     */
+    private final char[][] Alphabets;
+
+    /**
+     * The alphabets as strings, as CustomId holds them
+     */
+    private final String[] Tokens;
+
+    private final int[] Radices;
+
+    private final BigInteger ExactCapacity;
+
+    /**
+     * The number of Pids, or Long.MAX_VALUE if there are more than a long
+     * can hold
+     */
+    private final long Capacity;
+
+    /**
+     * Compiles a template
+     *
+     * @param prefix A sequence of characters that appear in the beginning of
+     * PIDs
+     * @param sansVowel Dictates whether or not vowels are allowed
+     * @param charMap A sequence of characters used to configure Pids
+     * @throws IllegalArgumentException Thrown if the CharMap contains
+     * characters other than 'd', 'l', 'u', 'm' or 'e'
+     */
+    private IdTemplate(String prefix, boolean sansVowel, String charMap) {
+        this.Prefix = prefix;
+        this.SansVowel = sansVowel;
+        this.CharMap = charMap;
+        this.Alphabets = new char[charMap.length()][];
+        this.Tokens = new String[charMap.length()];
+        this.Radices = new int[charMap.length()];
+        for (int i = 0; i < charMap.length(); i++) {
+            Tokens[i] = getToken(charMap.charAt(i), sansVowel, charMap);
+            Alphabets[i] = Tokens[i].toCharArray();
+            Radices[i] = Alphabets[i].length;
+        }
+        this.ExactCapacity = IdGenerator.multiplyRadices(Radices);
+        this.Capacity = (ExactCapacity.bitLength() > 63)
+                ? Long.MAX_VALUE
+                : ExactCapacity.longValue();
+    }
+
+    /**
+     * Returns the template of a setting, compiling it the first time it is
+     * used
+     *
+     * @param prefix A sequence of characters that appear in the beginning of
+     * PIDs
+     * @param sansVowel Dictates whether or not vowels are allowed
+     * @param charMap A sequence of characters used to configure Pids
+     * @return the template
+     * @throws IllegalArgumentException Thrown if the CharMap contains
+     * characters other than 'd', 'l', 'u', 'm' or 'e'
+     */
+    public static IdTemplate compile(String prefix, boolean sansVowel, String charMap) {
+        String key = ((sansVowel) ? "s" : "v") + charMap + "/" + prefix;
+        IdTemplate template = Templates.get(key);
+        if (template == null) {
+            if (Templates.size() >= MAX_CACHED_TEMPLATES) {
+                Templates.clear();
+            }
+            template = new IdTemplate(prefix, sansVowel, charMap);
+            IdTemplate existing = Templates.putIfAbsent(key, template);
+            if (existing != null) {
+                template = existing;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Returns whether this template was compiled from the given setting
+     *
+     * @param prefix
+     * @param sansVowel
+     * @param charMap
+     * @return true if the setting compiles into this template
+     */
+    public boolean isCompiledFrom(String prefix, boolean sansVowel, String charMap) {
+        return SansVowel == sansVowel && CharMap.equals(charMap) && Prefix.equals(prefix);
+    }
+
+    /**
+     * Returns the BaseMap of the Pid with the given ordinal
+     *
+     * @param ordinal A value between 0 and getCapacity() - 1
+     * @return the index of the character of every position
+     */
+    public int[] toBaseMap(long ordinal) {
+        int[] baseMap = new int[Radices.length];
+        for (int i = Radices.length - 1; i >= 0; i--) {
+            baseMap[i] = (int) (ordinal % Radices[i]);
+            ordinal /= Radices[i];
+        }
+        return baseMap;
+    }
+
+    /**
+     * Returns the root of the Pid with the given BaseMap
+     *
+     * @param baseMap The index of the character of every position
+     * @return the root
+     */
+    public String toRoot(int[] baseMap) {
+        char[] root = new char[Alphabets.length];
+        for (int i = 0; i < Alphabets.length; i++) {
+            root[i] = Alphabets[i][baseMap[i]];
+        }
+        return new String(root);
+    }
+
+    /**
+     * Returns the characters of a letter of a CharMap
+     *
+     * @param letter The letter
+     * @param sansVowel Dictates whether or not vowels are allowed
+     * @param charMap The CharMap of the letter
+     * @return the characters
+     */
+    private static String getToken(char letter, boolean sansVowel, String charMap) {
+        String letters = (sansVowel) ? IdGenerator.SANS_VOWEL_TOKEN : IdGenerator.VOWEL_TOKEN;
+        switch (letter) {
+            case 'd':
+                return IdGenerator.DIGIT_TOKEN;
+            case 'l':
+                return letters;
+            case 'u':
+                return letters.toUpperCase();
+            case 'm':
+                return letters + letters.toUpperCase();
+            case 'e':
+                return IdGenerator.DIGIT_TOKEN + letters + letters.toUpperCase();
+            default:
+                throw new IllegalArgumentException("Invalid CharMap: " + charMap);
+        }
+    }
+
+    /* getters */
+    public String getPrefix() {
+        return Prefix;
+    }
+
+    public boolean isSansVowel() {
+        return SansVowel;
+    }
+
+    public String getCharMap() {
+        return CharMap;
+    }
+
+    public int getLength() {
+        return Radices.length;
+    }
+
+    public int getRadix(int position) {
+        return Radices[position];
+    }
+
+    public String[] getAlphabets() {
+        return Tokens.clone();
+    }
+
+    public long getCapacity() {
+        return Capacity;
+    }
+
+    public BigInteger getExactCapacity() {
+        return ExactCapacity;
+    }
+}
@@ -0,0 +1,250 @@
+package com.hida.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+/**
+ * The Pids of a mint described by their namespace and the ranges of their
+ * ordinals rather than by their names: the prepend and prefix of every name,
+ * the characters each position of the root may take, and the first and last
+ * ordinal of every run of consecutive ordinals, in the order the Pids were
+ * minted. A sequential mint is a single range however many Pids it created.
+ *
+ * The name of an ordinal is the prepend and prefix followed by the ordinal
+ * written in the mixed radix given by the alphabets, most significant
+ * position first; expand does exactly that. Ordinals that don't fit in a long
+ * only occur in random mints of wide namespaces and are listed as a range of
+ * their own.
+ *
+ * writeTo and readFrom hold the same fields in a compact binary form: the
+ * prepend and prefix, the number of alphabets and every alphabet, the count,
+ * then the number of ranges and the first and last ordinal of every range,
+ * each as its length in two bytes followed by its big-endian two's complement
+ * bytes. Strings are written as DataOutput.writeUTF writes them.
+ *
+ * @author lruffin
+ */
+public class MintRanges {
+
+    private final String Prepend;
+
+    private final String Prefix;
+
+    private final String[] Alphabets;
+
+    /**
+     * The first and last ordinal of every range
+     */
+    private final List<BigInteger[]> Ranges;
+
+    private final long Count;
+
+    /**
+     * Creates the ranges of a mint; also used by Jackson to read them back
+     *
+     * @param prepend The prepend of every name
+     * @param prefix The prefix of every name
+     * @param alphabets The characters each position of the root may take
+     * @param ranges The first and last ordinal of every range
+     * @param count The number of Pids in the ranges
+     */
+    @JsonCreator
+    public MintRanges(@JsonProperty("prepend") String prepend,
+            @JsonProperty("prefix") String prefix,
+            @JsonProperty("alphabets") String[] alphabets,
+            @JsonProperty("ranges") List<BigInteger[]> ranges,
+            @JsonProperty("count") long count) {
+        this.Prepend = prepend;
+        this.Prefix = prefix;
+        this.Alphabets = alphabets;
+        this.Ranges = ranges;
+        this.Count = count;
+    }
+
+    /**
+     * Describes the Pids of a mint, which all belong to one namespace, by the
+     * ranges of their ordinals
+     *
+     * @param prepend The prepend of every name
+     * @param pids The minted Pids, in the order they were minted
+     * @return the ranges
+     */
+    public static MintRanges of(String prepend, Collection<Pid> pids) {
+        if (pids.isEmpty()) {
+            return new MintRanges(prepend, "", new String[0],
+                    new ArrayList<BigInteger[]>(), 0);
+        }
+        PidNamespace namespace = PidNamespace.of(0, pids.iterator().next());
+        List<BigInteger[]> ranges = new ArrayList<>();
+        long first = -1;
+        long last = -1;
+        for (Pid pid : pids) {
+            long ordinal;
+            try {
+                ordinal = pid.getOrdinal();
+            }
+            catch (ArithmeticException exception) {
+                addRange(ranges, first, last);
+                first = -1;
+                BigInteger exact = pid.getExactOrdinal();
+                ranges.add(new BigInteger[]{exact, exact});
+                continue;
+            }
+            if (first < 0 || ordinal != last + 1) {
+                addRange(ranges, first, last);
+                first = ordinal;
+            }
+            last = ordinal;
+        }
+        addRange(ranges, first, last);
+        return new MintRanges(prepend, namespace.getPrefix(), namespace.getAlphabets(),
+                ranges, pids.size());
+    }
+
+    private static void addRange(List<BigInteger[]> ranges, long first, long last) {
+        if (first >= 0) {
+            ranges.add(new BigInteger[]{BigInteger.valueOf(first), BigInteger.valueOf(last)});
+        }
+    }
+
+    /**
+     * Writes the ranges in their binary form
+     *
+     * @param output The output the ranges are written to
+     * @throws IOException Thrown whenever the output could not be written
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeUTF(Prepend);
+        output.writeUTF(Prefix);
+        output.writeShort(Alphabets.length);
+        for (String alphabet : Alphabets) {
+            output.writeUTF(alphabet);
+        }
+        output.writeLong(Count);
+        output.writeInt(Ranges.size());
+        for (BigInteger[] range : Ranges) {
+            writeOrdinal(output, range[0]);
+            writeOrdinal(output, range[1]);
+        }
+    }
+
+    /**
+     * Reads ranges written by writeTo
+     *
+     * @param input The input the ranges are read from
+     * @return the ranges
+     * @throws IOException Thrown whenever the input could not be read
+     */
+    public static MintRanges readFrom(DataInput input) throws IOException {
+        String prepend = input.readUTF();
+        String prefix = input.readUTF();
+        String[] alphabets = new String[input.readUnsignedShort()];
+        for (int i = 0; i < alphabets.length; i++) {
+            alphabets[i] = input.readUTF();
+        }
+        long count = input.readLong();
+        int size = input.readInt();
+        List<BigInteger[]> ranges = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ranges.add(new BigInteger[]{readOrdinal(input), readOrdinal(input)});
+        }
+        return new MintRanges(prepend, prefix, alphabets, ranges, count);
+    }
+
+    private static void writeOrdinal(DataOutput output, BigInteger ordinal) throws IOException {
+        byte[] bytes = ordinal.toByteArray();
+        output.writeShort(bytes.length);
+        output.write(bytes);
+    }
+
+    private static BigInteger readOrdinal(DataInput input) throws IOException {
+        byte[] bytes = new byte[input.readUnsignedShort()];
+        input.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+
+    /**
+     * Returns the name of every Pid of the ranges, in order
+     *
+     * @return the names, prepend included
+     */
+    public List<String> expand() {
+        List<String> names = new ArrayList<>();
+        int[] digits = new int[Alphabets.length];
+        for (BigInteger[] range : Ranges) {
+            setDigits(digits, range[0]);
+            long count = range[1].subtract(range[0]).longValue() + 1;
+            for (long i = 0; i < count; i++) {
+                names.add(toName(digits));
+                increment(digits);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the name of the Pid with the given ordinal
+     *
+     * @param ordinal
+     * @return the name, prepend included
+     */
+    public String toName(BigInteger ordinal) {
+        int[] digits = new int[Alphabets.length];
+        setDigits(digits, ordinal);
+        return toName(digits);
+    }
+
+    private String toName(int[] digits) {
+        char[] root = new char[digits.length];
+        for (int i = 0; i < digits.length; i++) {
+            root[i] = Alphabets[i].charAt(digits[i]);
+        }
+        return Prepend + Prefix + new String(root);
+    }
+
+    private void setDigits(int[] digits, BigInteger ordinal) {
+        for (int i = digits.length - 1; i >= 0; i--) {
+            BigInteger[] quotientAndRemainder = ordinal.divideAndRemainder(
+                    BigInteger.valueOf(Alphabets[i].length()));
+            digits[i] = quotientAndRemainder[1].intValue();
+            ordinal = quotientAndRemainder[0];
+        }
+    }
+
+    private void increment(int[] digits) {
+        for (int i = digits.length - 1; i >= 0; i--) {
+            if (++digits[i] < Alphabets[i].length()) {
+                return;
+            }
+            digits[i] = 0;
+        }
+    }
+
+    /* getters */
+    public String getPrepend() {
+        return Prepend;
+    }
+
+    public String getPrefix() {
+        return Prefix;
+    }
+
+    public String[] getAlphabets() {
+        return Alphabets;
+    }
+
+    public List<BigInteger[]> getRanges() {
+        return Ranges;
+    }
+
+    public long getCount() {
+        return Count;
+    }
+}
@@ -0,0 +1,32 @@
+package com.hida.model;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * An exception used to turn away mint requests while the queue of mints is
+ * full.
+ *
+ * @author lruffin
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason
+        = "Too many mint requests are waiting")
+public class MinterBusyException extends RuntimeException {
+
+    /**
+     * Creates a new instance of <code>MinterBusyException</code> without
+     * detail message.
+     */
+    public MinterBusyException() {
+    }
+
+    /**
+     * Constructs an instance of <code>MinterBusyException</code> with the
+     * specified detail message.
+     *
+     * @param msg the detail message.
+     */
+    public MinterBusyException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,41 @@
+package com.hida.model;
+
+import java.util.List;
+
+/**
+ * A page of names found by a search of the stored Pids, together with the
+ * cursor that the next page starts after.
+ *
+ * The cursor is opaque: it is only ever handed back to the store that
+ * returned it. A search that returns a full page may still be followed by an
+ * empty one.
+ *
+ * @author lruffin
+ */
+public class NamePage {
+
+    private final List<String> Names;
+
+    private final String Next;
+
+    /**
+     * Creates a page
+     *
+     * @param names The names of the page, in the order of the store
+     * @param next The cursor of the next page, or null if this is the last
+     * page
+     */
+    public NamePage(List<String> names, String next) {
+        this.Names = names;
+        this.Next = next;
+    }
+
+    /* getters */
+    public List<String> getNames() {
+        return Names;
+    }
+
+    public String getNext() {
+        return Next;
+    }
+}
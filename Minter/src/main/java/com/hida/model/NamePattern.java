@@ -0,0 +1,156 @@
+package com.hida.model;
+
+/**
+ * Describes the names a search of the stored Pids returns: every name that
+ * starts with a literal prefix and, if a CharMap is given, that continues with
+ * exactly one character of the class of every letter of the CharMap, vowels
+ * included.
+ *
+ * The prefix is what makes a search fast. Names that start with it form a
+ * single range of the index of the PIDS table, and a single range of ordinals
+ * within every namespace whose names may start with it. The CharMap only
+ * narrows the names of those ranges down and rules out namespaces of a
+ * different length or with disjoint characters.
+ *
+ * @author lruffin
+ */
+public class NamePattern {
+
+    /**
+     * The literal start of every matching name
+     */
+    private final String Prefix;
+
+    /**
+     * The characters every position after the prefix may take, or null if
+     * the pattern has no CharMap
+     */
+    private final String[] Classes;
+
+    /**
+     * Creates a pattern that matches every name that starts with the prefix
+     *
+     * @param prefix The literal start of every matching name
+     */
+    public NamePattern(String prefix) {
+        this(prefix, "");
+    }
+
+    /**
+     * Creates a pattern that matches every name that starts with the prefix
+     * and continues with the given CharMap
+     *
+     * @param prefix The literal start of every matching name
+     * @param charMap The classes of the positions after the prefix, or empty
+     * if the names after the prefix aren't restricted
+     * @throws IllegalArgumentException Thrown if the CharMap contains
+     * characters other than 'd', 'l', 'u', 'm' or 'e'
+     */
+    public NamePattern(String prefix, String charMap) {
+        if (!charMap.matches("[dlume]*")) {
+            throw new IllegalArgumentException("Invalid CharMap: " + charMap);
+        }
+        this.Prefix = prefix;
+        this.Classes = (charMap.isEmpty())
+                ? null
+                : new CustomIdGenerator(prefix, false, charMap).getAlphabets();
+    }
+
+    /**
+     * Returns the length of every matching name
+     *
+     * @return the length or -1 if the pattern has no CharMap
+     */
+    public int getLength() {
+        return (Classes == null) ? -1 : Prefix.length() + Classes.length;
+    }
+
+    /**
+     * Returns whether a name matches this pattern
+     *
+     * @param name
+     * @return true if the name starts with the prefix and its remaining
+     * characters match the CharMap
+     */
+    public boolean matches(String name) {
+        if (!name.startsWith(Prefix)) {
+            return false;
+        }
+        if (Classes == null) {
+            return true;
+        }
+        if (name.length() != getLength()) {
+            return false;
+        }
+        for (int i = 0; i < Classes.length; i++) {
+            if (Classes[i].indexOf(name.charAt(Prefix.length() + i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether any name of a namespace may match this pattern. Names
+     * of a namespace that may, still have to be matched one by one.
+     *
+     * @param namespace
+     * @return false if no name of the namespace matches
+     */
+    public boolean mayMatch(PidNamespace namespace) {
+        if (!namespace.mayStartWith(Prefix)) {
+            return false;
+        }
+        if (Classes == null) {
+            return true;
+        }
+        String prefix = namespace.getPrefix();
+        String[] alphabets = namespace.getAlphabets();
+        if (prefix.length() + alphabets.length != getLength()) {
+            return false;
+        }
+        for (int i = 0; i < Classes.length; i++) {
+            int position = Prefix.length() + i;
+            String characters = (position < prefix.length())
+                    ? prefix.substring(position, position + 1)
+                    : alphabets[position - prefix.length()];
+            if (!intersects(Classes[i], characters)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the smallest string that is greater than every string that
+     * starts with the given prefix, which bounds the names that start with it
+     * from above
+     *
+     * @param prefix
+     * @return the bound or null if no string bounds them
+     */
+    public static String getUpperBound(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        if (end == 0) {
+            return null;
+        }
+        return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+    }
+
+    private static boolean intersects(String characters, String others) {
+        for (int i = 0; i < others.length(); i++) {
+            if (characters.indexOf(others.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* getters */
+    public String getPrefix() {
+        return Prefix;
+    }
+}
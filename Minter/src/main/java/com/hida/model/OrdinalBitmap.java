@@ -0,0 +1,935 @@
+package com.hida.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A compressed set of ordinals, used to record which Pids of a setting were
+ * already created.
+ *
+ * The ordinals are split into containers of 65536 ordinals that share their
+ * upper bits. Like a roaring bitmap, a container holds its ordinals as a
+ * sorted array while it is sparse, as a bitmap once it is dense and as a list
+ * of runs whenever that is smaller, which is the case for sequentially
+ * created Pids. Containers switch to a bitmap on their own once an array or a
+ * list of runs grows too large; optimize picks the smallest representation of
+ * every container.
+ *
+ * The keys of the containers that were added to since markUnchanged are
+ * remembered, so that a set can be persisted one container at a time and
+ * only the containers that changed are written again.
+ *
+ * @author lruffin
+ */
+public class OrdinalBitmap {
+
+    /**
+     * The number of ordinals a container covers
+     */
+    private static final int CONTAINER_SIZE = 1 << 16;
+
+    /**
+     * The largest number of ordinals an array container holds
+     */
+    private static final int ARRAY_MAX = 4096;
+
+    /**
+     * The largest number of runs a run container holds
+     */
+    private static final int RUNS_MAX = 2048;
+
+    /**
+     * The types of containers in the serialized form
+     */
+    private static final byte ARRAY = 1;
+    private static final byte BITMAP = 2;
+    private static final byte RUN = 3;
+
+    private final TreeMap<Long, Container> Containers = new TreeMap<>();
+
+    /**
+     * The keys of the containers that changed since markUnchanged
+     */
+    private final Set<Long> Changed = new TreeSet<>();
+
+    private long Cardinality = 0;
+
+    /**
+     * Checks whether an ordinal is part of the set
+     *
+     * @param ordinal A non-negative ordinal
+     * @return true if the ordinal is part of the set
+     */
+    public boolean contains(long ordinal) {
+        Container container = Containers.get(ordinal >>> 16);
+        return container != null && container.contains((int) (ordinal & 0xFFFF));
+    }
+
+    /**
+     * Adds an ordinal to the set
+     *
+     * @param ordinal A non-negative ordinal
+     * @return true if the ordinal was not already part of the set
+     */
+    public boolean add(long ordinal) {
+        Long key = ordinal >>> 16;
+        Container container = Containers.get(key);
+        if (container == null) {
+            container = new ArrayContainer();
+        }
+        int before = container.getCardinality();
+        Container updated = container.add((int) (ordinal & 0xFFFF));
+        if (updated.getCardinality() == before) {
+            return false;
+        }
+        Containers.put(key, updated);
+        Changed.add(key);
+        Cardinality++;
+        return true;
+    }
+
+    /**
+     * Returns the smallest ordinal in the range [from, limit) that is not
+     * part of the set. Containers that are full are skipped as a whole.
+     *
+     * @param from The first ordinal to consider
+     * @param limit The ordinal after the last ordinal to consider
+     * @return the ordinal or -1 if every ordinal in the range is part of the
+     * set
+     */
+    public long nextClear(long from, long limit) {
+        while (from < limit) {
+            Container container = Containers.get(from >>> 16);
+            if (container == null) {
+                return from;
+            }
+            int low = container.nextClear((int) (from & 0xFFFF));
+            if (low < CONTAINER_SIZE) {
+                long ordinal = (from & ~0xFFFFL) | low;
+                return (ordinal < limit) ? ordinal : -1;
+            }
+            from = ((from >>> 16) + 1) << 16;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the ordinal in the range [0, limit) that is preceded by the
+     * given number of ordinals that are not part of the set.
+     *
+     * @param rank The number of clear ordinals that precede the result
+     * @param limit The ordinal after the last ordinal to consider
+     * @return the ordinal or -1 if fewer than rank + 1 ordinals are clear
+     */
+    public long selectClear(long rank, long limit) {
+        return selectClear(rank, 0, limit);
+    }
+
+    /**
+     * Returns the ordinal in the range [from, limit) that is preceded by the
+     * given number of ordinals of the range that are not part of the set.
+     *
+     * @param rank The number of clear ordinals that precede the result
+     * @param from The first ordinal to consider
+     * @param limit The ordinal after the last ordinal to consider
+     * @return the ordinal or -1 if fewer than rank + 1 ordinals are clear
+     */
+    public long selectClear(long rank, long from, long limit) {
+        if (from >= limit) {
+            return -1;
+        }
+        long next = from;
+        for (Map.Entry<Long, Container> entry : range(from, limit).entrySet()) {
+            long base = entry.getKey() << 16;
+            long start = Math.max(base, from);
+
+            // every ordinal between two containers is clear
+            if (rank < start - next) {
+                return next + rank;
+            }
+            rank -= start - next;
+
+            Container container = entry.getValue();
+            long end = Math.min(base + CONTAINER_SIZE, limit);
+            int low = (int) (start - base);
+            int lowRank = container.rank(low);
+            long clear = end - start - (container.rank((int) (end - base)) - lowRank);
+            if (rank < clear) {
+                // the clear values of the container below low come first
+                return base + container.selectClear((int) rank + low - lowRank);
+            }
+            rank -= clear;
+            next = end;
+        }
+        return (next + rank < limit) ? next + rank : -1;
+    }
+
+    /**
+     * Returns an ordinal drawn uniformly from the ordinals in the range
+     * [0, limit) that are not part of the set, at a bounded cost regardless of
+     * how full the range is. While at most half of the range is taken,
+     * ordinals are drawn from the whole range until a clear one comes up,
+     * which takes two draws at most on average. Beyond that, the clear
+     * ordinal of a random rank is selected. Every ordinal of the set must be
+     * less than limit.
+     *
+     * @param random The source of randomness
+     * @param limit The ordinal after the last ordinal to consider
+     * @return the ordinal or -1 if every ordinal in the range is part of the
+     * set
+     */
+    public long randomClear(Random random, long limit) {
+        long clear = limit - Cardinality;
+        if (clear <= 0) {
+            return -1;
+        }
+        if (clear >= limit - clear) {
+            while (true) {
+                long ordinal = nextLong(random, limit);
+                if (!contains(ordinal)) {
+                    return ordinal;
+                }
+            }
+        }
+        return selectClear(nextLong(random, clear), limit);
+    }
+
+    /**
+     * Returns an ordinal drawn uniformly from the ordinals in the range
+     * [from, limit) that are not part of the set, in the same way as
+     * randomClear over [0, limit) but without restricting the ordinals of the
+     * set.
+     *
+     * @param random The source of randomness
+     * @param from The first ordinal to consider
+     * @param limit The ordinal after the last ordinal to consider
+     * @return the ordinal or -1 if every ordinal in the range is part of the
+     * set
+     */
+    public long randomClear(Random random, long from, long limit) {
+        long size = limit - from;
+        long clear = size - getCardinality(from, limit);
+        if (clear <= 0) {
+            return -1;
+        }
+        if (clear >= size - clear) {
+            while (true) {
+                long ordinal = from + nextLong(random, size);
+                if (!contains(ordinal)) {
+                    return ordinal;
+                }
+            }
+        }
+        return selectClear(nextLong(random, clear), from, limit);
+    }
+
+    /**
+     * Returns a random long that is uniformly distributed in [0, bound)
+     *
+     * @param random The source of randomness
+     * @param bound A positive bound
+     * @return the random long
+     */
+    private static long nextLong(Random random, long bound) {
+        if (bound <= Integer.MAX_VALUE) {
+            return random.nextInt((int) bound);
+        }
+        long bits;
+        long value;
+        do {
+            bits = random.nextLong() >>> 1;
+            value = bits % bound;
+        }
+        while (bits - value + (bound - 1) < 0);
+        return value;
+    }
+
+    /**
+     * Returns the number of ordinals in the set
+     *
+     * @return the number of ordinals
+     */
+    public long getCardinality() {
+        return Cardinality;
+    }
+
+    /**
+     * Returns the number of ordinals of the set in the range [from, to)
+     *
+     * @param from The first ordinal to count
+     * @param to The ordinal after the last ordinal to count
+     * @return the number of ordinals
+     */
+    public long getCardinality(long from, long to) {
+        long count = 0;
+        if (from < to) {
+            for (Map.Entry<Long, Container> entry : range(from, to).entrySet()) {
+                long base = entry.getKey() << 16;
+                int low = (int) Math.max(from - base, 0);
+                int high = (int) Math.min(to - base, CONTAINER_SIZE);
+                count += entry.getValue().rank(high) - entry.getValue().rank(low);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the containers that hold ordinals of the range [from, to)
+     *
+     * @param from The first ordinal of a non-empty range
+     * @param to The ordinal after the last ordinal of the range
+     * @return a view of the containers
+     */
+    private SortedMap<Long, Container> range(long from, long to) {
+        return Containers.subMap(from >>> 16, true, (to - 1) >>> 16, true);
+    }
+
+    /**
+     * Converts every container to its smallest representation
+     */
+    public void optimize() {
+        for (Map.Entry<Long, Container> entry : Containers.entrySet()) {
+            entry.setValue(entry.getValue().optimize());
+        }
+    }
+
+    /**
+     * Returns the keys of every container, in ascending order
+     *
+     * @return a view of the keys
+     */
+    public Set<Long> getContainers() {
+        return Collections.unmodifiableSet(Containers.keySet());
+    }
+
+    /**
+     * Returns the keys of the containers that changed since markUnchanged, in
+     * ascending order
+     *
+     * @return a view of the keys
+     */
+    public Set<Long> getChangedContainers() {
+        return Collections.unmodifiableSet(Changed);
+    }
+
+    /**
+     * Forgets which containers changed, once they were persisted
+     */
+    public void markUnchanged() {
+        Changed.clear();
+    }
+
+    /**
+     * Writes the set in the form read by read
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(Containers.size());
+        for (Long key : Containers.keySet()) {
+            out.writeLong(key);
+            writeContainer(key, out);
+        }
+    }
+
+    /**
+     * Writes a single container in its smallest representation, in the form
+     * read by readContainer
+     *
+     * @param key The key of the container
+     * @param out
+     * @throws IOException
+     */
+    public void writeContainer(long key, DataOutput out) throws IOException {
+        Container container = Containers.get(key);
+        if (container == null) {
+            throw new IllegalArgumentException("No container " + key);
+        }
+        container = container.optimize();
+        Containers.put(key, container);
+        out.writeByte(container.getType());
+        container.write(out);
+    }
+
+    /**
+     * Reads a set written by write
+     *
+     * @param in
+     * @return the set
+     * @throws IOException Thrown if the set could not be read or is malformed
+     */
+    public static OrdinalBitmap read(DataInput in) throws IOException {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        int containers = in.readInt();
+        for (int i = 0; i < containers; i++) {
+            bitmap.readContainer(in.readLong(), in);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Reads a single container written by writeContainer into the set. The
+     * container doesn't count as changed.
+     *
+     * @param key The key of the container
+     * @param in
+     * @throws IOException Thrown if the container could not be read, is
+     * malformed or is already part of the set
+     */
+    public void readContainer(long key, DataInput in) throws IOException {
+        byte type = in.readByte();
+        Container container;
+        if (type == ARRAY) {
+            container = ArrayContainer.read(in);
+        }
+        else if (type == BITMAP) {
+            container = BitmapContainer.read(in);
+        }
+        else if (type == RUN) {
+            container = RunContainer.read(in);
+        }
+        else {
+            throw new IOException("Unknown container type " + type);
+        }
+        if (Containers.put(key, container) != null) {
+            throw new IOException("Duplicate container " + key);
+        }
+        Cardinality += container.getCardinality();
+    }
+
+    /**
+     * The ordinals of a set that share their upper bits, given by their lower
+     * 16 bits
+     */
+    private abstract static class Container {
+
+        abstract boolean contains(int value);
+
+        /**
+         * Adds a value, converting the container if it grows too large
+         *
+         * @param value
+         * @return this container or the container it was converted to
+         */
+        abstract Container add(int value);
+
+        abstract int getCardinality();
+
+        /**
+         * @param value A value between 0 and CONTAINER_SIZE
+         * @return the number of values less than the given one that are part
+         * of the container
+         */
+        abstract int rank(int value);
+
+        /**
+         * @param from
+         * @return the smallest value not less than from that is part of the
+         * container, or CONTAINER_SIZE if there is none
+         */
+        abstract int nextSet(int from);
+
+        /**
+         * @param from
+         * @return the smallest value not less than from that is not part of
+         * the container, or CONTAINER_SIZE if there is none
+         */
+        abstract int nextClear(int from);
+
+        /**
+         * @param rank
+         * @return the value that is preceded by rank values that are not part
+         * of the container, or CONTAINER_SIZE if there is none
+         */
+        abstract int selectClear(int rank);
+
+        abstract byte getType();
+
+        abstract void write(DataOutput out) throws IOException;
+
+        /**
+         * Returns the smallest representation of this container
+         *
+         * @return this container or a converted copy
+         */
+        Container optimize() {
+            int runs = 0;
+            int value = nextSet(0);
+            while (value < CONTAINER_SIZE) {
+                runs++;
+                int end = nextClear(value);
+                value = (end < CONTAINER_SIZE) ? nextSet(end) : CONTAINER_SIZE;
+            }
+            int cardinality = getCardinality();
+            int arrayBytes = (cardinality <= ARRAY_MAX) ? 2 * cardinality : Integer.MAX_VALUE;
+            int bitmapBytes = CONTAINER_SIZE / 8;
+            int runBytes = (runs <= RUNS_MAX) ? 4 * runs : Integer.MAX_VALUE;
+
+            byte type;
+            if (runBytes < arrayBytes && runBytes < bitmapBytes) {
+                type = RUN;
+            }
+            else if (arrayBytes <= bitmapBytes) {
+                type = ARRAY;
+            }
+            else {
+                type = BITMAP;
+            }
+            if (type == getType()) {
+                return this;
+            }
+            else if (type == RUN) {
+                return RunContainer.copyOf(this, runs);
+            }
+            else if (type == ARRAY) {
+                return ArrayContainer.copyOf(this);
+            }
+            return BitmapContainer.copyOf(this);
+        }
+    }
+
+    /**
+     * A container that holds its values in a sorted array
+     */
+    private static final class ArrayContainer extends Container {
+
+        private char[] Values;
+
+        private int Size = 0;
+
+        private ArrayContainer() {
+            this.Values = new char[4];
+        }
+
+        private ArrayContainer(int capacity) {
+            this.Values = new char[Math.max(capacity, 4)];
+        }
+
+        private static ArrayContainer copyOf(Container container) {
+            ArrayContainer array = new ArrayContainer(container.getCardinality());
+            for (int value = container.nextSet(0); value < CONTAINER_SIZE;
+                    value = container.nextSet(value + 1)) {
+                array.Values[array.Size++] = (char) value;
+            }
+            return array;
+        }
+
+        private static ArrayContainer read(DataInput in) throws IOException {
+            int size = in.readInt();
+            if (size < 0 || size > ARRAY_MAX) {
+                throw new IOException("Malformed array container");
+            }
+            ArrayContainer array = new ArrayContainer(size);
+            for (int i = 0; i < size; i++) {
+                array.Values[i] = in.readChar();
+            }
+            array.Size = size;
+            return array;
+        }
+
+        @Override
+        boolean contains(int value) {
+            return Arrays.binarySearch(Values, 0, Size, (char) value) >= 0;
+        }
+
+        @Override
+        Container add(int value) {
+            int index = Arrays.binarySearch(Values, 0, Size, (char) value);
+            if (index >= 0) {
+                return this;
+            }
+            if (Size == ARRAY_MAX) {
+                return BitmapContainer.copyOf(this).add(value);
+            }
+            index = -index - 1;
+            if (Size == Values.length) {
+                Values = Arrays.copyOf(Values, Math.min(Size * 2, ARRAY_MAX));
+            }
+            System.arraycopy(Values, index, Values, index + 1, Size - index);
+            Values[index] = (char) value;
+            Size++;
+            return this;
+        }
+
+        @Override
+        int getCardinality() {
+            return Size;
+        }
+
+        @Override
+        int rank(int value) {
+            if (value >= CONTAINER_SIZE) {
+                return Size;
+            }
+            int index = Arrays.binarySearch(Values, 0, Size, (char) value);
+            return (index >= 0) ? index : -index - 1;
+        }
+
+        @Override
+        int nextSet(int from) {
+            if (from >= CONTAINER_SIZE) {
+                return CONTAINER_SIZE;
+            }
+            int index = Arrays.binarySearch(Values, 0, Size, (char) from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return (index < Size) ? Values[index] : CONTAINER_SIZE;
+        }
+
+        @Override
+        int nextClear(int from) {
+            int index = Arrays.binarySearch(Values, 0, Size, (char) from);
+            if (index < 0) {
+                return from;
+            }
+            int value = from;
+            while (index < Size && Values[index] == value) {
+                value++;
+                index++;
+            }
+            return value;
+        }
+
+        @Override
+        int selectClear(int rank) {
+            // Values[i] - i values below Values[i] are clear
+            int low = 0;
+            int high = Size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (Values[middle] - middle <= rank) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle - 1;
+                }
+            }
+            return Math.min(rank + low, CONTAINER_SIZE);
+        }
+
+        @Override
+        byte getType() {
+            return ARRAY;
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeInt(Size);
+            for (int i = 0; i < Size; i++) {
+                out.writeChar(Values[i]);
+            }
+        }
+    }
+
+    /**
+     * A container that holds a bit for every possible value
+     */
+    private static final class BitmapContainer extends Container {
+
+        private final long[] Words = new long[CONTAINER_SIZE / 64];
+
+        private int Cardinality = 0;
+
+        private static BitmapContainer copyOf(Container container) {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int value = container.nextSet(0); value < CONTAINER_SIZE;
+                    value = container.nextSet(value + 1)) {
+                bitmap.add(value);
+            }
+            return bitmap;
+        }
+
+        private static BitmapContainer read(DataInput in) throws IOException {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < bitmap.Words.length; i++) {
+                bitmap.Words[i] = in.readLong();
+                bitmap.Cardinality += Long.bitCount(bitmap.Words[i]);
+            }
+            return bitmap;
+        }
+
+        @Override
+        boolean contains(int value) {
+            return (Words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(int value) {
+            if (!contains(value)) {
+                Words[value >>> 6] |= 1L << value;
+                Cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        int getCardinality() {
+            return Cardinality;
+        }
+
+        @Override
+        int rank(int value) {
+            if (value >= CONTAINER_SIZE) {
+                return Cardinality;
+            }
+            int count = 0;
+            for (int index = 0; index < value >>> 6; index++) {
+                count += Long.bitCount(Words[index]);
+            }
+            return count + Long.bitCount(Words[value >>> 6] & ((1L << value) - 1));
+        }
+
+        @Override
+        int nextSet(int from) {
+            if (from >= CONTAINER_SIZE) {
+                return CONTAINER_SIZE;
+            }
+            int index = from >>> 6;
+            long word = Words[index] & (-1L << from);
+            while (word == 0) {
+                if (++index == Words.length) {
+                    return CONTAINER_SIZE;
+                }
+                word = Words[index];
+            }
+            return index * 64 + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        int nextClear(int from) {
+            if (from >= CONTAINER_SIZE) {
+                return CONTAINER_SIZE;
+            }
+            int index = from >>> 6;
+            long word = ~Words[index] & (-1L << from);
+            while (word == 0) {
+                if (++index == Words.length) {
+                    return CONTAINER_SIZE;
+                }
+                word = ~Words[index];
+            }
+            return index * 64 + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        int selectClear(int rank) {
+            for (int index = 0; index < Words.length; index++) {
+                long word = ~Words[index];
+                int clear = Long.bitCount(word);
+                if (rank < clear) {
+                    for (int i = 0; i < rank; i++) {
+                        word &= word - 1;
+                    }
+                    return index * 64 + Long.numberOfTrailingZeros(word);
+                }
+                rank -= clear;
+            }
+            return CONTAINER_SIZE;
+        }
+
+        @Override
+        byte getType() {
+            return BITMAP;
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            for (long word : Words) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    /**
+     * A container that holds its values as sorted, non-adjacent runs, each
+     * given by its first value and its length minus one
+     */
+    private static final class RunContainer extends Container {
+
+        private char[] Starts;
+
+        private char[] Lengths;
+
+        private int Runs = 0;
+
+        private int Cardinality = 0;
+
+        private RunContainer(int capacity) {
+            this.Starts = new char[Math.max(capacity, 4)];
+            this.Lengths = new char[Math.max(capacity, 4)];
+        }
+
+        private static RunContainer copyOf(Container container, int runs) {
+            RunContainer run = new RunContainer(runs);
+            int value = container.nextSet(0);
+            while (value < CONTAINER_SIZE) {
+                int end = container.nextClear(value);
+                run.Starts[run.Runs] = (char) value;
+                run.Lengths[run.Runs] = (char) (end - value - 1);
+                run.Runs++;
+                run.Cardinality += end - value;
+                value = (end < CONTAINER_SIZE) ? container.nextSet(end) : CONTAINER_SIZE;
+            }
+            return run;
+        }
+
+        private static RunContainer read(DataInput in) throws IOException {
+            int runs = in.readInt();
+            if (runs < 0 || runs > RUNS_MAX) {
+                throw new IOException("Malformed run container");
+            }
+            RunContainer run = new RunContainer(runs);
+            for (int i = 0; i < runs; i++) {
+                run.Starts[i] = in.readChar();
+                run.Lengths[i] = in.readChar();
+                run.Cardinality += run.Lengths[i] + 1;
+            }
+            run.Runs = runs;
+            return run;
+        }
+
+        /**
+         * Returns the last run that starts at or before a value
+         *
+         * @param value
+         * @return the index of the run or -1 if there is none
+         */
+        private int find(int value) {
+            int low = 0;
+            int high = Runs - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (Starts[middle] <= value) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle - 1;
+                }
+            }
+            return high;
+        }
+
+        private int end(int run) {
+            return Starts[run] + Lengths[run];
+        }
+
+        @Override
+        boolean contains(int value) {
+            int run = find(value);
+            return run >= 0 && value <= end(run);
+        }
+
+        @Override
+        Container add(int value) {
+            int run = find(value);
+            if (run >= 0 && value <= end(run)) {
+                return this;
+            }
+            boolean extendsRun = run >= 0 && end(run) + 1 == value;
+            boolean joinsNext = run + 1 < Runs && Starts[run + 1] == value + 1;
+            if (extendsRun && joinsNext) {
+                Lengths[run] = (char) (end(run + 1) - Starts[run]);
+                System.arraycopy(Starts, run + 2, Starts, run + 1, Runs - run - 2);
+                System.arraycopy(Lengths, run + 2, Lengths, run + 1, Runs - run - 2);
+                Runs--;
+            }
+            else if (extendsRun) {
+                Lengths[run]++;
+            }
+            else if (joinsNext) {
+                Starts[run + 1] = (char) value;
+                Lengths[run + 1]++;
+            }
+            else {
+                if (Runs == RUNS_MAX) {
+                    return BitmapContainer.copyOf(this).add(value);
+                }
+                if (Runs == Starts.length) {
+                    Starts = Arrays.copyOf(Starts, Math.min(Runs * 2, RUNS_MAX));
+                    Lengths = Arrays.copyOf(Lengths, Starts.length);
+                }
+                int index = run + 1;
+                System.arraycopy(Starts, index, Starts, index + 1, Runs - index);
+                System.arraycopy(Lengths, index, Lengths, index + 1, Runs - index);
+                Starts[index] = (char) value;
+                Lengths[index] = 0;
+                Runs++;
+            }
+            Cardinality++;
+            return this;
+        }
+
+        @Override
+        int getCardinality() {
+            return Cardinality;
+        }
+
+        @Override
+        int rank(int value) {
+            int count = 0;
+            for (int run = 0; run < Runs && Starts[run] < value; run++) {
+                count += Math.min(end(run) + 1, value) - Starts[run];
+            }
+            return count;
+        }
+
+        @Override
+        int nextSet(int from) {
+            if (from >= CONTAINER_SIZE) {
+                return CONTAINER_SIZE;
+            }
+            int run = find(from);
+            if (run >= 0 && from <= end(run)) {
+                return from;
+            }
+            return (run + 1 < Runs) ? Starts[run + 1] : CONTAINER_SIZE;
+        }
+
+        @Override
+        int nextClear(int from) {
+            int run = find(from);
+            if (run >= 0 && from <= end(run)) {
+                return end(run) + 1;
+            }
+            return from;
+        }
+
+        @Override
+        int selectClear(int rank) {
+            // the number of set values before the current run
+            int set = 0;
+            for (int run = 0; run < Runs; run++) {
+                if (Starts[run] - set > rank) {
+                    break;
+                }
+                set += Lengths[run] + 1;
+            }
+            return Math.min(rank + set, CONTAINER_SIZE);
+        }
+
+        @Override
+        byte getType() {
+            return RUN;
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeInt(Runs);
+            for (int i = 0; i < Runs; i++) {
+                out.writeChar(Starts[i]);
+                out.writeChar(Lengths[i]);
+            }
+        }
+    }
+}
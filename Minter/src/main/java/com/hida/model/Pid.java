@@ -1,5 +1,6 @@
 package com.hida.model;
 
+import java.math.BigInteger;
 import java.util.Arrays;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -25,6 +26,12 @@ import javax.persistence.Transient;
 @Table(name = "PIDS")
 public abstract class Pid implements Comparable<Pid> {
 
+    /**
+     * Ordinals up to this value can take another digit of any radix, which
+     * is at most 62, without overflowing a long
+     */
+    private static final long FAST_ORDINAL_LIMIT = Long.MAX_VALUE >> 6;
+
     @Id
     @Column(name = "NAME", updatable = false, nullable = false)
     protected String Name;
@@ -71,6 +78,99 @@ public abstract class Pid implements Comparable<Pid> {
 
     public abstract boolean incrementId();
 
+    /**
+     * Returns the number of characters that may appear at the given position
+     * of this Pid's root.
+     *
+     * @param position The index of the character within the root
+     * @return The number of possible characters
+     */
+    public abstract int getRadix(int position);
+
+    /**
+     * Returns the position of this Pid within the sequence of every Pid its
+     * generator could create, where the first Pid of a sequential mint has
+     * the ordinal 0. The BaseMap is read as a number whose digits are in the
+     * base given by getRadix.
+     *
+     * @return The ordinal of this Pid
+     * @throws ArithmeticException Thrown if the ordinal doesn't fit in a long,
+     * in which case getExactOrdinal must be used
+     */
+    public long getOrdinal() {
+        long ordinal = 0;
+        for (int i = 0; i < BaseMap.length; i++) {
+            int radix = getRadix(i);
+            if (ordinal > FAST_ORDINAL_LIMIT
+                    && ordinal > (Long.MAX_VALUE - BaseMap[i]) / radix) {
+                throw new ArithmeticException("the ordinal of " + Name + " exceeds a long");
+            }
+            ordinal = ordinal * radix + BaseMap[i];
+        }
+        return ordinal;
+    }
+
+    /**
+     * Returns the ordinal of this Pid however large it is. Ordinals that fit
+     * in a long are calculated with longs.
+     *
+     * @return The ordinal of this Pid
+     */
+    public BigInteger getExactOrdinal() {
+        // the leading digits are read as a long for as long as they fit
+        long head = 0;
+        int i = 0;
+        for (; i < BaseMap.length; i++) {
+            int radix = getRadix(i);
+            if (head > FAST_ORDINAL_LIMIT && head > (Long.MAX_VALUE - BaseMap[i]) / radix) {
+                break;
+            }
+            head = head * radix + BaseMap[i];
+        }
+        BigInteger ordinal = BigInteger.valueOf(head);
+        for (; i < BaseMap.length; i++) {
+            ordinal = ordinal.multiply(BigInteger.valueOf(getRadix(i)))
+                    .add(BigInteger.valueOf(BaseMap[i]));
+        }
+        return ordinal;
+    }
+
+    /**
+     * Changes the BaseMap so that this Pid has the given ordinal, which is the
+     * reverse of getOrdinal.
+     *
+     * @param ordinal The ordinal this Pid should have
+     */
+    public void setOrdinal(long ordinal) {
+        for (int i = BaseMap.length - 1; i >= 0; i--) {
+            BaseMap[i] = (int) (ordinal % getRadix(i));
+            ordinal /= getRadix(i);
+        }
+    }
+
+    /**
+     * Changes the BaseMap so that this Pid has the given ordinal, which is the
+     * reverse of getExactOrdinal. Ordinals that fit in a long are set with
+     * longs.
+     *
+     * @param ordinal The ordinal this Pid should have
+     */
+    public void setOrdinal(BigInteger ordinal) {
+        int i = BaseMap.length - 1;
+        while (ordinal.bitLength() > 63 && i >= 0) {
+            BigInteger[] quotientAndRemainder = ordinal.divideAndRemainder(
+                    BigInteger.valueOf(getRadix(i)));
+            BaseMap[i] = quotientAndRemainder[1].intValue();
+            ordinal = quotientAndRemainder[0];
+            i--;
+        }
+        long rest = ordinal.longValue();
+        for (; i >= 0; i--) {
+            BaseMap[i] = (int) (rest % getRadix(i));
+            rest /= getRadix(i);
+        }
+    }
+
     @Override
     public int hashCode() {
         // arbitrarily chosen prime numbers
@@ -135,6 +235,16 @@ public abstract class Pid implements Comparable<Pid> {
         return Name;
     }
 
+    /**
+     * Returns the name this Pid is stored by in the PIDS table, which is its
+     * root without the prefix.
+     *
+     * @return the root of the name
+     */
+    public String getRootName() {
+        return Name;
+    }
+
     public void setName(String Name) {
         this.Name = Name;
     }
@@ -0,0 +1,259 @@
+package com.hida.model;
+
+import java.util.Arrays;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+/**
+ * The set of names a Pid belongs to: its type, its prefix and the characters
+ * each position of its root may take. A Pid is identified within its namespace
+ * by its ordinal, which is how Pids are stored by the stores that don't keep
+ * their names.
+ *
+ * @author lruffin
+ */
+@Entity
+@Table(name = "PID_NAMESPACE")
+public class PidNamespace {
+
+    /**
+     * The kinds of Pids
+     */
+    public static final byte AUTO = 1;
+    public static final byte CUSTOM = 2;
+
+    @Id
+    @Column(name = "ID", updatable = false, nullable = false)
+    private int Id;
+
+    @Column(name = "KIND", updatable = false, nullable = false)
+    private byte Kind;
+
+    @Column(name = "PID_PREFIX", updatable = false, nullable = false)
+    private String Prefix;
+
+    /**
+     * The alphabets of every position, separated by spaces
+     */
+    @Lob
+    @Column(name = "ALPHABETS", updatable = false, nullable = false)
+    private String AlphabetList;
+
+    @Transient
+    private String[] Alphabets;
+
+    /**
+     * No-arg constructor used by Hibernate
+     */
+    public PidNamespace() {
+
+    }
+
+    /**
+     * Creates a namespace
+     *
+     * @param id The id of the namespace
+     * @param kind Either AUTO or CUSTOM
+     * @param prefix The prefix of every name
+     * @param alphabets The characters each position of the root may take
+     */
+    public PidNamespace(int id, byte kind, String prefix, String[] alphabets) {
+        this.Id = id;
+        this.Kind = kind;
+        this.Prefix = prefix;
+        this.Alphabets = alphabets;
+        this.AlphabetList = join(alphabets);
+    }
+
+    /**
+     * Creates the namespace of a Pid
+     *
+     * @param id The id of the namespace
+     * @param pid The Pid
+     * @return the namespace
+     * @throws IllegalArgumentException Thrown if the Pid is neither an AutoId
+     * nor a CustomId
+     */
+    public static PidNamespace of(int id, Pid pid) {
+        return new PidNamespace(id, kindOf(pid), prefixOf(pid), alphabetsOf(pid));
+    }
+
+    /**
+     * Returns the key of the namespace of a Pid without creating the
+     * namespace
+     *
+     * @param pid The Pid
+     * @return the key
+     * @throws IllegalArgumentException Thrown if the Pid is neither an AutoId
+     * nor a CustomId
+     */
+    public static String keyOf(Pid pid) {
+        return toKey(kindOf(pid), prefixOf(pid), join(alphabetsOf(pid)));
+    }
+
+    /**
+     * Returns a key that is equal for namespaces of the same kind, prefix and
+     * alphabets
+     *
+     * @return the key
+     */
+    public String getKey() {
+        return toKey(Kind, Prefix, AlphabetList);
+    }
+
+    /**
+     * Returns the ordinal that a name has in this namespace
+     *
+     * @param name
+     * @return the ordinal or -1 if the name is not part of the namespace or
+     * its ordinal doesn't fit in a long
+     */
+    public long parse(String name) {
+        String[] alphabets = getAlphabets();
+        if (name.length() != Prefix.length() + alphabets.length || !name.startsWith(Prefix)) {
+            return -1;
+        }
+        long ordinal = 0;
+        for (int i = 0; i < alphabets.length; i++) {
+            int digit = alphabets[i].indexOf(name.charAt(Prefix.length() + i));
+            if (digit < 0 || ordinal > (Long.MAX_VALUE - digit) / alphabets[i].length()) {
+                return -1;
+            }
+            ordinal = ordinal * alphabets[i].length() + digit;
+        }
+        return ordinal;
+    }
+
+    /**
+     * Returns whether any name of this namespace may start with the given
+     * prefix. Names of a namespace that may, still have to be checked one by
+     * one unless the prefix of the namespace itself starts with the given
+     * prefix.
+     *
+     * @param prefix
+     * @return false if no name of this namespace starts with the prefix
+     */
+    public boolean mayStartWith(String prefix) {
+        return Prefix.startsWith(prefix) || (prefix.startsWith(Prefix)
+                && prefix.length() <= Prefix.length() + getAlphabets().length);
+    }
+
+    /**
+     * Returns the ordinals of the names of this namespace that start with the
+     * given prefix. The characters of the prefix that fall into the root fix
+     * its leading positions, so those names are exactly the ordinals from the
+     * fixed positions followed by the first character of every other position
+     * up to the fixed positions followed by the last characters.
+     *
+     * @param prefix
+     * @return the first ordinal and the ordinal after the last, where the
+     * latter is Long.MAX_VALUE if it doesn't fit in a long, or null if no name
+     * that starts with the prefix has an ordinal that fits in a long
+     */
+    public long[] getOrdinalRange(String prefix) {
+        if (!mayStartWith(prefix)) {
+            return null;
+        }
+        String[] alphabets = getAlphabets();
+        long first = 0;
+        long size = 1;
+        for (int i = 0; i < alphabets.length; i++) {
+            int radix = alphabets[i].length();
+            int digit = 0;
+            if (Prefix.length() + i < prefix.length()) {
+                digit = alphabets[i].indexOf(prefix.charAt(Prefix.length() + i));
+                if (digit < 0) {
+                    return null;
+                }
+            }
+            if (first > (Long.MAX_VALUE - digit) / radix) {
+                return null;
+            }
+            first = first * radix + digit;
+            if (Prefix.length() + i >= prefix.length()) {
+                size = (size > Long.MAX_VALUE / radix) ? Long.MAX_VALUE : size * radix;
+            }
+        }
+        long end = (first > Long.MAX_VALUE - size) ? Long.MAX_VALUE : first + size;
+        return new long[]{first, end};
+    }
+
+    /**
+     * Creates the Pid with the given ordinal
+     *
+     * @param ordinal
+     * @return the Pid
+     */
+    public Pid toPid(long ordinal) {
+        String[] alphabets = getAlphabets();
+        int[] baseMap = new int[alphabets.length];
+        for (int i = alphabets.length - 1; i >= 0; i--) {
+            baseMap[i] = (int) (ordinal % alphabets[i].length());
+            ordinal /= alphabets[i].length();
+        }
+        Pid pid = (Kind == AUTO)
+                ? new AutoId(Prefix, baseMap, alphabets[0])
+                : new CustomId(Prefix, baseMap, alphabets.clone());
+        pid.getName();
+        return pid;
+    }
+
+    private static String toKey(byte kind, String prefix, String alphabetList) {
+        return kind + "\u0000" + prefix + "\u0000" + alphabetList;
+    }
+
+    private static byte kindOf(Pid pid) {
+        if (pid instanceof AutoId) {
+            return AUTO;
+        }
+        if (pid instanceof CustomId) {
+            return CUSTOM;
+        }
+        throw new IllegalArgumentException("Unsupported Pid: " + pid.getClass().getName());
+    }
+
+    private static String prefixOf(Pid pid) {
+        return pid.getPrefix() == null ? "" : pid.getPrefix();
+    }
+
+    private static String[] alphabetsOf(Pid pid) {
+        if (kindOf(pid) == AUTO) {
+            String[] alphabets = new String[pid.getBaseMap().length];
+            Arrays.fill(alphabets, ((AutoId) pid).getTokenMap());
+            return alphabets;
+        }
+        return Arrays.copyOf(((CustomId) pid).getTokenMapArray(), pid.getBaseMap().length);
+    }
+
+    private static String join(String[] alphabets) {
+        StringBuilder list = new StringBuilder();
+        for (String alphabet : alphabets) {
+            list.append((list.length() > 0) ? " " : "").append(alphabet);
+        }
+        return list.toString();
+    }
+
+    /* getters */
+    public int getId() {
+        return Id;
+    }
+
+    public byte getKind() {
+        return Kind;
+    }
+
+    public String getPrefix() {
+        return Prefix;
+    }
+
+    public String[] getAlphabets() {
+        if (Alphabets == null) {
+            Alphabets = (AlphabetList.isEmpty()) ? new String[0] : AlphabetList.split(" ");
+        }
+        return Alphabets;
+    }
+}
@@ -0,0 +1,68 @@
+package com.hida.model;
+
+import java.io.Serializable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * A Pid stored as the id of its namespace and its ordinal within it, which
+ * together form the primary key. The name of the Pid is derived from its
+ * PidNamespace.
+ *
+ * @author lruffin
+ */
+@Entity
+@Table(name = "PID_ORDINAL")
+public class PidOrdinal implements Serializable {
+
+    @Id
+    @Column(name = "NAMESPACE_ID", updatable = false, nullable = false)
+    private int NamespaceId;
+
+    @Id
+    @Column(name = "ORDINAL", updatable = false, nullable = false)
+    private long Ordinal;
+
+    /**
+     * No-arg constructor used by Hibernate
+     */
+    public PidOrdinal() {
+
+    }
+
+    /**
+     * Creates a stored Pid, which is also its own primary key
+     *
+     * @param namespaceId The id of the PidNamespace
+     * @param ordinal The ordinal of the Pid within the namespace
+     */
+    public PidOrdinal(int namespaceId, long ordinal) {
+        this.NamespaceId = namespaceId;
+        this.Ordinal = ordinal;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * NamespaceId + (int) (Ordinal ^ (Ordinal >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof PidOrdinal)) {
+            return false;
+        }
+        PidOrdinal other = (PidOrdinal) obj;
+        return NamespaceId == other.NamespaceId && Ordinal == other.Ordinal;
+    }
+
+    /* getters */
+    public int getNamespaceId() {
+        return NamespaceId;
+    }
+
+    public long getOrdinal() {
+        return Ordinal;
+    }
+}
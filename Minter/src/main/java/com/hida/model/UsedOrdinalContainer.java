@@ -0,0 +1,82 @@
+package com.hida.model;
+
+import java.io.Serializable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+/**
+ * A single container of the OrdinalBitmap of a UsedSetting, keyed by the id
+ * of the UsedSetting and the key of the container. Storing the containers
+ * separately lets a mint write only the containers it added ordinals to.
+ *
+ * @author lruffin
+ */
+@Entity
+@Table(name = "USED_ORDINAL_CONTAINER")
+public class UsedOrdinalContainer implements Serializable {
+
+    @Id
+    @Column(name = "SETTING_ID", updatable = false, nullable = false)
+    private int SettingId;
+
+    @Id
+    @Column(name = "CONTAINER_KEY", updatable = false, nullable = false)
+    private long ContainerKey;
+
+    /**
+     * The container as written by OrdinalBitmap.writeContainer
+     */
+    @Lob
+    @Column(name = "CONTAINER", nullable = false)
+    private byte[] Container;
+
+    /**
+     * No-arg constructor used by Hibernate
+     */
+    public UsedOrdinalContainer() {
+
+    }
+
+    /**
+     * Creates a stored container
+     *
+     * @param settingId The id of the UsedSetting
+     * @param containerKey The key of the container within the OrdinalBitmap
+     * @param container The serialized container
+     */
+    public UsedOrdinalContainer(int settingId, long containerKey, byte[] container) {
+        this.SettingId = settingId;
+        this.ContainerKey = containerKey;
+        this.Container = container;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * SettingId + (int) (ContainerKey ^ (ContainerKey >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof UsedOrdinalContainer)) {
+            return false;
+        }
+        UsedOrdinalContainer other = (UsedOrdinalContainer) obj;
+        return SettingId == other.SettingId && ContainerKey == other.ContainerKey;
+    }
+
+    /* getters */
+    public int getSettingId() {
+        return SettingId;
+    }
+
+    public long getContainerKey() {
+        return ContainerKey;
+    }
+
+    public byte[] getContainer() {
+        return Container;
+    }
+}
@@ -2,6 +2,7 @@ package com.hida.model;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.Lob;
 import javax.persistence.Table;
 
 /**
@@ -17,6 +18,23 @@ public class UsedSetting extends Setting {
     @Column(name = "AMOUNT")
     private long Amount;
 
+    /**
+     * The description of the space of ids whose taken ordinals are stored as
+     * the UsedOrdinalContainers of this setting, null if they are not
+     */
+    @Column(name = "ORDINALS_NAMESPACE")
+    private String OrdinalsNamespace;
+
+    /**
+     * The serialized OrdinalBitmap of the ordinals that are known to be taken
+     * within the space of ids this setting creates, headed by a description
+     * of that space. Only written by earlier versions; it is replaced by
+     * UsedOrdinalContainers the next time the setting is used.
+     */
+    @Lob
+    @Column(name = "USED_ORDINALS")
+    private byte[] UsedOrdinals;
+
     /**
      * Constructor used to create a UsedSetting entity
      *
@@ -50,4 +68,20 @@ public class UsedSetting extends Setting {
         this.Amount = Amount;
     }
 
+    public String getOrdinalsNamespace() {
+        return OrdinalsNamespace;
+    }
+
+    public void setOrdinalsNamespace(String OrdinalsNamespace) {
+        this.OrdinalsNamespace = OrdinalsNamespace;
+    }
+
+    public byte[] getUsedOrdinals() {
+        return UsedOrdinals;
+    }
+
+    public void setUsedOrdinals(byte[] UsedOrdinals) {
+        this.UsedOrdinals = UsedOrdinals;
+    }
+
 }
@@ -0,0 +1,595 @@
+package com.hida.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only audit journal of every minted Pid. Instead of logging each
+ * Pid, a mint is recorded once as the ordinals of its Pids within their
+ * namespace, which describes the settings that the Pids were created with.
+ *
+ * Records are placed into a bounded ring buffer and written by a single
+ * background thread, which writes every record waiting in the buffer at once
+ * and syncs the file once per batch. Minting only blocks on the journal when
+ * the buffer is full.
+ *
+ * The file is a sequence of records, with every number in big-endian order:
+ *
+ * <pre>
+ * kind:       1 for a range of ordinals, 2 for a list of ordinals, 3 for a
+ *             list of wide ordinals (byte)
+ * timestamp:  milliseconds since the epoch (long)
+ * request id: the id of the request that minted the Pids (long)
+ * namespace:  modified UTF-8, as written by DataOutput.writeUTF
+ * range:      first ordinal (long), count (long)
+ * list:       count (int), followed by the ascending ordinals as unsigned
+ *             variable-length differences to their predecessor; the first
+ *             ordinal is stored as its difference to 0
+ * wide list:  count (int), followed by the ascending ordinals, each as the
+ *             length of its magnitude (unsigned byte) and the magnitude
+ * </pre>
+ *
+ * Wide lists hold the ordinals of namespaces that are wider than 63 bits.
+ *
+ * @author lruffin
+ */
+public class MintJournal implements Closeable {
+
+    /**
+     * The MDC key of the id of the current request, recorded with each mint
+     */
+    public static final String REQUEST_ID = "requestId";
+
+    private static final byte RANGE = 1;
+
+    private static final byte LIST = 2;
+
+    private static final byte WIDE_LIST = 3;
+
+    private static final Logger Logger = LoggerFactory.getLogger(MintJournal.class);
+
+    /**
+     * The location of the journal, null if the journal is disabled
+     */
+    private final File JournalFile;
+
+    private final FileChannel Channel;
+
+    private final Record[] Ring;
+
+    private final ReentrantLock Lock = new ReentrantLock();
+
+    private final Condition NotEmpty = Lock.newCondition();
+
+    private final Condition NotFull = Lock.newCondition();
+
+    private final Condition Synced = Lock.newCondition();
+
+    /**
+     * The number of records taken from the ring by the writer
+     */
+    private long Head = 0;
+
+    /**
+     * The number of records placed into the ring
+     */
+    private long Tail = 0;
+
+    /**
+     * The number of records written and synced, or dropped after a failure
+     */
+    private long Durable = 0;
+
+    private long Failures = 0;
+
+    private boolean Closed = false;
+
+    private final Thread Writer;
+
+    /**
+     * Creates a journal that records nothing.
+     */
+    public MintJournal() {
+        this.JournalFile = null;
+        this.Channel = null;
+        this.Ring = null;
+        this.Writer = null;
+    }
+
+    /**
+     * Opens the given journal for appending and starts its writer.
+     *
+     * @param journalFile The location of the journal
+     * @param capacity The number of records the ring buffer holds
+     * @throws IOException Thrown if the journal could not be opened
+     */
+    public MintJournal(File journalFile, int capacity) throws IOException {
+        this.JournalFile = journalFile;
+        this.Channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.Ring = new Record[Math.max(1, capacity)];
+        this.Writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "mint-journal");
+        this.Writer.setDaemon(true);
+        this.Writer.start();
+    }
+
+    /**
+     * Records that the Pids with the given ordinals were minted. Contiguous
+     * ordinals are recorded as a range. Blocks only while the ring buffer is
+     * full.
+     *
+     * @param namespace Describes the settings used to mint the Pids
+     * @param requestId The id of the request that minted the Pids
+     * @param ordinals The ordinals of the minted Pids in ascending order,
+     * which must not be modified afterwards
+     */
+    public void record(String namespace, long requestId, long[] ordinals) {
+        if (JournalFile == null || ordinals.length == 0) {
+            return;
+        }
+        enqueue(new Record(System.currentTimeMillis(), requestId, namespace,
+                ordinals[0], ordinals.length, isRange(ordinals) ? null : ordinals, null));
+    }
+
+    /**
+     * Records the Pids of a mint in a namespace that is wider than 63 bits.
+     *
+     * @param namespace Describes the settings used to mint the Pids
+     * @param requestId The id of the request that minted the Pids
+     * @param ordinals The ordinals of the minted Pids in ascending order,
+     * which must not be modified afterwards
+     */
+    public void record(String namespace, long requestId, BigInteger[] ordinals) {
+        if (JournalFile == null || ordinals.length == 0) {
+            return;
+        }
+        enqueue(new Record(System.currentTimeMillis(), requestId, namespace,
+                -1, ordinals.length, null, ordinals));
+    }
+
+    /**
+     * Places a record into the ring, waiting while the ring is full.
+     *
+     * @param record The record
+     */
+    private void enqueue(Record record) {
+        Lock.lock();
+        try {
+            if (Closed) {
+                throw new IllegalStateException("journal is closed");
+            }
+            while (Tail - Head == Ring.length) {
+                NotFull.awaitUninterruptibly();
+            }
+            Ring[(int) (Tail % Ring.length)] = record;
+            Tail++;
+            NotEmpty.signal();
+        }
+        finally {
+            Lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record recorded so far is written and synced.
+     *
+     * @throws InterruptedException Thrown if interrupted while waiting
+     */
+    public void sync() throws InterruptedException {
+        if (JournalFile == null) {
+            return;
+        }
+        Lock.lock();
+        try {
+            long target = Tail;
+            while (Durable < target) {
+                Synced.await();
+            }
+        }
+        finally {
+            Lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the remaining records, stops the writer and closes the file.
+     *
+     * @throws IOException Thrown if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (JournalFile == null) {
+            return;
+        }
+        Lock.lock();
+        try {
+            Closed = true;
+            NotEmpty.signal();
+        }
+        finally {
+            Lock.unlock();
+        }
+        try {
+            Writer.join();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        Channel.close();
+    }
+
+    /**
+     * Takes every waiting record out of the ring, writes them with a single
+     * write and syncs the file, until the journal is closed.
+     */
+    private void write() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        DataOutputStream out = new DataOutputStream(buffer);
+        List<Record> batch = new ArrayList<>();
+        while (true) {
+            long end;
+            Lock.lock();
+            try {
+                while (Head == Tail && !Closed) {
+                    NotEmpty.awaitUninterruptibly();
+                }
+                if (Head == Tail) {
+                    return;
+                }
+                end = Tail;
+                for (long i = Head; i < end; i++) {
+                    int slot = (int) (i % Ring.length);
+                    batch.add(Ring[slot]);
+                    Ring[slot] = null;
+                }
+                Head = end;
+                NotFull.signalAll();
+            }
+            finally {
+                Lock.unlock();
+            }
+
+            boolean failed = false;
+            try {
+                buffer.reset();
+                for (Record record : batch) {
+                    writeRecord(out, record);
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+                while (bytes.hasRemaining()) {
+                    Channel.write(bytes);
+                }
+                Channel.force(false);
+            }
+            catch (IOException exception) {
+                // the batch is lost; later batches may still succeed
+                failed = true;
+                Logger.error("Unable to write " + batch.size() + " records to the mint journal "
+                        + JournalFile, exception);
+            }
+            batch.clear();
+
+            Lock.lock();
+            try {
+                if (failed) {
+                    Failures++;
+                }
+                Durable = end;
+                Synced.signalAll();
+            }
+            finally {
+                Lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Encodes a single record
+     *
+     * @param out The stream to write to
+     * @param record The record to encode
+     * @throws IOException Thrown if the record could not be written
+     */
+    private static void writeRecord(DataOutputStream out, Record record) throws IOException {
+        out.writeByte(record.isWide() ? WIDE_LIST : record.isRange() ? RANGE : LIST);
+        out.writeLong(record.Timestamp);
+        out.writeLong(record.RequestId);
+        out.writeUTF(record.Namespace);
+        if (record.isWide()) {
+            out.writeInt(record.WideOrdinals.length);
+            for (BigInteger ordinal : record.WideOrdinals) {
+                byte[] magnitude = toMagnitude(ordinal);
+                out.writeByte(magnitude.length);
+                out.write(magnitude);
+            }
+        }
+        else if (record.isRange()) {
+            out.writeLong(record.FirstOrdinal);
+            out.writeLong(record.Count);
+        }
+        else {
+            out.writeInt(record.Ordinals.length);
+            long previous = 0;
+            for (long ordinal : record.Ordinals) {
+                writeVarLong(out, ordinal - previous);
+                previous = ordinal;
+            }
+        }
+    }
+
+    /**
+     * Reads every complete record of the given journal. A record that was
+     * only partially written, as may happen on a crash, ends the journal.
+     *
+     * @param journalFile The journal to read
+     * @return The records in the order they were written
+     * @throws IOException Thrown if the journal could not be read or is
+     * corrupt
+     */
+    public static List<Record> read(File journalFile) throws IOException {
+        List<Record> records = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(journalFile), 1 << 16))) {
+            while (true) {
+                int kind = in.read();
+                if (kind == -1) {
+                    break;
+                }
+                try {
+                    records.add(readRecord(in, kind));
+                }
+                catch (EOFException exception) {
+                    break;
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Decodes a single record whose kind was already read
+     *
+     * @param in The stream to read from
+     * @param kind The kind of the record
+     * @return The record
+     * @throws IOException Thrown if the record could not be read or is
+     * corrupt
+     */
+    private static Record readRecord(DataInputStream in, int kind) throws IOException {
+        long timestamp = in.readLong();
+        long requestId = in.readLong();
+        String namespace = in.readUTF();
+        if (kind == RANGE) {
+            long first = in.readLong();
+            long count = in.readLong();
+            return new Record(timestamp, requestId, namespace, first, count, null, null);
+        }
+        else if (kind == LIST) {
+            long[] ordinals = new long[in.readInt()];
+            long previous = 0;
+            for (int i = 0; i < ordinals.length; i++) {
+                previous += readVarLong(in);
+                ordinals[i] = previous;
+            }
+            return new Record(timestamp, requestId, namespace, ordinals[0], ordinals.length,
+                    ordinals, null);
+        }
+        else if (kind == WIDE_LIST) {
+            BigInteger[] ordinals = new BigInteger[in.readInt()];
+            for (int i = 0; i < ordinals.length; i++) {
+                byte[] magnitude = new byte[in.readUnsignedByte()];
+                in.readFully(magnitude);
+                ordinals[i] = new BigInteger(1, magnitude);
+            }
+            return new Record(timestamp, requestId, namespace, -1, ordinals.length, null,
+                    ordinals);
+        }
+        throw new IOException("corrupt mint journal, unknown record kind " + kind);
+    }
+
+    /**
+     * Writes a non-negative number in as few bytes as possible, seven bits
+     * per byte with the highest bit set on every byte but the last
+     *
+     * @param out The stream to write to
+     * @param value The number to write
+     * @throws IOException Thrown if the number could not be written
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a number written by writeVarLong
+     *
+     * @param in The stream to read from
+     * @return The number
+     * @throws IOException Thrown if the number could not be read
+     */
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0;; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Returns the magnitude of a non-negative number without the sign byte
+     * that BigInteger.toByteArray may add
+     *
+     * @param value The number
+     * @return the big-endian bytes of the number
+     */
+    private static byte[] toMagnitude(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return (bytes.length > 1 && bytes[0] == 0)
+                ? Arrays.copyOfRange(bytes, 1, bytes.length)
+                : bytes;
+    }
+
+    /**
+     * Determines whether the given ascending ordinals have no gaps
+     *
+     * @param ordinals The ordinals
+     * @return true if every ordinal is one more than its predecessor
+     */
+    private static boolean isRange(long[] ordinals) {
+        return ordinals[ordinals.length - 1] - ordinals[0] == ordinals.length - 1;
+    }
+
+    /* typical getters */
+    public boolean isEnabled() {
+        return JournalFile != null;
+    }
+
+    public File getJournalFile() {
+        return JournalFile;
+    }
+
+    public long getFailures() {
+        Lock.lock();
+        try {
+            return Failures;
+        }
+        finally {
+            Lock.unlock();
+        }
+    }
+
+    /**
+     * A single mint as recorded by the journal
+     */
+    public static final class Record {
+
+        private final long Timestamp;
+
+        private final long RequestId;
+
+        private final String Namespace;
+
+        private final long FirstOrdinal;
+
+        private final long Count;
+
+        /**
+         * The ordinals of a list, null for a range
+         */
+        private final long[] Ordinals;
+
+        /**
+         * The ordinals of a wide list, null otherwise
+         */
+        private final BigInteger[] WideOrdinals;
+
+        private Record(long timestamp, long requestId, String namespace, long firstOrdinal,
+                long count, long[] ordinals, BigInteger[] wideOrdinals) {
+            this.Timestamp = timestamp;
+            this.RequestId = requestId;
+            this.Namespace = namespace;
+            this.FirstOrdinal = firstOrdinal;
+            this.Count = count;
+            this.Ordinals = ordinals;
+            this.WideOrdinals = wideOrdinals;
+        }
+
+        /**
+         * Returns the ordinals of every Pid of this record. Should only be
+         * used on small ranges.
+         *
+         * @return The ordinals in ascending order
+         * @throws ArithmeticException Thrown if this is a wide list, whose
+         * ordinals are returned by getExactOrdinals
+         */
+        public long[] getOrdinals() {
+            if (WideOrdinals != null) {
+                throw new ArithmeticException("the ordinals of a wide list exceed a long");
+            }
+            if (Ordinals != null) {
+                return Arrays.copyOf(Ordinals, Ordinals.length);
+            }
+            long[] ordinals = new long[(int) Count];
+            for (int i = 0; i < ordinals.length; i++) {
+                ordinals[i] = FirstOrdinal + i;
+            }
+            return ordinals;
+        }
+
+        /**
+         * Returns the ordinals of every Pid of this record, regardless of
+         * their size. Should only be used on small ranges.
+         *
+         * @return The ordinals in ascending order
+         */
+        public BigInteger[] getExactOrdinals() {
+            if (WideOrdinals != null) {
+                return Arrays.copyOf(WideOrdinals, WideOrdinals.length);
+            }
+            long[] ordinals = getOrdinals();
+            BigInteger[] exact = new BigInteger[ordinals.length];
+            for (int i = 0; i < ordinals.length; i++) {
+                exact[i] = BigInteger.valueOf(ordinals[i]);
+            }
+            return exact;
+        }
+
+        /* typical getters */
+        public boolean isRange() {
+            return Ordinals == null && WideOrdinals == null;
+        }
+
+        public boolean isWide() {
+            return WideOrdinals != null;
+        }
+
+        public long getTimestamp() {
+            return Timestamp;
+        }
+
+        public long getRequestId() {
+            return RequestId;
+        }
+
+        public String getNamespace() {
+            return Namespace;
+        }
+
+        public long getFirstOrdinal() {
+            return FirstOrdinal;
+        }
+
+        public long getCount() {
+            return Count;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.hida.service;
+
+import com.hida.model.MinterBusyException;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Runs mint requests on threads of their own so that the threads of the
+ * servlet container are not held while a mint waits for the minter or is
+ * being created, and settings and other requests are still answered while
+ * large mints are queued.
+ *
+ * At most Threads mints run at a time and at most Capacity more wait for a
+ * thread. Requests beyond that are turned away with a MinterBusyException
+ * before they are queued. A mint marks itself started with startMint once it
+ * holds the minter; a request whose mint has not started within Timeout is
+ * answered with a MinterBusyException and its mint is skipped, while a mint
+ * that has started is never timed out, so that no ids are minted for a
+ * request that was already answered and none are minted without being
+ * returned. The timeouts are kept by a thread of their own and never wait
+ * for a mint.
+ *
+ * @author lruffin
+ */
+public class MintQueue {
+
+    /**
+     * The timeout of the requests themselves, which only time out while their
+     * mints wait to start
+     */
+    private static final long NO_TIMEOUT = 0;
+
+    private final int Threads;
+
+    private final int Capacity;
+
+    private final long Timeout;
+
+    private final ThreadPoolTaskExecutor Executor;
+
+    /**
+     * Answers the requests whose mints have not started in time
+     */
+    private final ThreadPoolTaskScheduler Timer;
+
+    /**
+     * A permit for every mint that may be running or waiting
+     */
+    private final Semaphore Permits;
+
+    /**
+     * The mint running on the current thread
+     */
+    private final ThreadLocal<MintTask<?>> Current = new ThreadLocal<>();
+
+    /**
+     * Creates a queue
+     *
+     * @param threads The number of mints that run at a time
+     * @param capacity The number of mints that may wait for a thread
+     * @param timeout The milliseconds a request may wait for its mint to
+     * start
+     */
+    public MintQueue(int threads, int capacity, long timeout) {
+        this.Threads = threads;
+        this.Capacity = capacity;
+        this.Timeout = timeout;
+        this.Permits = new Semaphore(threads + capacity);
+        this.Executor = new ThreadPoolTaskExecutor();
+        Executor.setCorePoolSize(threads);
+        Executor.setMaxPoolSize(threads);
+        // the queue of the executor is left unbounded: the permits bound it,
+        // and are returned just before a thread is free to take the next mint
+        Executor.setThreadNamePrefix("mint-");
+        Executor.initialize();
+        this.Timer = new ThreadPoolTaskScheduler();
+        Timer.setThreadNamePrefix("mint-timeout-");
+        Timer.initialize();
+    }
+
+    /**
+     * Queues a mint. The returned result is to be returned by the controller
+     * so that Spring answers the request once the mint is done or has timed
+     * out. The request itself never times out, as its mint may run for as
+     * long as it needs to once it has started.
+     *
+     * @param <V> The result of the mint
+     * @param mint The mint
+     * @return the result of the mint
+     * @throws MinterBusyException Thrown if the queue is full
+     */
+    public <V> DeferredResult<V> submit(Callable<V> mint) {
+        if (!Permits.tryAcquire()) {
+            throw new MinterBusyException("The minter is busy; "
+                    + (Threads + Capacity) + " requests are already running or waiting");
+        }
+        DeferredResult<V> result = new DeferredResult<>(NO_TIMEOUT);
+        final MintTask<V> task = new MintTask<>(mint, result);
+        try {
+            Executor.execute(task);
+        }
+        catch (RuntimeException exception) {
+            Permits.release();
+            throw exception;
+        }
+        Timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                task.timeOut();
+            }
+        }, new Date(System.currentTimeMillis() + Timeout));
+        return result;
+    }
+
+    /**
+     * Marks the mint running on the current thread as started unless its
+     * request has timed out, after which the request no longer times out.
+     * Outside of a mint this always succeeds.
+     *
+     * @return true if the mint may go ahead, false if its request has timed
+     * out and was already answered
+     */
+    public boolean startMint() {
+        MintTask<?> task = Current.get();
+        return task == null || task.start();
+    }
+
+    /**
+     * Returns the number of mints that are running or waiting
+     *
+     * @return the number of queued mints
+     */
+    public int getQueued() {
+        return Threads + Capacity - Permits.availablePermits();
+    }
+
+    /**
+     * Stops the threads of the queue once the running and waiting mints are
+     * done
+     */
+    public void shutdown() {
+        Executor.shutdown();
+        Timer.shutdown();
+    }
+
+    /**
+     * A queued mint, which answers its request and returns its permit once it
+     * has run or been skipped
+     *
+     * @param <V> The result of the mint
+     */
+    class MintTask<V> implements Runnable {
+
+        private final Callable<V> Mint;
+
+        private final DeferredResult<V> Result;
+
+        private boolean Started;
+
+        private boolean TimedOut;
+
+        private MintTask(Callable<V> mint, DeferredResult<V> result) {
+            this.Mint = mint;
+            this.Result = result;
+        }
+
+        /**
+         * Answers the request with a MinterBusyException unless the mint has
+         * started
+         *
+         * @return true if the request timed out
+         */
+        boolean timeOut() {
+            synchronized (this) {
+                if (Started) {
+                    return false;
+                }
+                TimedOut = true;
+            }
+            Result.setErrorResult(new MinterBusyException("The minter is busy; "
+                    + "the request waited " + Timeout + " ms for its mint to start"));
+            return true;
+        }
+
+        /**
+         * Marks the mint as started unless the request has timed out
+         *
+         * @return true if the mint may go ahead
+         */
+        synchronized boolean start() {
+            if (TimedOut) {
+                return false;
+            }
+            Started = true;
+            return true;
+        }
+
+        private synchronized boolean isTimedOut() {
+            return TimedOut;
+        }
+
+        @Override
+        public void run() {
+            Current.set(this);
+            try {
+                if (!isTimedOut()) {
+                    Result.setResult(Mint.call());
+                }
+            }
+            catch (Throwable exception) {
+                Result.setErrorResult(exception);
+            }
+            finally {
+                Current.remove();
+                Permits.release();
+            }
+        }
+    }
+
+    /* getters */
+    public int getThreads() {
+        return Threads;
+    }
+
+    public int getCapacity() {
+        return Capacity;
+    }
+
+    public long getTimeout() {
+        return Timeout;
+    }
+}
@@ -1,7 +1,12 @@
 package com.hida.service;
 
+import com.hida.dao.PidStore;
 import com.hida.model.DefaultSetting;
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
 import com.hida.model.Pid;
+import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -18,4 +23,10 @@ public interface MinterService {
 
     public void updateCurrentSetting(DefaultSetting newSetting);
 
+    public List<NamespaceMonitor.NamespaceStatus> getNamespaceStatuses();
+
+    public void exportNames(String prefix, PidStore.NameHandler handler) throws IOException;
+
+    public NamePage searchNames(NamePattern pattern, String after, int limit);
+
 }
@@ -2,6 +2,7 @@ package com.hida.service;
 
 import com.hida.dao.DefaultSettingDao;
 import com.hida.dao.PidDao;
+import com.hida.dao.PidStore;
 import com.hida.model.TokenType;
 import com.hida.dao.UsedSettingDao;
 import com.hida.model.AutoIdGenerator;
@@ -9,15 +10,32 @@ import com.hida.model.CustomIdGenerator;
 import com.hida.model.DefaultSetting;
 import com.hida.model.Pid;
 import com.hida.model.IdGenerator;
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
 import com.hida.model.NotEnoughPermutationsException;
+import com.hida.model.OrdinalBitmap;
+import com.hida.model.UsedOrdinalContainer;
 import com.hida.model.UsedSetting;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * A service class that is used as a medium between the requests received by the
@@ -34,6 +52,18 @@ public class MinterServiceImpl implements MinterService {
      */
     private static final Logger Logger = LoggerFactory.getLogger(MinterServiceImpl.class);
 
+    /**
+     * Draws the ordinals of randomly minted Pids
+     */
+    private static final SecureRandom Rng = new SecureRandom();
+
+    /**
+     * Ids of namespaces wider than 63 bits are only looked up in the database
+     * while the chance that any two ids of the namespace collide is at least
+     * 2^-COLLISION_BITS
+     */
+    private static final int COLLISION_BITS = 40;
+
     @Autowired
     private PidDao PidDao;
 
@@ -43,6 +73,15 @@ public class MinterServiceImpl implements MinterService {
     @Autowired
     private DefaultSettingDao DefaultSettingDao;
 
+    @Autowired
+    private MintJournal Journal;
+
+    @Autowired
+    private NamespaceMonitor Monitor;
+
+    @Autowired
+    private OrdinalSegments Segments;
+
     /**
      * Declares a Generator object to manage
      */
@@ -53,6 +92,21 @@ public class MinterServiceImpl implements MinterService {
      */
     private DefaultSetting CurrentDefaultSetting;
 
+    /**
+     * The ordinals known to be taken, by the namespace of the setting that
+     * uses them. An entry is only valid while the amount of its UsedSetting
+     * is unchanged, so that mints that were rolled back or made by other
+     * settings sharing the same UsedSetting are never trusted.
+     */
+    private final Map<String, CachedOrdinals> UsedOrdinalsCache = new ConcurrentHashMap<>();
+
+    /**
+     * Whether a namespace can't create any name that the namespaces of the
+     * other UsedSettings can create, by the namespace and the id of its own
+     * UsedSetting. Cleared whenever a UsedSetting is created.
+     */
+    private final Map<String, Boolean> DisjointNamespaces = new ConcurrentHashMap<>();
+
     /**
      * No-arg constructor
      */
@@ -144,34 +198,58 @@ public class MinterServiceImpl implements MinterService {
         }
         Logger.info("request is valid");
 
-        /* 
-         if the current setting is random, have the generator return a random set,
-         otherwise, have the generator return a sequential set
-         */
-        Set<Pid> set = (CurrentDefaultSetting.isRandom()) ? Generator.randomMint(amount)
-                : Generator.sequentialMint(amount);
+        OrdinalBitmap usedOrdinals = getUsedOrdinals();
+        boolean lookup = !isIndexComplete(usedOrdinals);
+        Set<Pid> set;
+        try {
+            /* 
+             if the current setting is random, draw the ids from the remaining ids,
+             otherwise, have the generator return a sequential set and increment 
+             its ids appropriately
+             */
+            if (CurrentDefaultSetting.isRandom()) {
+                set = (Generator.isWideNamespace())
+                        ? drawWideIdSet(amount)
+                        : drawIdSet(total, amount, usedOrdinals, lookup);
+            }
+            else {
+                set = rollIdSet(Generator.sequentialMint(amount), total, amount, usedOrdinals,
+                        lookup);
+            }
 
-        // check ids and increment them appropriately
-        set = rollIdSet(set, total, amount);
+            // add the set of ids to the id table in the database and their formats
+            addIdList(set, amount, usedOrdinals);
+        }
+        catch (RuntimeException exception) {
+            // the ordinals of the failed mint were already added
+            UsedOrdinalsCache.remove(getNamespace());
+            Segments.reset(getNamespace());
+            throw exception;
+        }
 
-        // add the set of ids to the id table in the database and their formats
-        addIdList(set, amount);
+        // record the ids in the audit journal once they are persisted
+        journalIdSet(set);
 
         // return the set of ids
         return set;
     }
 
     /**
-     * Continuously increments a set of ids until the set is completely filled
-     * with unique ids.
+     * Continuously moves the ids of a set to the next ordinal that isn't
+     * taken until the set is completely filled with unique ids. Ordinals that
+     * are known to be taken are skipped without consulting the database, which
+     * is only asked about names that may have been created by other settings.
      *
      * @param set the set of ids
-     * @param order determines whether or not the ids will be ordered
-     * @param isAuto determines whether or not the ids are AutoId or CustomId
+     * @param totalPermutations the number of ids the setting can create
      * @param amount the amount of ids to be created.
+     * @param usedOrdinals the ordinals known to be taken, to which the
+     * ordinals of the returned ids are added
+     * @param lookup whether the database must be asked about names
      * @return A set of unique ids database.
      */
-    private Set<Pid> rollIdSet(Set<Pid> set, long totalPermutations, long amount) {
+    private Set<Pid> rollIdSet(Set<Pid> set, long totalPermutations, long amount,
+            OrdinalBitmap usedOrdinals, boolean lookup) {
         Logger.info("in rollIdSet");
         // Used to count the number of unique ids. Size methods aren't used because int is returned
         long uniqueIdCounter = 0;
@@ -181,25 +259,30 @@ public class MinterServiceImpl implements MinterService {
 
         // iterate through every id 
         for (Pid currentId : set) {
-            // counts the number of times an id has been rejected
-            long counter = 0;
-
-            // continuously increments invalid or non-unique ids
-            while (!isValidId(currentId) || uniqueList.contains(currentId)) {
-                /* 
-                 if counter exceeds totalPermutations, then id has iterated through every 
-                 possible permutation. Related format is updated as a quick look-up reference
-                 with the number of ids that were inadvertedly been created using other formats.
-                 NotEnoughPermutationsException is thrown stating remaining number of ids.
-                 */
-                if (counter > totalPermutations) {
-                    Logger.error("Total number of Permutations Exceeded: Total Permutation Count="
-                            + totalPermutations);
-                    throw new NotEnoughPermutationsException(uniqueIdCounter, amount);
+            long ordinal = nextFreeOrdinal(usedOrdinals, currentId.getOrdinal(), totalPermutations);
+
+            // continuously skips ids that were created using other settings
+            while (ordinal >= 0) {
+                currentId.setOrdinal(ordinal);
+                if (!lookup || isValidId(currentId)) {
+                    break;
                 }
-                currentId.incrementId();
-                counter++;
+                usedOrdinals.add(ordinal);
+                ordinal = nextFreeOrdinal(usedOrdinals, ordinal, totalPermutations);
             }
+
+            /* 
+             if no ordinal is left, then every possible permutation has been taken, 
+             including those inadvertedly created using other formats.
+             NotEnoughPermutationsException is thrown stating remaining number of ids.
+             */
+            if (ordinal < 0) {
+                Logger.error("Total number of Permutations Exceeded: Total Permutation Count="
+                        + totalPermutations);
+                throw new NotEnoughPermutationsException(uniqueIdCounter, amount);
+            }
+            usedOrdinals.add(ordinal);
+
             // unique ids are added to list and uniqueIdCounter is incremented.
             // Size methods aren't used because int is returned
             uniqueIdCounter++;
@@ -208,6 +291,121 @@ public class MinterServiceImpl implements MinterService {
         return uniqueList;
     }
 
+    /**
+     * Creates a set of unique ids whose ordinals are drawn uniformly from the
+     * ordinals that aren't known to be taken. The cost of every id stays the
+     * same however many ids the setting already created, instead of growing
+     * with the number of collisions as the setting runs out of ids. When
+     * segments are enabled, the ordinals are drawn from the current segment
+     * of the namespace so that the new names are close to each other in the
+     * index of the PIDS table.
+     *
+     * @param totalPermutations the number of ids the setting can create
+     * @param amount the amount of ids to be created.
+     * @param usedOrdinals the ordinals known to be taken, to which the
+     * ordinals of the returned ids are added
+     * @param lookup whether the database must be asked about names
+     * @return A set of unique ids
+     */
+    private Set<Pid> drawIdSet(long totalPermutations, long amount, OrdinalBitmap usedOrdinals,
+            boolean lookup) {
+        Logger.info("in drawIdSet");
+        long uniqueIdCounter = 0;
+        Set<Pid> uniqueList = new TreeSet<>();
+        String namespace = getNamespace();
+        long segmentLength = (Segments.isEnabled()) ? Segments.getSegmentLength(Generator) : 0;
+
+        while (uniqueIdCounter < amount) {
+            long ordinal = (segmentLength > 0)
+                    ? Segments.randomClear(namespace, usedOrdinals, Rng, totalPermutations,
+                            segmentLength)
+                    : usedOrdinals.randomClear(Rng, totalPermutations);
+            if (ordinal < 0) {
+                Logger.error("Total number of Permutations Exceeded: Total Permutation Count="
+                        + totalPermutations);
+                throw new NotEnoughPermutationsException(uniqueIdCounter, amount);
+            }
+            usedOrdinals.add(ordinal);
+
+            // ids that were created using other settings are drawn again
+            Pid currentId = Generator.createId(ordinal);
+            if (!lookup || isValidId(currentId)) {
+                uniqueIdCounter++;
+                uniqueList.add(currentId);
+            }
+        }
+        return uniqueList;
+    }
+
+    /**
+     * Creates a set of unique ids whose ordinals are drawn uniformly from a
+     * namespace that is wider than 63 bits. Such ordinals can't be recorded as
+     * used, but the namespace is large enough that a drawn id is almost never
+     * taken: the database is only asked about the ids while the chance of any
+     * collision among every id of the namespace is not negligible. Names are
+     * still unique in the PIDS table, which rejects the rare duplicate.
+     *
+     * @param amount the amount of ids to be created.
+     * @return A set of unique ids
+     */
+    private Set<Pid> drawWideIdSet(long amount) {
+        Logger.info("in drawWideIdSet");
+        BigInteger total = Generator.calculateExactPermutations();
+        boolean lookup = isCollisionLikely(total, getAmountCreated() + amount);
+
+        long uniqueIdCounter = 0;
+        Set<Pid> uniqueList = new TreeSet<>();
+        while (uniqueIdCounter < amount) {
+            Pid currentId = Generator.createId(randomOrdinal(total));
+            if ((!lookup || isValidId(currentId)) && uniqueList.add(currentId)) {
+                uniqueIdCounter++;
+            }
+        }
+        return uniqueList;
+    }
+
+    /**
+     * Determines whether any two of the given number of ids drawn uniformly
+     * from a namespace may collide with a probability of at least
+     * 2^-COLLISION_BITS. The probability is at most count^2 / (2 * total).
+     *
+     * @param total the number of ids in the namespace
+     * @param count the number of ids drawn
+     * @return true if a collision is likely enough to look for it
+     */
+    static boolean isCollisionLikely(BigInteger total, long count) {
+        BigInteger square = BigInteger.valueOf(count).pow(2);
+        return square.shiftLeft(COLLISION_BITS - 1).compareTo(total) >= 0;
+    }
+
+    /**
+     * Draws an ordinal uniformly from 0 to total - 1
+     *
+     * @param total the number of ids in the namespace
+     * @return the ordinal
+     */
+    private BigInteger randomOrdinal(BigInteger total) {
+        BigInteger ordinal;
+        do {
+            ordinal = new BigInteger(total.bitLength(), Rng);
+        } while (ordinal.compareTo(total) >= 0);
+        return ordinal;
+    }
+
+    /**
+     * Returns the first ordinal at or after the given one that is not known to
+     * be taken, wrapping around to 0 just as incrementId does.
+     *
+     * @param usedOrdinals the ordinals known to be taken
+     * @param from the ordinal to start at
+     * @param totalPermutations the number of ids the setting can create
+     * @return the ordinal, or -1 if every ordinal is taken
+     */
+    private long nextFreeOrdinal(OrdinalBitmap usedOrdinals, long from, long totalPermutations) {
+        long ordinal = usedOrdinals.nextClear(from, totalPermutations);
+        return (ordinal >= 0) ? ordinal : usedOrdinals.nextClear(0, from);
+    }
+
     /**
      * Adds a requested amount of formatted ids to the database.
      *
@@ -219,8 +417,10 @@ public class MinterServiceImpl implements MinterService {
      * root.
      * @param sansVowel Designates whether or not the id's root contains vowels.
      * @param rootLength Designates the length of the id's root.
+     * @param usedOrdinals The ordinals known to be taken, including those of
+     * the list
      */
-    private void addIdList(Set<Pid> list, long amountCreated) {
+    private void addIdList(Set<Pid> list, long amountCreated, OrdinalBitmap usedOrdinals) {
         Logger.info("in addIdlIst");
 
         for (Pid pid : list) {
@@ -229,11 +429,83 @@ public class MinterServiceImpl implements MinterService {
 
         Logger.info("DatabaseUpdated with new pids");
         // update table format
-        recordSettings(amountCreated);
+        recordSettings(amountCreated, usedOrdinals);
 
         //Logger.info("Finished; IDs printed to Database");
     }
 
+    /**
+     * Records the given ids in the mint journal once the current transaction
+     * commits, or immediately if there is no transaction. The ids are tagged
+     * with the request id found in the MDC, if any.
+     *
+     * @param set the ids in ascending order
+     */
+    private void journalIdSet(Set<Pid> set) {
+        if (!Journal.isEnabled()) {
+            return;
+        }
+        final String namespace = getNamespace();
+        final boolean wide = Generator.isWideNamespace();
+        final long[] ordinals = new long[(wide) ? 0 : set.size()];
+        final BigInteger[] wideOrdinals = new BigInteger[(wide) ? set.size() : 0];
+        int i = 0;
+        for (Pid pid : set) {
+            if (wide) {
+                wideOrdinals[i++] = pid.getExactOrdinal();
+            }
+            else {
+                ordinals[i++] = pid.getOrdinal();
+            }
+        }
+        String requestId = MDC.get(MintJournal.REQUEST_ID);
+        final long id = (requestId == null) ? 0 : Long.parseLong(requestId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCommit() {
+                            recordJournal(namespace, id, wide, ordinals, wideOrdinals);
+                        }
+                    });
+        }
+        else {
+            recordJournal(namespace, id, wide, ordinals, wideOrdinals);
+        }
+    }
+
+    private void recordJournal(String namespace, long id, boolean wide, long[] ordinals,
+            BigInteger[] wideOrdinals) {
+        if (wide) {
+            Journal.record(namespace, id, wideOrdinals);
+        }
+        else {
+            Journal.record(namespace, id, ordinals);
+        }
+    }
+
+    /**
+     * Describes the space of ids that the current setting creates ids in, so
+     * that the ordinals recorded in the journal can be mapped back to names.
+     *
+     * @return the namespace of the current setting
+     */
+    private String getNamespace() {
+        String vowels = (CurrentDefaultSetting.isSansVowels()) ? "sansvowels" : "vowels";
+        if (CurrentDefaultSetting.isAuto()) {
+            return "auto/" + CurrentDefaultSetting.getPrefix()
+                    + "/" + CurrentDefaultSetting.getTokenType()
+                    + "/" + CurrentDefaultSetting.getRootLength()
+                    + "/" + vowels;
+        }
+        else {
+            return "custom/" + CurrentDefaultSetting.getPrefix()
+                    + "/" + CurrentDefaultSetting.getCharMap()
+                    + "/" + vowels;
+        }
+    }
+
     /**
      * Attempts to find a UsedSetting based on the currently used DefaultSetting
      *
@@ -256,8 +528,9 @@ public class MinterServiceImpl implements MinterService {
      * of Pids
      *
      * @param amount The number of PIDs that were created
+     * @param usedOrdinals The ordinals known to be taken
      */
-    private void recordSettings(long amount) {
+    private void recordSettings(long amount, OrdinalBitmap usedOrdinals) {
         Logger.info("in recordSettings");
 
         UsedSetting entity = findUsedSetting();
@@ -271,11 +544,329 @@ public class MinterServiceImpl implements MinterService {
                     amount);
 
             UsedSettingDao.save(entity);
+            writeUsedOrdinals(entity, usedOrdinals);
+
+            // the new namespace may overlap with namespaces found to be disjoint
+            DisjointNamespaces.clear();
         }
         else {
             long previousAmount = entity.getAmount();
             entity.setAmount(previousAmount + amount);
+            writeUsedOrdinals(entity, usedOrdinals);
         }
+        UsedOrdinalsCache.put(getNamespace(), new CachedOrdinals(usedOrdinals, entity.getAmount()));
+        monitorSettings(entity, amount);
+    }
+
+    /**
+     * Updates the counters of the NamespaceMonitor once the current
+     * transaction commits, or immediately if there is no transaction.
+     *
+     * @param entity The UsedSetting of the current setting
+     * @param amount The number of PIDs that were created
+     */
+    private void monitorSettings(UsedSetting entity, final long amount) {
+        final int id = entity.getId();
+        final String description = describe(entity);
+        final String namespace = getNamespace();
+        final BigInteger total = Generator.calculateExactPermutations();
+        final long amountCreated = entity.getAmount();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCommit() {
+                            Monitor.recordMint(id, description, namespace, total,
+                                    amountCreated, amount, System.currentTimeMillis());
+                        }
+                    });
+        }
+        else {
+            Monitor.recordMint(id, description, namespace, total, amountCreated, amount,
+                    System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Returns how full every UsedSetting is and how quickly it is filling up.
+     * The UsedSettings are read from the database once, after which the
+     * statuses are served from the counters kept by the NamespaceMonitor.
+     *
+     * @return the status of every UsedSetting
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<NamespaceMonitor.NamespaceStatus> getNamespaceStatuses() {
+        Logger.info("in getNamespaceStatuses");
+        if (!Monitor.isLoaded()) {
+            for (UsedSetting entity : UsedSettingDao.findAllUsedSettings()) {
+                String namespace = readNamespace(entity);
+                BigInteger total = (namespace == null) ? null : calculatePermutations(namespace);
+                Monitor.load(entity.getId(), describe(entity), namespace, total,
+                        entity.getAmount());
+            }
+            Monitor.setLoaded();
+        }
+        return Monitor.getStatuses(System.currentTimeMillis());
+    }
+
+    /**
+     * Hands the name of every stored Pid that starts with the given prefix to
+     * the handler, one at a time and within a single read-only transaction
+     *
+     * @param prefix The start of the exported names, empty for every name
+     * @param handler Receives the names
+     * @throws IOException Thrown if the handler fails
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportNames(String prefix, PidStore.NameHandler handler) throws IOException {
+        Logger.info("in exportNames");
+        PidDao.exportNames(prefix, handler);
+    }
+
+    /**
+     * Finds a page of the names of the stored Pids that match a pattern
+     *
+     * @param pattern The names to find
+     * @param after The cursor of the previous page, or null for the first
+     * page
+     * @param limit The largest number of names of the page
+     * @return the page
+     * @throws IllegalArgumentException Thrown if the cursor wasn't returned
+     * by a previous search
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public NamePage searchNames(NamePattern pattern, String after, int limit) {
+        Logger.info("in searchNames");
+        return PidDao.searchNames(pattern, after, limit);
+    }
+
+    /**
+     * Returns the namespace that heads the used ordinals of a UsedSetting,
+     * which is the namespace of the setting that last minted with it.
+     *
+     * @param entity The UsedSetting
+     * @return the namespace, or null if the UsedSetting has no used ordinals
+     */
+    private String readNamespace(UsedSetting entity) {
+        if (entity.getOrdinalsNamespace() != null) {
+            return entity.getOrdinalsNamespace();
+        }
+        byte[] bytes = entity.getUsedOrdinals();
+        if (bytes == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readUTF();
+        }
+        catch (IOException exception) {
+            Logger.warn("Unable to read the namespace of UsedSetting " + entity.getId(),
+                    exception);
+            return null;
+        }
+    }
+
+    /**
+     * Calculates the total permutations of a namespace created by
+     * getNamespace.
+     *
+     * @param namespace The namespace
+     * @return the total permutations, or null if the namespace can't be parsed
+     */
+    private BigInteger calculatePermutations(String namespace) {
+        String[] values = namespace.split("/", -1);
+        try {
+            boolean sansVowels = "sansvowels".equals(values[values.length - 1]);
+            if (values.length == 5 && "auto".equals(values[0])) {
+                return new AutoIdGenerator(values[1], sansVowels, TokenType.valueOf(values[2]),
+                        Integer.parseInt(values[3])).calculateExactPermutations();
+            }
+            else if (values.length == 4 && "custom".equals(values[0])) {
+                return new CustomIdGenerator(values[1], sansVowels, values[2])
+                        .calculateExactPermutations();
+            }
+        }
+        catch (IllegalArgumentException exception) {
+            Logger.warn("Unable to parse namespace " + namespace, exception);
+        }
+        return null;
+    }
+
+    /**
+     * Describes the values of a UsedSetting
+     *
+     * @param entity The UsedSetting
+     * @return the description
+     */
+    private String describe(UsedSetting entity) {
+        return "prefix=" + entity.getPrefix()
+                + ", tokenType=" + entity.getTokenType()
+                + ", charMap=" + entity.getCharMap()
+                + ", rootLength=" + entity.getRootLength()
+                + ", sansVowels=" + entity.isSansVowels();
+    }
+
+    /**
+     * Determines whether the ordinals known to be taken are every name of the
+     * current namespace that exists in the database, in which case names
+     * don't have to be looked up in the database at all.
+     *
+     * That is the case when no other UsedSetting can create a name of the
+     * current namespace, so that every such name in the database was created
+     * through the current UsedSetting, and the ordinals known to be taken are
+     * at least as many as the Pids created through it. The ordinals known to
+     * be taken are always names in the database, so they can't be fewer than
+     * those names without missing some, for instance those created before
+     * ordinals were recorded or by a setting sharing the UsedSetting.
+     *
+     * @param usedOrdinals the ordinals known to be taken
+     * @return true if the ordinals are complete
+     */
+    private boolean isIndexComplete(OrdinalBitmap usedOrdinals) {
+        UsedSetting entity = findUsedSetting();
+        long amountCreated = (entity == null) ? 0 : entity.getAmount();
+        if (usedOrdinals.getCardinality() < amountCreated) {
+            return false;
+        }
+        int id = (entity == null) ? -1 : entity.getId();
+        String key = getNamespace() + "#" + id;
+        Boolean disjoint = DisjointNamespaces.get(key);
+        if (disjoint == null) {
+            disjoint = isDisjointNamespace(id);
+            DisjointNamespaces.put(key, disjoint);
+        }
+        if (disjoint) {
+            Logger.info("namespace is disjoint from every other setting, skipping lookups");
+        }
+        return disjoint;
+    }
+
+    /**
+     * Determines whether the current namespace can't create any name that the
+     * namespaces of the other UsedSettings can create. A UsedSetting is shared
+     * by the auto and the custom setting with its values, so both of its
+     * namespaces are compared.
+     *
+     * @param id The id of the UsedSetting of the current setting, -1 if none
+     * @return true if no other UsedSetting overlaps
+     */
+    private boolean isDisjointNamespace(int id) {
+        for (UsedSetting entity : UsedSettingDao.findAllUsedSettings()) {
+            if (entity.getId() == id) {
+                continue;
+            }
+            if (entity.getTokenType() != null && Generator.overlaps(new AutoIdGenerator(
+                    entity.getPrefix(), entity.isSansVowels(), entity.getTokenType(),
+                    entity.getRootLength()))) {
+                return false;
+            }
+            if (entity.getCharMap() != null && Generator.overlaps(new CustomIdGenerator(
+                    entity.getPrefix(), entity.isSansVowels(), entity.getCharMap()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ordinals known to be taken within the namespace of the
+     * current setting, either from the cache or from its UsedSetting.
+     *
+     * @return the ordinals known to be taken
+     */
+    private OrdinalBitmap getUsedOrdinals() {
+        UsedSetting entity = findUsedSetting();
+        if (entity == null) {
+            return new OrdinalBitmap();
+        }
+        String namespace = getNamespace();
+        CachedOrdinals cached = UsedOrdinalsCache.get(namespace);
+        if (cached != null && cached.Amount == entity.getAmount()) {
+            return cached.Ordinals;
+        }
+
+        // a UsedSetting is shared by auto and custom settings with the same values
+        if (entity.getOrdinalsNamespace() != null) {
+            return namespace.equals(entity.getOrdinalsNamespace())
+                    ? readUsedOrdinals(entity) : new OrdinalBitmap();
+        }
+        byte[] bytes = entity.getUsedOrdinals();
+        if (bytes == null) {
+            return new OrdinalBitmap();
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (!in.readUTF().equals(namespace)) {
+                return new OrdinalBitmap();
+            }
+            return OrdinalBitmap.read(in);
+        }
+        catch (IOException exception) {
+            Logger.warn("Unable to read the used ordinals of " + namespace, exception);
+            return new OrdinalBitmap();
+        }
+    }
+
+    /**
+     * Reads the ordinals known to be taken from the stored containers of a
+     * UsedSetting
+     *
+     * @param entity The UsedSetting
+     * @return the ordinals known to be taken
+     */
+    private OrdinalBitmap readUsedOrdinals(UsedSetting entity) {
+        OrdinalBitmap usedOrdinals = new OrdinalBitmap();
+        try {
+            for (UsedOrdinalContainer container
+                    : UsedSettingDao.findOrdinalContainers(entity.getId())) {
+                usedOrdinals.readContainer(container.getContainerKey(), new DataInputStream(
+                        new ByteArrayInputStream(container.getContainer())));
+            }
+        }
+        catch (IOException exception) {
+            Logger.warn("Unable to read the used ordinals of " + getNamespace(), exception);
+            return new OrdinalBitmap();
+        }
+        return usedOrdinals;
+    }
+
+    /**
+     * Stores the ordinals known to be taken as the containers of a
+     * UsedSetting. Only the containers that changed since they were last
+     * stored are written, unless the UsedSetting holds the ordinals of
+     * another namespace or none yet, in which case they are replaced as a
+     * whole.
+     *
+     * @param entity The UsedSetting of the current setting
+     * @param usedOrdinals the ordinals known to be taken
+     */
+    private void writeUsedOrdinals(UsedSetting entity, OrdinalBitmap usedOrdinals) {
+        String namespace = getNamespace();
+        Set<Long> keys;
+        if (namespace.equals(entity.getOrdinalsNamespace())) {
+            keys = usedOrdinals.getChangedContainers();
+        }
+        else {
+            UsedSettingDao.deleteOrdinalContainers(entity.getId());
+            entity.setOrdinalsNamespace(namespace);
+            entity.setUsedOrdinals(null);
+            keys = usedOrdinals.getContainers();
+        }
+
+        for (Long key : keys) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                usedOrdinals.writeContainer(key, out);
+            }
+            catch (IOException exception) {
+                throw new IllegalStateException(exception);
+            }
+            UsedSettingDao.saveOrdinalContainer(
+                    new UsedOrdinalContainer(entity.getId(), key, bytes.toByteArray()));
+        }
+        usedOrdinals.markUnchanged();
     }
 
     /**
@@ -286,8 +877,7 @@ public class MinterServiceImpl implements MinterService {
      * otherwise
      */
     private boolean isValidId(Pid pid) {
-        Logger.info("in isValidId");
-        Pid entity = this.PidDao.findByName(pid.getName());
+        Pid entity = this.PidDao.findPid(pid);
         return entity == null;
     }
 
@@ -338,4 +928,20 @@ public class MinterServiceImpl implements MinterService {
         this.CurrentDefaultSetting = CurrentSetting;
     }
 
+    /**
+     * The ordinals known to be taken by a setting along with the amount of its
+     * UsedSetting at the time
+     */
+    private static class CachedOrdinals {
+
+        private final OrdinalBitmap Ordinals;
+
+        private final long Amount;
+
+        private CachedOrdinals(OrdinalBitmap ordinals, long amount) {
+            this.Ordinals = ordinals;
+            this.Amount = amount;
+        }
+    }
+
 }
@@ -0,0 +1,269 @@
+package com.hida.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps track of how full every UsedSetting is and how quickly it is filling
+ * up, so that settings can be reported on before they run out of Pids without
+ * reading the database.
+ *
+ * The mint rate of a setting is an exponentially weighted rate: every minted
+ * Pid counts fully when it is minted and its weight decays with the rate
+ * window as its time constant, so that the rate follows changes in load within
+ * about one window.
+ *
+ * @author lruffin
+ */
+@Component
+public class NamespaceMonitor {
+
+    /**
+     * The time constant of the mint rate in milliseconds
+     */
+    private final long RateWindow;
+
+    private final ConcurrentMap<Integer, Namespace> Namespaces = new ConcurrentHashMap<>();
+
+    private volatile boolean Loaded = false;
+
+    /**
+     * Creates a monitor whose mint rates follow the last hour
+     */
+    public NamespaceMonitor() {
+        this(TimeUnit.HOURS.toMillis(1));
+    }
+
+    /**
+     * Creates a monitor
+     *
+     * @param rateWindow The time constant of the mint rate in milliseconds
+     */
+    public NamespaceMonitor(long rateWindow) {
+        this.RateWindow = rateWindow;
+    }
+
+    /**
+     * Returns whether the settings stored in the database were added through
+     * load
+     *
+     * @return true once loaded
+     */
+    public boolean isLoaded() {
+        return Loaded;
+    }
+
+    /**
+     * Adds a setting that was read from the database, unless it was already
+     * added by a mint
+     *
+     * @param id The id of the UsedSetting
+     * @param description The values of the UsedSetting
+     * @param namespace The namespace of the setting, null if unknown
+     * @param totalPermutations The number of Pids the setting can create, null
+     * if unknown
+     * @param amount The number of Pids created so far
+     */
+    public void load(int id, String description, String namespace,
+            BigInteger totalPermutations, long amount) {
+        Namespaces.putIfAbsent(id,
+                new Namespace(id, description, namespace, totalPermutations, amount));
+    }
+
+    /**
+     * Marks the settings stored in the database as loaded
+     */
+    public void setLoaded() {
+        Loaded = true;
+    }
+
+    /**
+     * Records Pids that were minted with a setting
+     *
+     * @param id The id of the UsedSetting
+     * @param description The values of the UsedSetting
+     * @param namespace The namespace of the setting
+     * @param totalPermutations The number of Pids the setting can create
+     * @param amount The number of Pids created so far, including the minted
+     * ones
+     * @param minted The number of Pids minted
+     * @param now The current time in milliseconds
+     */
+    public void recordMint(int id, String description, String namespace,
+            BigInteger totalPermutations, long amount, long minted, long now) {
+        Namespace created = new Namespace(id, description, namespace, totalPermutations, amount);
+        Namespace existing = Namespaces.putIfAbsent(id, created);
+        Namespace entry = (existing != null) ? existing : created;
+        entry.record(namespace, totalPermutations, amount, minted, now);
+    }
+
+    /**
+     * Returns the current status of every setting, ordered by id
+     *
+     * @param now The current time in milliseconds
+     * @return the statuses
+     */
+    public List<NamespaceStatus> getStatuses(long now) {
+        List<NamespaceStatus> statuses = new ArrayList<>();
+        for (Namespace namespace : new TreeMap<>(Namespaces).values()) {
+            statuses.add(namespace.getStatus(now));
+        }
+        return statuses;
+    }
+
+    /**
+     * The counters of a single UsedSetting
+     */
+    private final class Namespace {
+
+        private final int Id;
+
+        private final String Description;
+
+        private String Name;
+
+        private BigInteger TotalPermutations;
+
+        private long Amount;
+
+        /**
+         * The decayed number of Pids minted per RateWindow milliseconds as of
+         * RateTime
+         */
+        private double Rate = 0;
+
+        private long RateTime = 0;
+
+        private Namespace(int id, String description, String name,
+                BigInteger totalPermutations, long amount) {
+            this.Id = id;
+            this.Description = description;
+            this.Name = name;
+            this.TotalPermutations = totalPermutations;
+            this.Amount = amount;
+        }
+
+        private synchronized void record(String name, BigInteger totalPermutations, long amount,
+                long minted, long now) {
+            this.Name = name;
+            this.TotalPermutations = totalPermutations;
+            this.Amount = Math.max(Amount, amount);
+            Rate = decayedRate(now) + minted;
+            RateTime = now;
+        }
+
+        private double decayedRate(long now) {
+            if (Rate == 0 || now <= RateTime) {
+                return Rate;
+            }
+            return Rate * Math.exp(-(double) (now - RateTime) / RateWindow);
+        }
+
+        private synchronized NamespaceStatus getStatus(long now) {
+            NamespaceStatus status = new NamespaceStatus();
+            status.Id = Id;
+            status.Setting = Description;
+            status.Namespace = Name;
+            status.Amount = Amount;
+            status.MintRatePerHour = decayedRate(now) * TimeUnit.HOURS.toMillis(1) / RateWindow;
+            if (TotalPermutations != null) {
+                BigInteger remaining = TotalPermutations.subtract(BigInteger.valueOf(Amount))
+                        .max(BigInteger.ZERO);
+                status.TotalPermutations = TotalPermutations;
+                status.Remaining = remaining;
+                status.FillRatio = (TotalPermutations.signum() == 0)
+                        ? 1.0
+                        : new BigDecimal(Amount).divide(new BigDecimal(TotalPermutations),
+                                MathContext.DECIMAL64).doubleValue();
+                if (remaining.signum() > 0 && status.MintRatePerHour > 0) {
+                    double hours = remaining.doubleValue() / status.MintRatePerHour;
+                    status.ProjectedExhaustion = format(
+                            now + (long) Math.min(hours * TimeUnit.HOURS.toMillis(1),
+                                    Long.MAX_VALUE / 2));
+                }
+            }
+            return status;
+        }
+    }
+
+    private static String format(long time) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(time));
+    }
+
+    /**
+     * A report on how full a UsedSetting is. The total permutations, the
+     * remaining amount and the fill ratio are null for settings whose
+     * namespace is unknown, which is the case for settings that haven't been
+     * used since their ordinals were first recorded. The projected exhaustion
+     * is null while nothing is being minted.
+     */
+    public static class NamespaceStatus {
+
+        private int Id;
+
+        private String Setting;
+
+        private String Namespace;
+
+        private BigInteger TotalPermutations;
+
+        private long Amount;
+
+        private BigInteger Remaining;
+
+        private Double FillRatio;
+
+        private double MintRatePerHour;
+
+        private String ProjectedExhaustion;
+
+        public int getId() {
+            return Id;
+        }
+
+        public String getSetting() {
+            return Setting;
+        }
+
+        public String getNamespace() {
+            return Namespace;
+        }
+
+        public BigInteger getTotalPermutations() {
+            return TotalPermutations;
+        }
+
+        public long getAmount() {
+            return Amount;
+        }
+
+        public BigInteger getRemaining() {
+            return Remaining;
+        }
+
+        public Double getFillRatio() {
+            return FillRatio;
+        }
+
+        public double getMintRatePerHour() {
+            return MintRatePerHour;
+        }
+
+        public String getProjectedExhaustion() {
+            return ProjectedExhaustion;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.hida.service;
+
+import com.hida.model.IdGenerator;
+import com.hida.model.OrdinalBitmap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Draws the ordinals of randomly minted Pids so that the names minted around
+ * the same time share their leading characters.
+ *
+ * The ordinals of a namespace are split into segments of consecutive
+ * ordinals, each of which is the set of names that share all but the trailing
+ * characters of their root. Every segment covers at least SegmentSize
+ * ordinals. Ordinals are drawn uniformly from the first segment that is less
+ * than half taken, so that names stay unpredictable within a segment while
+ * the names inserted into the index of the PIDS table only fall into the few
+ * pages of the current segment instead of all of them. Segments are used in
+ * ascending order; once every segment is half taken, the remaining ordinals
+ * are drawn from the whole namespace.
+ *
+ * @author lruffin
+ */
+public class OrdinalSegments {
+
+    /**
+     * The smallest number of ordinals in a segment, 0 if ordinals are drawn
+     * from the whole namespace
+     */
+    private final long SegmentSize;
+
+    /**
+     * The first segment that may be less than half taken, by namespace
+     */
+    private final Map<String, Long> CurrentSegments = new ConcurrentHashMap<>();
+
+    /**
+     * Creates segments that are disabled, drawing ordinals from the whole
+     * namespace
+     */
+    public OrdinalSegments() {
+        this(0);
+    }
+
+    /**
+     * Creates segments
+     *
+     * @param segmentSize The smallest number of ordinals in a segment, 0 to
+     * draw ordinals from the whole namespace
+     */
+    public OrdinalSegments(long segmentSize) {
+        this.SegmentSize = segmentSize;
+    }
+
+    /**
+     * Returns whether ordinals are drawn from segments
+     *
+     * @return true if segments are enabled
+     */
+    public boolean isEnabled() {
+        return SegmentSize > 0;
+    }
+
+    /**
+     * Returns the number of ordinals in a segment of the namespace of a
+     * generator, which is the number of names that share every character but
+     * the trailing ones whose combinations first reach SegmentSize.
+     *
+     * @param generator The generator of the namespace
+     * @return the number of ordinals, or Long.MAX_VALUE if the whole
+     * namespace is a single segment
+     */
+    public long getSegmentLength(IdGenerator generator) {
+        String[] alphabets = generator.getAlphabets();
+        long length = 1;
+        for (int i = alphabets.length - 1; i >= 0 && length < SegmentSize; i--) {
+            if (length > Long.MAX_VALUE / alphabets[i].length()) {
+                return Long.MAX_VALUE;
+            }
+            length *= alphabets[i].length();
+        }
+        return length;
+    }
+
+    /**
+     * Draws an ordinal uniformly from the clear ordinals of the first segment
+     * of a namespace that is less than half taken, or from the whole
+     * namespace if there is no such segment.
+     *
+     * @param namespace The namespace of the setting
+     * @param usedOrdinals The ordinals known to be taken
+     * @param random The source of randomness
+     * @param totalPermutations The number of ordinals in the namespace
+     * @param segmentLength The number of ordinals in a segment, as given by
+     * getSegmentLength
+     * @return the ordinal or -1 if every ordinal of the namespace is taken
+     */
+    public long randomClear(String namespace, OrdinalBitmap usedOrdinals, Random random,
+            long totalPermutations, long segmentLength) {
+        Long current = CurrentSegments.get(namespace);
+        long segment = (current != null) ? current : 0;
+        while (segment < (totalPermutations - 1) / segmentLength + 1) {
+            long from = segment * segmentLength;
+            long limit = Math.min(from + segmentLength, totalPermutations);
+            if (2 * usedOrdinals.getCardinality(from, limit) < limit - from) {
+                if (current == null || segment != current) {
+                    CurrentSegments.put(namespace, segment);
+                }
+                return usedOrdinals.randomClear(random, from, limit);
+            }
+            segment++;
+        }
+        CurrentSegments.put(namespace, segment);
+        return usedOrdinals.randomClear(random, 0, totalPermutations);
+    }
+
+    /**
+     * Forgets the current segment of a namespace, for when ordinals that
+     * were counted as taken turn out to be clear
+     *
+     * @param namespace The namespace of the setting
+     */
+    public void reset(String namespace) {
+        CurrentSegments.remove(namespace);
+    }
+}
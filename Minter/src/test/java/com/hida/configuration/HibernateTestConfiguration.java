@@ -1,5 +1,7 @@
 package com.hida.configuration;
 
+import com.hida.dao.HibernatePidStore;
+import com.hida.dao.PidStore;
 import java.util.Properties;
 import javax.sql.DataSource;
 import org.hibernate.SessionFactory;
@@ -52,6 +54,11 @@ public class HibernateTestConfiguration {
         return properties;
     }
 
+    @Bean
+    public PidStore pidStore() {
+        return new HibernatePidStore();
+    }
+
     @Bean
     @Autowired
     public HibernateTransactionManager transactionManager(SessionFactory s) {
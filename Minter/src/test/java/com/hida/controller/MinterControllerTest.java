@@ -1,17 +1,34 @@
 package com.hida.controller;
 
+import com.hida.dao.PidStore;
 import com.hida.model.AutoIdGenerator;
 import com.hida.model.BadParameterException;
 import com.hida.model.CustomIdGenerator;
 import com.hida.model.DefaultSetting;
 import com.hida.model.IdGenerator;
+import com.hida.model.MinterBusyException;
+import com.hida.model.MintRanges;
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
 import com.hida.model.Pid;
 import com.hida.model.PidTest;
 import com.hida.model.TokenType;
+import com.hida.service.MintQueue;
 import com.hida.service.MinterServiceImpl;
+import com.hida.service.NamespaceMonitor;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 import javax.servlet.http.HttpServletResponse;
 import junit.framework.Assert;
 import org.mockito.InjectMocks;
@@ -19,18 +36,27 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
 import org.springframework.ui.ModelMap;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.ModelAndView;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.codehaus.jackson.map.ObjectMapper;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import org.mockito.Mockito;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.testng.annotations.DataProvider;
 
 /**
@@ -48,6 +74,9 @@ public class MinterControllerTest {
 
     @Spy
     ModelMap ModelMap;
+
+    @Spy
+    MintQueue MintQueue = new MintQueue(2, 4, 1000);
     
     private final PidTest PidTest = new PidTest();
     private final String PREPEND = "http://digitalarchives.hawaii.gov/70111/";
@@ -205,7 +234,8 @@ public class MinterControllerTest {
                 thenReturn(getSampleSet(tempSetting));
 
         // check to see if the correct jsp page is returned
-        String jspName = Controller.printPids(AMOUNT, ModelMap, map);
+        String jspName = Controller.printPids(AMOUNT, ModelMap, map,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
         Assert.assertEquals("mint", jspName);
 
         // create Json objects to extract Json array
@@ -252,7 +282,8 @@ public class MinterControllerTest {
                 thenReturn(getSampleSet(setting));
 
         // check to see if the correct jsp page is returned
-        String jspName = Controller.printPids(AMOUNT, ModelMap, new HashMap<String, String>());
+        String jspName = Controller.printPids(AMOUNT, ModelMap, new HashMap<String, String>(),
+                new MockHttpServletRequest(), new MockHttpServletResponse());
         Assert.assertEquals("mint", jspName);
 
         // create Json objects to extract Json array
@@ -286,7 +317,8 @@ public class MinterControllerTest {
         DefaultSetting setting = this.getSampleDefaultSetting();
 
         when(MinterServiceDao.getCurrentSetting()).thenReturn(setting);
-        Controller.printPids(AMOUNT, ModelMap, parameters);
+        Controller.printPids(AMOUNT, ModelMap, parameters,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
     }
 
     /**
@@ -303,7 +335,8 @@ public class MinterControllerTest {
         DefaultSetting setting = this.getSampleDefaultSetting();
 
         when(MinterServiceDao.getCurrentSetting()).thenReturn(setting);
-        Controller.printPids(AMOUNT, ModelMap, parameters);
+        Controller.printPids(AMOUNT, ModelMap, parameters,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
     }
 
     /**
@@ -320,7 +353,8 @@ public class MinterControllerTest {
         DefaultSetting setting = this.getSampleDefaultSetting();
 
         when(MinterServiceDao.getCurrentSetting()).thenReturn(setting);
-        Controller.printPids(AMOUNT, ModelMap, parameters);
+        Controller.printPids(AMOUNT, ModelMap, parameters,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
     }
 
     /**
@@ -336,7 +370,8 @@ public class MinterControllerTest {
         DefaultSetting setting = this.getSampleDefaultSetting();
 
         when(MinterServiceDao.getCurrentSetting()).thenReturn(setting);
-        Controller.printPids(-1, ModelMap, parameters);
+        Controller.printPids(-1, ModelMap, parameters,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
     }
 
     /**
@@ -353,7 +388,431 @@ public class MinterControllerTest {
         DefaultSetting setting = this.getSampleDefaultSetting();
 
         when(MinterServiceDao.getCurrentSetting()).thenReturn(setting);
-        Controller.printPids(AMOUNT, ModelMap, parameters);
+        Controller.printPids(AMOUNT, ModelMap, parameters,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+
+    /**
+     * Tests that a sequential mint requested in the ranges format is returned
+     * as a single range that expands into the minted names.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMintRanges() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("format", "ranges");
+
+        Set<Pid> set = mockSequentialMint();
+
+        Assert.assertEquals("mint", Controller.printPids(AMOUNT, ModelMap, parameters,
+                new MockHttpServletRequest(), new MockHttpServletResponse()));
+
+        String message = (String) ModelMap.get("message");
+        Logger.debug(message);
+        JSONObject object = new JSONObject(message);
+        Assert.assertEquals(PREPEND, object.getString("prepend"));
+        Assert.assertEquals(AMOUNT, object.getLong("count"));
+        JSONArray ranges = object.getJSONArray("ranges");
+        Assert.assertEquals(1, ranges.length());
+        Assert.assertEquals(0, ranges.getJSONArray(0).getLong(0));
+        Assert.assertEquals(AMOUNT - 1, ranges.getJSONArray(0).getLong(1));
+
+        Assert.assertEquals(getNames(set),
+                new ObjectMapper().readValue(message, MintRanges.class).expand());
+    }
+
+    /**
+     * Tests to see if MinterController will properly throw an error when an
+     * unknown format is entered into the /mint endpoint
+     *
+     * @throws Exception
+     */
+    @Test(expectedExceptions = BadParameterException.class)
+    public void testBadParameterExceptionFormat() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("format", "xml");
+
+        DefaultSetting setting = this.getSampleDefaultSetting();
+
+        when(MinterServiceDao.getCurrentSetting()).thenReturn(setting);
+        Controller.printPids(AMOUNT, ModelMap, parameters,
+                new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+
+    /**
+     * Returns a data set of streamed formats, requested either by parameter
+     * or by Accept header, and their content types
+     *
+     * @return A data set
+     */
+    @DataProvider(name = "streamed formats")
+    public static Object[][] streamedFormats() {
+        return new Object[][]{
+            {"names", null, "text/plain"},
+            {"ndjson", null, "application/x-ndjson"},
+            {"csv", null, "text/csv"},
+            {null, "text/html;q=0.9, text/csv", "text/csv"},
+            {null, "application/x-ndjson", "application/x-ndjson"}
+        };
+    }
+
+    /**
+     * Tests that streamed formats write one minted name per line to the
+     * response instead of returning mint.jsp.
+     *
+     * @param format The format parameter, null if there is none
+     * @param accept The Accept header, null if there is none
+     * @param contentType The expected content type
+     * @throws Exception
+     */
+    @Test(dataProvider = "streamed formats")
+    public void testMintStreamed(String format, String accept, String contentType)
+            throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        if (format != null) {
+            parameters.put("format", format);
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (accept != null) {
+            request.addHeader("Accept", accept);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Set<Pid> set = mockSequentialMint();
+
+        Assert.assertNull(Controller.printPids(AMOUNT, ModelMap, parameters, request, response));
+        Assert.assertEquals(contentType, response.getContentType().split(";")[0]);
+
+        String[] lines = response.getContentAsString().split("\n");
+        int i = 0;
+        if (contentType.equals("text/csv")) {
+            Assert.assertEquals("name", lines[i++]);
+        }
+        Assert.assertEquals(set.size() + i, lines.length);
+        for (String name : getNames(set)) {
+            String line = lines[i++];
+            if (contentType.equals("application/x-ndjson")) {
+                line = new JSONObject(line).getString("name");
+            }
+            Assert.assertEquals(name, line);
+        }
+    }
+
+    /**
+     * Tests that the binary format is gzipped when the request accepts it and
+     * is read back into the ranges of the minted names.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMintBinaryGzipped() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("format", "binary");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Set<Pid> set = mockSequentialMint();
+
+        Assert.assertNull(Controller.printPids(AMOUNT, ModelMap, parameters, request, response));
+        Assert.assertEquals("application/octet-stream", response.getContentType().split(";")[0]);
+        Assert.assertEquals("gzip", response.getHeader("Content-Encoding"));
+
+        MintRanges ranges = MintRanges.readFrom(new DataInputStream(new GZIPInputStream(
+                new ByteArrayInputStream(response.getContentAsByteArray()))));
+        Assert.assertEquals(1, ranges.getRanges().size());
+        Assert.assertEquals(getNames(set), ranges.expand());
+    }
+
+    /**
+     * Returns Accept-Encoding headers and whether they accept gzip
+     *
+     * @return A data set
+     */
+    @DataProvider(name = "accept encodings")
+    public static Object[][] acceptEncodings() {
+        return new Object[][]{
+            {"gzip", true},
+            {"deflate, GZIP;q=0.5", true},
+            {"*", true},
+            {"gzip;q=0", false},
+            {"gzip; q=0.000, deflate", false},
+            {"*;q=1, gzip;q=0", false},
+            {"deflate", false},
+            {"identity, *;q=0", false}
+        };
+    }
+
+    /**
+     * Tests that streamed formats are only gzipped when the quality of gzip in
+     * the Accept-Encoding header is above 0.
+     *
+     * @param acceptEncoding The Accept-Encoding header
+     * @param gzipped Whether the response is expected to be gzipped
+     * @throws Exception
+     */
+    @Test(dataProvider = "accept encodings")
+    public void testMintGzipNegotiation(String acceptEncoding, boolean gzipped)
+            throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("format", "names");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", acceptEncoding);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        mockSequentialMint();
+
+        Assert.assertNull(Controller.printPids(AMOUNT, ModelMap, parameters, request, response));
+        Assert.assertEquals(gzipped ? "gzip" : null, response.getHeader("Content-Encoding"));
+    }
+
+    /**
+     * Tests that browsers, which accept any content type, still get the list
+     * shown by mint.jsp.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMintBrowserAccept() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept", "text/html,application/xhtml+xml,*/*;q=0.8");
+        mockSequentialMint();
+
+        Assert.assertEquals("mint", Controller.printPids(AMOUNT, ModelMap,
+                new HashMap<String, String>(), request, new MockHttpServletResponse()));
+        Assert.assertEquals(AMOUNT, new JSONArray((String) ModelMap.get("message")).length());
+    }
+
+    /**
+     * Waits for the result of a queued mint
+     *
+     * @param result The result of the mint
+     * @return the result or the error of the mint
+     * @throws InterruptedException
+     */
+    private Object await(DeferredResult<ModelAndView> result) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!result.hasResult()) {
+            Assert.assertTrue("no result", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        return result.getResult();
+    }
+
+    /**
+     * Tests that the /mint endpoint queues its mint, which paths the user to
+     * mint.jsp when it is run.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMintPidsQueued() throws Exception {
+        mockSequentialMint();
+        DeferredResult<ModelAndView> result = Controller.mintPids(AMOUNT, ModelMap,
+                new HashMap<String, String>(), new MockHttpServletRequest(),
+                new MockHttpServletResponse());
+
+        ModelAndView mav = (ModelAndView) await(result);
+        Assert.assertEquals("mint", mav.getViewName());
+        Assert.assertEquals(AMOUNT, new JSONArray((String) ModelMap.get("message")).length());
+    }
+
+    /**
+     * Tests that a queued mint in a streamed format writes the ids to the
+     * response and leaves nothing for a view to render.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMintPidsQueuedStreamed() throws Exception {
+        Set<Pid> set = mockSequentialMint();
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("format", "names");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        DeferredResult<ModelAndView> result = Controller.mintPids(AMOUNT, ModelMap, parameters,
+                new MockHttpServletRequest(), response);
+
+        ModelAndView mav = (ModelAndView) await(result);
+        Assert.assertNull(mav.getViewName());
+        Assert.assertNotNull(mav.getView());
+        Assert.assertEquals(set.size(), response.getContentAsString().split("\n").length);
+    }
+
+    /**
+     * Tests that a request that times out while its mint waits for the minter
+     * is answered with 503 Service Unavailable and mints nothing, while the
+     * mint that holds the minter runs past the timeout and returns its ids.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMintPidsTimedOut() throws Exception {
+        final Set<Pid> set = mockSequentialMint();
+        final AtomicInteger mints = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(MinterServiceDao.mint(anyInt(), any(DefaultSetting.class))).thenAnswer(
+                new Answer<Set<Pid>>() {
+                    @Override
+                    public Set<Pid> answer(InvocationOnMock invocation) throws Throwable {
+                        mints.incrementAndGet();
+                        started.countDown();
+                        release.await();
+                        return set;
+                    }
+                });
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        DeferredResult<ModelAndView> running;
+        try {
+            running = Controller.mintPids(AMOUNT, ModelMap, new HashMap<String, String>(),
+                    new MockHttpServletRequest(), new MockHttpServletResponse());
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // the second mint runs on the other thread and waits for the minter
+            Map<String, String> parameters = new HashMap<>();
+            parameters.put("format", "names");
+            DeferredResult<ModelAndView> waiting = Controller.mintPids(AMOUNT, ModelMap,
+                    parameters, new MockHttpServletRequest(), response);
+
+            Assert.assertTrue(await(waiting) instanceof MinterBusyException);
+            Assert.assertFalse(running.hasResult());
+        }
+        finally {
+            release.countDown();
+        }
+        Assert.assertEquals("mint", ((ModelAndView) await(running)).getViewName());
+        while (MintQueue.getQueued() > 0) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(1, mints.get());
+        Assert.assertEquals("", response.getContentAsString());
+    }
+
+    /**
+     * Tests that the /namespaces endpoint formats the statuses of the settings
+     * as a Json array.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testListNamespaces() throws Exception {
+        NamespaceMonitor monitor = new NamespaceMonitor();
+        monitor.recordMint(3, "setting", "auto//DIGIT/2/sansvowels",
+                BigInteger.valueOf(100), 25, 25,
+                System.currentTimeMillis());
+        when(MinterServiceDao.getNamespaceStatuses()).thenReturn(monitor.getStatuses(
+                System.currentTimeMillis()));
+
+        JSONArray statuses = new JSONArray(Controller.listNamespaces());
+        Assert.assertEquals(1, statuses.length());
+        JSONObject status = statuses.getJSONObject(0);
+        Assert.assertEquals(3, status.getInt("id"));
+        Assert.assertEquals("auto//DIGIT/2/sansvowels", status.getString("namespace"));
+        Assert.assertEquals(100, status.getLong("totalPermutations"));
+        Assert.assertEquals(25, status.getLong("amount"));
+        Assert.assertEquals(0.25, status.getDouble("fillRatio"), 1e-9);
+        Assert.assertTrue(status.has("mintRatePerHour"));
+        Assert.assertTrue(status.has("projectedExhaustion"));
+    }
+
+    /**
+     * Returns the response formats of the /pids endpoint with the export of
+     * the names a, b,c, "d" and e\f followed by a tab in each format.
+     *
+     * @return the formats
+     */
+    @DataProvider(name = "export formats")
+    public static Object[][] exportFormatParameters() {
+        return new Object[][]{
+            {"csv", "text/csv", "name\na\n\"b,c\"\n\"\"\"d\"\"\"\ne\\f\t\n"},
+            {"ndjson", "application/x-ndjson",
+                "{\"name\":\"a\"}\n{\"name\":\"b,c\"}\n{\"name\":\"\\\"d\\\"\"}\n"
+                + "{\"name\":\"e\\\\f\\t\"}\n"}
+        };
+    }
+
+    /**
+     * Tests that the /pids endpoint writes every exported name to the response
+     * in the requested format.
+     *
+     * @param format The requested format
+     * @param contentType The expected content type
+     * @param expected The expected response
+     * @throws Exception
+     */
+    @Test(dataProvider = "export formats")
+    public void testExportPids(String format, String contentType, String expected)
+            throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Assert.assertEquals("x", invocation.getArguments()[0]);
+                PidStore.NameHandler handler =
+                        (PidStore.NameHandler) invocation.getArguments()[1];
+                handler.handle("a");
+                handler.handle("b,c");
+                handler.handle("\"d\"");
+                handler.handle("e\\f\t");
+                return null;
+            }
+        }).when(MinterServiceDao).exportNames(anyString(), any(PidStore.NameHandler.class));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Controller.exportPids(format, "x", response);
+        Assert.assertEquals(contentType, response.getContentType().split(";")[0]);
+        Assert.assertEquals(expected, response.getContentAsString());
+    }
+
+    /**
+     * Tests that the /pids endpoint refuses unknown formats.
+     *
+     * @throws Exception
+     */
+    @Test(expectedExceptions = BadParameterException.class)
+    public void testExportPidsUnknownFormat() throws Exception {
+        Controller.exportPids("xml", "", new MockHttpServletResponse());
+    }
+
+    /**
+     * Tests that the /search endpoint returns the names of the page and the
+     * cursor of the next one.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSearchPids() throws Exception {
+        when(MinterServiceDao.searchNames(any(NamePattern.class), eq("1:3"), eq(2)))
+                .thenReturn(new NamePage(Arrays.asList("x4", "x5"), "1:5"));
+
+        JSONObject page = new JSONObject(Controller.searchPids("x", "d", "1:3", 2));
+        JSONArray names = page.getJSONArray("names");
+        Assert.assertEquals(2, names.length());
+        Assert.assertEquals("x4", names.getString(0));
+        Assert.assertEquals("x5", names.getString(1));
+        Assert.assertEquals("1:5", page.getString("next"));
+    }
+
+    /**
+     * Tests that the /search endpoint refuses limits outside of 1 to
+     * MAX_SEARCH_LIMIT.
+     *
+     * @throws Exception
+     */
+    @Test(expectedExceptions = BadParameterException.class)
+    public void testSearchPidsInvalidLimit() throws Exception {
+        Controller.searchPids("x", "", null, MinterController.MAX_SEARCH_LIMIT + 1);
+    }
+
+    /**
+     * Tests that the /search endpoint refuses cursors the store doesn't know.
+     *
+     * @throws Exception
+     */
+    @Test(expectedExceptions = BadParameterException.class)
+    public void testSearchPidsInvalidCursor() throws Exception {
+        when(MinterServiceDao.searchNames(any(NamePattern.class), eq("x"), anyInt()))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: x"));
+
+        Controller.searchPids("", "", "x", 10);
     }
 
     /**
@@ -397,6 +856,37 @@ public class MinterControllerTest {
         return setting;
     }
 
+    /**
+     * Makes the mocked service mint a sample set of sequential Pids with a
+     * prepend
+     *
+     * @return the minted Pids
+     */
+    private Set<Pid> mockSequentialMint() {
+        DefaultSetting setting = this.getSampleDefaultSetting();
+        setting.setPrepend(PREPEND);
+        setting.setRandom(false);
+        Set<Pid> set = getSampleSet(setting);
+
+        when(MinterServiceDao.getCurrentSetting()).thenReturn(setting);
+        when(MinterServiceDao.mint(anyInt(), any(DefaultSetting.class))).thenReturn(set);
+        return set;
+    }
+
+    /**
+     * Returns the names of a set of Pids with the sample prepend
+     *
+     * @param set The Pids
+     * @return the names
+     */
+    private List<String> getNames(Set<Pid> set) {
+        List<String> names = new ArrayList<>();
+        for (Pid pid : set) {
+            names.add(PREPEND + pid.getName());
+        }
+        return names;
+    }
+
     /**
      * Returns a sample set of Pids
      * @param setting
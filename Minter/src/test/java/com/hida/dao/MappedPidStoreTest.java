@@ -0,0 +1,146 @@
+package com.hida.dao;
+
+import com.hida.model.AutoId;
+import com.hida.model.CustomId;
+import com.hida.model.Pid;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.hibernate.NonUniqueObjectException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the tests of PidDaoImplTest against a PidDao backed by a
+ * MappedPidStore and tests the recovery of the store.
+ *
+ * @author lruffin
+ */
+public class MappedPidStoreTest extends PidDaoImplTest {
+
+    /**
+     * The number of Pids per segment, kept small so that the tests span
+     * several segments
+     */
+    private static final int SEGMENT_ENTRIES = 4;
+
+    private File Directory;
+
+    private MappedPidStore Store;
+
+    /**
+     * Stores the Pids of Pid.xml and reopens the store, so that every test
+     * runs against a recovered store.
+     *
+     * @throws Exception
+     */
+    @BeforeMethod
+    @Override
+    public void setUp() throws Exception {
+        Directory = Files.createTempDirectory("pidstore").toFile();
+        try (MappedPidStore store = new MappedPidStore(Directory, SEGMENT_ENTRIES)) {
+            store.savePid(new AutoId("", new int[]{1}, "0123456789"));
+            store.savePid(new CustomId("", new int[]{2}, new String[]{"0123456789"}));
+        }
+        Store = new MappedPidStore(Directory, SEGMENT_ENTRIES);
+        PidDao = new PidDaoImpl(Store);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        Store.close();
+        File[] files = Directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        Directory.delete();
+    }
+
+    /**
+     * Tests that Pids spread over several segments and namespaces are all
+     * found again once the store is reopened.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRecoverSegments() throws Exception {
+        String[] tokenMaps = {"abcdefghij", "abcdefghij"};
+        for (int i = 0; i < 10; i++) {
+            Store.savePid(new AutoId("x", new int[]{i / 10, i % 10}, "0123456789"));
+            Store.savePid(new CustomId("y", new int[]{9 - i, i}, tokenMaps));
+        }
+        Store.close();
+
+        Store = new MappedPidStore(Directory, SEGMENT_ENTRIES);
+        Assert.assertEquals(Store.size(), 22);
+        Assert.assertEquals(Store.findAllPids().size(), 22);
+        for (int i = 0; i < 10; i++) {
+            Pid auto = Store.findByName("x0" + i);
+            Assert.assertTrue(auto instanceof AutoId);
+            Assert.assertEquals(auto.getOrdinal(), i);
+
+            Pid custom = Store.findByName("y" + tokenMaps[0].charAt(9 - i) + tokenMaps[1].charAt(i));
+            Assert.assertTrue(custom instanceof CustomId);
+        }
+        Assert.assertNull(Store.findByName("x10"));
+        Assert.assertNull(Store.findByName("yaa"));
+    }
+
+    /**
+     * Tests that a name already stored by a different namespace cannot be
+     * stored again, as names are unique across every namespace.
+     */
+    @Test(expectedExceptions = NonUniqueObjectException.class)
+    public void testNonUniqueNameAcrossNamespaces() {
+        Store.savePid(new CustomId("", new int[]{1}, new String[]{"0123456789"}));
+    }
+
+    /**
+     * Tests that the ranges of ordinals merge regardless of the order the
+     * ordinals were stored in.
+     */
+    @Test
+    public void testOrdinalsOutOfOrder() {
+        int[] digits = {5, 3, 4, 9, 7, 8, 6};
+        for (int digit : digits) {
+            Store.savePid(new AutoId("z", new int[]{digit}, "0123456789"));
+        }
+        for (int digit = 0; digit < 10; digit++) {
+            Pid pid = Store.findByName("z" + digit);
+            Assert.assertEquals(pid != null, digit >= 3, "z" + digit);
+        }
+        Assert.assertEquals(Store.size(), 2 + digits.length);
+    }
+
+    /**
+     * Tests that Pids whose ordinals exceed a long are refused rather than
+     * stored under a wrong ordinal, while small ordinals of the same wide
+     * namespace are stored.
+     */
+    @Test
+    public void testWideOrdinals() {
+        String[] tokenMaps = new String[11];
+        Arrays.fill(tokenMaps,
+                "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ");
+        CustomId small = new CustomId("w", new int[11], tokenMaps);
+        Store.savePid(small);
+        Assert.assertNotNull(Store.findByName(small.getName()));
+
+        int[] baseMap = new int[11];
+        Arrays.fill(baseMap, 61);
+        CustomId large = new CustomId("w", baseMap, tokenMaps);
+        Assert.assertNull(Store.findByName(large.getName()));
+        try {
+            Store.savePid(large);
+            Assert.fail("stored " + large.getName());
+        }
+        catch (UnsupportedOperationException exception) {
+            Assert.assertNull(Store.findByName(large.getName()));
+        }
+    }
+}
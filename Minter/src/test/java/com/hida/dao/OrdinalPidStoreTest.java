@@ -0,0 +1,126 @@
+package com.hida.dao;
+
+import com.hida.model.AutoId;
+import com.hida.model.CustomId;
+import com.hida.model.Pid;
+import com.hida.model.PidNamespace;
+import java.util.Arrays;
+import java.util.List;
+import org.hibernate.NonUniqueObjectException;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the tests of PidDaoImplTest against a PidDao backed by an
+ * OrdinalPidStore and tests how names are derived from ordinals.
+ *
+ * @author lruffin
+ */
+public class OrdinalPidStoreTest extends PidDaoImplTest {
+
+    private OrdinalPidStore Store;
+
+    /**
+     * Stores the Pids of Pid.xml as ordinals within the transaction of the
+     * test.
+     *
+     * @throws Exception
+     */
+    @BeforeMethod
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        Store = new OrdinalPidStore();
+        applicationContext.getAutowireCapableBeanFactory().autowireBean(Store);
+        Store.savePid(new AutoId("", new int[]{1}, "0123456789"));
+        Store.savePid(new CustomId("", new int[]{2}, new String[]{"0123456789"}));
+        PidDao = new PidDaoImpl(Store);
+    }
+
+    /**
+     * Tests that Pids of several namespaces are listed in order with the
+     * names they were saved with, including by a store that reads the
+     * namespaces from the database.
+     */
+    @Test
+    public void testNamesAreDerivedFromOrdinals() {
+        String[] tokenMaps = {"abcdefghij", "abcdefghij"};
+        for (int i = 0; i < 10; i++) {
+            Store.savePid(new AutoId("x", new int[]{i / 10, i % 10}, "0123456789"));
+            Store.savePid(new CustomId("y", new int[]{9 - i, i}, tokenMaps));
+        }
+
+        OrdinalPidStore reopened = new OrdinalPidStore();
+        applicationContext.getAutowireCapableBeanFactory().autowireBean(reopened);
+        List<Pid> pids = reopened.findAllPids();
+        Assert.assertEquals(pids.size(), 22);
+        Assert.assertEquals(pids.get(0).getName(), "1");
+        Assert.assertEquals(pids.get(2).getName(), "x00");
+        for (int i = 0; i < 10; i++) {
+            Pid auto = reopened.findByName("x0" + i);
+            Assert.assertTrue(auto instanceof AutoId);
+            Assert.assertEquals(auto.getOrdinal(), i);
+
+            Pid custom = reopened.findByName(
+                    "y" + tokenMaps[0].charAt(9 - i) + tokenMaps[1].charAt(i));
+            Assert.assertTrue(custom instanceof CustomId);
+        }
+        Assert.assertNull(reopened.findByName("x10"));
+        Assert.assertNull(reopened.findByName("yaa"));
+    }
+
+    /**
+     * Tests that a name already stored by a different namespace cannot be
+     * stored again, as names are unique across every namespace.
+     */
+    @Test(expectedExceptions = NonUniqueObjectException.class)
+    public void testNonUniqueNameAcrossNamespaces() {
+        Store.savePid(new CustomId("", new int[]{1}, new String[]{"0123456789"}));
+    }
+
+    /**
+     * Tests that a name found missing is saved once without being looked up
+     * again, and that saving it a second time is still refused.
+     */
+    @Test
+    public void testSaveNameFoundMissing() {
+        AutoId pid = new AutoId("m", new int[]{4}, "0123456789");
+        Assert.assertNull(Store.findByName("m4"));
+        Store.savePid(pid);
+        Assert.assertNotNull(Store.findByName("m4"));
+        Assert.assertEquals(PidNamespace.keyOf(pid), PidNamespace.of(0, pid).getKey());
+        try {
+            Store.savePid(new AutoId("m", new int[]{4}, "0123456789"));
+            Assert.fail("stored m4 twice");
+        }
+        catch (NonUniqueObjectException exception) {
+            Assert.assertEquals(Store.findAllPids().size(), 3);
+        }
+    }
+
+    /**
+     * Tests that Pids whose ordinals exceed a long are refused, while small
+     * ordinals of the same wide namespace are stored.
+     */
+    @Test
+    public void testWideOrdinals() {
+        String[] tokenMaps = new String[11];
+        Arrays.fill(tokenMaps,
+                "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ");
+        CustomId small = new CustomId("w", new int[11], tokenMaps);
+        Store.savePid(small);
+        Assert.assertNotNull(Store.findByName(small.getName()));
+
+        int[] baseMap = new int[11];
+        Arrays.fill(baseMap, 61);
+        CustomId large = new CustomId("w", baseMap, tokenMaps);
+        try {
+            Store.savePid(large);
+            Assert.fail("stored " + large.getName());
+        }
+        catch (UnsupportedOperationException exception) {
+            Assert.assertNull(Store.findByName(large.getName()));
+        }
+    }
+}
@@ -2,7 +2,13 @@ package com.hida.dao;
 
 import com.hida.model.AutoId;
 import com.hida.model.CustomId;
+import com.hida.model.NamePage;
+import com.hida.model.NamePattern;
 import com.hida.model.Pid;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.xml.FlatXmlDataSet;
 import org.hibernate.NonUniqueObjectException;
@@ -69,6 +75,74 @@ public class PidDaoImplTest extends EntityDaoImplTest {
         Assert.assertEquals(size, 2);
     }
 
+    /**
+     * Tests to see if the names of the Pids can be exported, all of them or
+     * only those that start with a prefix, which is matched literally.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testExportNames() throws IOException {
+        final List<String> names = new ArrayList<>();
+        PidStore.NameHandler handler = new PidStore.NameHandler() {
+            @Override
+            public void handle(String name) {
+                names.add(name);
+            }
+        };
+
+        PidDao.exportNames("", handler);
+        Assert.assertEquals(names, Arrays.asList("1", "2"));
+
+        names.clear();
+        PidDao.exportNames("2", handler);
+        Assert.assertEquals(names, Arrays.asList("2"));
+
+        names.clear();
+        PidDao.exportNames("_", handler);
+        Assert.assertTrue(names.isEmpty());
+    }
+
+    /**
+     * Tests to see if the names that match a pattern can be found a page at a
+     * time, where every page starts after the cursor of the previous one.
+     */
+    @Test
+    public void testSearchNames() {
+        List<Pid> pids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            pids.add(new AutoId("", new int[]{3, i}, "0123456789"));
+        }
+        for (int i = 0; i < 2; i++) {
+            pids.add(new CustomId("", new int[]{3, i}, new String[]{"0123456789", "abcdefghij"}));
+        }
+        for (Pid pid : pids) {
+            pid.getName();
+            PidDao.savePid(pid);
+        }
+
+        NamePattern pattern = new NamePattern("3");
+        NamePage page = PidDao.searchNames(pattern, null, 5);
+        Assert.assertEquals(page.getNames(), Arrays.asList("30", "31", "32", "33", "34"));
+        page = PidDao.searchNames(pattern, page.getNext(), 5);
+        Assert.assertEquals(page.getNames(), Arrays.asList("35", "36", "37", "38", "39"));
+        page = PidDao.searchNames(pattern, page.getNext(), 5);
+        Assert.assertEquals(page.getNames(), Arrays.asList("3a", "3b"));
+        Assert.assertNull(page.getNext());
+
+        page = PidDao.searchNames(new NamePattern("3", "l"), null, 5);
+        Assert.assertEquals(page.getNames(), Arrays.asList("3a", "3b"));
+        Assert.assertNull(page.getNext());
+
+        page = PidDao.searchNames(new NamePattern("", "d"), null, 5);
+        Assert.assertEquals(page.getNames(), Arrays.asList("1", "2"));
+        Assert.assertNull(page.getNext());
+
+        page = PidDao.searchNames(new NamePattern("4"), null, 5);
+        Assert.assertTrue(page.getNames().isEmpty());
+        Assert.assertNull(page.getNext());
+    }
+
     /**
      * Tests to see if AutoIds with the same name can be added to the database.
      */
@@ -0,0 +1,183 @@
+package com.hida.dao;
+
+import com.hida.model.AutoId;
+import com.hida.model.CustomId;
+import com.hida.model.Pid;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate4.LocalSessionFactoryBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the tests of PidDaoImplTest against a PidDao backed by a
+ * ShardedPidStore of two in-memory databases and tests how Pids are routed
+ * to the shards and committed with the transaction they were saved in.
+ *
+ * @author lruffin
+ */
+public class ShardedPidStoreTest extends PidDaoImplTest {
+
+    @Autowired
+    private PlatformTransactionManager TransactionManager;
+
+    /**
+     * The shards of every test, closed once the shard transactions of the
+     * last test were rolled back
+     */
+    private final List<ShardedPidStore> Stores = new ArrayList<>();
+
+    private List<SessionFactory> Shards;
+
+    private ShardedPidStore Store;
+
+    /**
+     * Stores the Pids of Pid.xml in the shards within the transaction of the
+     * test.
+     *
+     * @throws Exception
+     */
+    @BeforeMethod
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        Shards = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Shards.add(createShard("shard" + Stores.size() + "-" + i));
+        }
+        Store = new ShardedPidStore(Shards, Collections.singletonMap(3, 0));
+        Stores.add(Store);
+        Store.savePid(new AutoId("", new int[]{1}, "0123456789"));
+        Store.savePid(new CustomId("", new int[]{2}, new String[]{"0123456789"}));
+        PidDao = new PidDaoImpl(Store);
+    }
+
+    /**
+     * Drops the shards.
+     */
+    @AfterClass
+    public void tearDown() {
+        for (ShardedPidStore store : Stores) {
+            store.close();
+        }
+    }
+
+    /**
+     * Tests that names are routed by the shard map or else by their length
+     * modulo the number of shards.
+     */
+    @Test
+    public void testPidsAreRoutedByLength() {
+        Assert.assertEquals(Store.getShard("1"), 1);
+        Assert.assertEquals(Store.getShard("12"), 0);
+        Assert.assertEquals(Store.getShard("123"), 0);
+        Assert.assertEquals(Store.getShard("1234"), 0);
+        Assert.assertEquals(Store.getShard("12345"), 1);
+
+        Store.savePid(new AutoId("", new int[]{1, 2}, "0123456789"));
+        Assert.assertNotNull(Store.findByName("12"));
+        Assert.assertNull(Store.findByName("13"));
+        Assert.assertEquals(Store.findAllPids().size(), 3);
+    }
+
+    /**
+     * Tests that a Pid with a prefix is saved in and found in the shard of the
+     * root of its name, which is the name it is stored by.
+     */
+    @Test
+    public void testPrefixedPidsAreRoutedByRoot() {
+        Pid pid = new AutoId("ab", new int[]{1, 2, 3}, "0123456789");
+        Assert.assertEquals(Store.getShard(pid.getRootName()), 0);
+        Assert.assertEquals(Store.getShard(pid.getName()), 1);
+
+        Store.savePid(pid);
+        Assert.assertNotNull(Store.findPid(new AutoId("ab", new int[]{1, 2, 3}, "0123456789")));
+        Assert.assertNotNull(Store.findPid(new AutoId("cd", new int[]{1, 2, 3}, "0123456789")));
+        Assert.assertNotNull(Store.findByName("123"));
+        Assert.assertNull(Store.findPid(new AutoId("ab", new int[]{1, 2, 4}, "0123456789")));
+    }
+
+    /**
+     * Tests that a shard map referring to a missing shard is refused.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownShardInShardMap() {
+        new ShardedPidStore(Shards, Collections.singletonMap(3, 2));
+    }
+
+    /**
+     * Tests that the Pids saved in a transaction are committed to their shards
+     * when it commits and discarded when it rolls back. Pid.xml is stored
+     * outside of any transaction by the setup of this test.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testShardsCompleteWithTransaction() {
+        TransactionTemplate template = new TransactionTemplate(TransactionManager);
+        template.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                Store.savePid(new AutoId("", new int[]{3}, "0123456789"));
+                Store.savePid(new AutoId("", new int[]{3, 3}, "0123456789"));
+            }
+        });
+        template.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                Store.savePid(new AutoId("", new int[]{4}, "0123456789"));
+                Store.savePid(new AutoId("", new int[]{4, 4}, "0123456789"));
+                status.setRollbackOnly();
+            }
+        });
+
+        Assert.assertNotNull(Store.findByName("3"));
+        Assert.assertNotNull(Store.findByName("33"));
+        Assert.assertNull(Store.findByName("4"));
+        Assert.assertNull(Store.findByName("44"));
+        Assert.assertEquals(count(0), 1);
+        Assert.assertEquals(count(1), 3);
+    }
+
+    /**
+     * Returns the number of Pids committed to a shard.
+     *
+     * @param shard The index of the shard
+     * @return the number of Pids
+     */
+    private int count(int shard) {
+        return new ShardedPidStore(Shards.subList(shard, shard + 1),
+                Collections.<Integer, Integer>emptyMap()).findAllPids().size();
+    }
+
+    /**
+     * Creates a shard that is dropped once its SessionFactory is closed.
+     *
+     * @param name The name of the in-memory database
+     * @return the SessionFactory of the shard
+     */
+    private static SessionFactory createShard(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.hsqldb.jdbcDriver");
+        dataSource.setUrl("jdbc:hsqldb:mem:" + name);
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+
+        LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(dataSource);
+        builder.addAnnotatedClasses(Pid.class, AutoId.class, CustomId.class);
+        builder.setProperty("hibernate.dialect", "org.hibernate.dialect.HSQLDialect");
+        builder.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        return builder.buildSessionFactory();
+    }
+}
@@ -1,10 +1,12 @@
 package com.hida.dao;
 
 import com.hida.model.TokenType;
+import com.hida.model.UsedOrdinalContainer;
 import com.hida.model.UsedSetting;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.xml.FlatXmlDataSet;
 import org.springframework.beans.factory.annotation.Autowired;
+import java.util.List;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -70,6 +72,28 @@ public class UsedSettingDaoImplTest extends EntityDaoImplTest {
         Assert.assertNotNull(entity);
     }
 
+    /**
+     * Tests to see if the containers of the used ordinals of a UsedSetting are
+     * stored, replaced one at a time and deleted together.
+     */
+    @Test
+    public void ordinalContainersTest() {
+        UsedSettingDao.saveOrdinalContainer(new UsedOrdinalContainer(1, 2, new byte[]{1}));
+        UsedSettingDao.saveOrdinalContainer(new UsedOrdinalContainer(1, 0, new byte[]{2}));
+        UsedSettingDao.saveOrdinalContainer(new UsedOrdinalContainer(2, 0, new byte[]{3}));
+        UsedSettingDao.saveOrdinalContainer(new UsedOrdinalContainer(1, 2, new byte[]{4}));
+
+        List<UsedOrdinalContainer> containers = UsedSettingDao.findOrdinalContainers(1);
+        Assert.assertEquals(containers.size(), 2);
+        Assert.assertEquals(containers.get(0).getContainerKey(), 0);
+        Assert.assertEquals(containers.get(1).getContainerKey(), 2);
+        Assert.assertEquals(containers.get(1).getContainer(), new byte[]{4});
+
+        Assert.assertEquals(UsedSettingDao.deleteOrdinalContainers(1), 2);
+        Assert.assertTrue(UsedSettingDao.findOrdinalContainers(1).isEmpty());
+        Assert.assertEquals(UsedSettingDao.findOrdinalContainers(2).size(), 1);
+    }
+
     /**
      * Returns a sample UsedSetting entity.
      *
@@ -1,6 +1,7 @@
 package com.hida.model;
 
 import java.util.Iterator;
+import java.math.BigInteger;
 import java.util.Set;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
@@ -263,6 +264,31 @@ public class AutoIdGeneratorTest {
         Assert.assertEquals(randomSet.size(), amount);
     }
 
+    /**
+     * Tests that the total permutations are exact for every token type up to
+     * the longest root length, and that they only saturate once they exceed a
+     * long.
+     */
+    @Test
+    public void testCalculatePermutationsIsExact() {
+        for (TokenType tokenType : TokenType.values()) {
+            for (boolean sansVowel : new boolean[]{true, false}) {
+                AutoIdGenerator generator = new AutoIdGenerator("", sansVowel, tokenType, 1);
+                BigInteger base = BigInteger.valueOf(generator.calculatePermutations());
+                for (int rootLength = 1; rootLength <= IdGenerator.MAX_ROOT_LENGTH;
+                        rootLength++) {
+                    generator.setRootLength(rootLength);
+                    BigInteger expected = base.pow(rootLength);
+                    Assert.assertEquals(generator.calculateExactPermutations(), expected);
+                    Assert.assertEquals(generator.calculatePermutations(),
+                            (expected.bitLength() > 63) ? Long.MAX_VALUE : expected.longValue(),
+                            tokenType + " " + rootLength);
+                    Assert.assertTrue(expected.bitLength() <= 128);
+                }
+            }
+        }
+    }
+
     /**
      * Tests to see if sequentialMint will through NotEnoughPermutation
      * exception when the amount exceeds the total permutations
@@ -332,5 +358,53 @@ public class AutoIdGeneratorTest {
 
         Set<Pid> sequentialSet = minter.sequentialMint(0);
         Assert.assertEquals(sequentialSet.isEmpty(), true);
-    }   
+    }
+
+    /**
+     * Tests that the ordinals of sequentially minted Pids count up from 0.
+     *
+     * @param prefix A sequence of characters that appear in the beginning of
+     * PIDs
+     * @param sansVowel Dictates whether or not vowels are allowed
+     * @param tokenType An enum used to configure PIDS
+     * @param rootLength Designates the length of the id's root
+     * @param amount The number of PIDs to be created
+     */
+    @Test(dataProvider = "sansVowel")
+    public void testSequentialMintOrdinals(String prefix, boolean sansVowel, TokenType tokenType,
+            int rootLength, int amount) {
+        IdGenerator generator = new AutoIdGenerator(prefix, sansVowel, tokenType, rootLength + 1);
+        Set<Pid> sequentialSet = generator.sequentialMint(amount * 2);
+
+        long ordinal = 0;
+        for (Pid pid : sequentialSet) {
+            Assert.assertEquals(pid.getOrdinal(), ordinal);
+            ordinal++;
+        }
+    }
+
+    /**
+     * Tests that createId creates the same Pids as a sequential mint.
+     *
+     * @param prefix A sequence of characters that appear in the beginning of
+     * PIDs
+     * @param sansVowel Dictates whether or not vowels are allowed
+     * @param tokenType An enum used to configure PIDS
+     * @param rootLength Designates the length of the id's root
+     * @param amount The number of PIDs to be created
+     */
+    @Test(dataProvider = "sansVowel")
+    public void testCreateId(String prefix, boolean sansVowel, TokenType tokenType,
+            int rootLength, int amount) {
+        IdGenerator generator = new AutoIdGenerator(prefix, sansVowel, tokenType, rootLength + 1);
+        Set<Pid> sequentialSet = generator.sequentialMint(amount * 2);
+
+        long ordinal = 0;
+        for (Pid pid : sequentialSet) {
+            Pid created = generator.createId(ordinal);
+            Assert.assertEquals(created.getName(), pid.getName());
+            Assert.assertEquals(created.getOrdinal(), ordinal);
+            ordinal++;
+        }
+    }
 }
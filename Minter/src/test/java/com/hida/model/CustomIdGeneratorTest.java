@@ -1,5 +1,6 @@
 package com.hida.model;
 
+import java.math.BigInteger;
 import java.util.Iterator;
 import java.util.Set;
 import org.slf4j.Logger;
@@ -361,4 +362,138 @@ public class CustomIdGeneratorTest {
         Set<Pid> sequentialSet = minter.sequentialMint(0);
         Assert.assertEquals(sequentialSet.isEmpty(), true);
     }
+
+    /**
+     * Tests that the ordinals of sequentially minted Pids count up from 0.
+     *
+     * @param prefix A sequence of characters that appear in the beginning of
+     * PIDs
+     * @param sansVowel Dictates whether or not vowels are allowed
+     * @param charMap The mapping used to describe range of possible
+     * characters at each of the id's root's digits
+     * @param amount The number of PIDs to be created
+     */
+    @Test(dataProvider = "sansVowel")
+    public void testSequentialMintOrdinals(String prefix, boolean sansVowel,
+            String charMap, int amount) {
+        IdGenerator minter = new CustomIdGenerator(prefix, sansVowel, charMap);
+        Set<Pid> sequentialSet = minter.sequentialMint(amount);
+
+        long ordinal = 0;
+        for (Pid pid : sequentialSet) {
+            Assert.assertEquals(pid.getOrdinal(), ordinal);
+            ordinal++;
+        }
+    }
+
+    /**
+     * Tests that createId creates the same Pids as a sequential mint.
+     *
+     * @param prefix A sequence of characters that appear in the beginning of
+     * PIDs
+     * @param sansVowel Dictates whether or not vowels are allowed
+     * @param charMap The mapping used to describe range of possible
+     * characters at each of the id's root's digits
+     * @param amount The number of PIDs to be created
+     */
+    @Test(dataProvider = "sansVowel")
+    public void testCreateId(String prefix, boolean sansVowel, String charMap, int amount) {
+        IdGenerator minter = new CustomIdGenerator(prefix, sansVowel, charMap);
+        Set<Pid> sequentialSet = minter.sequentialMint(amount);
+
+        long ordinal = 0;
+        for (Pid pid : sequentialSet) {
+            Pid created = minter.createId(ordinal);
+            Assert.assertEquals(created.getName(), pid.getName());
+            Assert.assertEquals(created.getOrdinal(), ordinal);
+            ordinal++;
+        }
+    }
+
+    /**
+     * Tests that charMaps whose permutations exceed a long are counted
+     * exactly, while calculatePermutations saturates.
+     */
+    @Test
+    public void testWideNamespace() {
+        IdGenerator narrow = new CustomIdGenerator("", false, "eeeeeeeeee");
+        Assert.assertFalse(narrow.isWideNamespace());
+        Assert.assertEquals(narrow.calculatePermutations(), 839299365868340224L);
+
+        IdGenerator wide = new CustomIdGenerator("", false, "eeeeeeeeeee");
+        Assert.assertTrue(wide.isWideNamespace());
+        Assert.assertEquals(wide.calculateExactPermutations(), BigInteger.valueOf(62).pow(11));
+        Assert.assertEquals(wide.calculatePermutations(), Long.MAX_VALUE);
+    }
+
+    /**
+     * Tests that Pids of wide namespaces are created from and return their
+     * exact ordinals, and that small ordinals match those of longs.
+     */
+    @Test
+    public void testCreateIdWithWideOrdinal() {
+        IdGenerator minter = new CustomIdGenerator("x", false, "ddeeeeeeeeeeeeeeeeee");
+        BigInteger total = minter.calculateExactPermutations();
+        BigInteger[] ordinals = {
+            BigInteger.ZERO,
+            BigInteger.valueOf(Long.MAX_VALUE),
+            BigInteger.ONE.shiftLeft(64).add(BigInteger.valueOf(12345)),
+            total.subtract(BigInteger.ONE)
+        };
+        for (BigInteger ordinal : ordinals) {
+            Pid pid = minter.createId(ordinal);
+            Assert.assertEquals(pid.getExactOrdinal(), ordinal);
+        }
+        Assert.assertEquals(minter.createId(total.subtract(BigInteger.ONE)).getName(),
+                "x99ZZZZZZZZZZZZZZZZZZ");
+        Assert.assertEquals(minter.createId(BigInteger.valueOf(123456789)).getName(),
+                minter.createId(123456789).getName());
+        Assert.assertEquals(minter.createId(BigInteger.valueOf(Long.MAX_VALUE)).getOrdinal(),
+                Long.MAX_VALUE);
+    }
+
+    /**
+     * Tests that getOrdinal refuses ordinals that don't fit in a long instead
+     * of overflowing.
+     */
+    @Test(expectedExceptions = ArithmeticException.class)
+    public void testGetOrdinalOverflow() {
+        IdGenerator minter = new CustomIdGenerator("", false, "eeeeeeeeeee");
+        minter.createId(BigInteger.ONE.shiftLeft(63)).getOrdinal();
+    }
+
+    /**
+     * Tests that generators overlap only if their roots, which are what is
+     * stored, can be equal at every position.
+     */
+    @Test
+    public void testOverlaps() {
+        IdGenerator custom = new CustomIdGenerator("ab", true, "dl");
+
+        // equal roots: a digit followed by a letter
+        Assert.assertTrue(custom.overlaps(new CustomIdGenerator("ab", false, "em")));
+        Assert.assertTrue(custom.overlaps(
+                new AutoIdGenerator("ab", true, TokenType.LOWER_EXTENDED, 2)));
+
+        // the prefix isn't stored, so it can't keep roots apart
+        Assert.assertTrue(custom.overlaps(new CustomIdGenerator("ac", true, "dl")));
+        Assert.assertTrue(custom.overlaps(new CustomIdGenerator("", true, "dl")));
+
+        // letters that differ only in case may be equal to the database
+        Assert.assertTrue(custom.overlaps(new CustomIdGenerator("AB", true, "du")));
+
+        // a different root length, even if the names are as long
+        Assert.assertFalse(custom.overlaps(new CustomIdGenerator("a", true, "ldl")));
+        Assert.assertFalse(custom.overlaps(new CustomIdGenerator("ab", true, "dld")));
+        Assert.assertFalse(custom.overlaps(new AutoIdGenerator("", true, TokenType.DIGIT, 3)));
+
+        // disjoint alphabets at some position
+        Assert.assertFalse(custom.overlaps(new CustomIdGenerator("ab", true, "ll")));
+        Assert.assertFalse(custom.overlaps(new AutoIdGenerator("ab", true, TokenType.DIGIT, 2)));
+
+        // letters without vowels still share their consonants with upper case letters
+        IdGenerator sansVowels = new CustomIdGenerator("", true, "l");
+        Assert.assertTrue(sansVowels.overlaps(new CustomIdGenerator("", false, "u")));
+        Assert.assertFalse(sansVowels.overlaps(new CustomIdGenerator("", false, "d")));
+    }
 }
@@ -0,0 +1,98 @@
+package com.hida.model;
+
+import java.math.BigInteger;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Tests how IdTemplate compiles CharMaps and that it creates the same Pids as
+ * the CustomIds it is used for.
+ *
+ * @author lruffin
+ */
+public class IdTemplateTest {
+
+    /**
+     * Data set of CharMaps and the radices of their letters
+     *
+     * @return A data set
+     */
+    @DataProvider(name = "radices")
+    public Object[][] radices() {
+        return new Object[][]{
+            {true, "dlume", new int[]{10, 20, 20, 40, 50}},
+            {false, "dlume", new int[]{10, 26, 26, 52, 62}},
+            {false, "", new int[0]}
+        };
+    }
+
+    /**
+     * Tests that every letter of a CharMap is compiled into its alphabet and
+     * that the capacity is the product of the radices.
+     *
+     * @param sansVowel Dictates whether or not vowels are allowed
+     * @param charMap The CharMap
+     * @param radices The expected radices
+     */
+    @Test(dataProvider = "radices")
+    public void testCompile(boolean sansVowel, String charMap, int[] radices) {
+        IdTemplate template = IdTemplate.compile("x", sansVowel, charMap);
+        long capacity = 1;
+        Assert.assertEquals(template.getLength(), radices.length);
+        for (int i = 0; i < radices.length; i++) {
+            Assert.assertEquals(template.getRadix(i), radices[i]);
+            Assert.assertEquals(template.getAlphabets()[i].length(), radices[i]);
+            capacity *= radices[i];
+        }
+        Assert.assertEquals(template.getCapacity(), capacity);
+        Assert.assertEquals(template.getExactCapacity(), BigInteger.valueOf(capacity));
+    }
+
+    /**
+     * Tests that templates are shared by equal settings and only by them.
+     */
+    @Test
+    public void testTemplatesAreShared() {
+        IdTemplate template = IdTemplate.compile("x", true, "dl");
+        Assert.assertSame(IdTemplate.compile("x", true, "dl"), template);
+        Assert.assertNotSame(IdTemplate.compile("x", false, "dl"), template);
+        Assert.assertNotSame(IdTemplate.compile("y", true, "dl"), template);
+        Assert.assertNotSame(IdTemplate.compile("x", true, "ld"), template);
+        Assert.assertTrue(template.isCompiledFrom("x", true, "dl"));
+        Assert.assertFalse(template.isCompiledFrom("x", false, "dl"));
+    }
+
+    /**
+     * Tests that the capacity of templates wider than a long is capped.
+     */
+    @Test
+    public void testWideCapacity() {
+        IdTemplate template = IdTemplate.compile("", false, "eeeeeeeeeee");
+        Assert.assertEquals(template.getCapacity(), Long.MAX_VALUE);
+        Assert.assertEquals(template.getExactCapacity(), BigInteger.valueOf(62).pow(11));
+    }
+
+    /**
+     * Tests that the BaseMap and the root of an ordinal are those of the
+     * CustomId with that ordinal.
+     */
+    @Test
+    public void testToBaseMapAndRoot() {
+        IdTemplate template = IdTemplate.compile("x", false, "dle");
+        for (long ordinal = 0; ordinal < template.getCapacity(); ordinal += 97) {
+            int[] baseMap = template.toBaseMap(ordinal);
+            CustomId id = new CustomId("x", baseMap, template.getAlphabets());
+            Assert.assertEquals(id.getOrdinal(), ordinal);
+            Assert.assertEquals("x" + template.toRoot(baseMap), id.getName());
+        }
+    }
+
+    /**
+     * Tests that CharMaps with unknown letters are refused.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidCharMap() {
+        IdTemplate.compile("x", false, "dx");
+    }
+}
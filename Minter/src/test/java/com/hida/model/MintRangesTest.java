@@ -0,0 +1,154 @@
+package com.hida.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that MintRanges describes mints by the fewest ranges and that the
+ * ranges expand into the names of the minted Pids.
+ *
+ * @author lruffin
+ */
+public class MintRangesTest {
+
+    private static final String PREPEND = "ark:/";
+
+    /**
+     * Returns the names of a set of Pids, prepend included
+     *
+     * @param pids The Pids
+     * @return the names
+     */
+    private List<String> getNames(Set<Pid> pids) {
+        List<String> names = new ArrayList<>();
+        for (Pid pid : pids) {
+            names.add(PREPEND + pid.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Tests that a sequential mint is a single range.
+     */
+    @Test
+    public void testSequentialMint() {
+        IdGenerator generator = new CustomIdGenerator("x", false, "dle");
+        Set<Pid> pids = generator.sequentialMint(1000);
+        MintRanges ranges = MintRanges.of(PREPEND, pids);
+
+        Assert.assertEquals(ranges.getCount(), 1000);
+        Assert.assertEquals(ranges.getPrefix(), "x");
+        Assert.assertEquals(ranges.getRanges().size(), 1);
+        Assert.assertEquals(ranges.getRanges().get(0),
+                new BigInteger[]{BigInteger.ZERO, BigInteger.valueOf(999)});
+        Assert.assertEquals(ranges.expand(), getNames(pids));
+    }
+
+    /**
+     * Tests that every gap between ordinals starts a new range.
+     */
+    @Test
+    public void testGaps() {
+        IdTemplate template = IdTemplate.compile("", true, "ddd");
+        Set<Pid> pids = new LinkedHashSet<>();
+        for (long ordinal : new long[]{5, 6, 7, 9, 20, 21, 3}) {
+            pids.add(new CustomId("", template.toBaseMap(ordinal), template.getAlphabets()));
+        }
+        MintRanges ranges = MintRanges.of(PREPEND, pids);
+
+        Assert.assertEquals(ranges.getRanges().size(), 4);
+        Assert.assertEquals(ranges.getRanges().get(2),
+                new BigInteger[]{BigInteger.valueOf(20), BigInteger.valueOf(21)});
+        Assert.assertEquals(ranges.expand(), getNames(pids));
+        Assert.assertEquals(ranges.toName(BigInteger.valueOf(9)), PREPEND + "009");
+    }
+
+    /**
+     * Tests that the ranges of AutoIds expand into their names.
+     */
+    @Test
+    public void testAutoIds() {
+        IdGenerator generator = new AutoIdGenerator("ab", true, TokenType.MIXEDCASE, 3);
+        Set<Pid> pids = generator.randomMint(50);
+        MintRanges ranges = MintRanges.of(PREPEND, pids);
+
+        Assert.assertEquals(ranges.getCount(), 50);
+        Assert.assertEquals(ranges.expand(), getNames(pids));
+    }
+
+    /**
+     * Tests that Pids whose ordinals don't fit in a long are ranges of their
+     * own.
+     */
+    @Test
+    public void testWideOrdinals() {
+        IdTemplate template = IdTemplate.compile("", false, "eeeeeeeeeee");
+        int[] last = new int[template.getLength()];
+        for (int i = 0; i < last.length; i++) {
+            last[i] = template.getRadix(i) - 1;
+        }
+        Set<Pid> pids = new LinkedHashSet<>();
+        pids.add(new CustomId("", template.toBaseMap(0), template.getAlphabets()));
+        pids.add(new CustomId("", template.toBaseMap(1), template.getAlphabets()));
+        pids.add(new CustomId("", last, template.getAlphabets()));
+        MintRanges ranges = MintRanges.of(PREPEND, pids);
+
+        BigInteger exact = template.getExactCapacity().subtract(BigInteger.ONE);
+        Assert.assertEquals(ranges.getRanges().size(), 2);
+        Assert.assertEquals(ranges.getRanges().get(1), new BigInteger[]{exact, exact});
+        Assert.assertEquals(ranges.expand(), getNames(pids));
+    }
+
+    /**
+     * Tests that the binary form is read back into the same ranges, wide
+     * ordinals included.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testBinaryForm() throws IOException {
+        IdTemplate template = IdTemplate.compile("x", false, "eeeeeeeeeee");
+        Set<Pid> pids = new LinkedHashSet<>();
+        pids.add(new CustomId("x", template.toBaseMap(7), template.getAlphabets()));
+        pids.add(new CustomId("x", template.toBaseMap(8), template.getAlphabets()));
+        int[] last = new int[template.getLength()];
+        for (int i = 0; i < last.length; i++) {
+            last[i] = template.getRadix(i) - 1;
+        }
+        pids.add(new CustomId("x", last, template.getAlphabets()));
+        MintRanges ranges = MintRanges.of(PREPEND, pids);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ranges.writeTo(new DataOutputStream(bytes));
+        MintRanges read = MintRanges.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals(read.getPrepend(), PREPEND);
+        Assert.assertEquals(read.getPrefix(), "x");
+        Assert.assertEquals(read.getAlphabets(), ranges.getAlphabets());
+        Assert.assertEquals(read.getCount(), 3);
+        Assert.assertEquals(read.getRanges().size(), 2);
+        Assert.assertEquals(read.expand(), getNames(pids));
+    }
+
+    /**
+     * Tests that an empty mint has no ranges.
+     */
+    @Test
+    public void testEmptyMint() {
+        MintRanges ranges = MintRanges.of(PREPEND, new LinkedHashSet<Pid>());
+        Assert.assertEquals(ranges.getCount(), 0);
+        Assert.assertTrue(ranges.getRanges().isEmpty());
+        Assert.assertTrue(ranges.expand().isEmpty());
+    }
+}
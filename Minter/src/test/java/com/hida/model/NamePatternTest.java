@@ -0,0 +1,151 @@
+package com.hida.model;
+
+import java.util.Arrays;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Tests how NamePattern matches names and namespaces, and how the prefix of a
+ * pattern translates into ranges of names and of ordinals.
+ *
+ * @author lruffin
+ */
+public class NamePatternTest {
+
+    private static final String DIGITS = "0123456789";
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    /**
+     * Data set of patterns, names and whether they match
+     *
+     * @return A data set
+     */
+    @DataProvider(name = "matches")
+    public Object[][] matches() {
+        return new Object[][]{
+            {"", "", "x1", true},
+            {"x", "", "x1", true},
+            {"x", "", "y1", false},
+            {"x", "d", "x1", true},
+            {"x", "d", "x12", false},
+            {"x", "d", "xa", false},
+            {"x", "dl", "x1a", true},
+            {"x", "dl", "x1A", false},
+            {"x", "du", "x1A", true},
+            {"", "e", "a", true},
+            {"", "e", "Z", true},
+            {"", "e", "-", false}
+        };
+    }
+
+    /**
+     * Tests that names match the prefix and the CharMap of a pattern, vowels
+     * included.
+     *
+     * @param prefix The prefix of the pattern
+     * @param charMap The CharMap of the pattern
+     * @param name The name to match
+     * @param expected Whether the name matches
+     */
+    @Test(dataProvider = "matches")
+    public void testMatches(String prefix, String charMap, String name, boolean expected) {
+        Assert.assertEquals(new NamePattern(prefix, charMap).matches(name), expected);
+    }
+
+    /**
+     * Tests that a CharMap with unknown letters is refused.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidCharMap() {
+        new NamePattern("x", "dx");
+    }
+
+    /**
+     * Tests that only namespaces whose names may match a pattern are searched.
+     */
+    @Test
+    public void testMayMatch() {
+        PidNamespace namespace = new PidNamespace(1, PidNamespace.CUSTOM, "x",
+                new String[]{DIGITS, LETTERS});
+
+        Assert.assertTrue(new NamePattern("").mayMatch(namespace));
+        Assert.assertTrue(new NamePattern("x1").mayMatch(namespace));
+        Assert.assertTrue(new NamePattern("x", "dl").mayMatch(namespace));
+        Assert.assertTrue(new NamePattern("", "ldl").mayMatch(namespace));
+        Assert.assertTrue(new NamePattern("", "lem").mayMatch(namespace));
+        Assert.assertFalse(new NamePattern("y").mayMatch(namespace));
+        Assert.assertFalse(new NamePattern("x1a2").mayMatch(namespace));
+        Assert.assertFalse(new NamePattern("x", "d").mayMatch(namespace));
+        Assert.assertFalse(new NamePattern("x", "dd").mayMatch(namespace));
+        Assert.assertFalse(new NamePattern("", "ddl").mayMatch(namespace));
+    }
+
+    /**
+     * Tests that the upper bound of a prefix is greater than every name that
+     * starts with it and no greater than the names that follow them.
+     */
+    @Test
+    public void testUpperBound() {
+        Assert.assertEquals(NamePattern.getUpperBound("x1"), "x2");
+        Assert.assertEquals(NamePattern.getUpperBound("x9"), "x:");
+        Assert.assertEquals(NamePattern.getUpperBound("x\uffff"), "y");
+        Assert.assertNull(NamePattern.getUpperBound(""));
+        Assert.assertNull(NamePattern.getUpperBound("\uffff"));
+    }
+
+    /**
+     * Tests that the names of a namespace that start with a prefix are the
+     * ordinals of the returned range.
+     */
+    @Test
+    public void testOrdinalRange() {
+        PidNamespace namespace = new PidNamespace(1, PidNamespace.CUSTOM, "x",
+                new String[]{DIGITS, LETTERS, DIGITS});
+
+        assertRange(namespace, "", 0, 2600);
+        assertRange(namespace, "x", 0, 2600);
+        assertRange(namespace, "x3", 780, 1040);
+        assertRange(namespace, "x3c", 800, 810);
+        assertRange(namespace, "x3c7", 807, 808);
+        Assert.assertNull(namespace.getOrdinalRange("y"));
+        Assert.assertNull(namespace.getOrdinalRange("x33"));
+        Assert.assertNull(namespace.getOrdinalRange("x3c7a"));
+
+        // ranges that don't fit in a long end at Long.MAX_VALUE, and
+        // prefixes whose every ordinal overflows a long have no range
+        String[] alphabets = new String[20];
+        Arrays.fill(alphabets, DIGITS);
+        PidNamespace wide = new PidNamespace(2, PidNamespace.AUTO, "", alphabets);
+        assertRange(wide, "0", 0, Long.MAX_VALUE);
+        Assert.assertNull(wide.getOrdinalRange("99"));
+
+        // the largest ordinal that fits in a long still has a range
+        PidNamespace longest = new PidNamespace(3, PidNamespace.AUTO, "",
+                Arrays.copyOf(alphabets, 19));
+        Assert.assertEquals(longest.getOrdinalRange(String.valueOf(Long.MAX_VALUE))[0],
+                Long.MAX_VALUE);
+        Assert.assertNull(longest.getOrdinalRange("9223372036854775808"));
+    }
+
+    /**
+     * Asserts the range of a prefix and that its first and last ordinals are
+     * names that start with the prefix.
+     *
+     * @param namespace The namespace of the range
+     * @param prefix The prefix of the names
+     * @param first The expected first ordinal
+     * @param end The expected ordinal after the last
+     */
+    private static void assertRange(PidNamespace namespace, String prefix, long first,
+            long end) {
+        long[] range = namespace.getOrdinalRange(prefix);
+        Assert.assertEquals(range[0], first);
+        Assert.assertEquals(range[1], end);
+        Assert.assertTrue(namespace.toPid(first).getName().startsWith(prefix));
+        if (end < Long.MAX_VALUE) {
+            Assert.assertTrue(namespace.toPid(end - 1).getName().startsWith(prefix));
+        }
+    }
+}
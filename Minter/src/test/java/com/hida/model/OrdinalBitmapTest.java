@@ -0,0 +1,388 @@
+package com.hida.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.TreeSet;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * This class tests the functionality of OrdinalBitmap against a BitSet.
+ *
+ * @author lruffin
+ */
+public class OrdinalBitmapTest {
+
+    /**
+     * Data set of ordinals that end up in array, bitmap and run containers
+     *
+     * @return A data set
+     */
+    @DataProvider(name = "ordinals")
+    public Object[][] ordinals() {
+        return new Object[][]{
+            {sparse()},
+            {dense()},
+            {sequential()},
+            {gaps()}
+        };
+    }
+
+    /**
+     * Tests that contains and add agree with a BitSet, both before and after
+     * the containers were optimized.
+     *
+     * @param ordinals The ordinals to add
+     */
+    @Test(dataProvider = "ordinals")
+    public void testAddAndContains(long[] ordinals) {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        BitSet expected = new BitSet();
+        for (int i = 0; i < ordinals.length; i++) {
+            Assert.assertEquals(bitmap.add(ordinals[i]), !expected.get((int) ordinals[i]));
+            expected.set((int) ordinals[i]);
+
+            // keep adding to optimized containers
+            if (i == ordinals.length / 2) {
+                bitmap.optimize();
+            }
+        }
+        assertEquals(bitmap, expected);
+        bitmap.optimize();
+        assertEquals(bitmap, expected);
+    }
+
+    /**
+     * Tests that nextClear agrees with BitSet.nextClearBit and respects the
+     * limit.
+     *
+     * @param ordinals The ordinals to add
+     */
+    @Test(dataProvider = "ordinals")
+    public void testNextClear(long[] ordinals) {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        BitSet expected = new BitSet();
+        for (long ordinal : ordinals) {
+            bitmap.add(ordinal);
+            expected.set((int) ordinal);
+        }
+        bitmap.optimize();
+
+        long limit = expected.length() + 1;
+        for (int from = 0; from < limit; from += 7) {
+            Assert.assertEquals(bitmap.nextClear(from, limit), expected.nextClearBit(from));
+        }
+        Assert.assertEquals(bitmap.nextClear(0, expected.nextClearBit(0)), -1);
+    }
+
+    /**
+     * Tests that full containers are skipped, even beyond the range of an
+     * integer.
+     */
+    @Test
+    public void testNextClearSkipsFullContainers() {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        long base = 1L << 40;
+        for (long ordinal = base; ordinal < base + 3 * 65536 + 5; ordinal++) {
+            bitmap.add(ordinal);
+        }
+        Assert.assertEquals(bitmap.nextClear(base, base + 4 * 65536), base + 3 * 65536 + 5);
+        Assert.assertEquals(bitmap.nextClear(base, base + 3 * 65536), -1);
+        Assert.assertEquals(bitmap.getCardinality(), 3 * 65536 + 5);
+    }
+
+    /**
+     * Tests that selectClear agrees with the clear bits of a BitSet.
+     *
+     * @param ordinals The ordinals to add
+     */
+    @Test(dataProvider = "ordinals")
+    public void testSelectClear(long[] ordinals) {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        BitSet expected = new BitSet();
+        for (long ordinal : ordinals) {
+            bitmap.add(ordinal);
+            expected.set((int) ordinal);
+        }
+        bitmap.optimize();
+
+        int limit = expected.length() + 100;
+        int rank = 0;
+        for (int clear = expected.nextClearBit(0); clear < limit;
+                clear = expected.nextClearBit(clear + 1)) {
+            if (rank % 13 == 0 || clear + 100 >= limit) {
+                Assert.assertEquals(bitmap.selectClear(rank, limit), clear, "rank " + rank);
+            }
+            rank++;
+        }
+        Assert.assertEquals(bitmap.selectClear(rank, limit), -1);
+    }
+
+    /**
+     * Tests that the cardinality of ranges within and across containers
+     * agrees with a BitSet.
+     *
+     * @param ordinals The ordinals to add
+     */
+    @Test(dataProvider = "ordinals")
+    public void testGetCardinalityOfRange(long[] ordinals) {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        BitSet expected = new BitSet();
+        for (long ordinal : ordinals) {
+            bitmap.add(ordinal);
+            expected.set((int) ordinal);
+        }
+        bitmap.optimize();
+
+        Random random = new Random(4);
+        int limit = expected.length() + 100;
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(limit);
+            int to = from + random.nextInt(limit - from + 1);
+            Assert.assertEquals(bitmap.getCardinality(from, to),
+                    expected.get(from, to).cardinality(), "from " + from + " to " + to);
+        }
+        Assert.assertEquals(bitmap.getCardinality(0, limit), expected.cardinality());
+        Assert.assertEquals(bitmap.getCardinality(limit, 0), 0);
+    }
+
+    /**
+     * Tests that selectClear within a range agrees with the clear bits of a
+     * BitSet, regardless of the ordinals outside of the range.
+     *
+     * @param ordinals The ordinals to add
+     */
+    @Test(dataProvider = "ordinals")
+    public void testSelectClearInRange(long[] ordinals) {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        BitSet expected = new BitSet();
+        for (long ordinal : ordinals) {
+            bitmap.add(ordinal);
+            expected.set((int) ordinal);
+        }
+        bitmap.optimize();
+
+        int from = expected.length() / 3 + 11;
+        int limit = 2 * expected.length() / 3;
+        int rank = 0;
+        for (int clear = expected.nextClearBit(from); clear < limit;
+                clear = expected.nextClearBit(clear + 1)) {
+            if (rank % 7 == 0) {
+                Assert.assertEquals(bitmap.selectClear(rank, from, limit), clear, "rank " + rank);
+            }
+            rank++;
+        }
+        Assert.assertEquals(bitmap.selectClear(rank, from, limit), -1);
+    }
+
+    /**
+     * Tests that randomClear within a range only returns clear ordinals of
+     * the range, at fill levels on both sides of the switch from drawing to
+     * selecting, and reports a full range.
+     */
+    @Test
+    public void testRandomClearInRange() {
+        long from = 65536 - 100;
+        long limit = 65536 + 100;
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        for (long ordinal = 0; ordinal < 3 * 65536; ordinal += 2) {
+            bitmap.add(ordinal);
+        }
+        Random random = new Random(5);
+        for (long taken = 100; taken < limit - from; taken++) {
+            long ordinal = bitmap.randomClear(random, from, limit);
+            Assert.assertTrue(ordinal >= from && ordinal < limit, "ordinal " + ordinal);
+            Assert.assertTrue(bitmap.add(ordinal), "ordinal " + ordinal);
+        }
+        Assert.assertEquals(bitmap.randomClear(random, from, limit), -1);
+        Assert.assertEquals(bitmap.getCardinality(from, limit), limit - from);
+    }
+
+    /**
+     * Tests that randomClear only returns clear ordinals and returns each of
+     * them about equally often, at fill levels on both sides of the switch
+     * from drawing to selecting.
+     */
+    @Test
+    public void testRandomClearIsUniform() {
+        int limit = 1000;
+        for (int taken : new int[]{0, 400, 600, 990}) {
+            OrdinalBitmap bitmap = new OrdinalBitmap();
+            Random random = new Random(taken);
+            while (bitmap.getCardinality() < taken) {
+                bitmap.add(random.nextInt(limit));
+            }
+
+            int draws = 2000 * (limit - taken);
+            int[] counts = new int[limit];
+            for (int i = 0; i < draws; i++) {
+                long ordinal = bitmap.randomClear(random, limit);
+                Assert.assertFalse(bitmap.contains(ordinal));
+                counts[(int) ordinal]++;
+            }
+            for (int ordinal = 0; ordinal < limit; ordinal++) {
+                if (!bitmap.contains(ordinal)) {
+                    // 2000 expected draws with a standard deviation of about 45
+                    Assert.assertTrue(Math.abs(counts[ordinal] - 2000) < 300,
+                            "taken=" + taken + " ordinal=" + ordinal + " count=" + counts[ordinal]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that randomClear finds the last clear ordinal and reports a full
+     * range.
+     */
+    @Test
+    public void testRandomClearWhenAlmostFull() {
+        long limit = 3 * 65536 + 17;
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        for (long ordinal = 0; ordinal < limit; ordinal++) {
+            if (ordinal != 70000) {
+                bitmap.add(ordinal);
+            }
+        }
+        Random random = new Random(3);
+        Assert.assertEquals(bitmap.randomClear(random, limit), 70000);
+
+        bitmap.add(70000);
+        Assert.assertEquals(bitmap.randomClear(random, limit), -1);
+    }
+
+    /**
+     * Tests that a set is read back the way it was written.
+     *
+     * @param ordinals The ordinals to add
+     * @throws IOException
+     */
+    @Test(dataProvider = "ordinals")
+    public void testWriteAndRead(long[] ordinals) throws IOException {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        BitSet expected = new BitSet();
+        for (long ordinal : ordinals) {
+            bitmap.add(ordinal);
+            expected.set((int) ordinal);
+        }
+        bitmap.optimize();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            bitmap.write(out);
+        }
+        OrdinalBitmap copy = OrdinalBitmap.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(copy, expected);
+    }
+
+    /**
+     * Tests that only the containers added to since markUnchanged are
+     * reported as changed, and that a set is read back one container at a
+     * time.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testChangedContainers() throws IOException {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        bitmap.add(1);
+        bitmap.add(70000);
+        bitmap.add(140000);
+        Assert.assertEquals(bitmap.getChangedContainers(), new TreeSet<>(Arrays.asList(0L, 1L, 2L)));
+
+        bitmap.markUnchanged();
+        bitmap.add(1);
+        Assert.assertTrue(bitmap.getChangedContainers().isEmpty());
+        bitmap.add(70001);
+        Assert.assertEquals(bitmap.getChangedContainers(), new TreeSet<>(Arrays.asList(1L)));
+
+        OrdinalBitmap copy = new OrdinalBitmap();
+        for (long key : bitmap.getContainers()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                bitmap.writeContainer(key, out);
+            }
+            copy.readContainer(key,
+                    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        }
+        Assert.assertEquals(copy.getCardinality(), 4);
+        Assert.assertTrue(copy.contains(70001));
+        Assert.assertTrue(copy.getChangedContainers().isEmpty());
+    }
+
+    /**
+     * Tests that a million sequential ordinals are written as a handful of
+     * bytes.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSequentialOrdinalsAreCompact() throws IOException {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        for (long ordinal = 0; ordinal < 1000000; ordinal++) {
+            bitmap.add(ordinal);
+        }
+        bitmap.optimize();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            bitmap.write(out);
+        }
+        Assert.assertTrue(bytes.size() < 300, "size=" + bytes.size());
+    }
+
+    private void assertEquals(OrdinalBitmap bitmap, BitSet expected) {
+        Assert.assertEquals(bitmap.getCardinality(), expected.cardinality());
+        for (int ordinal = 0; ordinal < expected.length() + 65536; ordinal++) {
+            Assert.assertEquals(bitmap.contains(ordinal), expected.get(ordinal), "ordinal " + ordinal);
+        }
+    }
+
+    private static long[] sparse() {
+        Random random = new Random(1);
+        long[] ordinals = new long[2000];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = random.nextInt(1 << 20);
+        }
+        return ordinals;
+    }
+
+    private static long[] dense() {
+        Random random = new Random(2);
+        long[] ordinals = new long[100000];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = random.nextInt(3 * 65536);
+        }
+        return ordinals;
+    }
+
+    private static long[] sequential() {
+        long[] ordinals = new long[200000];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = i + 1000;
+        }
+        return ordinals;
+    }
+
+    private static long[] gaps() {
+        // runs separated by single gaps that are filled in last, merging the runs
+        long[] ordinals = new long[200000];
+        int i = 0;
+        for (int ordinal = 0; ordinal < ordinals.length; ordinal++) {
+            if (ordinal % 101 != 100) {
+                ordinals[i++] = ordinal;
+            }
+        }
+        for (int ordinal = 100; ordinal < ordinals.length; ordinal += 101) {
+            ordinals[i++] = ordinal;
+        }
+        return ordinals;
+    }
+}
@@ -0,0 +1,202 @@
+package com.hida.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * This class tests the functionality of MintJournal.
+ *
+ * @author lruffin
+ */
+public class MintJournalTest {
+
+    private File JournalFile;
+
+    /**
+     * Creates an empty journal file for every test
+     *
+     * @throws IOException
+     */
+    @BeforeMethod
+    public void setUp() throws IOException {
+        JournalFile = File.createTempFile("mintjournal", ".bin");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        JournalFile.delete();
+    }
+
+    /**
+     * Tests that contiguous ordinals are recorded as a range and that any
+     * other ordinals are recorded as a list.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRecordRangeAndList() throws Exception {
+        long[] range = {5, 6, 7, 8};
+        long[] list = {3, 200, 70000, 1L << 40};
+        try (MintJournal journal = new MintJournal(JournalFile, 16)) {
+            journal.record("auto//DIGIT/5/sansvowels", 1, range);
+            journal.record("custom/a/dle/vowels", 2, list);
+            journal.sync();
+        }
+
+        List<MintJournal.Record> records = MintJournal.read(JournalFile);
+        Assert.assertEquals(records.size(), 2);
+
+        MintJournal.Record first = records.get(0);
+        Assert.assertTrue(first.isRange());
+        Assert.assertEquals(first.getNamespace(), "auto//DIGIT/5/sansvowels");
+        Assert.assertEquals(first.getRequestId(), 1);
+        Assert.assertEquals(first.getFirstOrdinal(), 5);
+        Assert.assertEquals(first.getCount(), 4);
+        Assert.assertEquals(first.getOrdinals(), range);
+
+        MintJournal.Record second = records.get(1);
+        Assert.assertFalse(second.isRange());
+        Assert.assertEquals(second.getNamespace(), "custom/a/dle/vowels");
+        Assert.assertEquals(second.getRequestId(), 2);
+        Assert.assertEquals(second.getCount(), 4);
+        Assert.assertEquals(second.getOrdinals(), list);
+    }
+
+    /**
+     * Tests that ordinals wider than a long are recorded exactly.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRecordWideList() throws Exception {
+        BigInteger[] ordinals = {
+            BigInteger.ZERO,
+            BigInteger.valueOf(255),
+            BigInteger.ONE.shiftLeft(64),
+            BigInteger.ONE.shiftLeft(127).add(BigInteger.TEN)
+        };
+        try (MintJournal journal = new MintJournal(JournalFile, 16)) {
+            journal.record("custom//eeeeeeeeeeeeeeeeeeeee/vowels", 3, ordinals);
+            journal.record("auto//DIGIT/5/sansvowels", 4, new long[]{1, 2});
+            journal.sync();
+        }
+
+        List<MintJournal.Record> records = MintJournal.read(JournalFile);
+        Assert.assertEquals(records.size(), 2);
+        MintJournal.Record wide = records.get(0);
+        Assert.assertTrue(wide.isWide());
+        Assert.assertFalse(wide.isRange());
+        Assert.assertEquals(wide.getRequestId(), 3);
+        Assert.assertEquals(wide.getCount(), 4);
+        Assert.assertEquals(wide.getExactOrdinals(), ordinals);
+
+        MintJournal.Record range = records.get(1);
+        Assert.assertFalse(range.isWide());
+        Assert.assertEquals(range.getExactOrdinals(),
+                new BigInteger[]{BigInteger.ONE, BigInteger.valueOf(2)});
+    }
+
+    /**
+     * Tests that records from many threads are all written, even though the
+     * ring buffer is much smaller than the number of records.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentRecordsWithSmallRing() throws Exception {
+        final int threads = 4;
+        final int recordsPerThread = 250;
+        try (final MintJournal journal = new MintJournal(JournalFile, 2)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                Thread writer = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < recordsPerThread; i++) {
+                            journal.record("auto//DIGIT/5/sansvowels", thread, new long[]{i});
+                        }
+                    }
+                });
+                writer.start();
+                writers.add(writer);
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+
+        List<MintJournal.Record> records = MintJournal.read(JournalFile);
+        Assert.assertEquals(records.size(), threads * recordsPerThread);
+
+        // the records of each thread keep their order
+        long[] next = new long[threads];
+        for (MintJournal.Record record : records) {
+            int thread = (int) record.getRequestId();
+            Assert.assertEquals(record.getFirstOrdinal(), next[thread]);
+            next[thread]++;
+        }
+    }
+
+    /**
+     * Tests that a reopened journal is appended to.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReopenAppends() throws Exception {
+        try (MintJournal journal = new MintJournal(JournalFile, 16)) {
+            journal.record("auto//DIGIT/5/sansvowels", 1, new long[]{0, 1});
+        }
+        try (MintJournal journal = new MintJournal(JournalFile, 16)) {
+            journal.record("auto//DIGIT/5/sansvowels", 2, new long[]{2, 3});
+        }
+
+        List<MintJournal.Record> records = MintJournal.read(JournalFile);
+        Assert.assertEquals(records.size(), 2);
+        Assert.assertEquals(records.get(1).getFirstOrdinal(), 2);
+    }
+
+    /**
+     * Tests that a partially written record at the end of the journal, as
+     * left behind by a crash, is ignored.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReadIgnoresPartialRecord() throws Exception {
+        try (MintJournal journal = new MintJournal(JournalFile, 16)) {
+            journal.record("auto//DIGIT/5/sansvowels", 1, new long[]{0, 1});
+        }
+        try (FileOutputStream out = new FileOutputStream(JournalFile, true)) {
+            out.write(new byte[]{1, 0, 0, 0});
+        }
+
+        List<MintJournal.Record> records = MintJournal.read(JournalFile);
+        Assert.assertEquals(records.size(), 1);
+    }
+
+    /**
+     * Tests that a disabled journal ignores every record.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDisabledJournal() throws Exception {
+        MintJournal journal = new MintJournal();
+        journal.record("auto//DIGIT/5/sansvowels", 1, new long[]{0});
+        journal.sync();
+        journal.close();
+
+        Assert.assertFalse(journal.isEnabled());
+        Assert.assertEquals(JournalFile.length(), 0);
+    }
+}
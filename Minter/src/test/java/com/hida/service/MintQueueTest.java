@@ -0,0 +1,244 @@
+package com.hida.service;
+
+import com.hida.model.MinterBusyException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * This class tests the functionality of MintQueue.
+ *
+ * @author lruffin
+ */
+public class MintQueueTest {
+
+    /**
+     * Returns a mint that records that it has run
+     *
+     * @param ran Set once the mint has run
+     * @return the mint
+     */
+    private Callable<String> getMint(final AtomicBoolean ran) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                ran.set(true);
+                return "mint";
+            }
+        };
+    }
+
+    /**
+     * Returns a mint that starts and then holds its thread until it is
+     * released
+     *
+     * @param queue The queue the mint runs on
+     * @param started Counted down once the mint has started
+     * @param release Released to let the mint finish
+     * @return the mint
+     */
+    private Callable<String> getBlockingMint(final MintQueue queue,
+            final CountDownLatch started, final CountDownLatch release) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                Assert.assertTrue(queue.startMint());
+                started.countDown();
+                release.await();
+                return "blocked";
+            }
+        };
+    }
+
+    /**
+     * Waits for the result of a mint
+     *
+     * @param result The result of the mint
+     * @return the result or the error of the mint
+     * @throws InterruptedException
+     */
+    private static Object await(DeferredResult<?> result) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!result.hasResult()) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline, "no result");
+            Thread.sleep(10);
+        }
+        return result.getResult();
+    }
+
+    /**
+     * Waits until every queued mint is done
+     *
+     * @param queue The queue
+     * @throws InterruptedException
+     */
+    private static void awaitEmpty(MintQueue queue) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queue.getQueued() > 0) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline, "mints still queued");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Tests that a queued mint holds its place until it has run and answers
+     * its request with its result.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSubmit() throws Exception {
+        MintQueue queue = new MintQueue(1, 1, 1000);
+        try {
+            AtomicBoolean ran = new AtomicBoolean();
+            DeferredResult<String> result = queue.submit(getMint(ran));
+
+            Assert.assertEquals(await(result), "mint");
+            Assert.assertTrue(ran.get());
+            awaitEmpty(queue);
+        }
+        finally {
+            queue.shutdown();
+        }
+    }
+
+    /**
+     * Tests that mints are turned away once the running and waiting mints
+     * fill the queue, until one of them has run.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFullQueue() throws Exception {
+        MintQueue queue = new MintQueue(1, 1, 1000);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicBoolean ran = new AtomicBoolean();
+            queue.submit(getBlockingMint(queue, started, release));
+            DeferredResult<String> second = queue.submit(getMint(ran));
+            try {
+                queue.submit(getMint(ran));
+                Assert.fail("the queue should be full");
+            }
+            catch (MinterBusyException exception) {
+                Assert.assertEquals(queue.getQueued(), 2);
+            }
+            finally {
+                release.countDown();
+            }
+
+            Assert.assertEquals(await(second), "mint");
+            awaitEmpty(queue);
+            Assert.assertEquals(await(queue.submit(getMint(ran))), "mint");
+        }
+        finally {
+            queue.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a request whose mint didn't start in time is answered with a
+     * MinterBusyException while the mint ahead of it still runs, and that its
+     * mint is skipped and gives up its place.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTimedOutMint() throws Exception {
+        MintQueue queue = new MintQueue(1, 1, 100);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicBoolean ran = new AtomicBoolean();
+            DeferredResult<String> first = queue.submit(getBlockingMint(queue, started, release));
+            DeferredResult<String> second = queue.submit(getMint(ran));
+
+            try {
+                Assert.assertTrue(await(second) instanceof MinterBusyException);
+                Assert.assertFalse(first.hasResult());
+            }
+            finally {
+                release.countDown();
+            }
+            Assert.assertEquals(await(first), "blocked");
+            awaitEmpty(queue);
+            Assert.assertFalse(ran.get());
+        }
+        finally {
+            queue.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a mint that has started is not timed out however long it
+     * runs, while a mint that starts after its request timed out is told so.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStartMint() throws Exception {
+        final MintQueue queue = new MintQueue(1, 1, 100);
+        try {
+            Assert.assertTrue(queue.startMint());
+
+            final CountDownLatch timedOut = new CountDownLatch(1);
+            DeferredResult<Boolean> started = queue.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws InterruptedException {
+                    boolean start = queue.startMint();
+                    // outlive the timeout of both requests
+                    Assert.assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+                    return start;
+                }
+            });
+            DeferredResult<Boolean> late = queue.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return queue.startMint();
+                }
+            });
+
+            try {
+                Assert.assertTrue(await(late) instanceof MinterBusyException);
+                Assert.assertFalse(started.hasResult());
+            }
+            finally {
+                timedOut.countDown();
+            }
+            Assert.assertEquals(await(started), Boolean.TRUE);
+            awaitEmpty(queue);
+        }
+        finally {
+            queue.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a mint that fails answers its request with its exception and
+     * still gives up its place.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFailedMint() throws Exception {
+        MintQueue queue = new MintQueue(1, 0, 1000);
+        try {
+            DeferredResult<String> result = queue.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    throw new IllegalStateException("failed");
+                }
+            });
+            Assert.assertTrue(await(result) instanceof IllegalStateException);
+            awaitEmpty(queue);
+        }
+        finally {
+            queue.shutdown();
+        }
+    }
+}
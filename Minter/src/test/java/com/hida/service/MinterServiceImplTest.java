@@ -5,23 +5,44 @@ import com.hida.dao.PidDao;
 import com.hida.dao.UsedSettingDao;
 import com.hida.model.DefaultSetting;
 import com.hida.model.NotEnoughPermutationsException;
+import com.hida.model.OrdinalBitmap;
 import com.hida.model.Pid;
 import com.hida.model.TokenType;
+import com.hida.model.UsedOrdinalContainer;
 import com.hida.model.UsedSetting;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.MockitoAnnotations;
+import org.slf4j.MDC;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -41,6 +62,15 @@ public class MinterServiceImplTest {
     @Mock
     UsedSettingDao UsedSettingDao;
 
+    @Mock
+    MintJournal Journal;
+
+    @Spy
+    NamespaceMonitor Monitor = new NamespaceMonitor();
+
+    @Spy
+    OrdinalSegments Segments = new OrdinalSegments();
+
     @InjectMocks
     MinterServiceImpl MinterServiceImpl;
 
@@ -49,17 +79,38 @@ public class MinterServiceImplTest {
     Set<Pid> PidSet = new TreeSet<>();
 
     /**
-     * Sets up Mockito
+     * Sets up the sample settings and Pids
      *
      * @throws Exception
      */
     @BeforeClass
     public void setUpClass() throws Exception {
-        MockitoAnnotations.initMocks(this);
         initializeDefaultSettingList();
         initializePidSet();
     }
 
+    /**
+     * Sets up Mockito with a new MinterServiceImpl for every test, as the
+     * service remembers what it learned about namespaces
+     */
+    @BeforeMethod
+    public void setUp() {
+        setUp(new OrdinalSegments());
+    }
+
+    /**
+     * Sets up Mockito with a new MinterServiceImpl that draws random ordinals
+     * from the given segments
+     *
+     * @param segments The segments of random ordinals
+     */
+    private void setUp(OrdinalSegments segments) {
+        Monitor = new NamespaceMonitor();
+        Segments = segments;
+        MinterServiceImpl = null;
+        MockitoAnnotations.initMocks(this);
+    }
+
     /**
      * Test the various mint settings (auto/random and random/sequential)
      *
@@ -92,7 +143,7 @@ public class MinterServiceImplTest {
         defaultSetting.setRandom(isRandom);
 
         // assume that any Pids created aren't already persisted and pretend to persist them
-        when(PidDao.findByName(any(String.class))).thenReturn(null);
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
         doNothing().when(PidDao).savePid(any(Pid.class));
 
         // assume the UsedSetting isn't persisted and pretend to persist it
@@ -125,7 +176,7 @@ public class MinterServiceImplTest {
         UsedSetting usedSetting = getSampleUsedSetting();
 
         // assume that any Pids created aren't already persisted and pretend to persist them
-        when(PidDao.findByName(any(String.class))).thenReturn(null);
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
         doNothing().when(PidDao).savePid(any(Pid.class));
 
         // assume the UsedSetting isn't persisted and pretend to persist it
@@ -160,7 +211,7 @@ public class MinterServiceImplTest {
         UsedSetting usedSetting = getSampleUsedSetting();
 
         // assume that any Pids created aren't already persisted and pretend to persist them
-        when(PidDao.findByName(any(String.class))).thenReturn(null);
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
         doNothing().when(PidDao).savePid(any(Pid.class));
 
         // pretend to find and retrieve variable usedSetting
@@ -190,7 +241,7 @@ public class MinterServiceImplTest {
         defaultSetting.setRandom(isRandom);
 
         // assume that any Pids created aren't already persisted and pretend to persist them
-        when(PidDao.findByName(any(String.class))).thenReturn(null);
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
         doNothing().when(PidDao).savePid(any(Pid.class));
 
         // assume that UsedSetting entity with the relevant parameters does not exist
@@ -220,9 +271,13 @@ public class MinterServiceImplTest {
         defaultSetting.setAuto(isAuto);
         defaultSetting.setRandom(isRandom);
 
-        // pretend any Pid with the name "0" is the only Pid that exists
-        when(PidDao.findByName(any(String.class))).thenReturn(null);
-        when(PidDao.findByName("0")).thenReturn(new TestPid(0));
+        // pretend any Pid with the name "0" is the only Pid that exists, created by a
+        // setting that differs from the current one only in its vowels
+        UsedSetting otherSetting = new UsedSetting("", TokenType.DIGIT, "d", 1, false, 1);
+        otherSetting.setId(2);
+        when(UsedSettingDao.findAllUsedSettings()).thenReturn(Arrays.asList(otherSetting));
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
+        when(PidDao.findPid(pidNamed("0"))).thenReturn(new TestPid(0));
         doNothing().when(PidDao).savePid(any(Pid.class));
 
         // assume that UsedSetting entity with the relevant parameters does not exist
@@ -233,6 +288,357 @@ public class MinterServiceImplTest {
         Set<Pid> testSet = MinterServiceImpl.mint(10, defaultSetting);
     }
 
+    /**
+     * Tests that minted Pids are recorded in the journal by their ordinals,
+     * along with the namespace of the setting and the id of the request.
+     */
+    @Test
+    public void testMintRecordsJournal() {
+        // retrieve a sample DefaultSetting entity
+        DefaultSetting defaultSetting = DefaultSettingList.get(1);
+        defaultSetting.setAuto(true);
+        defaultSetting.setRandom(false);
+
+        // assume that any Pids created aren't already persisted and pretend to persist them
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
+        doNothing().when(PidDao).savePid(any(Pid.class));
+        when(UsedSettingDao.findUsedSetting(any(UsedSetting.class))).thenReturn(null);
+        when(Journal.isEnabled()).thenReturn(true);
+
+        MDC.put(MintJournal.REQUEST_ID, "42");
+        try {
+            MinterServiceImpl.mint(10, defaultSetting);
+        }
+        finally {
+            MDC.remove(MintJournal.REQUEST_ID);
+        }
+
+        long[] ordinals = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        verify(Journal).record(eq("auto//DIGIT/1/sansvowels"), eq(42L), aryEq(ordinals));
+    }
+
+    /**
+     * Tests that ordinals recorded as used in the UsedSetting are skipped
+     * without being looked up, and that the ordinals of the new Pids are
+     * recorded along with them.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMintSkipsUsedOrdinals() throws Exception {
+        // retrieve a sample DefaultSetting entity
+        DefaultSetting defaultSetting = DefaultSettingList.get(1);
+        defaultSetting.setAuto(true);
+        defaultSetting.setRandom(false);
+
+        // pretend that the ordinals 0 to 4 were already used by this setting
+        OrdinalBitmap used = new OrdinalBitmap();
+        for (int i = 0; i < 5; i++) {
+            used.add(i);
+        }
+        UsedSetting usedSetting = getSampleUsedSetting();
+        usedSetting.setUsedOrdinals(writeUsedOrdinals("auto//DIGIT/1/sansvowels", used));
+
+        // the database isn't aware of any Pid, so only the ordinals keep them from being reused
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
+        doNothing().when(PidDao).savePid(any(Pid.class));
+        when(UsedSettingDao.findUsedSetting(any(UsedSetting.class))).thenReturn(usedSetting);
+
+        Set<Pid> testSet = MinterServiceImpl.mint(5, defaultSetting);
+        Set<String> names = new TreeSet<>();
+        for (Pid pid : testSet) {
+            names.add(pid.getName());
+        }
+        Assert.assertEquals(names, new TreeSet<>(Arrays.asList("5", "6", "7", "8", "9")));
+
+        // the ordinals are moved from the old column into containers
+        ArgumentCaptor<UsedOrdinalContainer> container
+                = ArgumentCaptor.forClass(UsedOrdinalContainer.class);
+        verify(UsedSettingDao).saveOrdinalContainer(container.capture());
+        Assert.assertEquals(readContainer(container.getValue()).getCardinality(), 10);
+        Assert.assertEquals(usedSetting.getOrdinalsNamespace(), "auto//DIGIT/1/sansvowels");
+        Assert.assertNull(usedSetting.getUsedOrdinals());
+        Assert.assertEquals(usedSetting.getAmount(), 10);
+    }
+
+    /**
+     * Tests that a mint only writes the containers of the used ordinals that
+     * it added ordinals to.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMintWritesChangedContainers() throws Exception {
+        DefaultSetting defaultSetting = new DefaultSetting("", "", TokenType.DIGIT,
+                "ddddddd", 7, true, true, false);
+
+        // pretend that the ordinals 0 to 4 and 200000 were already used
+        OrdinalBitmap used = new OrdinalBitmap();
+        for (int i = 0; i < 5; i++) {
+            used.add(i);
+        }
+        used.add(200000);
+        UsedSetting usedSetting = new UsedSetting("", TokenType.DIGIT, "ddddddd", 7, true, 6);
+        usedSetting.setOrdinalsNamespace("auto//DIGIT/7/sansvowels");
+        List<UsedOrdinalContainer> containers = new ArrayList<>();
+        for (long key : used.getContainers()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                used.writeContainer(key, out);
+            }
+            containers.add(new UsedOrdinalContainer(0, key, bytes.toByteArray()));
+        }
+
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
+        doNothing().when(PidDao).savePid(any(Pid.class));
+        when(UsedSettingDao.findUsedSetting(any(UsedSetting.class))).thenReturn(usedSetting);
+        when(UsedSettingDao.findOrdinalContainers(anyInt())).thenReturn(containers);
+
+        Set<Pid> testSet = MinterServiceImpl.mint(1, defaultSetting);
+        Assert.assertEquals(testSet.iterator().next().getName(), "0000005");
+
+        ArgumentCaptor<UsedOrdinalContainer> container
+                = ArgumentCaptor.forClass(UsedOrdinalContainer.class);
+        verify(UsedSettingDao).saveOrdinalContainer(container.capture());
+        verify(UsedSettingDao, never()).deleteOrdinalContainers(anyInt());
+        Assert.assertEquals(container.getValue().getContainerKey(), 0);
+        Assert.assertEquals(readContainer(container.getValue()).getCardinality(), 6);
+    }
+
+    /**
+     * Tests that a random mint finds the only id left without looking up any
+     * of the ids that were already used.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRandomMintDrawsRemainingOrdinal() throws Exception {
+        // retrieve a sample DefaultSetting entity
+        DefaultSetting defaultSetting = DefaultSettingList.get(1);
+        defaultSetting.setAuto(true);
+        defaultSetting.setRandom(true);
+
+        // pretend that every ordinal but 3 was already used by this setting
+        OrdinalBitmap used = new OrdinalBitmap();
+        for (int i = 0; i < 10; i++) {
+            if (i != 3) {
+                used.add(i);
+            }
+        }
+        UsedSetting usedSetting = new UsedSetting("", TokenType.DIGIT, "d", 1, true, 9);
+        usedSetting.setUsedOrdinals(writeUsedOrdinals("auto//DIGIT/1/sansvowels", used));
+
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
+        doNothing().when(PidDao).savePid(any(Pid.class));
+        when(UsedSettingDao.findUsedSetting(any(UsedSetting.class))).thenReturn(usedSetting);
+
+        Set<Pid> testSet = MinterServiceImpl.mint(1, defaultSetting);
+        Assert.assertEquals(testSet.size(), 1);
+        Assert.assertEquals(testSet.iterator().next().getName(), "3");
+    }
+
+    /**
+     * Tests that random ids are drawn from the first segment of the namespace
+     * until it is half taken, and then from the next one.
+     */
+    @Test
+    public void testRandomMintDrawsFromSegments() {
+        setUp(new OrdinalSegments(10));
+        DefaultSetting defaultSetting = new DefaultSetting("", "seg", TokenType.DIGIT,
+                "ddd", 3, true, true, true);
+        doNothing().when(PidDao).savePid(any(Pid.class));
+        when(UsedSettingDao.findUsedSetting(any(UsedSetting.class))).thenReturn(null);
+
+        Set<Pid> testSet = MinterServiceImpl.mint(10, defaultSetting);
+        int first = 0;
+        int second = 0;
+        for (Pid pid : testSet) {
+            if (pid.getName().startsWith("seg00")) {
+                first++;
+            }
+            else if (pid.getName().startsWith("seg01")) {
+                second++;
+            }
+        }
+        Assert.assertEquals(first, 5);
+        Assert.assertEquals(second, 5);
+    }
+
+    /**
+     * Tests that random ids of a namespace wider than 63 bits are drawn
+     * without looking them up and are journaled with their exact ordinals.
+     */
+    @Test
+    public void testRandomMintInWideNamespace() {
+        DefaultSetting defaultSetting = new DefaultSetting("", "wide", TokenType.DIGIT,
+                "eeeeeeeeeeeeeeeeeeee", 1, false, false, true);
+        doNothing().when(PidDao).savePid(any(Pid.class));
+        when(UsedSettingDao.findUsedSetting(any(UsedSetting.class))).thenReturn(null);
+        when(Journal.isEnabled()).thenReturn(true);
+
+        Set<Pid> testSet = MinterServiceImpl.mint(100, defaultSetting);
+        Assert.assertEquals(testSet.size(), 100);
+        for (Pid pid : testSet) {
+            Assert.assertTrue(pid.getName().startsWith("wide"));
+            Assert.assertEquals(pid.getName().length(), 24);
+        }
+        verify(PidDao, never()).findPid(any(Pid.class));
+        verify(Journal).record(eq("custom/wide/eeeeeeeeeeeeeeeeeeee/vowels"), anyLong(),
+                any(BigInteger[].class));
+    }
+
+    /**
+     * Tests the bound on the chance of a collision that decides whether the
+     * ids of wide namespaces are looked up.
+     */
+    @Test
+    public void testIsCollisionLikely() {
+        BigInteger total = BigInteger.ONE.shiftLeft(64);
+        // (2^12)^2 / 2^65 = 2^-41
+        Assert.assertFalse(com.hida.service.MinterServiceImpl.isCollisionLikely(total, 1 << 12));
+        // (2^13)^2 / 2^65 = 2^-39
+        Assert.assertTrue(com.hida.service.MinterServiceImpl.isCollisionLikely(total, 1 << 13));
+    }
+
+    /**
+     * Tests that no name is looked up when no other setting can create the
+     * names of the current setting.
+     *
+     * @param isAuto Determines which generator, either Auto or Custom, will be
+     * used
+     * @param isRandom Determines if the PIDs are created randomly or
+     * sequentially
+     */
+    @Test(dataProvider = "mintSettings")
+    public void testMintSkipsLookupsInDisjointNamespace(boolean isAuto, boolean isRandom) {
+        DefaultSetting defaultSetting = DefaultSettingList.get(1);
+        defaultSetting.setAuto(isAuto);
+        defaultSetting.setRandom(isRandom);
+
+        // names of another prefix and length, and of the same length but other characters
+        UsedSetting longer = new UsedSetting("x", TokenType.DIGIT, "ddd", 3, true, 5);
+        longer.setId(2);
+        UsedSetting letters = new UsedSetting("", TokenType.LOWERCASE, "l", 1, true, 5);
+        letters.setId(3);
+        when(UsedSettingDao.findAllUsedSettings()).thenReturn(Arrays.asList(longer, letters));
+        doNothing().when(PidDao).savePid(any(Pid.class));
+        when(UsedSettingDao.findUsedSetting(any(UsedSetting.class))).thenReturn(null);
+
+        Set<Pid> testSet = MinterServiceImpl.mint(10, defaultSetting);
+        Assert.assertEquals(testSet.size(), 10);
+        verify(PidDao, never()).findPid(any(Pid.class));
+    }
+
+    /**
+     * Tests that names are looked up when another setting creates the same
+     * roots under another prefix, as only the roots are stored.
+     */
+    @Test
+    public void testMintLooksUpWithOtherPrefix() {
+        DefaultSetting defaultSetting = DefaultSettingList.get(1);
+        defaultSetting.setAuto(true);
+        defaultSetting.setRandom(false);
+
+        UsedSetting prefixed = new UsedSetting("x", TokenType.DIGIT, "d", 1, true, 5);
+        prefixed.setId(2);
+        when(UsedSettingDao.findAllUsedSettings()).thenReturn(Arrays.asList(prefixed));
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
+        doNothing().when(PidDao).savePid(any(Pid.class));
+        when(UsedSettingDao.findUsedSetting(any(UsedSetting.class))).thenReturn(null);
+
+        Set<Pid> testSet = MinterServiceImpl.mint(5, defaultSetting);
+        Assert.assertEquals(testSet.size(), 5);
+        verify(PidDao, atLeastOnce()).findPid(any(Pid.class));
+    }
+
+    /**
+     * Tests that names are looked up when the ordinals recorded for the
+     * setting are fewer than the Pids it created, even though no other
+     * setting overlaps.
+     */
+    @Test
+    public void testMintLooksUpWithIncompleteOrdinals() {
+        DefaultSetting defaultSetting = DefaultSettingList.get(1);
+        defaultSetting.setAuto(true);
+        defaultSetting.setRandom(false);
+
+        // five Pids were created before their ordinals were recorded
+        UsedSetting usedSetting = getSampleUsedSetting();
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
+        for (int i = 0; i < 5; i++) {
+            when(PidDao.findPid(pidNamed(String.valueOf(i)))).thenReturn(new TestPid(i));
+        }
+        doNothing().when(PidDao).savePid(any(Pid.class));
+        when(UsedSettingDao.findUsedSetting(any(UsedSetting.class))).thenReturn(usedSetting);
+
+        Set<Pid> testSet = MinterServiceImpl.mint(5, defaultSetting);
+        Set<String> names = new TreeSet<>();
+        for (Pid pid : testSet) {
+            names.add(pid.getName());
+        }
+        Assert.assertEquals(names, new TreeSet<>(Arrays.asList("5", "6", "7", "8", "9")));
+    }
+
+    /**
+     * Tests that the statuses of the UsedSettings stored before the first
+     * request are read from the database once, and that mints are counted
+     * without reading it again.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetNamespaceStatuses() throws Exception {
+        // a setting whose namespace is unknown and a custom setting that is half full
+        UsedSetting unknown = new UsedSetting("a", TokenType.DIGIT, "d", 1, true, 3);
+        unknown.setId(101);
+        UsedSetting custom = new UsedSetting("b", TokenType.DIGIT, "dd", 2, true, 50);
+        custom.setId(102);
+        custom.setUsedOrdinals(writeUsedOrdinals("custom/b/dd/sansvowels", new OrdinalBitmap()));
+        when(UsedSettingDao.findAllUsedSettings()).thenReturn(Arrays.asList(unknown, custom));
+
+        List<NamespaceMonitor.NamespaceStatus> statuses = MinterServiceImpl.getNamespaceStatuses();
+        NamespaceMonitor.NamespaceStatus status = findStatus(statuses, 101);
+        Assert.assertEquals(status.getAmount(), 3);
+        Assert.assertNull(status.getTotalPermutations());
+        Assert.assertNull(status.getFillRatio());
+
+        status = findStatus(statuses, 102);
+        Assert.assertEquals(status.getNamespace(), "custom/b/dd/sansvowels");
+        Assert.assertEquals(status.getTotalPermutations(), BigInteger.valueOf(100));
+        Assert.assertEquals(status.getFillRatio(), 0.5, 1e-9);
+        Assert.assertEquals(status.getMintRatePerHour(), 0.0);
+        Assert.assertNull(status.getProjectedExhaustion());
+
+        // mint with the auto setting of the unknown UsedSetting
+        DefaultSetting defaultSetting = new DefaultSetting("", "a", TokenType.DIGIT, "d", 1,
+                true, true, false);
+        when(PidDao.findPid(any(Pid.class))).thenReturn(null);
+        doNothing().when(PidDao).savePid(any(Pid.class));
+        when(UsedSettingDao.findUsedSetting(any(UsedSetting.class))).thenReturn(unknown);
+        MinterServiceImpl.mint(2, defaultSetting);
+
+        status = findStatus(MinterServiceImpl.getNamespaceStatuses(), 101);
+        Assert.assertEquals(status.getNamespace(), "auto/a/DIGIT/1/sansvowels");
+        Assert.assertEquals(status.getTotalPermutations(), BigInteger.valueOf(10));
+        Assert.assertEquals(status.getAmount(), 5);
+        Assert.assertEquals(status.getRemaining(), BigInteger.valueOf(5));
+        Assert.assertTrue(status.getMintRatePerHour() > 1.9, "rate " + status.getMintRatePerHour());
+        Assert.assertNotNull(status.getProjectedExhaustion());
+
+        verify(UsedSettingDao, times(1)).findAllUsedSettings();
+    }
+
+    private NamespaceMonitor.NamespaceStatus findStatus(
+            List<NamespaceMonitor.NamespaceStatus> statuses, int id) {
+        for (NamespaceMonitor.NamespaceStatus status : statuses) {
+            if (status.getId() == id) {
+                return status;
+            }
+        }
+        Assert.fail("no status for " + id);
+        return null;
+    }
+
     /**
      * Test in MinterServiceImpl that ensures that the CurrentSetting is sought
      * after.
@@ -316,6 +722,38 @@ public class MinterServiceImplTest {
         }
     }
 
+    /**
+     * Reads a stored container of used ordinals
+     *
+     * @param container The stored container
+     * @return The ordinals of the container
+     * @throws IOException
+     */
+    private OrdinalBitmap readContainer(UsedOrdinalContainer container) throws IOException {
+        OrdinalBitmap ordinals = new OrdinalBitmap();
+        ordinals.readContainer(container.getContainerKey(),
+                new DataInputStream(new ByteArrayInputStream(container.getContainer())));
+        return ordinals;
+    }
+
+    /**
+     * Serializes ordinals the way the UsedSettings of earlier versions held
+     * them
+     *
+     * @param namespace The namespace of the ordinals
+     * @param ordinals The ordinals
+     * @return the serialized ordinals
+     * @throws IOException
+     */
+    private byte[] writeUsedOrdinals(String namespace, OrdinalBitmap ordinals) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(namespace);
+            ordinals.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
     /**
      * Return a sample UsedSetting
      *
@@ -330,6 +768,21 @@ public class MinterServiceImplTest {
                 5); // amount
     }
 
+    /**
+     * Matches the Pids with the given name
+     *
+     * @param name The name of the Pids
+     * @return null, as argThat does
+     */
+    private static Pid pidNamed(final String name) {
+        return argThat(new ArgumentMatcher<Pid>() {
+            @Override
+            public boolean matches(Object argument) {
+                return argument instanceof Pid && name.equals(((Pid) argument).getName());
+            }
+        });
+    }
+
     /**
      * A test class used to create Pid
      */
@@ -344,5 +797,10 @@ public class MinterServiceImplTest {
         public boolean incrementId() {
             throw new UnsupportedOperationException("Not supported yet.");
         }
+
+        @Override
+        public int getRadix(int position) {
+            return 10;
+        }
     }
 }
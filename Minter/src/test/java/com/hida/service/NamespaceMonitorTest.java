@@ -0,0 +1,84 @@
+package com.hida.service;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * This class tests the counters kept by NamespaceMonitor.
+ *
+ * @author lruffin
+ */
+public class NamespaceMonitorTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Tests that the mint rate decays with the rate window and that the
+     * exhaustion of a setting is projected from it.
+     */
+    @Test
+    public void testMintRateAndProjectedExhaustion() {
+        NamespaceMonitor monitor = new NamespaceMonitor(HOUR);
+        monitor.recordMint(1, "setting", "auto//DIGIT/3/sansvowels",
+                BigInteger.valueOf(1000), 100, 100, 0);
+
+        NamespaceMonitor.NamespaceStatus status = monitor.getStatuses(0).get(0);
+        Assert.assertEquals(status.getMintRatePerHour(), 100.0, 1e-9);
+        Assert.assertEquals(status.getFillRatio(), 0.1, 1e-9);
+        Assert.assertEquals(status.getRemaining(), BigInteger.valueOf(900));
+        // 900 remaining ids at 100 ids an hour
+        Assert.assertEquals(status.getProjectedExhaustion(), "1970-01-01T09:00:00Z");
+
+        // a window later the rate fell to 1/e of its value
+        status = monitor.getStatuses(HOUR).get(0);
+        Assert.assertEquals(status.getMintRatePerHour(), 100 / Math.E, 1e-9);
+
+        // mints add to the decayed rate
+        monitor.recordMint(1, "setting", "auto//DIGIT/3/sansvowels",
+                BigInteger.valueOf(1000), 150, 50, HOUR);
+        status = monitor.getStatuses(HOUR).get(0);
+        Assert.assertEquals(status.getMintRatePerHour(), 100 / Math.E + 50, 1e-9);
+        Assert.assertEquals(status.getAmount(), 150);
+    }
+
+    /**
+     * Tests that loading settings doesn't override the counters of settings
+     * that were minted with before they were loaded.
+     */
+    @Test
+    public void testLoadKeepsMintedSettings() {
+        NamespaceMonitor monitor = new NamespaceMonitor(HOUR);
+        monitor.recordMint(2, "minted", "custom//dd/vowels",
+                BigInteger.valueOf(100), 10, 10, 0);
+        monitor.load(2, "minted", null, null, 5);
+        monitor.load(1, "loaded", null, null, 7);
+        monitor.setLoaded();
+        Assert.assertTrue(monitor.isLoaded());
+
+        List<NamespaceMonitor.NamespaceStatus> statuses = monitor.getStatuses(0);
+        Assert.assertEquals(statuses.size(), 2);
+        Assert.assertEquals(statuses.get(0).getId(), 1);
+        Assert.assertNull(statuses.get(0).getTotalPermutations());
+        Assert.assertNull(statuses.get(0).getProjectedExhaustion());
+        Assert.assertEquals(statuses.get(1).getAmount(), 10);
+        Assert.assertEquals(statuses.get(1).getTotalPermutations(), BigInteger.valueOf(100));
+    }
+
+    /**
+     * Tests that a full setting has no projected exhaustion.
+     */
+    @Test
+    public void testFullSetting() {
+        NamespaceMonitor monitor = new NamespaceMonitor(HOUR);
+        monitor.recordMint(1, "setting", "auto//DIGIT/1/sansvowels",
+                BigInteger.valueOf(10), 10, 10, 0);
+
+        NamespaceMonitor.NamespaceStatus status = monitor.getStatuses(0).get(0);
+        Assert.assertEquals(status.getFillRatio(), 1.0, 1e-9);
+        Assert.assertEquals(status.getRemaining(), BigInteger.valueOf(0));
+        Assert.assertNull(status.getProjectedExhaustion());
+    }
+}
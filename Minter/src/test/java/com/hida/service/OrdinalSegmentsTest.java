@@ -0,0 +1,82 @@
+package com.hida.service;
+
+import com.hida.model.AutoIdGenerator;
+import com.hida.model.CustomIdGenerator;
+import com.hida.model.OrdinalBitmap;
+import com.hida.model.TokenType;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * This class tests the functionality of OrdinalSegments.
+ *
+ * @author lruffin
+ */
+public class OrdinalSegmentsTest {
+
+    /**
+     * Tests that a segment spans the trailing positions of the root whose
+     * combinations first reach the segment size.
+     */
+    @Test
+    public void testGetSegmentLength() {
+        OrdinalSegments segments = new OrdinalSegments(50);
+        Assert.assertTrue(segments.isEnabled());
+        Assert.assertEquals(segments.getSegmentLength(
+                new AutoIdGenerator("", true, TokenType.DIGIT, 4)), 100);
+        Assert.assertEquals(segments.getSegmentLength(
+                new CustomIdGenerator("", true, "ldd")), 100);
+        Assert.assertEquals(segments.getSegmentLength(
+                new CustomIdGenerator("", true, "dl")), 20 * 10);
+        Assert.assertEquals(new OrdinalSegments(Long.MAX_VALUE).getSegmentLength(
+                new AutoIdGenerator("", false, TokenType.MIXED_EXTENDED, 12)), Long.MAX_VALUE);
+        Assert.assertFalse(new OrdinalSegments().isEnabled());
+    }
+
+    /**
+     * Tests that ordinals are drawn from the segments in ascending order,
+     * each until it is half taken, and from the whole namespace once every
+     * segment is.
+     */
+    @Test
+    public void testRandomClearFillsSegmentsInOrder() {
+        OrdinalSegments segments = new OrdinalSegments(10);
+        OrdinalBitmap used = new OrdinalBitmap();
+        Random random = new Random(6);
+        long total = 95;
+        for (int segment = 0; segment < 10; segment++) {
+            long from = segment * 10;
+            long limit = Math.min(from + 10, total);
+            long half = (limit - from + 1) / 2;
+            for (int i = 0; i < half; i++) {
+                long ordinal = segments.randomClear("test", used, random, total, 10);
+                Assert.assertTrue(ordinal >= from && ordinal < limit, "ordinal " + ordinal);
+                Assert.assertTrue(used.add(ordinal));
+            }
+        }
+        while (used.getCardinality() < total) {
+            Assert.assertTrue(used.add(segments.randomClear("test", used, random, total, 10)));
+        }
+        Assert.assertEquals(segments.randomClear("test", used, random, total, 10), -1);
+    }
+
+    /**
+     * Tests that a segment is drawn from again once it was reset and its
+     * ordinals are no longer taken.
+     */
+    @Test
+    public void testReset() {
+        OrdinalSegments segments = new OrdinalSegments(10);
+        OrdinalBitmap used = new OrdinalBitmap();
+        Random random = new Random(7);
+        for (int i = 0; i < 5; i++) {
+            used.add(segments.randomClear("test", used, random, 100, 10));
+        }
+        Assert.assertTrue(segments.randomClear("test", used, random, 100, 10) >= 10);
+
+        // the ordinals of a failed mint were forgotten
+        segments.reset("test");
+        Assert.assertTrue(segments.randomClear("test", new OrdinalBitmap(), random, 100, 10) < 10);
+    }
+}
@@ -0,0 +1,110 @@
+package com.hida.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.hida.model.Citation;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the Citations used by the benchmarks and the load driver. The
+ * Citation of row i always has the same Purl and content, so that requests
+ * can be generated without consulting the database.
+ *
+ * @author lruffin
+ */
+public final class BenchmarkData {
+
+    /**
+     * The number of rows inserted per batch while populating a database
+     */
+    private static final int BATCH_SIZE = 10000;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Returns the Purl of the given row
+     *
+     * @param row The index of the row
+     * @return the Purl
+     */
+    public static String purl(int row) {
+        return "ark:/99999/fk4" + row;
+    }
+
+    /**
+     * Returns the Citation of the given row
+     *
+     * @param row The index of the row
+     * @return the Citation
+     */
+    public static Citation citation(int row) {
+        return new Citation(purl(row),
+                "http://www.example.org/collection/item/" + row,
+                "erc: who: what: when:",
+                "Benchmark Author " + (row % 1000),
+                "Benchmark Citation " + row,
+                "2016-01-01");
+    }
+
+    /**
+     * Inserts rows 0 to rows - 1 into the Citation table with plain JDBC
+     * batches, which is far quicker than going through Hibernate. The table
+     * must already exist.
+     *
+     * @param dataSource The database to populate
+     * @param rows The number of rows to insert
+     * @throws SQLException Thrown if the rows could not be inserted
+     */
+    public static void populate(DataSource dataSource, int rows) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO CITATION_TABLE (PURL, URL, ERC, WHO, WHAT, DATE) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (int row = 0; row < rows; row++) {
+                    Citation citation = citation(row);
+                    statement.setString(1, citation.getPurl());
+                    statement.setString(2, citation.getUrl());
+                    statement.setString(3, citation.getErc());
+                    statement.setString(4, citation.getWho());
+                    statement.setString(5, citation.getWhat());
+                    statement.setString(6, citation.getDate());
+                    statement.addBatch();
+                    if ((row + 1) % BATCH_SIZE == 0) {
+                        statement.executeBatch();
+                        connection.commit();
+                    }
+                }
+                if (rows % BATCH_SIZE != 0) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Configures the resolver for benchmarking through system properties,
+     * which take precedence over purl_config.properties: snapshots, the
+     * cache warm-up and SQL logging are turned off and everything else only
+     * logs warnings, so that they do not interfere with the measurements.
+     *
+     * @param cacheCapacity The capacity of the Citation cache, 0 to disable it
+     */
+    public static void configureResolver(int cacheCapacity) {
+        System.setProperty("resolver.cache.capacity", Integer.toString(cacheCapacity));
+        System.setProperty("resolver.snapshot.file", "");
+        System.setProperty("resolver.warmup.mode", "none");
+        System.setProperty("hibernate.show_sql", "false");
+        System.setProperty("hibernate.format_sql", "false");
+
+        // Spring and Hibernate log through log4j, the resolver through logback
+        org.apache.log4j.LogManager.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+}
@@ -0,0 +1,154 @@
+package com.hida.benchmark;
+
+import com.hida.model.Citation;
+import com.hida.service.CitationCache;
+import com.hida.service.HitCounter;
+import com.hida.service.MissingPurlCache;
+import com.hida.service.SnapshotResolver;
+import com.hida.service.UrlSnapshot;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the layers that answer a request before the database is queried:
+ * the Citation cache, the cache of missing Purls, the memory-mapped snapshot
+ * and the hit counter. Every layer holds the given number of entries and is
+ * queried with Zipf distributed Purls. Run with -t to measure contention.
+ *
+ * @author lruffin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    /**
+     * The number of Purls drawn in advance by every thread
+     */
+    private static final int DRAWN_PURLS = 1 << 16;
+
+    @Param({"10000", "1000000"})
+    public int entries;
+
+    @Param({"1.0"})
+    public double exponent;
+
+    private CitationCache Cache;
+
+    private MissingPurlCache MissingPurls;
+
+    private SnapshotResolver Snapshot;
+
+    private HitCounter Hits;
+
+    private File SnapshotFile;
+
+    private ZipfGenerator Generator;
+
+    @Setup
+    public void setUp() throws IOException {
+        Cache = new CitationCache(entries);
+        MissingPurls = new MissingPurlCache(entries, 3600);
+        Hits = new HitCounter(TimeUnit.HOURS.toMillis(1), 24);
+
+        SnapshotFile = File.createTempFile("purlsnapshot", ".bin");
+        try (UrlSnapshot.Writer writer = new UrlSnapshot.Writer(SnapshotFile)) {
+            for (int row = 0; row < entries; row++) {
+                Citation citation = BenchmarkData.citation(row);
+                writer.add(citation.getPurl(), citation.getUrl());
+                Cache.put(citation);
+                MissingPurls.recordMissing(BenchmarkData.purl(entries + row));
+            }
+        }
+        Snapshot = new SnapshotResolver(SnapshotFile);
+        Snapshot.load();
+        Generator = new ZipfGenerator(entries, exponent);
+    }
+
+    @TearDown
+    public void tearDown() {
+        SnapshotFile.delete();
+    }
+
+    /**
+     * The Purls requested by a single thread
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+
+        private String[] Purls;
+
+        private String[] MissingPurls;
+
+        private int Next = 0;
+
+        @Setup
+        public void setUp(CacheBenchmark benchmark) {
+            Random random = new Random(Thread.currentThread().getId());
+            Purls = new String[DRAWN_PURLS];
+            MissingPurls = new String[DRAWN_PURLS];
+            for (int i = 0; i < DRAWN_PURLS; i++) {
+                int row = benchmark.Generator.next(random);
+                Purls[i] = BenchmarkData.purl(row);
+                MissingPurls[i] = BenchmarkData.purl(benchmark.entries + row);
+            }
+        }
+
+        private int next() {
+            Next = (Next + 1) & (DRAWN_PURLS - 1);
+            return Next;
+        }
+    }
+
+    @Benchmark
+    public Citation citationCacheHit(Requests requests) {
+        return Cache.get(requests.Purls[requests.next()]);
+    }
+
+    @Benchmark
+    public byte[] citationCacheJsonHit(Requests requests) {
+        return Cache.getJson(requests.Purls[requests.next()]);
+    }
+
+    @Benchmark
+    public Citation citationCacheMiss(Requests requests) {
+        return Cache.get(requests.MissingPurls[requests.next()]);
+    }
+
+    @Benchmark
+    public boolean missingPurlCacheHit(Requests requests) {
+        return MissingPurls.isMissing(requests.MissingPurls[requests.next()]);
+    }
+
+    @Benchmark
+    public String snapshotLookup(Requests requests) {
+        return Snapshot.lookup(requests.Purls[requests.next()]);
+    }
+
+    @Benchmark
+    public String snapshotLookupMiss(Requests requests) {
+        return Snapshot.lookup(requests.MissingPurls[requests.next()]);
+    }
+
+    @Benchmark
+    public void hitCounterRecord(Requests requests) {
+        Hits.record(requests.Purls[requests.next()]);
+    }
+}
@@ -0,0 +1,66 @@
+package com.hida.benchmark;
+
+import com.hida.model.Citation;
+import com.hida.service.CitationSerializer;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the conversion of a Citation into json. The controller's
+ * convertCitationToJson delegates to CitationSerializer.toPrettyJson, while
+ * the json endpoints use CitationSerializer.toJson. The conversion the
+ * controller used before the serializer existed is kept as a baseline.
+ *
+ * @author lruffin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CitationJsonBenchmark {
+
+    private final Citation Citation = BenchmarkData.citation(42);
+
+    @Benchmark
+    public byte[] toJson() {
+        return CitationSerializer.toJson(Citation);
+    }
+
+    @Benchmark
+    public String toPrettyJson() {
+        return CitationSerializer.toPrettyJson(Citation);
+    }
+
+    /**
+     * Builds a JsonObject, parses its string with a new ObjectMapper and
+     * prints the result, as convertCitationToJson originally did.
+     */
+    @Benchmark
+    public String legacyConvertCitationToJson() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonObject jsonObject = Json.createObjectBuilder()
+                .add("pid", Citation.getPurl())
+                .add("url", Citation.getUrl())
+                .add("erc", Citation.getErc())
+                .add("who", Citation.getWho())
+                .add("what", Citation.getWhat())
+                .add("date", Citation.getDate())
+                .build();
+        Object formattedJson = mapper.readValue(jsonObject.toString(), Object.class);
+        return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(formattedJson);
+    }
+}
@@ -0,0 +1,253 @@
+package com.hida.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+/**
+ * Starts the resolver in an embedded Tomcat on top of an in-memory database
+ * and drives concurrent /retrieve traffic against it over HTTP. The requested
+ * Purls follow a Zipf distribution, so that the caches see a realistic mix of
+ * popular and rare Purls. Once done, the throughput and latency percentiles
+ * of the measured requests are printed.
+ *
+ * Usage: LoadDriver [rows] [threads] [seconds] [exponent]
+ *
+ * @author lruffin
+ */
+public class LoadDriver {
+
+    /**
+     * The number of seconds of traffic sent before measuring, so that the JIT
+     * compiler and the caches settle
+     */
+    private static final int WARMUP_SECONDS = 10;
+
+    /**
+     * The context of the web application, set once the server was started
+     */
+    private static AnnotationConfigWebApplicationContext Application;
+
+    /**
+     * The web application: the controllers and their resolver on top of the
+     * in-memory database of the benchmarks.
+     */
+    @Configuration
+    @EnableWebMvc
+    @ComponentScan("com.hida.controller")
+    @Import(BenchmarkConfiguration.class)
+    public static class WebConfiguration {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 32;
+        int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 60;
+        double exponent = (args.length > 3) ? Double.parseDouble(args[3]) : 1.0;
+
+        BenchmarkData.configureResolver(Integer.getInteger("resolver.cache.capacity", 10000));
+        Tomcat tomcat = startServer();
+        int port = tomcat.getConnector().getLocalPort();
+        try {
+            System.out.println("Populating " + rows + " citations");
+            BenchmarkData.populate(Application.getBean(DataSource.class), rows);
+
+            System.out.println("Sending requests with " + threads + " threads for "
+                    + WARMUP_SECONDS + "s of warm-up and " + seconds + "s of measurement");
+            ZipfGenerator generator = new ZipfGenerator(rows, exponent);
+            long start = System.nanoTime();
+            long measureStart = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+            long end = measureStart + TimeUnit.SECONDS.toNanos(seconds);
+
+            List<Client> clients = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Client client = new Client(port, generator, new Random(i), measureStart, end);
+                client.start();
+                clients.add(client);
+            }
+            for (Client client : clients) {
+                client.join();
+            }
+            report(clients, seconds);
+        }
+        finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+
+    /**
+     * Starts Tomcat on a free port with a DispatcherServlet serving the
+     * resolver
+     *
+     * @return The started server
+     * @throws Exception Thrown if the server could not be started
+     */
+    private static Tomcat startServer() throws Exception {
+        File baseDir = Files.createTempDirectory("purl-load").toFile();
+        baseDir.deleteOnExit();
+
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.getAbsolutePath());
+        tomcat.setPort(0);
+        tomcat.getConnector().setAttribute("maxThreads", 200);
+
+        Application = new AnnotationConfigWebApplicationContext();
+        Application.register(WebConfiguration.class);
+        Context context = tomcat.addContext("", baseDir.getAbsolutePath());
+        Wrapper servlet = Tomcat.addServlet(context, "dispatcher", new DispatcherServlet(Application));
+        servlet.setLoadOnStartup(1);
+        context.addServletMappingDecoded("/", "dispatcher");
+
+        tomcat.start();
+        return tomcat;
+    }
+
+    /**
+     * Prints the throughput and latency percentiles of the measured requests
+     *
+     * @param clients The finished clients
+     * @param seconds The length of the measurement
+     */
+    private static void report(List<Client> clients, int seconds) {
+        int count = 0;
+        long errors = 0;
+        for (Client client : clients) {
+            count += client.Count;
+            errors += client.Errors;
+        }
+        long[] latencies = new long[count];
+        int position = 0;
+        for (Client client : clients) {
+            System.arraycopy(client.Latencies, 0, latencies, position, client.Count);
+            position += client.Count;
+        }
+        Arrays.sort(latencies);
+
+        System.out.println("requests:   " + count);
+        System.out.println("errors:     " + errors);
+        System.out.printf("throughput: %.1f requests/s%n", count / (double) seconds);
+        if (count > 0) {
+            System.out.printf("p50:        %.3f ms%n", percentile(latencies, 0.50));
+            System.out.printf("p99:        %.3f ms%n", percentile(latencies, 0.99));
+            System.out.printf("p99.9:      %.3f ms%n", percentile(latencies, 0.999));
+            System.out.printf("max:        %.3f ms%n", latencies[count - 1] / 1e6);
+        }
+    }
+
+    /**
+     * Returns the given percentile of sorted latencies
+     *
+     * @param latencies The sorted latencies in nanoseconds
+     * @param fraction The percentile as a fraction
+     * @return The percentile in milliseconds
+     */
+    private static double percentile(long[] latencies, double fraction) {
+        int index = (int) Math.ceil(fraction * latencies.length) - 1;
+        return latencies[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Sends requests one after the other over a kept-alive connection and
+     * records the latency of those sent while measuring.
+     */
+    private static class Client extends Thread {
+
+        private final int Port;
+
+        private final ZipfGenerator Generator;
+
+        private final Random Random;
+
+        private final long MeasureStart;
+
+        private final long End;
+
+        private final byte[] Buffer = new byte[8192];
+
+        private long[] Latencies = new long[1 << 16];
+
+        private int Count = 0;
+
+        private long Errors = 0;
+
+        private Client(int port, ZipfGenerator generator, Random random, long measureStart,
+                long end) {
+            this.Port = port;
+            this.Generator = generator;
+            this.Random = random;
+            this.MeasureStart = measureStart;
+            this.End = end;
+        }
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            while (now < End) {
+                String purl = BenchmarkData.purl(Generator.next(Random));
+                boolean success = send(purl);
+                long done = System.nanoTime();
+                if (now >= MeasureStart) {
+                    if (success) {
+                        if (Count == Latencies.length) {
+                            Latencies = Arrays.copyOf(Latencies, Count * 2);
+                        }
+                        Latencies[Count++] = done - now;
+                    }
+                    else {
+                        Errors++;
+                    }
+                }
+                now = done;
+            }
+        }
+
+        /**
+         * Retrieves the Citation of the given Purl and reads the response
+         * completely, so that the connection can be reused.
+         *
+         * @param purl The Purl to retrieve
+         * @return true if the Citation was retrieved
+         */
+        private boolean send(String purl) {
+            try {
+                URL url = new URL("http://localhost:" + Port + "/retrieve?purl="
+                        + URLEncoder.encode(purl, "UTF-8"));
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                int status = connection.getResponseCode();
+                try (InputStream body = (status < 400)
+                        ? connection.getInputStream()
+                        : connection.getErrorStream()) {
+                    if (body != null) {
+                        while (body.read(Buffer) != -1) {
+                            // drain the body
+                        }
+                    }
+                }
+                return status == HttpURLConnection.HTTP_OK;
+            }
+            catch (IOException exception) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.hida.benchmark;
+
+import com.hida.model.Citation;
+import com.hida.service.ResolverService;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Measures the latency of resolving Purls through the ResolverService,
+ * including its transactions, caches and the in-memory database, for tables
+ * of different sizes. The requested Purls follow a Zipf distribution whose
+ * skew is set by the exponent parameter; 0 requests every row equally often.
+ *
+ * Populating ten million rows takes a few minutes and several gigabytes of
+ * heap, so restrict the parameters while iterating, e.g. -p rows=10000.
+ *
+ * @author lruffin
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@State(Scope.Benchmark)
+public class ResolverServiceBenchmark {
+
+    /**
+     * The number of Purls drawn in advance by every thread
+     */
+    private static final int DRAWN_PURLS = 1 << 16;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    /**
+     * The capacity of the Citation cache, 0 to always query the database
+     */
+    @Param({"0", "10000"})
+    public int cacheCapacity;
+
+    @Param({"1.0"})
+    public double exponent;
+
+    private AnnotationConfigApplicationContext Context;
+
+    private ResolverService ResolverService;
+
+    private ZipfGenerator Generator;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkData.configureResolver(cacheCapacity);
+        Context = new AnnotationConfigApplicationContext(BenchmarkConfiguration.class);
+        BenchmarkData.populate(Context.getBean(DataSource.class), rows);
+        ResolverService = Context.getBean(ResolverService.class);
+        Generator = new ZipfGenerator(rows, exponent);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Context.close();
+    }
+
+    /**
+     * The Purls requested by a single thread
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+
+        private String[] Purls;
+
+        private String[] MissingPurls;
+
+        private int Next = 0;
+
+        @Setup
+        public void setUp(ResolverServiceBenchmark benchmark) {
+            Random random = new Random(Thread.currentThread().getId());
+            Purls = new String[DRAWN_PURLS];
+            MissingPurls = new String[DRAWN_PURLS];
+            for (int i = 0; i < DRAWN_PURLS; i++) {
+                int row = benchmark.Generator.next(random);
+                Purls[i] = BenchmarkData.purl(row);
+                MissingPurls[i] = BenchmarkData.purl(benchmark.rows + row);
+            }
+        }
+
+        private int next() {
+            Next = (Next + 1) & (DRAWN_PURLS - 1);
+            return Next;
+        }
+    }
+
+    @Benchmark
+    public Citation retrieveCitation(Requests requests) {
+        return ResolverService.retrieveCitation(requests.Purls[requests.next()]);
+    }
+
+    @Benchmark
+    public byte[] retrieveCitationJson(Requests requests) {
+        return ResolverService.retrieveCitationJson(requests.Purls[requests.next()]);
+    }
+
+    @Benchmark
+    public String retrieveUrl(Requests requests) {
+        return ResolverService.retrieveUrl(requests.Purls[requests.next()]);
+    }
+
+    /**
+     * Resolves Purls that do not exist, which are answered by the cache of
+     * missing Purls after their first lookup.
+     */
+    @Benchmark
+    public String retrieveMissingUrl(Requests requests) {
+        return ResolverService.retrieveUrl(requests.MissingPurls[requests.next()]);
+    }
+}
@@ -0,0 +1,64 @@
+package com.hida.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws row indexes following a Zipf distribution, where row k is chosen
+ * with a probability proportional to 1 / (k + 1)^exponent. This mimics the
+ * traffic of a resolver, where a few popular Purls receive most requests.
+ *
+ * The cumulative distribution is precomputed, so drawing a row is a binary
+ * search and the generator holds eight bytes per row.
+ *
+ * @author lruffin
+ */
+public class ZipfGenerator {
+
+    private final double[] Cumulative;
+
+    /**
+     * Creates a generator of rows between 0 and rows - 1
+     *
+     * @param rows The number of rows
+     * @param exponent The skew of the distribution, 0 for a uniform one
+     */
+    public ZipfGenerator(int rows, double exponent) {
+        Cumulative = new double[rows];
+        double sum = 0;
+        for (int i = 0; i < rows; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            Cumulative[i] = sum;
+        }
+        for (int i = 0; i < rows; i++) {
+            Cumulative[i] /= sum;
+        }
+    }
+
+    /**
+     * Draws a row. This method is safe to call from any number of threads as
+     * long as each uses its own Random.
+     *
+     * @param random The source of randomness
+     * @return The index of the row
+     */
+    public int next(Random random) {
+        int index = Arrays.binarySearch(Cumulative, random.nextDouble());
+        return Math.min(Cumulative.length - 1, (index >= 0) ? index : -index - 1);
+    }
+
+    /**
+     * Draws the given number of rows at once
+     *
+     * @param count The number of rows to draw
+     * @param random The source of randomness
+     * @return The indexes of the rows
+     */
+    public int[] next(int count, Random random) {
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = next(random);
+        }
+        return rows;
+    }
+}
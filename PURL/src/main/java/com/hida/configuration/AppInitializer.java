@@ -24,4 +24,15 @@ public class AppInitializer extends AbstractAnnotationConfigDispatcherServletIni
         return new String[]{"/"};
     }
 
+    /**
+     * Lets lookups release their container thread while they wait on the
+     * LookupQueue
+     *
+     * @return true
+     */
+    @Override
+    protected boolean isAsyncSupported() {
+        return true;
+    }
+
 }
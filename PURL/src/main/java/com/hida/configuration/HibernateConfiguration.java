@@ -58,6 +58,8 @@ public class HibernateConfiguration {
                 environment.getRequiredProperty("hibernate.format_sql"));
         properties.put("hibernate.hbm2ddl.auto", 
                 environment.getRequiredProperty("hibernate.hbm2ddl.auto"));
+        properties.put("hibernate.jdbc.batch_size", 
+                environment.getRequiredProperty("hibernate.jdbc.batch_size"));
         return properties;
     }
     
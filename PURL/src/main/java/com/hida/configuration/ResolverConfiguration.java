@@ -0,0 +1,109 @@
+package com.hida.configuration;
+
+import com.hida.service.CitationCache;
+import com.hida.service.HitCounter;
+import com.hida.service.LookupQueue;
+import com.hida.service.MissingPurlCache;
+import com.hida.service.SnapshotResolver;
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+
+/**
+ * This class is used to configure the beans that support the resolver, such
+ * as its caches.
+ *
+ * @author lruffin
+ */
+@Configuration
+@PropertySource(value = {"classpath:purl_config.properties"})
+public class ResolverConfiguration {
+
+    @Autowired
+    private Environment environment;
+
+    @Bean
+    public CitationCache citationCache() {
+        int capacity = environment.getProperty("resolver.cache.capacity", Integer.class, 10000);
+        return new CitationCache(capacity);
+    }
+
+    @Bean
+    public MissingPurlCache missingPurlCache() {
+        int capacity = environment.getProperty("resolver.missing.capacity", Integer.class, 100000);
+        long timeToLive = environment.getProperty("resolver.missing.ttl", Long.class, 60L);
+        return new MissingPurlCache(capacity, timeToLive);
+    }
+
+    /**
+     * Creates the resolver of the memory-mapped snapshot. Snapshots are
+     * disabled whenever resolver.snapshot.file is left empty.
+     *
+     * @return the snapshot resolver
+     */
+    @Bean
+    public SnapshotResolver snapshotResolver() {
+        String path = environment.getProperty("resolver.snapshot.file", "").trim();
+        return new SnapshotResolver(path.isEmpty() ? null : new File(path));
+    }
+
+    /**
+     * Creates the counter of hits per purl. Hits are counted per bucket of
+     * resolver.hits.bucket seconds and the last resolver.hits.retention
+     * buckets are kept in memory.
+     *
+     * @return the hit counter
+     */
+    @Bean
+    public HitCounter hitCounter() {
+        long bucket = environment.getProperty("resolver.hits.bucket", Long.class, 3600L);
+        int retention = environment.getProperty("resolver.hits.retention", Integer.class, 24);
+        return new HitCounter(TimeUnit.SECONDS.toMillis(bucket), retention);
+    }
+
+    /**
+     * Creates the queue of lookups that read the database.
+     * resolver.lookup.threads lookups run at a
+     * time, resolver.lookup.queueCapacity more may wait, and a request is
+     * answered with 503 once it has waited resolver.lookup.timeout
+     * milliseconds.
+     *
+     * @return the lookup queue
+     */
+    @Bean(destroyMethod = "shutdown")
+    public LookupQueue lookupQueue() {
+        int threads = environment.getProperty("resolver.lookup.threads", Integer.class, 16);
+        int capacity = environment.getProperty("resolver.lookup.queueCapacity", Integer.class, 512);
+        long timeout = environment.getProperty("resolver.lookup.timeout", Long.class, 10000L);
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "resolver.lookup.threads must be positive: " + threads);
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    "resolver.lookup.queueCapacity must not be negative: " + capacity);
+        }
+        if (timeout < 1) {
+            throw new IllegalArgumentException(
+                    "resolver.lookup.timeout must be positive: " + timeout);
+        }
+        return new LookupQueue(threads, capacity, timeout);
+    }
+
+    /**
+     * Creates the executor shared by the resolver's background tasks.
+     *
+     * @return the executor
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService resolverExecutor() {
+        int threads = environment.getProperty("resolver.executor.threads", Integer.class, 2);
+        return Executors.newScheduledThreadPool(threads);
+    }
+}
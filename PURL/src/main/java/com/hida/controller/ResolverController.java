@@ -5,20 +5,50 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 import com.hida.model.Citation;
+import com.hida.model.CitationNotFoundException;
+import com.hida.model.HitCount;
+import com.hida.model.InsertStatus;
+import com.hida.model.MalformedCitationException;
+import com.hida.model.ResolverBusyException;
+import com.hida.service.CitationReader;
+import com.hida.service.CacheWarmer;
+import com.hida.service.CitationSerializer;
+import com.hida.service.HitCounter;
+import com.hida.service.HitService;
+import com.hida.service.LookupQueue;
 import com.hida.service.ResolverService;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import javax.json.Json;
-import javax.json.JsonObject;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import javax.servlet.http.HttpServletRequest;
-import org.codehaus.jackson.map.ObjectMapper;
+import javax.servlet.http.HttpServletResponse;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.util.MinimalPrettyPrinter;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 /**
  * A controller class that paths the user to all jsp files in WEB_INF/jsp.
  *
+ * Every endpoint responds with Json written directly to the response by
+ * default. The original html views remain available by adding the parameter
+ * format=html to the request.
+ *
  * @author leland lopez
  * @author lruffin
  */
@@ -32,9 +62,65 @@ public class ResolverController {
     private static final org.slf4j.Logger Logger
             = LoggerFactory.getLogger(ResolverController.class);
 
+    /**
+     * The number of citations of a bulk insert that are inserted within a
+     * single transaction
+     */
+    private static final int INSERT_CHUNK_SIZE = 1000;
+
+    /**
+     * The encoding of every Json response
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The content type of every Json response
+     */
+    private static final MediaType JSON_CONTENT_TYPE
+            = new MediaType("application", "json", UTF_8);
+
+    /**
+     * The pre-encoded Json that designates a successful deletion
+     */
+    private static final String DELETED_JSON = "{\"result\":\"deleted\"}";
+
+    /**
+     * The pre-encoded Json returned for purls that do not exist
+     */
+    private static final byte[] NOT_FOUND_JSON
+            = "{\"status\":404,\"message\":\"purl does not exist\"}".getBytes(UTF_8);
+
+    /**
+     * The pre-encoded Json returned when a bulk delete is given a blank
+     * prefix, which would match every purl
+     */
+    private static final byte[] BLANK_PREFIX_JSON
+            = "{\"status\":400,\"message\":\"prefix must not be blank\"}".getBytes(UTF_8);
+
+    /**
+     * The pre-encoded Json returned while the queue of lookups is full
+     */
+    private static final byte[] BUSY_JSON
+            = "{\"status\":503,\"message\":\"resolver is busy\"}".getBytes(UTF_8);
+
     @Autowired
     private ResolverService ResolverService;
 
+    @Autowired
+    private HitService HitService;
+
+    @Autowired
+    private HitCounter Hits;
+
+    @Autowired
+    private CacheWarmer Warmer;
+
+    /**
+     * Runs lookups off the threads of the servlet container
+     */
+    @Autowired
+    private LookupQueue Lookups;
+
     /**
      * Maps to the home page.
      *
@@ -49,25 +135,250 @@ public class ResolverController {
     }
 
     /**
-     * matches url: /PURL/retrieve retrieves corresponding citation row of provided
+     * matches url: /PURL/metrics lists statistics of the resolver's caches, such
+     * as their hit and miss counts and the progress of their warm-up, as a
+     * single Json object.
+     *
+     * @return The encoded Json of the statistics
+     * @throws IOException Thrown by Jackson library
+     */
+    @RequestMapping(value = "/metrics", method = {RequestMethod.GET})
+    @ResponseBody
+    public ResponseEntity<byte[]> metrics() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        JsonGenerator generator = CitationSerializer.getJsonFactory()
+                .createJsonGenerator(stream, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        for (Map.Entry<String, Long> statistic : ResolverService.getStatistics().entrySet()) {
+            generator.writeNumberField(statistic.getKey(), statistic.getValue());
+        }
+        generator.writeStringField("warmup.state", Warmer.getState().name().toLowerCase());
+        for (Map.Entry<String, Long> statistic : Warmer.getStatistics().entrySet()) {
+            generator.writeNumberField(statistic.getKey(), statistic.getValue());
+        }
+        generator.writeEndObject();
+        generator.close();
+        return createJsonResponse(stream.toByteArray());
+    }
+
+    /**
+     * matches url: /PURL/hits/top lists the purls that were resolved most often
+     * since the application started. Answered from memory.
+     *
+     * @param count The maximum number of purls to list
+     * @return The encoded Json of the purls and their hits
+     * @throws IOException Thrown by Jackson library
+     */
+    @RequestMapping(value = "/hits/top", method = {RequestMethod.GET})
+    @ResponseBody
+    public ResponseEntity<byte[]> topHits(
+            @RequestParam(value = "count", defaultValue = "10") int count) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        JsonGenerator generator = CitationSerializer.getJsonFactory()
+                .createJsonGenerator(stream, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("top");
+        for (Map.Entry<String, Long> entry : Hits.getTopHits(count).entrySet()) {
+            generator.writeStartObject();
+            generator.writeStringField("purl", entry.getKey());
+            generator.writeNumberField("hits", entry.getValue());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+        return createJsonResponse(stream.toByteArray());
+    }
+
+    /**
+     * matches url: /PURL/hits lists how often the provided purl was resolved
+     * since the application started, in total and per recent time bucket.
+     * Answered from memory. Older buckets are listed by /PURL/hits/history.
+     *
+     * @param purl purl of desired row
+     * @return The encoded Json of the hits
+     * @throws IOException Thrown by Jackson library
+     */
+    @RequestMapping(value = "/hits", method = {RequestMethod.GET})
+    @ResponseBody
+    public ResponseEntity<byte[]> hits(
+            @RequestParam(value = "purl", required = true) String purl) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        JsonGenerator generator = CitationSerializer.getJsonFactory()
+                .createJsonGenerator(stream, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeStringField("purl", purl);
+        generator.writeNumberField("hits", Hits.getHits(purl));
+        generator.writeArrayFieldStart("buckets");
+        for (Map.Entry<Long, Long> bucket : Hits.getBucketHits(purl).entrySet()) {
+            writeBucket(generator, bucket.getKey(), bucket.getValue());
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+        return createJsonResponse(stream.toByteArray());
+    }
+
+    /**
+     * matches url: /PURL/hits/history lists the persisted hits of the provided
+     * purl per time bucket.
+     *
+     * @param purl purl of desired row
+     * @return The encoded Json of the hits
+     * @throws IOException Thrown by Jackson library
+     */
+    @RequestMapping(value = "/hits/history", method = {RequestMethod.GET})
+    @ResponseBody
+    public ResponseEntity<byte[]> hitHistory(
+            @RequestParam(value = "purl", required = true) String purl) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        JsonGenerator generator = CitationSerializer.getJsonFactory()
+                .createJsonGenerator(stream, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeStringField("purl", purl);
+        generator.writeArrayFieldStart("buckets");
+        for (HitCount hit : HitService.retrieveHistory(purl)) {
+            writeBucket(generator, hit.getBucket(), hit.getHits());
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+        return createJsonResponse(stream.toByteArray());
+    }
+
+    /**
+     * matches url: /PURL/resolve redirects the client to the url of the
+     * provided purl. Only the url is looked up, so that the request can be
+     * answered by the snapshot without reading the database. Purls held in
+     * memory are answered right away; only lookups that read the database are
+     * queued on the LookupQueue.
+     *
+     * @param purl purl of desired resolved row
+     * @return The redirect to the url, or the queued lookup of the database
+     * which redirects to the url or answers 404 if the purl doesn't exist
+     * @throws CitationNotFoundException Thrown if the purl is known to be
+     * missing
+     * @throws ResolverBusyException Thrown if too many lookups are queued
+     */
+    @RequestMapping(value = "/resolve", method = {RequestMethod.GET})
+    public Object resolve(@RequestParam(value = "purl", required = true) final String purl) {
+        String url = ResolverService.lookupUrl(purl);
+        if (url != null) {
+            return createRedirect(purl, url);
+        }
+        rejectMissing(purl);
+        return Lookups.submit(new Callable<ResponseEntity<Void>>() {
+            @Override
+            public ResponseEntity<Void> call() {
+                String loaded = ResolverService.loadUrl(purl);
+                if (loaded == null) {
+                    throw new CitationNotFoundException(purl);
+                }
+                return createRedirect(purl, loaded);
+            }
+        });
+    }
+
+    /**
+     * matches url: /PURL/retrieve retrieves corresponding citation row of
+     * provided purl and writes its Json directly to the response. The Json of
+     * cached citations is written without being serialized again, right away;
+     * only lookups that read the database are queued on the LookupQueue.
+     *
+     * @param purl purl of desired retrieved row
+     * @return The encoded Json of the citation, or the queued lookup of the
+     * database which returns it or answers 404 if it doesn't exist
+     * @throws CitationNotFoundException Thrown if the purl is known to be
+     * missing
+     * @throws ResolverBusyException Thrown if too many lookups are queued
+     */
+    @RequestMapping("/retrieve")
+    @ResponseBody
+    public Object retrieveJson(@RequestParam(value = "purl", required = true) final String purl) {
+        if (Logger.isInfoEnabled()) {
+            Logger.info("Retrieve was Called");
+        }
+        byte[] json = ResolverService.lookupCitationJson(purl);
+        if (json != null) {
+            Hits.record(purl);
+            return createJsonResponse(json);
+        }
+        rejectMissing(purl);
+        return Lookups.submit(new Callable<ResponseEntity<byte[]>>() {
+            @Override
+            public ResponseEntity<byte[]> call() {
+                byte[] loaded = ResolverService.loadCitationJson(purl);
+                if (loaded == null) {
+                    throw new CitationNotFoundException(purl);
+                }
+                Hits.record(purl);
+                return createJsonResponse(loaded);
+            }
+        });
+    }
+
+    /**
+     * matches url: /PURL/retrieve?format=html retrieves corresponding citation row of provided
      * citation returns model - purl and view : retrieve if successful returns
-     * model - null if not
+     * model - null if not. Cached citations are answered right away; only
+     * lookups that read the database are queued on the LookupQueue.
      *
      * @param purl purl of desired retrieved row
-     * @return ModelAndView Holds resulting Model and view information
+     * @return The resulting Model and view information, or the queued lookup
+     * of the database which holds them
      * @throws IOException Thrown by Jackson library
+     * @throws CitationNotFoundException Thrown if the purl is known to be
+     * missing
+     * @throws ResolverBusyException Thrown if too many lookups are queued
      */
-    @RequestMapping("/retrieve")
-    public ModelAndView retrieve(@RequestParam(value = "purl", required = true) String purl)
+    @RequestMapping(value = "/retrieve", params = "format=html")
+    public Object retrieve(@RequestParam(value = "purl", required = true) final String purl)
             throws IOException {
         if (Logger.isInfoEnabled()) {
             Logger.info("Retrieve was Called");
         }
-        // retrieve citation jsonString
-        Citation citation = ResolverService.retrieveCitation(purl);
+        Citation citation = ResolverService.lookupCitation(purl);
+        if (citation != null) {
+            return createResultView(citation);
+        }
+        rejectMissing(purl);
+        return Lookups.submit(new Callable<ModelAndView>() {
+            @Override
+            public ModelAndView call() throws IOException {
+                // retrieve citation jsonString
+                Citation loaded = ResolverService.loadCitation(purl);
+                if (loaded == null) {
+                    throw new CitationNotFoundException(purl);
+                }
+                return createResultView(loaded);
+            }
+        });
+    }
 
+    /**
+     * Records a hit of the given purl and redirects the client to its url
+     *
+     * @param purl purl of the resolved row
+     * @param url url of the resolved row
+     * @return the redirect
+     */
+    private ResponseEntity<Void> createRedirect(String purl, String url) {
+        Hits.record(purl);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Location", url);
+        return new ResponseEntity<>(headers, HttpStatus.FOUND);
+    }
+
+    /**
+     * Creates the view of a retrieved citation
+     *
+     * @param citation the retrieved citation
+     * @return the result view holding the Json of the citation
+     * @throws IOException Thrown by Jackson library
+     */
+    private ModelAndView createResultView(Citation citation) throws IOException {
         // show retrieve view, attach citation jsonString.  converted to json at view.
-        String jsonString = this.convertCitationToJson(citation);
+        String jsonString = convertCitationToJson(citation);
         ModelAndView mv = new ModelAndView("result", "message", jsonString);
 
         Logger.info("Retrieve returned: " + null);
@@ -75,7 +386,89 @@ public class ResolverController {
     }
 
     /**
-     * matches url: /PURL/edit edit Citation row url, with provided url returns
+     * Answers purls known to be missing with 404 without queueing a lookup
+     *
+     * @param purl purl of the requested row
+     * @throws CitationNotFoundException Thrown if the purl is known to be
+     * missing
+     */
+    private void rejectMissing(String purl) {
+        if (ResolverService.isMissing(purl)) {
+            throw new CitationNotFoundException(purl);
+        }
+    }
+
+    /**
+     * matches url: /PURL/retrieve/batch retrieves the citations of every purl
+     * contained in the request body, given as a json array of strings. Purls
+     * that do not belong to any citation are listed under "missing" instead of
+     * failing the whole request. The Json is streamed into the response as it
+     * is generated rather than buffered first.
+     *
+     * @param purls purls of desired retrieved rows
+     * @param response HTTP response the found citations and missing purls are
+     * written to
+     * @throws IOException Thrown by Jackson library or whenever the response
+     * could not be written
+     */
+    @RequestMapping(value = "/retrieve/batch", method = {RequestMethod.POST})
+    public void retrieveBatch(@RequestBody List<String> purls, HttpServletResponse response)
+            throws IOException {
+        if (Logger.isInfoEnabled()) {
+            Logger.info("Retrieve Batch was Called with " + purls.size() + " purls");
+        }
+        // retrieve every citation that exists
+        Map<String, Citation> citations = ResolverService.retrieveCitations(purls);
+
+        // list the found citations and the purls that could not be found
+        response.setContentType(JSON_CONTENT_TYPE.toString());
+        JsonGenerator generator = CitationSerializer.getJsonFactory()
+                .createJsonGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("citations");
+        for (String purl : purls) {
+            Citation citation = citations.get(purl);
+            if (citation != null) {
+                CitationSerializer.writeCitation(generator, citation);
+            }
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("missing");
+        for (String purl : purls) {
+            if (!citations.containsKey(purl)) {
+                generator.writeString(purl);
+            }
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.flush();
+
+        Logger.info("Retrieve Batch returned " + citations.size() + " citations");
+    }
+
+    /**
+     * matches url: /PURL/edit edit Citation row url, with provided url and
+     * writes the edited citation's Json directly to the response.
+     *
+     * @param purl purl of desired edited row
+     * @param url The url that the desired Citation will have
+     * @return The encoded Json of the edited citation
+     */
+    @RequestMapping("/edit")
+    @ResponseBody
+    public ResponseEntity<byte[]> editJson(
+            @RequestParam(value = "purlid", required = true) String purl,
+            @RequestParam(value = "url", required = true) String url) {
+        if (Logger.isInfoEnabled()) {
+            Logger.info("Edit was Called");
+        }
+        // edit the purl and then retrieve its entire contents
+        ResolverService.editUrl(purl, url);
+        return createJsonResponse(ResolverService.retrieveCitationJson(purl));
+    }
+
+    /**
+     * matches url: /PURL/edit?format=html edit Citation row url, with provided url returns
      * model : Citation and view : edit if successful returns model : null if not
      *
      * @param purl purl of desired edited row
@@ -83,7 +476,7 @@ public class ResolverController {
      * @return ModelAndView Holds resulting Model and view information
      * @throws IOException Thrown by Jackson library
      */
-    @RequestMapping("/edit")
+    @RequestMapping(value = "/edit", params = "format=html")
     public ModelAndView edit(@RequestParam(value = "purlid", required = true) String purl,
             @RequestParam(value = "url", required = true) String url) throws IOException {
         if (Logger.isInfoEnabled()) {
@@ -104,6 +497,36 @@ public class ResolverController {
 
     /**
      * matches url: /PURL/insert inserts Citation url, erc, who, what, when to
+     * new row of table and writes the inserted citation's Json directly to the
+     * response.
+     *
+     * @param purl Citation to be inserted
+     * @param url url to be inserted
+     * @param erc erc to be inserted
+     * @param who who to be inserted
+     * @param what what to be inserted
+     * @param when when to be insertd
+     * @return The encoded Json of the inserted citation
+     */
+    @RequestMapping("/insert")
+    @ResponseBody
+    public ResponseEntity<byte[]> insertJson(
+            @RequestParam(value = "purlid", required = true) String purl,
+            @RequestParam(value = "url", required = true) String url,
+            @RequestParam(value = "erc", required = true) String erc,
+            @RequestParam(value = "who", required = true) String who,
+            @RequestParam(value = "what", required = true) String what,
+            @RequestParam(value = "when", required = true) String when) {
+        if (Logger.isInfoEnabled()) {
+            Logger.info("Insert was Called");
+        }
+        Citation citation = new Citation(purl, url, erc, who, what, when);
+        ResolverService.insertCitation(citation);
+        return createJsonResponse(CitationSerializer.toJson(citation));
+    }
+
+    /**
+     * matches url: /PURL/insert?format=html inserts Citation url, erc, who, what, when to
      * new row of table returns model : Citation and view : insert if successful
      * returns model : null if not
      *
@@ -116,7 +539,7 @@ public class ResolverController {
      * @return ModelAndView Holds resulting Model and view information
      * @throws IOException Thrown by Jackson library
      */
-    @RequestMapping("/insert")
+    @RequestMapping(value = "/insert", params = "format=html")
     public ModelAndView insert(@RequestParam(value = "purlid", required = true) String purl,
             @RequestParam(value = "url", required = true) String url,
             @RequestParam(value = "erc", required = true) String erc,
@@ -142,22 +565,231 @@ public class ResolverController {
 
     }
 
+    /**
+     * matches url: /PURL/insert/batch inserts every citation contained in the
+     * request body. The body is read incrementally as CSV when the content
+     * type is text/csv and as newline-delimited Json otherwise (see
+     * CitationReader). Citations are inserted in chunks, each within its own
+     * transaction, and the outcome of every line is streamed back as
+     * newline-delimited Json followed by a summary, so memory use does not
+     * depend on the size of the body.
+     *
+     * @param request HTTP request whose body contains the citations
+     * @param response HTTP response the outcomes are written to
+     * @throws IOException Thrown whenever the body could not be read or the
+     * response could not be written
+     */
+    @RequestMapping(value = "/insert/batch", method = {RequestMethod.POST})
+    public void insertBatch(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (Logger.isInfoEnabled()) {
+            Logger.info("Insert Batch was Called");
+        }
+        String contentType = request.getContentType();
+        CitationReader.Format format = (contentType != null && contentType.startsWith("text/csv"))
+                ? CitationReader.Format.CSV
+                : CitationReader.Format.NDJSON;
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding("UTF-8");
+        }
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        JsonGenerator generator = CitationSerializer.getJsonFactory()
+                .createJsonGenerator(response.getWriter());
+        generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+
+        Map<InsertStatus, Long> summary = new EnumMap<>(InsertStatus.class);
+        for (InsertStatus status : InsertStatus.values()) {
+            summary.put(status, 0L);
+        }
+
+        List<Citation> chunk = new ArrayList<>(INSERT_CHUNK_SIZE);
+        List<Long> lineNumbers = new ArrayList<>(INSERT_CHUNK_SIZE);
+        try (CitationReader reader = new CitationReader(request.getReader(), format)) {
+            while (true) {
+                Citation citation;
+                try {
+                    citation = reader.read();
+                }
+                catch (MalformedCitationException exception) {
+                    writeInsertOutcome(generator, exception.getLineNumber(), null,
+                            InsertStatus.INVALID, exception.getMessage(), summary);
+                    continue;
+                }
+                if (citation == null) {
+                    break;
+                }
+
+                chunk.add(citation);
+                lineNumbers.add(reader.getLineNumber());
+                if (chunk.size() == INSERT_CHUNK_SIZE) {
+                    insertChunk(generator, chunk, lineNumbers, summary);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                insertChunk(generator, chunk, lineNumbers, summary);
+            }
+        }
+
+        // finish with a summary of all the outcomes
+        generator.writeStartObject();
+        generator.writeObjectFieldStart("summary");
+        for (Map.Entry<InsertStatus, Long> entry : summary.entrySet()) {
+            generator.writeNumberField(entry.getKey().name().toLowerCase(), entry.getValue());
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+        generator.flush();
+
+        Logger.info("Insert Batch returned: " + summary);
+    }
+
+    /**
+     * Inserts a chunk of citations and writes the outcome of each citation.
+     * If the chunk is rejected by the database, every citation in it is
+     * reported as failed. The chunk is emptied afterwards.
+     *
+     * @param generator Generator used to write the outcomes
+     * @param chunk Citations to insert
+     * @param lineNumbers The line each citation was read from
+     * @param summary Running count of each outcome
+     * @throws IOException Thrown whenever the response could not be written
+     */
+    private void insertChunk(JsonGenerator generator, List<Citation> chunk,
+            List<Long> lineNumbers, Map<InsertStatus, Long> summary) throws IOException {
+        List<InsertStatus> statuses;
+        String message = null;
+        try {
+            statuses = ResolverService.insertCitations(chunk);
+        }
+        catch (RuntimeException exception) {
+            Logger.error("Insert Batch chunk failed: " + exception.getMessage());
+            statuses = Collections.nCopies(chunk.size(), InsertStatus.FAILED);
+            message = exception.getMessage();
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            writeInsertOutcome(generator, lineNumbers.get(i), chunk.get(i).getPurl(),
+                    statuses.get(i), message, summary);
+        }
+        generator.flush();
+
+        chunk.clear();
+        lineNumbers.clear();
+    }
+
+    /**
+     * Writes the outcome of a single line of a bulk insert as a Json object
+     * on its own line and counts it towards the summary.
+     *
+     * @param generator Generator used to write the outcome
+     * @param lineNumber The line of the request body
+     * @param purl The purl of the citation, may be null
+     * @param status The outcome of the line
+     * @param message Reason of the outcome, may be null
+     * @param summary Running count of each outcome
+     * @throws IOException Thrown whenever the response could not be written
+     */
+    private void writeInsertOutcome(JsonGenerator generator, long lineNumber, String purl,
+            InsertStatus status, String message, Map<InsertStatus, Long> summary)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("line", lineNumber);
+        if (purl != null) {
+            generator.writeStringField("pid", purl);
+        }
+        generator.writeStringField("result", status.name().toLowerCase());
+        if (message != null) {
+            generator.writeStringField("message", message);
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+
+        summary.put(status, summary.get(status) + 1);
+    }
+
     /**
      * matches url: /PURL/delete deletes row of table with corresponding purl
+     * and writes Json that designates success directly to the response.
+     *
+     * @param purl purl of desired deleted row
+     * @return The encoded Json that designates success
+     */
+    @RequestMapping("/delete")
+    @ResponseBody
+    public ResponseEntity<byte[]> deleteJson(
+            @RequestParam(value = "purl", required = true) String purl) {
+        if (Logger.isInfoEnabled()) {
+            Logger.info("Delete was Called");
+        }
+        ResolverService.deleteCitation(purl);
+        return createJsonResponse(DELETED_JSON.getBytes(UTF_8));
+    }
+
+    /**
+     * matches url: /PURL/delete/prefix deletes every row of table whose purl
+     * starts with the provided prefix and writes the number of deleted rows
+     * directly to the response. A blank prefix is rejected with a 400 status
+     * since it would delete every row.
+     *
+     * @param prefix prefix shared by the desired deleted rows
+     * @return The encoded Json holding the number of deleted rows
+     */
+    @RequestMapping(value = "/delete/prefix", method = {RequestMethod.POST})
+    @ResponseBody
+    public ResponseEntity<byte[]> deleteByPrefix(
+            @RequestParam(value = "prefix", required = true) String prefix) {
+        Logger.info("Delete by Prefix was Called with " + prefix);
+        if (prefix.trim().isEmpty()) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(JSON_CONTENT_TYPE);
+            return new ResponseEntity<>(BLANK_PREFIX_JSON, headers, HttpStatus.BAD_REQUEST);
+        }
+        int deleted = ResolverService.deleteCitationsByPrefix(prefix);
+
+        Logger.info("Delete by Prefix removed " + deleted + " citations");
+        return createDeletedCountResponse(deleted);
+    }
+
+    /**
+     * matches url: /PURL/delete/range deletes every row of table whose purl
+     * lies within the provided range and writes the number of deleted rows
+     * directly to the response.
+     *
+     * @param from first purl of the range, inclusive
+     * @param to last purl of the range, exclusive
+     * @return The encoded Json holding the number of deleted rows
+     */
+    @RequestMapping(value = "/delete/range", method = {RequestMethod.POST})
+    @ResponseBody
+    public ResponseEntity<byte[]> deleteInRange(
+            @RequestParam(value = "from", required = true) String from,
+            @RequestParam(value = "to", required = true) String to) {
+        Logger.info("Delete in Range was Called with " + from + " to " + to);
+        int deleted = ResolverService.deleteCitationsInRange(from, to);
+
+        Logger.info("Delete in Range removed " + deleted + " citations");
+        return createDeletedCountResponse(deleted);
+    }
+
+    /**
+     * matches url: /PURL/delete?format=html deletes row of table with corresponding purl
      * returns view : deleted if successful returns model : null if not
      *
      * @param purl purl of desired deleted row
      * @return ModelAndView Holds resulting Model and view information
      * @throws IOException Thrown by Jackson library
      */
-    @RequestMapping("/delete")
+    @RequestMapping(value = "/delete", params = "format=html")
     public ModelAndView delete(@RequestParam(value = "purl", required = true) String purl)
             throws IOException {
         if (Logger.isInfoEnabled()) {
             Logger.info("Insert was Called");
         }
         // create json jsonString that designates success
-        final String resultJson = "{\"result\":\"deleted\"}";
+        final String resultJson = DELETED_JSON;
 
         // delete Citation
         ResolverService.deleteCitation(purl);
@@ -170,6 +802,40 @@ public class ResolverController {
         return mv;
     }
 
+    /**
+     * Handles requests for purls that do not exist. Unlike general errors, no
+     * stack trace or view is involved; a small Json body is returned instead.
+     *
+     * @param exception Exception that names the missing purl
+     * @return The encoded Json of the error with a 404 status
+     */
+    @ExceptionHandler(CitationNotFoundException.class)
+    @ResponseBody
+    public ResponseEntity<byte[]> handleCitationNotFound(CitationNotFoundException exception) {
+        if (Logger.isDebugEnabled()) {
+            Logger.debug("Citation not found: " + exception.getPurl());
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(JSON_CONTENT_TYPE);
+        return new ResponseEntity<>(NOT_FOUND_JSON, headers, HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Handles lookups that are turned away while the queue of lookups is full
+     * with a small Json body, so that clients know to retry later.
+     *
+     * @param exception Exception that explains how full the queue is
+     * @return The encoded Json of the error with a 503 status
+     */
+    @ExceptionHandler(ResolverBusyException.class)
+    @ResponseBody
+    public ResponseEntity<byte[]> handleBusy(ResolverBusyException exception) {
+        Logger.warn(exception.getMessage());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(JSON_CONTENT_TYPE);
+        return new ResponseEntity<>(BUSY_JSON, headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * Throws any exception that may be caught within the program
      *
@@ -186,12 +852,12 @@ public class ResolverController {
         Logger.error("General Error: " + exception.getMessage());
 
         StackTraceElement[] trace = exception.getStackTrace();
-        String error = "";
+        StringBuilder error = new StringBuilder();
         for (StackTraceElement element : trace) {
-            error += element.toString() + "\n";
+            error.append(element.toString()).append('\n');
         }
 
-        mav.addObject("stacktrace", error);
+        mav.addObject("stacktrace", error.toString());
 
         mav.setViewName("error");
         return mav;
@@ -205,27 +871,46 @@ public class ResolverController {
      * @throws IOException Thrown by Jackson's IO framework
      */
     private String convertCitationToJson(Citation citation) throws IOException {
+        return CitationSerializer.toPrettyJson(citation);
+    }
 
-        // Jackson objects to format JSON strings
-        String jsonString;
-        ObjectMapper mapper = new ObjectMapper();
-        Object formattedJson;
-
-        // create json jsonString
-        JsonObject jsonObject = Json.createObjectBuilder()
-                .add("pid", citation.getPurl())
-                .add("url", citation.getUrl())
-                .add("erc", citation.getErc())
-                .add("who", citation.getWho())
-                .add("what", citation.getWhat())
-                .add("date", citation.getDate())
-                .build();
-
-        // format json object
-        formattedJson = mapper.readValue(jsonObject.toString(), Object.class);
-        jsonString = mapper.writerWithDefaultPrettyPrinter().
-                writeValueAsString(formattedJson);
-
-        return jsonString;
+    /**
+     * Writes the hits of a single time bucket as a Json object
+     *
+     * @param generator The generator to write to
+     * @param start The start of the bucket in milliseconds since the epoch
+     * @param hits The hits within the bucket
+     * @throws IOException Thrown by Jackson library
+     */
+    private void writeBucket(JsonGenerator generator, long start, long hits)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("start", start);
+        generator.writeNumberField("hits", hits);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Creates a Json response holding the number of deleted rows
+     *
+     * @param deleted the number of deleted rows
+     * @return The response holding the Json
+     */
+    private ResponseEntity<byte[]> createDeletedCountResponse(int deleted) {
+        return createJsonResponse(("{\"deleted\":" + deleted + "}").getBytes(UTF_8));
+    }
+
+    /**
+     * Wraps already encoded Json into a response so that it is written to the
+     * client as is.
+     *
+     * @param json UTF-8 encoded Json
+     * @return The response holding the Json
+     */
+    private ResponseEntity<byte[]> createJsonResponse(byte[] json) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(JSON_CONTENT_TYPE);
+        headers.setContentLength(json.length);
+        return new ResponseEntity<>(json, headers, HttpStatus.OK);
     }
 }
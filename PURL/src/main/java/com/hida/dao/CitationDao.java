@@ -1,6 +1,9 @@
 package com.hida.dao;
 
 import com.hida.model.Citation;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This class is used to define the possible operations that Hibernate can
@@ -12,7 +15,25 @@ public interface CitationDao {
 
     public Citation findByPurl(String identifier);
 
+    public List<Citation> findByPurls(Collection<String> identifiers);
+
+    public Map<String, String> findUrlsAfter(String identifier, int limit);
+
+    public List<Citation> findCitationsAfter(String identifier, int limit);
+
+    public long countPurls();
+
     public void savePurl(Citation purl);
 
+    public void savePurls(List<Citation> purls);
+
+    public int updateUrl(String identifier, String url);
+
+    public int deleteByPurl(String identifier);
+
+    public int deleteByPrefix(String prefix);
+
+    public int deleteInRange(String from, String to);
+
     public void deletePurl(Citation purl);
 }
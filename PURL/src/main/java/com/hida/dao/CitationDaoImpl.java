@@ -1,6 +1,15 @@
 package com.hida.dao;
 
 import com.hida.model.Citation;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.Criteria;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -11,6 +20,12 @@ import org.springframework.stereotype.Repository;
 @Repository("citationDao")
 public class CitationDaoImpl extends AbstractDao<String, Citation> implements CitationDao {
 
+    /**
+     * The maximum number of identifiers placed in a single IN clause. Larger
+     * requests are split into several queries to keep statements small.
+     */
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
     /**
      * Attempts to find a Citation by its identifier.
      *
@@ -22,6 +37,113 @@ public class CitationDaoImpl extends AbstractDao<String, Citation> implements Ci
         return this.getByKey(identifier);
     }
 
+    /**
+     * Attempts to find every Citation whose identifier is contained in the
+     * given collection. The identifiers are queried in chunks so that only a
+     * handful of statements are issued no matter how large the collection is.
+     * Identifiers that do not match a Citation are simply absent from the
+     * result.
+     *
+     * @param identifiers Unique names of the sought-after Citations
+     * @return The list of Citations that were found, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Citation> findByPurls(Collection<String> identifiers) {
+        List<Citation> citations = new ArrayList<>(identifiers.size());
+        List<String> chunk = new ArrayList<>(IN_CLAUSE_CHUNK_SIZE);
+        for (String identifier : identifiers) {
+            chunk.add(identifier);
+            if (chunk.size() == IN_CLAUSE_CHUNK_SIZE) {
+                citations.addAll(findChunk(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            citations.addAll(findChunk(chunk));
+        }
+        return citations;
+    }
+
+    /**
+     * Retrieves the Citations of a single chunk of identifiers using one IN
+     * query.
+     *
+     * @param chunk Identifiers no larger than IN_CLAUSE_CHUNK_SIZE
+     * @return The Citations that were found
+     */
+    @SuppressWarnings("unchecked")
+    private List<Citation> findChunk(List<String> chunk) {
+        Criteria criteria = createEntityCriteria();
+        criteria.add(Restrictions.in("Purl", chunk));
+        return (List<Citation>) criteria.list();
+    }
+
+    /**
+     * Retrieves the urls of the Citations that follow the given identifier,
+     * ordered by identifier. Only the identifier and url columns are selected
+     * and no entities are loaded, so the whole table can be paged through
+     * without growing the session.
+     *
+     * @param identifier The identifier after which to start, or null to start
+     * at the beginning of the table
+     * @param limit The maximum number of urls to retrieve
+     * @return Map of identifiers to urls, in ascending order of identifier
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, String> findUrlsAfter(String identifier, int limit) {
+        Criteria criteria = createEntityCriteria();
+        if (identifier != null) {
+            criteria.add(Restrictions.gt("Purl", identifier));
+        }
+        criteria.setProjection(Projections.projectionList()
+                .add(Projections.property("Purl"))
+                .add(Projections.property("Url")));
+        criteria.addOrder(Order.asc("Purl"));
+        criteria.setMaxResults(limit);
+
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (Object[] row : (List<Object[]>) criteria.list()) {
+            urls.put((String) row[0], (String) row[1]);
+        }
+        return urls;
+    }
+
+    /**
+     * Retrieves the Citations that follow the given identifier, ordered by
+     * identifier.
+     *
+     * @param identifier The identifier after which to start, or null to start
+     * at the beginning of the table
+     * @param limit The maximum number of Citations to retrieve
+     * @return The Citations, in ascending order of identifier
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Citation> findCitationsAfter(String identifier, int limit) {
+        Criteria criteria = createEntityCriteria();
+        if (identifier != null) {
+            criteria.add(Restrictions.gt("Purl", identifier));
+        }
+        criteria.addOrder(Order.asc("Purl"));
+        criteria.setMaxResults(limit);
+        criteria.setReadOnly(true);
+        return (List<Citation>) criteria.list();
+    }
+
+    /**
+     * Counts every Citation.
+     *
+     * @return The number of Citations
+     */
+    @Override
+    public long countPurls() {
+        Criteria criteria = createEntityCriteria();
+        criteria.setProjection(Projections.rowCount());
+        return (Long) criteria.uniqueResult();
+    }
+
     /**
      * Attempts to save the given Citation.
      *
@@ -32,6 +154,88 @@ public class CitationDaoImpl extends AbstractDao<String, Citation> implements Ci
         this.persist(citation);
     }
 
+    /**
+     * Attempts to save every given Citation in a single flush. The inserts are
+     * sent to the database in JDBC batches (see hibernate.jdbc.batch_size) and
+     * the session is cleared afterwards so that its memory does not grow with
+     * the number of saved Citations.
+     *
+     * @param citations Entities that hold referential information
+     */
+    @Override
+    public void savePurls(List<Citation> citations) {
+        for (Citation citation : citations) {
+            this.persist(citation);
+        }
+        getSession().flush();
+        getSession().clear();
+    }
+
+    /**
+     * Replaces the url of the Citation with the given identifier using a
+     * single UPDATE statement, without loading the Citation.
+     *
+     * @param identifier Unique name of the Citation
+     * @param url The new url
+     * @return The number of updated Citations, 0 if the identifier is unknown
+     */
+    @Override
+    public int updateUrl(String identifier, String url) {
+        return getSession()
+                .createQuery("update Citation set Url = :url where Purl = :purl")
+                .setString("url", url)
+                .setString("purl", identifier)
+                .executeUpdate();
+    }
+
+    /**
+     * Deletes the Citation with the given identifier using a single DELETE
+     * statement, without loading the Citation.
+     *
+     * @param identifier Unique name of the Citation
+     * @return The number of deleted Citations, 0 if the identifier is unknown
+     */
+    @Override
+    public int deleteByPurl(String identifier) {
+        return getSession()
+                .createQuery("delete from Citation where Purl = :purl")
+                .setString("purl", identifier)
+                .executeUpdate();
+    }
+
+    /**
+     * Deletes every Citation whose identifier starts with the given prefix
+     * using a single DELETE statement. No identifiers or entities are loaded.
+     *
+     * @param prefix The prefix shared by the identifiers to delete
+     * @return The number of deleted Citations
+     */
+    @Override
+    public int deleteByPrefix(String prefix) {
+        String pattern = prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        return getSession()
+                .createQuery("delete from Citation c where c.Purl like :pattern escape '!'")
+                .setString("pattern", pattern)
+                .executeUpdate();
+    }
+
+    /**
+     * Deletes every Citation within the given range using a single DELETE
+     * statement. No identifiers or entities are loaded.
+     *
+     * @param from The first identifier of the range, inclusive
+     * @param to The last identifier of the range, exclusive
+     * @return The number of deleted Citations
+     */
+    @Override
+    public int deleteInRange(String from, String to) {
+        return getSession()
+                .createQuery("delete from Citation c where c.Purl >= :from and c.Purl < :to")
+                .setString("from", from)
+                .setString("to", to)
+                .executeUpdate();
+    }
+
     /**
      * Attempts to delete the given purl.
      *
@@ -0,0 +1,19 @@
+package com.hida.dao;
+
+import com.hida.model.HitCount;
+import java.util.List;
+
+/**
+ * This class is used to define the possible operations that Hibernate can
+ perform on HitCount objects
+ *
+ * @author lruffin
+ */
+public interface HitCountDao {
+
+    public void mergeHits(List<HitCount> hits);
+
+    public List<HitCount> findByPurl(String purl);
+
+    public List<String> findTopPurls(int limit);
+}
@@ -0,0 +1,92 @@
+package com.hida.dao;
+
+import com.hida.model.HitCount;
+import com.hida.model.HitCountId;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import org.hibernate.Criteria;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.jdbc.Work;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Programmatic implementation of HitCountDao
+ *
+ * @author lruffin
+ */
+@Repository("hitCountDao")
+public class HitCountDaoImpl extends AbstractDao<HitCountId, HitCount> implements HitCountDao {
+
+    /**
+     * Adds the hits of a bucket to its row, creating the row if it doesn't
+     * exist yet
+     */
+    private static final String MERGE_HITS
+            = "MERGE INTO HIT_COUNT h "
+            + "USING (VALUES(CAST(? AS VARCHAR(255)), CAST(? AS BIGINT), CAST(? AS BIGINT))) "
+            + "AS v(PURL, BUCKET, HITS) "
+            + "ON h.PURL = v.PURL AND h.BUCKET = v.BUCKET "
+            + "WHEN MATCHED THEN UPDATE SET h.HITS = h.HITS + v.HITS "
+            + "WHEN NOT MATCHED THEN INSERT (PURL, BUCKET, HITS) VALUES (v.PURL, v.BUCKET, v.HITS)";
+
+    /**
+     * Adds the given hits to the persisted hits of their buckets using a single
+     * batched MERGE statement.
+     *
+     * @param hits The hits to add, at most one per Purl and bucket
+     */
+    @Override
+    public void mergeHits(final List<HitCount> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        getSession().doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                try (PreparedStatement statement = connection.prepareStatement(MERGE_HITS)) {
+                    for (HitCount hit : hits) {
+                        statement.setString(1, hit.getPurl());
+                        statement.setLong(2, hit.getBucket());
+                        statement.setLong(3, hit.getHits());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            }
+        });
+    }
+
+    /**
+     * Retrieves the Purls with the most persisted hits across all buckets.
+     *
+     * @param limit The maximum number of Purls to retrieve
+     * @return The Purls, in descending order of hits
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<String> findTopPurls(int limit) {
+        return (List<String>) getSession()
+                .createQuery("select h.Id.Purl from HitCount h "
+                        + "group by h.Id.Purl order by sum(h.Hits) desc")
+                .setMaxResults(limit)
+                .list();
+    }
+
+    /**
+     * Retrieves the persisted hits of every bucket of the given Purl.
+     *
+     * @param purl Unique identifier of a Citation
+     * @return The hits, ordered by bucket
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<HitCount> findByPurl(String purl) {
+        Criteria criteria = createEntityCriteria();
+        criteria.add(Restrictions.eq("Id.Purl", purl));
+        criteria.addOrder(Order.asc("Id.Bucket"));
+        return (List<HitCount>) criteria.list();
+    }
+}
@@ -0,0 +1,42 @@
+package com.hida.model;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * An exception used to display which purl was requested but does not belong
+ * to any Citation.
+ *
+ * @author lruffin
+ */
+@ResponseStatus(value = HttpStatus.NOT_FOUND, reason = "Purl does not exist")
+public class CitationNotFoundException extends RuntimeException {
+
+    private final String Purl;
+
+    /**
+     * Constructs an instance of <code>CitationNotFoundException</code> with
+     * the purl that could not be found.
+     *
+     * @param purl the purl that does not exist
+     */
+    public CitationNotFoundException(String purl) {
+        super("purl does not exist: " + purl);
+        this.Purl = purl;
+    }
+
+    public String getPurl() {
+        return Purl;
+    }
+
+    /**
+     * The cause of a missing purl is always known, so the stack trace is not
+     * filled in. This keeps requests for missing purls cheap.
+     *
+     * @return this exception
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
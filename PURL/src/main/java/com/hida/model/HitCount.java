@@ -0,0 +1,51 @@
+package com.hida.model;
+
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * POJO for the number of times a Purl was resolved within a single time
+ * bucket. Hits are aggregated in memory and added to these rows periodically.
+ *
+ * @author lruffin
+ */
+@Entity
+@Table(name = "HIT_COUNT")
+public class HitCount {
+
+    @EmbeddedId
+    private HitCountId Id;
+
+    @Column(name = "HITS")
+    private long Hits;
+
+    public HitCount(String Purl, long Bucket, long Hits) {
+        this.Id = new HitCountId(Purl, Bucket);
+        this.Hits = Hits;
+    }
+
+    /**
+     * No-arg constructor used by Hibernate
+     */
+    public HitCount() {
+
+    }
+
+    public String getPurl() {
+        return Id.getPurl();
+    }
+
+    public long getBucket() {
+        return Id.getBucket();
+    }
+
+    public long getHits() {
+        return Hits;
+    }
+
+    public void setHits(long Hits) {
+        this.Hits = Hits;
+    }
+}
@@ -0,0 +1,65 @@
+package com.hida.model;
+
+import java.io.Serializable;
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+/**
+ * Identifies the number of hits of a Purl within a single time bucket.
+ *
+ * @author lruffin
+ */
+@Embeddable
+public class HitCountId implements Serializable {
+
+    @Column(name = "PURL")
+    private String Purl;
+
+    /**
+     * The time at which the bucket starts, in milliseconds since the epoch
+     */
+    @Column(name = "BUCKET")
+    private long Bucket;
+
+    public HitCountId(String Purl, long Bucket) {
+        this.Purl = Purl;
+        this.Bucket = Bucket;
+    }
+
+    /**
+     * No-arg constructor used by Hibernate
+     */
+    public HitCountId() {
+
+    }
+
+    public String getPurl() {
+        return Purl;
+    }
+
+    public void setPurl(String Purl) {
+        this.Purl = Purl;
+    }
+
+    public long getBucket() {
+        return Bucket;
+    }
+
+    public void setBucket(long Bucket) {
+        this.Bucket = Bucket;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Purl.hashCode() + (int) (Bucket ^ (Bucket >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof HitCountId)) {
+            return false;
+        }
+        HitCountId other = (HitCountId) obj;
+        return Bucket == other.Bucket && Purl.equals(other.Purl);
+    }
+}
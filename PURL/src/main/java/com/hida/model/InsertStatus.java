@@ -0,0 +1,22 @@
+package com.hida.model;
+
+/**
+ * An Enum that describes the outcome of inserting a single Citation during a
+ * bulk insert.
+ *
+ * <pre>
+ * INSERTED: The Citation was persisted.
+ * DUPLICATE: A Citation with the same Purl already exists or appeared earlier.
+ * INVALID: The Citation could not be parsed or is missing required fields.
+ * FAILED: The Citation was valid but the database rejected its chunk.
+ * </pre>
+ *
+ * @author lruffin
+ */
+public enum InsertStatus {
+
+    INSERTED,
+    DUPLICATE,
+    INVALID,
+    FAILED;
+}
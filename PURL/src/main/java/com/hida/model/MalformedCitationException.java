@@ -0,0 +1,28 @@
+package com.hida.model;
+
+/**
+ * An exception used to display which line of a bulk insert could not be
+ * converted into a Citation and why.
+ *
+ * @author lruffin
+ */
+public class MalformedCitationException extends Exception {
+
+    private final long LineNumber;
+
+    /**
+     * Constructs an instance of <code>MalformedCitationException</code> with
+     * the line that caused it and the specified detail message.
+     *
+     * @param lineNumber the line of the request body that was malformed
+     * @param msg the detail message.
+     */
+    public MalformedCitationException(long lineNumber, String msg) {
+        super(msg);
+        this.LineNumber = lineNumber;
+    }
+
+    public long getLineNumber() {
+        return LineNumber;
+    }
+}
@@ -0,0 +1,31 @@
+package com.hida.model;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * An exception used to turn away lookups while the queue of lookups is full.
+ *
+ * @author lruffin
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason
+        = "Too many lookups are waiting")
+public class ResolverBusyException extends RuntimeException {
+
+    /**
+     * Creates a new instance of <code>ResolverBusyException</code> without
+     * detail message.
+     */
+    public ResolverBusyException() {
+    }
+
+    /**
+     * Constructs an instance of <code>ResolverBusyException</code> with the
+     * specified detail message.
+     *
+     * @param msg the detail message.
+     */
+    public ResolverBusyException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,233 @@
+package com.hida.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the resolver's cache in the background when the application starts,
+ * while requests are already being served. Requests that arrive before their
+ * Citation was loaded are answered by the database as usual.
+ *
+ * Depending on resolver.warmup.mode the cache is filled with:
+ *
+ * <pre>
+ * hits:  the Purls with the most persisted hits, or the table if no hits
+ *        were recorded yet
+ * table: the whole table, in order of Purl, until the cache is full
+ * auto:  the whole table if it fits into the cache, the most hit Purls
+ *        otherwise
+ * none:  nothing
+ * </pre>
+ *
+ * @author lruffin
+ */
+@Component
+public class CacheWarmer {
+
+    /**
+     * The possible modes of the warm-up
+     */
+    public enum Mode {
+
+        AUTO,
+        HITS,
+        TABLE,
+        NONE;
+    }
+
+    /**
+     * The possible states of the warm-up
+     */
+    public enum State {
+
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED;
+    }
+
+    /**
+     * The number of Citations loaded at a time
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    private static final Logger Logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    @Autowired
+    private ResolverService ResolverService;
+
+    @Autowired
+    private HitService HitService;
+
+    @Autowired
+    private CitationCache Cache;
+
+    @Autowired
+    private ScheduledExecutorService Executor;
+
+    @Autowired
+    private Environment Environment;
+
+    private volatile State CurrentState = State.PENDING;
+
+    /**
+     * The number of Citations that will be loaded, once known
+     */
+    private volatile long Target = 0;
+
+    /**
+     * The number of Citations loaded so far
+     */
+    private volatile long Loaded = 0;
+
+    private volatile long StartTime = 0;
+
+    private volatile long Duration = 0;
+
+    /**
+     * Starts the warm-up in the background unless it is disabled.
+     */
+    @PostConstruct
+    public void start() {
+        final Mode mode = parseMode(Environment.getProperty("resolver.warmup.mode", "auto"));
+        if (mode == Mode.NONE || Cache.getCapacity() == 0) {
+            CurrentState = State.DONE;
+            return;
+        }
+        Executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                warmUp(mode);
+            }
+        });
+    }
+
+    /**
+     * Converts the configured mode into a Mode. Unknown modes are logged and
+     * replaced by AUTO, so that a typo does not prevent the application from
+     * starting.
+     *
+     * @param value The configured mode, in any case
+     * @return The corresponding Mode
+     */
+    private static Mode parseMode(String value) {
+        try {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException exception) {
+            Logger.warn("Unknown resolver.warmup.mode " + value + ", using auto");
+            return Mode.AUTO;
+        }
+    }
+
+    /**
+     * Fills the cache using the given mode and records its progress.
+     *
+     * @param mode The mode of the warm-up
+     */
+    public void warmUp(Mode mode) {
+        CurrentState = State.RUNNING;
+        StartTime = System.currentTimeMillis();
+        try {
+            int capacity = Cache.getCapacity();
+            if (mode == Mode.AUTO) {
+                mode = (ResolverService.countCitations() <= capacity) ? Mode.TABLE : Mode.HITS;
+            }
+            // without recorded hits the table is loaded instead
+            if (mode != Mode.HITS || !loadTopPurls(capacity)) {
+                loadTable(capacity);
+            }
+            CurrentState = State.DONE;
+        }
+        catch (RuntimeException exception) {
+            CurrentState = State.FAILED;
+            Logger.error("Cache warm-up failed", exception);
+        }
+        finally {
+            Duration = System.currentTimeMillis() - StartTime;
+        }
+        Logger.info("Cache warm-up (" + mode + ") loaded " + Loaded + " citations in "
+                + Duration + "ms");
+    }
+
+    /**
+     * Loads the Citations of the most hit Purls
+     *
+     * @param capacity The maximum number of Citations to load
+     * @return false if no hits were recorded
+     */
+    private boolean loadTopPurls(int capacity) {
+        List<String> purls = HitService.retrieveTopPurls(capacity);
+        if (purls.isEmpty()) {
+            return false;
+        }
+        Target = purls.size();
+        for (int i = 0; i < purls.size(); i += PAGE_SIZE) {
+            List<String> page = new ArrayList<>(purls.subList(i, Math.min(purls.size(), i + PAGE_SIZE)));
+            ResolverService.preloadCitations(page);
+            Loaded += page.size();
+        }
+        return true;
+    }
+
+    /**
+     * Loads the Citations of the table in order of Purl
+     *
+     * @param capacity The maximum number of Citations to load
+     */
+    private void loadTable(int capacity) {
+        Target = Math.min(capacity, ResolverService.countCitations());
+        String last = null;
+        while (Loaded < Target) {
+            int limit = (int) Math.min(PAGE_SIZE, Target - Loaded);
+            List<String> page = ResolverService.preloadCitationsAfter(last, limit);
+            if (page.isEmpty()) {
+                break;
+            }
+            Loaded += page.size();
+            last = page.get(page.size() - 1);
+        }
+    }
+
+    /**
+     * Returns the progress of the warm-up keyed by name.
+     *
+     * @return Map of statistic names to their values
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("warmup.target", Target);
+        statistics.put("warmup.loaded", Loaded);
+        statistics.put("warmup.duration", (CurrentState == State.RUNNING)
+                ? System.currentTimeMillis() - StartTime
+                : Duration);
+        return statistics;
+    }
+
+    /* typical getters */
+    public State getState() {
+        return CurrentState;
+    }
+
+    public long getTarget() {
+        return Target;
+    }
+
+    public long getLoaded() {
+        return Loaded;
+    }
+
+    public long getDuration() {
+        return Duration;
+    }
+}
@@ -0,0 +1,244 @@
+package com.hida.service;
+
+import com.hida.model.Citation;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, least-recently-used cache of Citations keyed by their Purl. Used
+ * by the resolver so that frequently requested Citations do not need to be
+ * read from the database on every request. Each cached Citation is stored
+ * together with its encoded Json so that it does not need to be serialized
+ * again for every response.
+ * <p>
+ * A lookup that read a Citation from the database may cache it after a
+ * concurrent change has already invalidated it, which would keep the old row
+ * cached until it is evicted. Lookups therefore take the generation of the
+ * cache before reading the database and cache the Citation with it; the
+ * Citation is not cached if the cache was invalidated in between.
+ *
+ * @author lruffin
+ */
+public class CitationCache {
+
+    /**
+     * The maximum number of Citations held by the cache. A capacity of 0
+     * disables caching entirely.
+     */
+    private final int Capacity;
+
+    /**
+     * Holds the cached Citations in access order so that the least recently
+     * used entry is evicted first.
+     */
+    private final Map<String, Entry> Entries;
+
+    /**
+     * Number of lookups that were answered by the cache
+     */
+    private final AtomicLong Hits = new AtomicLong();
+
+    /**
+     * Number of lookups that could not be answered by the cache
+     */
+    private final AtomicLong Misses = new AtomicLong();
+
+    /**
+     * Incremented whenever Citations are invalidated
+     */
+    private final AtomicLong Generation = new AtomicLong();
+
+    /**
+     * Creates a cache that holds at most the given number of Citations.
+     *
+     * @param capacity The maximum number of cached Citations
+     */
+    public CitationCache(final int capacity) {
+        this.Capacity = capacity;
+        this.Entries = Collections.synchronizedMap(
+                new LinkedHashMap<String, CitationCache.Entry>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<String, CitationCache.Entry> eldest) {
+                        return size() > capacity;
+                    }
+                });
+    }
+
+    /**
+     * Returns the cached Citation with the given Purl.
+     *
+     * @param purl Unique identifier of the Citation
+     * @return The Citation if cached, null otherwise
+     */
+    public Citation get(String purl) {
+        Entry entry = getEntry(purl);
+        return (entry == null) ? null : entry.Citation;
+    }
+
+    /**
+     * Returns the encoded Json of the cached Citation with the given Purl.
+     *
+     * @param purl Unique identifier of the Citation
+     * @return The UTF-8 encoded Json if cached, null otherwise
+     */
+    public byte[] getJson(String purl) {
+        Entry entry = getEntry(purl);
+        return (entry == null) ? null : entry.Json;
+    }
+
+    /**
+     * Adds the given Citation to the cache, possibly evicting the least
+     * recently used entry. The Citation is encoded into Json once, here.
+     *
+     * @param citation The Citation to cache
+     * @return The encoded Json of the Citation
+     */
+    public byte[] put(Citation citation) {
+        return put(citation, Generation.get());
+    }
+
+    /**
+     * Adds the given Citation to the cache unless the cache was invalidated
+     * since the given generation was taken. The Citation is encoded into Json
+     * either way.
+     *
+     * @param citation The Citation to cache
+     * @param generation The generation taken before the Citation was read
+     * @return The encoded Json of the Citation
+     */
+    public byte[] put(Citation citation, long generation) {
+        byte[] json = CitationSerializer.toJson(citation);
+        if (Capacity > 0) {
+            Entry entry = new Entry(citation, json);
+            synchronized (Entries) {
+                if (Generation.get() == generation) {
+                    Entries.put(citation.getPurl(), entry);
+                }
+            }
+        }
+        return json;
+    }
+
+    /**
+     * Adds the given Citation to the cache unless a Citation with the same
+     * Purl is already cached, so that a Citation loaded by a request is never
+     * replaced, or the cache was invalidated since the given generation was
+     * taken. Used to fill the cache in the background.
+     *
+     * @param citation The Citation to cache
+     * @param generation The generation taken before the Citation was read
+     * @return true if the Citation was added
+     */
+    public boolean putIfAbsent(Citation citation, long generation) {
+        if (Capacity == 0 || Entries.containsKey(citation.getPurl())) {
+            return false;
+        }
+        Entry entry = new Entry(citation, CitationSerializer.toJson(citation));
+        synchronized (Entries) {
+            if (Generation.get() != generation
+                    || Entries.containsKey(citation.getPurl())) {
+                return false;
+            }
+            Entries.put(citation.getPurl(), entry);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the Citation with the given Purl from the cache. Should be
+     * called whenever a Citation is modified or removed from persistence.
+     *
+     * @param purl Unique identifier of the Citation
+     */
+    public void invalidate(String purl) {
+        synchronized (Entries) {
+            Generation.incrementAndGet();
+            Entries.remove(purl);
+        }
+    }
+
+    /**
+     * Removes every Citation within the given range from the cache. Should be
+     * called whenever the Citations of a range are removed from persistence.
+     *
+     * @param range The purls of the removed Citations
+     */
+    void invalidate(PurlRange range) {
+        synchronized (Entries) {
+            Generation.incrementAndGet();
+            Iterator<String> purls = Entries.keySet().iterator();
+            while (purls.hasNext()) {
+                if (range.contains(purls.next())) {
+                    purls.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every Citation from the cache.
+     */
+    public void clear() {
+        synchronized (Entries) {
+            Generation.incrementAndGet();
+            Entries.clear();
+        }
+    }
+
+    /**
+     * Retrieves an entry and records whether or not the lookup was a hit
+     *
+     * @param purl Unique identifier of the Citation
+     * @return The entry if cached, null otherwise
+     */
+    private Entry getEntry(String purl) {
+        Entry entry = Entries.get(purl);
+        if (entry == null) {
+            Misses.incrementAndGet();
+        }
+        else {
+            Hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /* typical getters */
+    public int getCapacity() {
+        return Capacity;
+    }
+
+    public int size() {
+        return Entries.size();
+    }
+
+    public long getHits() {
+        return Hits.get();
+    }
+
+    public long getMisses() {
+        return Misses.get();
+    }
+
+    public long getGeneration() {
+        return Generation.get();
+    }
+
+    /**
+     * An immutable pair of a cached Citation and its encoded Json
+     */
+    private static final class Entry {
+
+        private final Citation Citation;
+
+        private final byte[] Json;
+
+        private Entry(Citation citation, byte[] json) {
+            this.Citation = citation;
+            this.Json = json;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.hida.service;
+
+import com.hida.model.Citation;
+import com.hida.model.MalformedCitationException;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Incrementally reads Citations from a character stream, one Citation per
+ * line, so that arbitrarily large bulk inserts can be processed without
+ * holding the whole body in memory. Two formats are supported:
+ *
+ * <pre>
+ * NDJSON: one json object per line with the fields pid, url, erc, who, what
+ *         and date.
+ * CSV: one row per line with the columns pid, url, erc, who, what and date
+ *      in that order. Fields may be quoted with double quotes and a header
+ *      row starting with "pid" is skipped. Quoted fields may not span lines.
+ * </pre>
+ *
+ * Blank lines are ignored in both formats.
+ *
+ * @author lruffin
+ */
+public class CitationReader implements Closeable {
+
+    /**
+     * The formats that a CitationReader is capable of reading
+     */
+    public enum Format {
+
+        NDJSON,
+        CSV;
+    }
+
+    /**
+     * The number of fields every Citation contains
+     */
+    private static final int FIELD_COUNT = 6;
+
+    /**
+     * Shared, thread-safe mapper used to parse NDJSON lines
+     */
+    private static final ObjectMapper Mapper = new ObjectMapper();
+
+    private final BufferedReader Reader;
+
+    private final Format InputFormat;
+
+    /**
+     * The line number of the most recently read line, starting at 1
+     */
+    private long LineNumber = 0;
+
+    /**
+     * Creates a CitationReader that reads the given format from the given
+     * stream.
+     *
+     * @param reader The stream containing the Citations
+     * @param format The format of the stream
+     */
+    public CitationReader(Reader reader, Format format) {
+        this.Reader = (reader instanceof BufferedReader)
+                ? (BufferedReader) reader
+                : new BufferedReader(reader);
+        this.InputFormat = format;
+    }
+
+    /**
+     * Reads the next Citation. Whenever a malformed line is encountered an
+     * exception is thrown, after which reading may continue with the next
+     * line.
+     *
+     * @return The next Citation, or null if the end of the stream was reached
+     * @throws IOException Thrown whenever the stream could not be read
+     * @throws MalformedCitationException Thrown whenever the current line
+     * could not be converted into a Citation
+     */
+    public Citation read() throws IOException, MalformedCitationException {
+        String line;
+        do {
+            line = Reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            LineNumber++;
+        } while (line.trim().isEmpty()
+                || (InputFormat == Format.CSV && LineNumber == 1 && isCsvHeader(line)));
+
+        return (InputFormat == Format.CSV) ? parseCsv(line) : parseNdjson(line);
+    }
+
+    /**
+     * Returns the line number of the most recently read Citation
+     *
+     * @return the line number, starting at 1
+     */
+    public long getLineNumber() {
+        return LineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Reader.close();
+    }
+
+    /**
+     * Converts a single json object into a Citation
+     *
+     * @param line A line containing a json object
+     * @return The Citation
+     * @throws MalformedCitationException Thrown if the line isn't a json
+     * object
+     */
+    private Citation parseNdjson(String line) throws MalformedCitationException {
+        JsonNode node;
+        try {
+            node = Mapper.readTree(line);
+        }
+        catch (IOException e) {
+            throw new MalformedCitationException(LineNumber, "invalid json: " + e.getMessage());
+        }
+        if (node == null || !node.isObject()) {
+            throw new MalformedCitationException(LineNumber, "expected a json object");
+        }
+        return new Citation(getText(node, "pid"),
+                getText(node, "url"),
+                getText(node, "erc"),
+                getText(node, "who"),
+                getText(node, "what"),
+                getText(node, "date"));
+    }
+
+    /**
+     * Returns the textual value of a field in a json object
+     *
+     * @param node The json object
+     * @param field The name of the field
+     * @return The value of the field, or null if it is absent or null
+     */
+    private String getText(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return (value == null || value.isNull()) ? null : value.asText();
+    }
+
+    /**
+     * Converts a single CSV row into a Citation
+     *
+     * @param line A line containing a CSV row
+     * @return The Citation
+     * @throws MalformedCitationException Thrown if the row does not contain
+     * exactly six fields or contains an unterminated quote
+     */
+    private Citation parseCsv(String line) throws MalformedCitationException {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != FIELD_COUNT) {
+            throw new MalformedCitationException(LineNumber,
+                    "expected " + FIELD_COUNT + " fields but found " + fields.size());
+        }
+        return new Citation(fields.get(0),
+                fields.get(1),
+                fields.get(2),
+                fields.get(3),
+                fields.get(4),
+                fields.get(5));
+    }
+
+    /**
+     * Splits a CSV row into its fields. Double quotes within a quoted field
+     * are escaped by doubling them.
+     *
+     * @param line A line containing a CSV row
+     * @return The fields of the row
+     * @throws MalformedCitationException Thrown if a quote is not terminated
+     */
+    private List<String> splitCsv(String line) throws MalformedCitationException {
+        List<String> fields = new ArrayList<>(FIELD_COUNT);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                }
+                else if (c == '"') {
+                    quoted = false;
+                }
+                else {
+                    field.append(c);
+                }
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new MalformedCitationException(LineNumber, "unterminated quote");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Determines whether or not the given line is a CSV header
+     *
+     * @param line The first line of the stream
+     * @return true if the line starts with the pid column
+     */
+    private boolean isCsvHeader(String line) {
+        return line.trim().toLowerCase().startsWith("pid,");
+    }
+}
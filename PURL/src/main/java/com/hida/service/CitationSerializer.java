@@ -0,0 +1,101 @@
+package com.hida.service;
+
+import com.hida.model.Citation;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+/**
+ * Converts Citations directly into Json using a streaming generator, without
+ * building any intermediate objects. All methods share a single thread-safe
+ * JsonFactory.
+ *
+ * @author lruffin
+ */
+public final class CitationSerializer {
+
+    /**
+     * Shared, thread-safe factory used to create every generator
+     */
+    private static final JsonFactory JsonFactory = new JsonFactory();
+
+    /**
+     * Static utility class; should not be instantiated
+     */
+    private CitationSerializer() {
+    }
+
+    /**
+     * Returns the shared factory so that callers can stream their own Json
+     * responses.
+     *
+     * @return the shared JsonFactory
+     */
+    public static JsonFactory getJsonFactory() {
+        return JsonFactory;
+    }
+
+    /**
+     * Encodes the given Citation as compact, UTF-8 encoded Json
+     *
+     * @param citation Entity to encode
+     * @return The encoded Json
+     */
+    public static byte[] toJson(Citation citation) {
+        try {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream(256);
+            JsonGenerator generator = JsonFactory.createJsonGenerator(stream, JsonEncoding.UTF8);
+            writeCitation(generator, citation);
+            generator.close();
+            return stream.toByteArray();
+        }
+        catch (IOException exception) {
+            // in-memory streams do not throw
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Encodes the given Citation as pretty-printed Json, primarily used by the
+     * html views.
+     *
+     * @param citation Entity to encode
+     * @return The pretty-printed Json
+     */
+    public static String toPrettyJson(Citation citation) {
+        try {
+            StringWriter writer = new StringWriter(256);
+            JsonGenerator generator = JsonFactory.createJsonGenerator(writer);
+            generator.useDefaultPrettyPrinter();
+            writeCitation(generator, citation);
+            generator.close();
+            return writer.toString();
+        }
+        catch (IOException exception) {
+            // in-memory streams do not throw
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Writes the given Citation as a Json object using the given generator
+     *
+     * @param generator The generator to write to
+     * @param citation Entity to write
+     * @throws IOException Thrown whenever the generator could not write
+     */
+    public static void writeCitation(JsonGenerator generator, Citation citation)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("pid", citation.getPurl());
+        generator.writeStringField("url", citation.getUrl());
+        generator.writeStringField("erc", citation.getErc());
+        generator.writeStringField("who", citation.getWho());
+        generator.writeStringField("what", citation.getWhat());
+        generator.writeStringField("date", citation.getDate());
+        generator.writeEndObject();
+    }
+}
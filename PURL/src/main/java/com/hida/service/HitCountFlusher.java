@@ -0,0 +1,70 @@
+package com.hida.service;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically persists the hits counted in memory, and once more when the
+ * application shuts down. Depends on the transaction manager so that it is
+ * still available for the final flush.
+ *
+ * @author lruffin
+ */
+@Component
+@DependsOn("transactionManager")
+public class HitCountFlusher {
+
+    private static final Logger Logger = LoggerFactory.getLogger(HitCountFlusher.class);
+
+    @Autowired
+    private HitService HitService;
+
+    @Autowired
+    private ScheduledExecutorService Executor;
+
+    @Autowired
+    private Environment Environment;
+
+    /**
+     * Schedules the flushes every resolver.hits.flush.interval seconds.
+     */
+    @PostConstruct
+    public void start() {
+        long interval = Environment.getProperty("resolver.hits.flush.interval", Long.class, 10L);
+        Executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Persists the remaining hits before the application shuts down.
+     */
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    /**
+     * Persists the hits counted since the previous flush. Failures are logged
+     * and the hits are retried by the next flush.
+     */
+    private void flush() {
+        try {
+            HitService.flushHits();
+        }
+        catch (RuntimeException exception) {
+            Logger.error("Unable to flush hits", exception);
+        }
+    }
+}
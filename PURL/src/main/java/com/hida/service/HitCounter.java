@@ -0,0 +1,321 @@
+package com.hida.service;
+
+import com.hida.model.HitCount;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how often each Purl is resolved, in total and per time bucket,
+ * without locks. Recording a hit only increments two atomic counters, so it
+ * is cheap enough to be done on every request.
+ *
+ * The hits of the most recent buckets are kept in memory so that they can be
+ * reported without the database. Hits that were not yet persisted are
+ * collected by flush, which must only be called by one thread at a time.
+ *
+ * @author lruffin
+ */
+public class HitCounter {
+
+    /**
+     * The length of a bucket in milliseconds
+     */
+    private final long BucketLength;
+
+    /**
+     * The number of buckets kept in memory, including the current one
+     */
+    private final int Retention;
+
+    /**
+     * The hits of every Purl since the counter was created
+     */
+    private final ConcurrentMap<String, AtomicLong> Totals = new ConcurrentHashMap<>();
+
+    /**
+     * The hits of every Purl per bucket, keyed by the start of the bucket
+     */
+    private final ConcurrentSkipListMap<Long, ConcurrentMap<String, Counter>> Buckets
+            = new ConcurrentSkipListMap<>();
+
+    /**
+     * The bucket most recently recorded into, cached to avoid a lookup in
+     * Buckets on every hit
+     */
+    private volatile Bucket Current = new Bucket(Long.MIN_VALUE, null);
+
+    /**
+     * Creates a counter with the given bucket length and retention.
+     *
+     * @param bucketLength The length of a bucket in milliseconds
+     * @param retention The number of buckets kept in memory
+     */
+    public HitCounter(long bucketLength, int retention) {
+        this.BucketLength = bucketLength;
+        this.Retention = Math.max(1, retention);
+    }
+
+    /**
+     * Records a single hit of the given Purl at the current time.
+     *
+     * @param purl Unique identifier of a Citation
+     */
+    public void record(String purl) {
+        record(purl, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a single hit of the given Purl at the given time.
+     *
+     * @param purl Unique identifier of a Citation
+     * @param time The time of the hit in milliseconds since the epoch
+     */
+    public void record(String purl, long time) {
+        AtomicLong total = Totals.get(purl);
+        if (total == null) {
+            total = new AtomicLong();
+            AtomicLong existing = Totals.putIfAbsent(purl, total);
+            if (existing != null) {
+                total = existing;
+            }
+        }
+        total.incrementAndGet();
+
+        ConcurrentMap<String, Counter> bucket = getBucket(time);
+        Counter counter = bucket.get(purl);
+        if (counter == null) {
+            counter = new Counter();
+            Counter existing = bucket.putIfAbsent(purl, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        counter.Hits.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of hits of the given Purl since the counter was
+     * created.
+     *
+     * @param purl Unique identifier of a Citation
+     * @return the number of hits
+     */
+    public long getHits(String purl) {
+        AtomicLong total = Totals.get(purl);
+        return (total == null) ? 0 : total.get();
+    }
+
+    /**
+     * Returns the hits of the given Purl in each bucket held in memory.
+     *
+     * @param purl Unique identifier of a Citation
+     * @return Map of bucket starts to hits, in ascending order of bucket
+     */
+    public Map<Long, Long> getBucketHits(String purl) {
+        Map<Long, Long> hits = new LinkedHashMap<>();
+        for (Map.Entry<Long, ConcurrentMap<String, Counter>> bucket : Buckets.entrySet()) {
+            Counter counter = bucket.getValue().get(purl);
+            if (counter != null) {
+                hits.put(bucket.getKey(), counter.Hits.get());
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the Purls with the most hits since the counter was created.
+     *
+     * @param count The maximum number of Purls to return
+     * @return Map of Purls to hits, in descending order of hits
+     */
+    public Map<String, Long> getTopHits(int count) {
+        PriorityQueue<Map.Entry<String, Long>> top = new PriorityQueue<>(
+                Math.max(1, count), new Comparator<Map.Entry<String, Long>>() {
+                    @Override
+                    public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+                        return Long.compare(a.getValue(), b.getValue());
+                    }
+                });
+        if (count > 0) {
+            for (Map.Entry<String, AtomicLong> entry : Totals.entrySet()) {
+                long hits = entry.getValue().get();
+                if (top.size() < count) {
+                    top.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), hits));
+                }
+                else if (top.peek().getValue() < hits) {
+                    top.poll();
+                    top.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), hits));
+                }
+            }
+        }
+
+        List<Map.Entry<String, Long>> sorted = new ArrayList<>(top);
+        Collections.sort(sorted, Collections.reverseOrder(top.comparator()));
+        Map<String, Long> hits = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : sorted) {
+            hits.put(entry.getKey(), entry.getValue());
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the number of distinct Purls that were hit
+     *
+     * @return the number of Purls
+     */
+    public int size() {
+        return Totals.size();
+    }
+
+    /**
+     * Collects the hits recorded since the previous flush, one HitCount per
+     * Purl and bucket. The hits are only considered persisted once the
+     * returned flush is committed, so a failed flush is retried by the next
+     * one. Buckets beyond the retention are dropped once they were flushed.
+     *
+     * @return The pending hits
+     */
+    public synchronized Flush flush() {
+        Flush flush = new Flush();
+        for (Map.Entry<Long, ConcurrentMap<String, Counter>> bucket : Buckets.entrySet()) {
+            for (Map.Entry<String, Counter> entry : bucket.getValue().entrySet()) {
+                Counter counter = entry.getValue();
+                long sum = counter.Hits.get();
+                if (sum > counter.Flushed) {
+                    flush.Hits.add(new HitCount(entry.getKey(), bucket.getKey(), sum - counter.Flushed));
+                    flush.Counters.add(counter);
+                    flush.Sums.add(sum);
+                }
+            }
+        }
+        return flush;
+    }
+
+    /**
+     * Returns the bucket that the given time falls into, creating it if
+     * necessary
+     *
+     * @param time The time in milliseconds since the epoch
+     * @return The bucket
+     */
+    private ConcurrentMap<String, Counter> getBucket(long time) {
+        // the remainder is made non-negative so that times before the epoch
+        // fall into the bucket that starts before them
+        long start = time - ((time % BucketLength) + BucketLength) % BucketLength;
+        Bucket current = Current;
+        if (current.Start == start) {
+            return current.Counters;
+        }
+
+        ConcurrentMap<String, Counter> counters = Buckets.get(start);
+        if (counters == null) {
+            counters = new ConcurrentHashMap<>();
+            ConcurrentMap<String, Counter> existing = Buckets.putIfAbsent(start, counters);
+            if (existing != null) {
+                counters = existing;
+            }
+        }
+        if (start > current.Start) {
+            Current = new Bucket(start, counters);
+        }
+        return counters;
+    }
+
+    /**
+     * Drops the oldest buckets beyond the retention whose hits were all
+     * persisted.
+     */
+    private synchronized void evict() {
+        Iterator<Map.Entry<Long, ConcurrentMap<String, Counter>>> buckets
+                = Buckets.entrySet().iterator();
+        int excess = Buckets.size() - Retention;
+        while (excess > 0 && buckets.hasNext()) {
+            boolean flushed = true;
+            for (Counter counter : buckets.next().getValue().values()) {
+                if (counter.Hits.get() > counter.Flushed) {
+                    flushed = false;
+                    break;
+                }
+            }
+            if (!flushed) {
+                break;
+            }
+            buckets.remove();
+            excess--;
+        }
+    }
+
+    /**
+     * The hits of a single Purl within a single bucket
+     */
+    private static final class Counter {
+
+        private final AtomicLong Hits = new AtomicLong();
+
+        /**
+         * The number of hits already persisted; only accessed while holding
+         * the lock of the HitCounter
+         */
+        private long Flushed = 0;
+    }
+
+    /**
+     * A bucket start paired with its counters
+     */
+    private static final class Bucket {
+
+        private final long Start;
+
+        private final ConcurrentMap<String, Counter> Counters;
+
+        private Bucket(long start, ConcurrentMap<String, Counter> counters) {
+            this.Start = start;
+            this.Counters = counters;
+        }
+    }
+
+    /**
+     * The hits collected by a single flush
+     */
+    public final class Flush {
+
+        private final List<HitCount> Hits = new ArrayList<>();
+
+        private final List<Counter> Counters = new ArrayList<>();
+
+        private final List<Long> Sums = new ArrayList<>();
+
+        /**
+         * Returns the hits to persist
+         *
+         * @return the hits
+         */
+        public List<HitCount> getHits() {
+            return Hits;
+        }
+
+        /**
+         * Marks the hits of this flush as persisted. Should only be called
+         * once they are committed.
+         */
+        public void commit() {
+            synchronized (HitCounter.this) {
+                for (int i = 0; i < Counters.size(); i++) {
+                    Counters.get(i).Flushed = Sums.get(i);
+                }
+                evict();
+            }
+        }
+    }
+}
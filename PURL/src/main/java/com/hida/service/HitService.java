@@ -0,0 +1,19 @@
+package com.hida.service;
+
+import com.hida.model.HitCount;
+import java.util.List;
+
+/**
+ * This class is used to define the possible operations that Hibernate can
+ * perform on HitCount objects
+ *
+ * @author lruffin
+ */
+public interface HitService {
+
+    public void flushHits();
+
+    public List<HitCount> retrieveHistory(String purl);
+
+    public List<String> retrieveTopPurls(int count);
+}
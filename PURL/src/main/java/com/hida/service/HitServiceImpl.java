@@ -0,0 +1,76 @@
+package com.hida.service;
+
+import com.hida.dao.HitCountDao;
+import com.hida.model.HitCount;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Persists the hits counted in memory by the HitCounter and retrieves the hits
+ * that were persisted.
+ *
+ * @author lruffin
+ */
+@Service("hitService")
+@Transactional
+public class HitServiceImpl implements HitService {
+
+    @Autowired
+    private HitCountDao HitDao;
+
+    @Autowired
+    private HitCounter Hits;
+
+    /**
+     * adds every hit recorded since the previous flush to the database using a
+     * single batched statement. The hits are marked as persisted once the
+     * transaction commits, so hits of a failed flush are included in the next
+     * one.
+     */
+    @Override
+    public void flushHits() {
+        final HitCounter.Flush flush = Hits.flush();
+        HitDao.mergeHits(flush.getHits());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCommit() {
+                            flush.commit();
+                        }
+                    });
+        }
+        else {
+            flush.commit();
+        }
+    }
+
+    /**
+     * retrieves the purls with the most persisted hits
+     *
+     * @param count the maximum number of purls to retrieve
+     * @return the purls, in descending order of hits
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> retrieveTopPurls(int count) {
+        return HitDao.findTopPurls(count);
+    }
+
+    /**
+     * retrieves the persisted hits of every bucket of the given purl
+     *
+     * @param purl purlid of desired row
+     * @return the hits, ordered by bucket
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<HitCount> retrieveHistory(String purl) {
+        return HitDao.findByPurl(purl);
+    }
+}
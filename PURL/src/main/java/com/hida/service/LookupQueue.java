@@ -0,0 +1,158 @@
+package com.hida.service;
+
+import com.hida.model.ResolverBusyException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+/**
+ * Runs the lookups of /resolve and /retrieve that read the database on
+ * threads of their own, so that lookups that wait on a slow database hold
+ * these threads rather than those of the servlet container, and the
+ * administration endpoints are still answered while lookups pile up. Purls
+ * held in the cache, the snapshot or the negative cache are answered on the
+ * request thread and never queued.
+ *
+ * At most Threads lookups run at a time and at most Capacity more wait for a
+ * thread. Requests beyond that are turned away with a ResolverBusyException
+ * before they are queued, since Spring only hands a task to the executor
+ * once the request has gone asynchronous. A request that waits longer than
+ * Timeout is answered with 503 Service Unavailable and its lookup is skipped
+ * if it had not started. Lookups return their response to Spring rather than
+ * writing it, so a lookup that finishes after its request timed out has its
+ * response discarded by Spring.
+ *
+ * @author lruffin
+ */
+public class LookupQueue {
+
+    private final int Threads;
+
+    private final int Capacity;
+
+    private final long Timeout;
+
+    private final ThreadPoolTaskExecutor Executor;
+
+    /**
+     * A permit for every lookup that may be running or waiting
+     */
+    private final Semaphore Permits;
+
+    /**
+     * Creates a queue
+     *
+     * @param threads The number of lookups that run at a time
+     * @param capacity The number of lookups that may wait for a thread
+     * @param timeout The milliseconds a request may wait for its lookup
+     */
+    public LookupQueue(int threads, int capacity, long timeout) {
+        this.Threads = threads;
+        this.Capacity = capacity;
+        this.Timeout = timeout;
+        this.Permits = new Semaphore(threads + capacity);
+        this.Executor = new ThreadPoolTaskExecutor();
+        Executor.setCorePoolSize(threads);
+        Executor.setMaxPoolSize(threads);
+        // the queue of the executor is left unbounded: the permits bound it,
+        // and are returned just before a thread is free to take the next lookup
+        Executor.setThreadNamePrefix("lookup-");
+        Executor.initialize();
+    }
+
+    /**
+     * Queues a lookup. The returned task is to be returned by the controller
+     * so that Spring runs it on the threads of this queue.
+     *
+     * @param <V> The response of the lookup
+     * @param lookup The lookup
+     * @return the task of the lookup
+     * @throws ResolverBusyException Thrown if the queue is full
+     */
+    public <V> WebAsyncTask<V> submit(Callable<V> lookup) {
+        if (!Permits.tryAcquire()) {
+            throw new ResolverBusyException("The resolver is busy; "
+                    + (Threads + Capacity) + " lookups are already running or waiting");
+        }
+        final LookupTask<V> task = new LookupTask<>(lookup);
+        WebAsyncTask<V> asyncTask = new WebAsyncTask<>(Timeout, Executor, task);
+        asyncTask.onTimeout(new Callable<V>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public V call() {
+                task.cancel();
+                // let Spring answer with 503 Service Unavailable
+                return (V) CallableProcessingInterceptor.RESULT_NONE;
+            }
+        });
+        return asyncTask;
+    }
+
+    /**
+     * Returns the number of lookups that are running or waiting
+     *
+     * @return the number of queued lookups
+     */
+    public int getQueued() {
+        return Threads + Capacity - Permits.availablePermits();
+    }
+
+    /**
+     * Stops the threads of the queue once the running and waiting lookups are
+     * done
+     */
+    public void shutdown() {
+        Executor.shutdown();
+    }
+
+    /**
+     * A queued lookup, which returns its permit once it has run or been
+     * skipped
+     *
+     * @param <V> The response of the lookup
+     */
+    class LookupTask<V> implements Callable<V> {
+
+        private final Callable<V> Lookup;
+
+        private final AtomicBoolean Cancelled = new AtomicBoolean();
+
+        private LookupTask(Callable<V> lookup) {
+            this.Lookup = lookup;
+        }
+
+        /**
+         * Skips the lookup if it has not started yet, as its request has
+         * already been answered
+         */
+        void cancel() {
+            Cancelled.set(true);
+        }
+
+        @Override
+        public V call() throws Exception {
+            try {
+                return (Cancelled.get()) ? null : Lookup.call();
+            }
+            finally {
+                Permits.release();
+            }
+        }
+    }
+
+    /* getters */
+    public int getThreads() {
+        return Threads;
+    }
+
+    public int getCapacity() {
+        return Capacity;
+    }
+
+    public long getTimeout() {
+        return Timeout;
+    }
+}
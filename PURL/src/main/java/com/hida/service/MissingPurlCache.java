@@ -0,0 +1,169 @@
+package com.hida.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of purls that were recently found not to exist. Requests for
+ * these purls, such as typos, scanners and retired identifiers, are answered
+ * without reading the database until the entry expires or the purl is
+ * inserted. Once the capacity is reached the oldest entries are evicted
+ * first.
+ * <p>
+ * A lookup that found nothing may record the purl after a concurrent insert
+ * has already invalidated it. Lookups therefore take the generation of the
+ * cache before reading the database and record the purl with it; the record
+ * is dropped if the cache was invalidated in between.
+ *
+ * @author lruffin
+ */
+public class MissingPurlCache {
+
+    /**
+     * The maximum number of purls held by the cache. A capacity of 0 disables
+     * the cache entirely.
+     */
+    private final int Capacity;
+
+    /**
+     * How long, in nanoseconds, a purl is known to be missing
+     */
+    private final long TimeToLive;
+
+    /**
+     * Holds the time at which each missing purl expires, in insertion order
+     */
+    private final Map<String, Long> Expirations;
+
+    /**
+     * Number of lookups of purls known to be missing
+     */
+    private final AtomicLong Hits = new AtomicLong();
+
+    /**
+     * Number of purls recorded as missing
+     */
+    private final AtomicLong Records = new AtomicLong();
+
+    /**
+     * Incremented whenever purls are invalidated
+     */
+    private final AtomicLong Generation = new AtomicLong();
+
+    /**
+     * Creates a cache that holds at most the given number of purls, each for
+     * the given number of seconds.
+     *
+     * @param capacity The maximum number of missing purls
+     * @param timeToLive The number of seconds a purl is known to be missing
+     */
+    public MissingPurlCache(final int capacity, long timeToLive) {
+        this.Capacity = capacity;
+        this.TimeToLive = TimeUnit.SECONDS.toNanos(timeToLive);
+        this.Expirations = Collections.synchronizedMap(
+                new LinkedHashMap<String, Long>(16, 0.75f, false) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                        return size() > capacity;
+                    }
+                });
+    }
+
+    /**
+     * Determines whether or not the given purl is known to be missing.
+     * Expired entries are removed.
+     *
+     * @param purl Unique identifier of a Citation
+     * @return true if the purl is known to be missing
+     */
+    public boolean isMissing(String purl) {
+        Long expiration = Expirations.get(purl);
+        if (expiration == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiration >= 0) {
+            Expirations.remove(purl);
+            return false;
+        }
+        Hits.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Records that the given purl does not exist.
+     *
+     * @param purl Unique identifier of a Citation
+     */
+    public void recordMissing(String purl) {
+        recordMissing(purl, Generation.get());
+    }
+
+    /**
+     * Records that the given purl does not exist, unless the cache was
+     * invalidated since the given generation was taken.
+     *
+     * @param purl Unique identifier of a Citation
+     * @param generation The generation taken before the purl was looked up
+     * @return true if the purl was recorded
+     */
+    public boolean recordMissing(String purl, long generation) {
+        if (Capacity <= 0 || TimeToLive <= 0) {
+            return false;
+        }
+        synchronized (Expirations) {
+            if (Generation.get() != generation) {
+                return false;
+            }
+            Expirations.put(purl, System.nanoTime() + TimeToLive);
+        }
+        Records.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes the given purl from the cache. Should be called whenever a
+     * Citation is inserted.
+     *
+     * @param purl Unique identifier of a Citation
+     */
+    public void invalidate(String purl) {
+        synchronized (Expirations) {
+            Generation.incrementAndGet();
+            Expirations.remove(purl);
+        }
+    }
+
+    /**
+     * Removes every purl from the cache.
+     */
+    public void clear() {
+        synchronized (Expirations) {
+            Generation.incrementAndGet();
+            Expirations.clear();
+        }
+    }
+
+    /* typical getters */
+    public int getCapacity() {
+        return Capacity;
+    }
+
+    public int size() {
+        return Expirations.size();
+    }
+
+    public long getHits() {
+        return Hits.get();
+    }
+
+    public long getRecords() {
+        return Records.get();
+    }
+
+    public long getGeneration() {
+        return Generation.get();
+    }
+}
@@ -0,0 +1,74 @@
+package com.hida.service;
+
+/**
+ * A set of purls removed by a single bulk delete, either every purl that
+ * starts with a prefix or every purl within a range. Used to find the cached
+ * Citations and snapshot urls that the delete made stale without asking the
+ * database which purls it removed.
+ *
+ * The database compares purls using the collation of its column, which may
+ * ignore case, so purls are matched both as they are and ignoring case. A
+ * purl that was not deleted may match as well; that only costs a lookup in
+ * the database.
+ *
+ * @author lruffin
+ */
+final class PurlRange {
+
+    /**
+     * The prefix shared by the deleted purls, null for a range
+     */
+    private final String Prefix;
+
+    /**
+     * The first purl of the range, inclusive
+     */
+    private final String From;
+
+    /**
+     * The last purl of the range, exclusive
+     */
+    private final String To;
+
+    private PurlRange(String prefix, String from, String to) {
+        this.Prefix = prefix;
+        this.From = from;
+        this.To = to;
+    }
+
+    /**
+     * Returns the purls that start with the given prefix
+     *
+     * @param prefix The prefix shared by the purls
+     * @return the range of purls
+     */
+    static PurlRange ofPrefix(String prefix) {
+        return new PurlRange(prefix, null, null);
+    }
+
+    /**
+     * Returns the purls within the given range
+     *
+     * @param from The first purl of the range, inclusive
+     * @param to The last purl of the range, exclusive
+     * @return the range of purls
+     */
+    static PurlRange ofRange(String from, String to) {
+        return new PurlRange(null, from, to);
+    }
+
+    /**
+     * Returns whether or not the given purl may have been deleted
+     *
+     * @param purl Unique identifier of a Citation
+     * @return true if the purl matches
+     */
+    boolean contains(String purl) {
+        if (Prefix != null) {
+            return purl.regionMatches(true, 0, Prefix, 0, Prefix.length());
+        }
+        return (purl.compareTo(From) >= 0 && purl.compareTo(To) < 0)
+                || (String.CASE_INSENSITIVE_ORDER.compare(purl, From) >= 0
+                && String.CASE_INSENSITIVE_ORDER.compare(purl, To) < 0);
+    }
+}
@@ -1,6 +1,11 @@
 package com.hida.service;
 
 import com.hida.model.Citation;
+import com.hida.model.InsertStatus;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This class is used to define the possible operations that Hibernate can
@@ -12,11 +17,45 @@ public interface ResolverService {
 
     public String retrieveUrl(String purl);
 
+    public String lookupUrl(String purl);
+
+    public String loadUrl(String purl);
+
+    public boolean isMissing(String purl);
+
     public void editUrl(String purl, String url);
 
     public void deleteCitation(String purl);
 
+    public int deleteCitationsByPrefix(String prefix);
+
+    public int deleteCitationsInRange(String from, String to);
+
     public Citation retrieveCitation(String purl);
 
+    public Citation lookupCitation(String purl);
+
+    public Citation loadCitation(String purl);
+
+    public byte[] retrieveCitationJson(String purl);
+
+    public byte[] lookupCitationJson(String purl);
+
+    public byte[] loadCitationJson(String purl);
+
+    public Map<String, Citation> retrieveCitations(Collection<String> purls);
+
     public void insertCitation(Citation citation);
+
+    public List<InsertStatus> insertCitations(List<Citation> citations);
+
+    public int writeSnapshot(UrlSnapshot.Writer writer) throws IOException;
+
+    public Map<String, Long> getStatistics();
+
+    public int preloadCitations(Collection<String> purls);
+
+    public List<String> preloadCitationsAfter(String purl, int limit);
+
+    public long countCitations();
 }
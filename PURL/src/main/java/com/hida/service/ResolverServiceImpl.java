@@ -4,9 +4,26 @@ import org.apache.log4j.Logger;
 import com.hida.controller.ResolverController;
 import com.hida.dao.CitationDao;
 import com.hida.model.Citation;
+import com.hida.model.CitationNotFoundException;
+import com.hida.model.InsertStatus;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * ResolverServiceImpl
@@ -17,32 +34,97 @@ import org.springframework.transaction.annotation.Transactional;
  retrieve url requested 5.insertCitation - insert purl, along with its url, who,
  what, when, erc 6.editUrl - edits url of a specified purl
  *
+ * Lookups are not transactional, so that lookups answered by the caches or
+ * the snapshot never touch the transaction manager or open a connection; only
+ * their fallback to the database runs in a read-only transaction. Every
+ * change runs in a transaction of its own.
+ *
  * @author lruffin
  * @author: leland lopez
  */
 @Service("resolverService")
-@Transactional
 public class ResolverServiceImpl implements ResolverService {
 
     @Autowired
     private CitationDao PurlDao;
+
+    @Autowired
+    private CitationCache Cache;
+
+    @Autowired
+    private SnapshotResolver Snapshot;
+
+    @Autowired
+    private MissingPurlCache MissingPurls;
+
+    @Autowired
+    private PlatformTransactionManager TransactionManager;
+
+    /**
+     * The number of urls read from the database at a time while writing a
+     * snapshot
+     */
+    private static final int SNAPSHOT_PAGE_SIZE = 10000;
     
     final static Logger logger = Logger.getLogger(ResolverController.class);
 
     
     /**
      * retrieves url of provided purlid returns url string if successfull, null
-     * if not
+     * if not. The url is sought after in the cache, then in the snapshot and
+     * finally in the database.
      *
      * @param purl purlid of desired row
      * @return String
      */
     @Override
     public String retrieveUrl(String purl) {
-        Citation entity = PurlDao.findByPurl(purl);
-        String url = entity.getUrl();
-        
-        return url;
+        String url = lookupUrl(purl);
+        return (url != null) ? url : loadUrl(purl);
+    }
+
+    /**
+     * retrieves url of provided purlid from the cache or the snapshot, without
+     * reading the database.
+     *
+     * @param purl purlid of desired row
+     * @return String, null if neither the cache nor the snapshot hold the purl
+     */
+    @Override
+    public String lookupUrl(String purl) {
+        Citation entity = Cache.get(purl);
+        return (entity != null) ? entity.getUrl() : Snapshot.lookup(purl);
+    }
+
+    /**
+     * reads url of provided purlid from the database, unless the purl is known
+     * to be missing, and caches its citation. Used once lookupUrl didn't find
+     * the purl.
+     *
+     * @param purl purlid of desired row
+     * @return String, null if the purl doesn't exist
+     */
+    @Override
+    public String loadUrl(String purl) {
+        long generation = Cache.getGeneration();
+        Citation entity = findCitation(purl);
+        if (entity == null) {
+            return null;
+        }
+        Cache.put(entity, generation);
+        return entity.getUrl();
+    }
+
+    /**
+     * determines whether or not the given purl is known not to exist, without
+     * reading the database.
+     *
+     * @param purl purlid of desired row
+     * @return true if the purl is known to be missing
+     */
+    @Override
+    public boolean isMissing(String purl) {
+        return MissingPurls.isMissing(purl);
     }
 
     /**
@@ -51,33 +133,135 @@ public class ResolverServiceImpl implements ResolverService {
      * @param purl Citation to insert into database
      */
     @Override
+    @Transactional
     public void insertCitation(Citation purl) {        
         PurlDao.savePurl(purl);                
+        forgetMissing(Collections.singletonList(purl));
     }
 
     /**
-     * edits url of db row with corresponding purlid. returns true if
-     * successful, false if not
+     * inserts a chunk of citations into the database within a single
+     * transaction. Citations that lack a purl or url are rejected as invalid
+     * and citations whose purl already exists, or appeared earlier in the
+     * chunk, are rejected as duplicates; the rest are saved together.
+     *
+     * @param citations Citations to insert into database
+     * @return The outcome of each citation, in the order they were given
+     */
+    @Override
+    @Transactional
+    public List<InsertStatus> insertCitations(List<Citation> citations) {
+        // find which of the purls already exist with a single query
+        List<String> purls = new ArrayList<>(citations.size());
+        for (Citation citation : citations) {
+            if (citation.getPurl() != null) {
+                purls.add(citation.getPurl());
+            }
+        }
+        Set<String> existingPurls = new HashSet<>();
+        if (!purls.isEmpty()) {
+            for (Citation entity : PurlDao.findByPurls(purls)) {
+                existingPurls.add(entity.getPurl());
+            }
+        }
+
+        // determine the outcome of each citation
+        List<InsertStatus> statuses = new ArrayList<>(citations.size());
+        List<Citation> accepted = new ArrayList<>(citations.size());
+        Set<String> seenPurls = new HashSet<>();
+        for (Citation citation : citations) {
+            if (citation.getPurl() == null || citation.getPurl().isEmpty()
+                    || citation.getUrl() == null) {
+                statuses.add(InsertStatus.INVALID);
+            }
+            else if (existingPurls.contains(citation.getPurl())
+                    || !seenPurls.add(citation.getPurl())) {
+                statuses.add(InsertStatus.DUPLICATE);
+            }
+            else {
+                statuses.add(InsertStatus.INSERTED);
+                accepted.add(citation);
+            }
+        }
+
+        PurlDao.savePurls(accepted);
+        forgetMissing(accepted);
+        return statuses;
+    }
+
+    /**
+     * edits url of db row with corresponding purlid using a single update,
+     * without loading the row.
      *
      * @param purl purlid of desired edited row
      * @param url url that desired row url will be changed to     
+     * @throws CitationNotFoundException Thrown if the purl doesn't exist
      */
     @Override
+    @Transactional
     public void editUrl(String purl, String url) {
-        Citation entity = PurlDao.findByPurl(purl);
-        entity.setUrl(url);        
+        long generation = MissingPurls.getGeneration();
+        if (MissingPurls.isMissing(purl) || PurlDao.updateUrl(purl, url) == 0) {
+            MissingPurls.recordMissing(purl, generation);
+            throw new CitationNotFoundException(purl);
+        }
+        invalidate(purl);
+        recordInSnapshot(purl, url, false);
     }
 
     /**
-     * deletes db row with corresponding purlid returns true if successful,
-     * false if not
+     * deletes db row with corresponding purlid using a single delete, without
+     * loading the row.
      *
      * @param purl purlid of desired deleted row   
+     * @throws CitationNotFoundException Thrown if the purl doesn't exist
      */
     @Override
+    @Transactional
     public void deleteCitation(String purl) {
-        Citation entity = PurlDao.findByPurl(purl);
-        PurlDao.deletePurl(entity);                
+        long generation = MissingPurls.getGeneration();
+        if (MissingPurls.isMissing(purl) || PurlDao.deleteByPurl(purl) == 0) {
+            MissingPurls.recordMissing(purl, generation);
+            throw new CitationNotFoundException(purl);
+        }
+        invalidate(purl);
+        recordInSnapshot(purl, null, true);
+    }
+
+    /**
+     * deletes every db row whose purlid starts with the given prefix using a
+     * single delete, without loading the rows.
+     *
+     * @param prefix prefix shared by the desired deleted rows
+     * @return the number of deleted rows
+     * @throws IllegalArgumentException Thrown if the prefix is blank, which
+     * would delete every row
+     */
+    @Override
+    @Transactional
+    public int deleteCitationsByPrefix(String prefix) {
+        if (prefix.trim().isEmpty()) {
+            throw new IllegalArgumentException("prefix must not be blank");
+        }
+        int deleted = PurlDao.deleteByPrefix(prefix);
+        invalidate(PurlRange.ofPrefix(prefix));
+        return deleted;
+    }
+
+    /**
+     * deletes every db row whose purlid lies within the given range using a
+     * single delete, without loading the rows.
+     *
+     * @param from first purlid of the range, inclusive
+     * @param to last purlid of the range, exclusive
+     * @return the number of deleted rows
+     */
+    @Override
+    @Transactional
+    public int deleteCitationsInRange(String from, String to) {
+        int deleted = PurlDao.deleteInRange(from, to);
+        invalidate(PurlRange.ofRange(from, to));
+        return deleted;
     }
 
     /**
@@ -88,8 +272,385 @@ public class ResolverServiceImpl implements ResolverService {
      */
     @Override
     public Citation retrieveCitation(String purl) {
-        Citation entity = PurlDao.findByPurl(purl);
-        
-        return entity;        
-    }   
+        Citation entity = lookupCitation(purl);
+        return (entity != null) ? entity : loadCitation(purl);
+    }
+
+    /**
+     * retrieves the citation with the given purl from the cache, without
+     * reading the database.
+     *
+     * @param purl purlid of desired row
+     * @return Citation, null if it isn't cached
+     */
+    @Override
+    public Citation lookupCitation(String purl) {
+        return Cache.get(purl);
+    }
+
+    /**
+     * reads the citation with the given purl from the database, unless it is
+     * known to be missing, and caches it. Used once lookupCitation didn't find
+     * the purl.
+     *
+     * @param purl purlid of desired row
+     * @return Citation, null if it doesn't exist
+     */
+    @Override
+    public Citation loadCitation(String purl) {
+        long generation = Cache.getGeneration();
+        Citation entity = findCitation(purl);
+        if (entity != null) {
+            Cache.put(entity, generation);
+        }
+        return entity;
+    }
+
+    /**
+     * retrieves the encoded json of the citation with the given purl. Cached
+     * citations are answered with the json that was encoded when they were
+     * cached, so that no serialization happens on a cache hit.
+     *
+     * @param purl purlid of desired row
+     * @return UTF-8 encoded json of the citation, null if it doesn't exist
+     */
+    @Override
+    public byte[] retrieveCitationJson(String purl) {
+        byte[] json = lookupCitationJson(purl);
+        return (json != null) ? json : loadCitationJson(purl);
+    }
+
+    /**
+     * retrieves the encoded json of the citation with the given purl from the
+     * cache, without reading the database.
+     *
+     * @param purl purlid of desired row
+     * @return UTF-8 encoded json of the citation, null if it isn't cached
+     */
+    @Override
+    public byte[] lookupCitationJson(String purl) {
+        return Cache.getJson(purl);
+    }
+
+    /**
+     * reads the citation with the given purl from the database, unless it is
+     * known to be missing, caches it and encodes it. Used once
+     * lookupCitationJson didn't find the purl.
+     *
+     * @param purl purlid of desired row
+     * @return UTF-8 encoded json of the citation, null if it doesn't exist
+     */
+    @Override
+    public byte[] loadCitationJson(String purl) {
+        long generation = Cache.getGeneration();
+        Citation entity = findCitation(purl);
+        return (entity != null) ? Cache.put(entity, generation) : null;
+    }
+
+    /**
+     * retrieves the citations of every given purl. Citations that are already
+     * cached are returned without touching the database, the remaining ones
+     * are loaded together and added to the cache. Purls that do not belong to
+     * any citation are absent from the returned map.
+     *
+     * @param purls purlids of desired rows
+     * @return Map of purls to their citations, ordered as the purls were given
+     */
+    @Override
+    public Map<String, Citation> retrieveCitations(Collection<String> purls) {
+        Map<String, Citation> citations = new LinkedHashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String purl : purls) {
+            Citation entity = Cache.get(purl);
+            if (entity == null && !MissingPurls.isMissing(purl)) {
+                misses.add(purl);
+            }
+            citations.put(purl, entity);
+        }
+
+        if (!misses.isEmpty()) {
+            long generation = Cache.getGeneration();
+            long missingGeneration = MissingPurls.getGeneration();
+            Set<String> found = new HashSet<>();
+            for (Citation entity : findCitations(misses)) {
+                Cache.put(entity, generation);
+                citations.put(entity.getPurl(), entity);
+                found.add(entity.getPurl());
+            }
+            for (String purl : misses) {
+                if (!found.contains(purl)) {
+                    MissingPurls.recordMissing(purl, missingGeneration);
+                }
+            }
+        }
+
+        // remove the purls that could not be found
+        citations.values().removeAll(Collections.singleton(null));
+        return citations;
+    }
+
+    /**
+     * writes the url of every citation into the given snapshot writer. The
+     * table is read a page at a time in order of purl, and only the purl and
+     * url columns are read.
+     *
+     * @param writer The writer of the new snapshot
+     * @return The number of urls written
+     * @throws IOException Thrown if the writer fails
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public int writeSnapshot(UrlSnapshot.Writer writer) throws IOException {
+        int count = 0;
+        String last = null;
+        Map<String, String> page;
+        do {
+            page = PurlDao.findUrlsAfter(last, SNAPSHOT_PAGE_SIZE);
+            for (Map.Entry<String, String> entry : page.entrySet()) {
+                writer.add(entry.getKey(), entry.getValue());
+                last = entry.getKey();
+                count++;
+            }
+        } while (page.size() == SNAPSHOT_PAGE_SIZE);
+        return count;
+    }
+
+    /**
+     * returns statistics of the caches and snapshot that answer lookups
+     * without the database, keyed by name.
+     *
+     * @return Map of statistic names to their values
+     */
+    @Override
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("cache.size", (long) Cache.size());
+        statistics.put("cache.capacity", (long) Cache.getCapacity());
+        statistics.put("cache.hits", Cache.getHits());
+        statistics.put("cache.misses", Cache.getMisses());
+        statistics.put("missing.size", (long) MissingPurls.size());
+        statistics.put("missing.hits", MissingPurls.getHits());
+        statistics.put("missing.recorded", MissingPurls.getRecords());
+        statistics.put("snapshot.size", (long) Snapshot.size());
+        statistics.put("snapshot.overlay", (long) Snapshot.getOverlaySize());
+        return statistics;
+    }
+
+    /**
+     * loads the citations of the given purls into the cache, without replacing
+     * cached citations. Used to warm up the cache.
+     *
+     * @param purls purlids of desired rows
+     * @return the number of citations added to the cache
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public int preloadCitations(Collection<String> purls) {
+        long generation = Cache.getGeneration();
+        int loaded = 0;
+        for (Citation entity : PurlDao.findByPurls(purls)) {
+            if (Cache.putIfAbsent(entity, generation)) {
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * loads a page of citations that follow the given purl into the cache,
+     * without replacing cached citations. Used to warm up the cache by
+     * paging through the whole table.
+     *
+     * @param purl purlid after which to start, or null to start at the
+     * beginning of the table
+     * @param limit the maximum number of citations to load
+     * @return the purlids of the page, empty if there are no more rows
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> preloadCitationsAfter(String purl, int limit) {
+        long generation = Cache.getGeneration();
+        List<Citation> page = PurlDao.findCitationsAfter(purl, limit);
+        List<String> purls = new ArrayList<>(page.size());
+        for (Citation entity : page) {
+            Cache.putIfAbsent(entity, generation);
+            purls.add(entity.getPurl());
+        }
+        return purls;
+    }
+
+    /**
+     * counts every db row
+     *
+     * @return the number of rows
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long countCitations() {
+        return PurlDao.countPurls();
+    }
+
+    /**
+     * retrieves the citation with the given purl from the database, in a
+     * read-only transaction, unless it is known to be missing. Purls that are
+     * not found are remembered as missing, unless one was inserted while the
+     * database was read.
+     *
+     * @param purl purlid of desired row
+     * @return Citation, null if it doesn't exist
+     */
+    private Citation findCitation(final String purl) {
+        if (MissingPurls.isMissing(purl)) {
+            return null;
+        }
+        long generation = MissingPurls.getGeneration();
+        Citation entity = read(new TransactionCallback<Citation>() {
+            @Override
+            public Citation doInTransaction(TransactionStatus status) {
+                return PurlDao.findByPurl(purl);
+            }
+        });
+        if (entity == null) {
+            MissingPurls.recordMissing(purl, generation);
+        }
+        return entity;
+    }
+
+    /**
+     * retrieves the citations with the given purls from the database in a
+     * read-only transaction.
+     *
+     * @param purls purlids of desired rows
+     * @return the citations that exist
+     */
+    private List<Citation> findCitations(final Collection<String> purls) {
+        return read(new TransactionCallback<List<Citation>>() {
+            @Override
+            public List<Citation> doInTransaction(TransactionStatus status) {
+                return PurlDao.findByPurls(purls);
+            }
+        });
+    }
+
+    /**
+     * runs a read of the database in a read-only transaction, joining the
+     * current transaction if there is one.
+     *
+     * @param read the read
+     * @return the result of the read
+     */
+    private <T> T read(TransactionCallback<T> read) {
+        TransactionTemplate template = new TransactionTemplate(TransactionManager);
+        template.setReadOnly(true);
+        return template.execute(read);
+    }
+
+    /**
+     * removes the given purl from the cache once the current transaction
+     * commits. A concurrent lookup that read the old row does not cache it
+     * afterwards, since the invalidation changes the generation of the cache.
+     *
+     * @param purl purlid of the changed row
+     */
+    private void invalidate(final String purl) {
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                Cache.invalidate(purl);
+            }
+        });
+    }
+
+    /**
+     * removes the given range of purls from the cache and the snapshot once
+     * the current transaction commits.
+     *
+     * @param range purlids of the deleted rows
+     */
+    private void invalidate(final PurlRange range) {
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                Cache.invalidate(range);
+                Snapshot.recordDelete(range);
+            }
+        });
+    }
+
+    /**
+     * forgets that the purls of the given citations were missing once the
+     * current transaction commits.
+     *
+     * @param citations the inserted citations
+     */
+    private void forgetMissing(final List<Citation> citations) {
+        if (citations.isEmpty()) {
+            return;
+        }
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                for (Citation citation : citations) {
+                    MissingPurls.invalidate(citation.getPurl());
+                }
+            }
+        });
+    }
+
+    /**
+     * records a change in the snapshot overlay once the current transaction
+     * commits, so that rolled back changes are never resolved.
+     *
+     * @param purl purlid of the changed row
+     * @param url the new url of the row
+     * @param deleted whether or not the row was deleted
+     */
+    private void recordInSnapshot(final String purl, final String url, final boolean deleted) {
+        if (!Snapshot.isEnabled()) {
+            return;
+        }
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                applyToSnapshot(purl, url, deleted);
+            }
+        });
+    }
+
+    /**
+     * runs the given task once the current transaction commits. Without a
+     * transaction the task is run immediately.
+     *
+     * @param task the task to run
+     */
+    private void afterCommit(final Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCommit() {
+                            task.run();
+                        }
+                    });
+        }
+        else {
+            task.run();
+        }
+    }
+
+    /**
+     * records a change in the snapshot overlay
+     *
+     * @param purl purlid of the changed row
+     * @param url the new url of the row
+     * @param deleted whether or not the row was deleted
+     */
+    private void applyToSnapshot(String purl, String url, boolean deleted) {
+        if (deleted) {
+            Snapshot.recordDelete(purl);
+        }
+        else {
+            Snapshot.recordEdit(purl, url);
+        }
+    }
 }
@@ -0,0 +1,99 @@
+package com.hida.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the existing snapshot on startup, so that the resolver is at full speed
+ * immediately, and periodically replaces it with a fresh one in the
+ * background. New snapshots are written next to the current one and then
+ * moved over it.
+ *
+ * @author lruffin
+ */
+@Component
+public class SnapshotRefresher {
+
+    private static final Logger Logger = LoggerFactory.getLogger(SnapshotRefresher.class);
+
+    @Autowired
+    private ResolverService ResolverService;
+
+    @Autowired
+    private SnapshotResolver Snapshot;
+
+    @Autowired
+    private ScheduledExecutorService Executor;
+
+    @Autowired
+    private Environment Environment;
+
+    /**
+     * Loads the snapshot and schedules its refreshes. The first refresh happens
+     * immediately if no snapshot could be loaded.
+     */
+    @PostConstruct
+    public void start() {
+        if (!Snapshot.isEnabled()) {
+            return;
+        }
+        boolean loaded = false;
+        try {
+            loaded = Snapshot.load();
+            if (loaded) {
+                Logger.info("Loaded snapshot of " + Snapshot.size() + " urls");
+            }
+        }
+        catch (IOException exception) {
+            Logger.warn("Unable to load snapshot " + Snapshot.getSnapshotFile(), exception);
+        }
+
+        long interval = Environment.getProperty("resolver.snapshot.interval", Long.class, 300L);
+        Executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                }
+                catch (IOException | RuntimeException exception) {
+                    // keep the schedule alive; the next refresh may succeed
+                    Logger.error("Unable to refresh snapshot", exception);
+                }
+            }
+        }, loaded ? interval : 0, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes a new snapshot from the database and starts using it.
+     *
+     * @throws IOException Thrown if the snapshot could not be written
+     */
+    public void refresh() throws IOException {
+        File target = Snapshot.getSnapshotFile();
+        File temp = new File(target.getPath() + ".tmp");
+        long start = System.currentTimeMillis();
+        // ranges deleted from here on may be missed by the new snapshot
+        long generation = Snapshot.getGeneration();
+
+        int count;
+        try (UrlSnapshot.Writer writer = new UrlSnapshot.Writer(temp)) {
+            count = ResolverService.writeSnapshot(writer);
+        }
+        Files.move(temp.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Snapshot.install(UrlSnapshot.open(target), generation);
+
+        Logger.info("Wrote snapshot of " + count + " urls in "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+}
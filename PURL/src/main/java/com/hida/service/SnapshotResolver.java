@@ -0,0 +1,235 @@
+package com.hida.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves purls into urls using the most recent UrlSnapshot, combined with an
+ * overlay of the changes made since that snapshot was written. Lookups that
+ * can not be answered return null so that the caller falls back to the
+ * database.
+ *
+ * Edits are recorded in the overlay with their new url and deletions are
+ * recorded as tombstones, which hide the stale url held by the snapshot.
+ * Newly inserted purls need not be recorded since the snapshot does not know
+ * of them. Whenever a new snapshot is installed, the overlay entries it
+ * already agrees with are dropped.
+ *
+ * Bulk deletes are recorded as deleted ranges, since the snapshot can not
+ * list the purls of a prefix or range. A deleted range is only dropped once a
+ * snapshot that was started after the delete is installed.
+ *
+ * @author lruffin
+ */
+public class SnapshotResolver {
+
+    /**
+     * Marks purls whose url must be retrieved from the database. Compared by
+     * identity.
+     */
+    private static final String TOMBSTONE = new String("");
+
+    /**
+     * The location of the snapshot, null if snapshots are disabled
+     */
+    private final File SnapshotFile;
+
+    private final ConcurrentMap<String, String> Overlay = new ConcurrentHashMap<>();
+
+    /**
+     * The ranges deleted since the snapshot was started, each with the
+     * generation it was recorded in
+     */
+    private final CopyOnWriteArrayList<DeletedRange> DeletedRanges
+            = new CopyOnWriteArrayList<>();
+
+    /**
+     * Counts the recorded ranges; see getGeneration
+     */
+    private final AtomicLong Generation = new AtomicLong();
+
+    private volatile UrlSnapshot Snapshot;
+
+    /**
+     * Creates a resolver that does not use snapshots; every lookup returns
+     * null.
+     */
+    public SnapshotResolver() {
+        this(null);
+    }
+
+    /**
+     * Creates a resolver backed by the given snapshot file. No snapshot is used
+     * until one is loaded or installed.
+     *
+     * @param snapshotFile The location of the snapshot, or null to disable
+     * snapshots
+     */
+    public SnapshotResolver(File snapshotFile) {
+        this.SnapshotFile = snapshotFile;
+    }
+
+    /**
+     * Looks up the url of the given purl.
+     *
+     * @param purl Unique identifier of a Citation
+     * @return The url, or null if it must be retrieved from the database
+     */
+    public String lookup(String purl) {
+        if (SnapshotFile == null) {
+            return null;
+        }
+        String url = Overlay.get(purl);
+        if (url != null) {
+            return (url == TOMBSTONE) ? null : url;
+        }
+        for (DeletedRange deleted : DeletedRanges) {
+            if (deleted.Range.contains(purl)) {
+                return null;
+            }
+        }
+        UrlSnapshot snapshot = Snapshot;
+        return (snapshot == null) ? null : snapshot.lookup(purl);
+    }
+
+    /**
+     * Records that the url of the given purl has changed. Should only be
+     * called once the change is committed.
+     *
+     * @param purl Unique identifier of a Citation
+     * @param url The new url
+     */
+    public void recordEdit(String purl, String url) {
+        if (SnapshotFile != null) {
+            Overlay.put(purl, (url == null) ? TOMBSTONE : url);
+        }
+    }
+
+    /**
+     * Records that the given purl was deleted. Should only be called once the
+     * deletion is committed.
+     *
+     * @param purl Unique identifier of a Citation
+     */
+    public void recordDelete(String purl) {
+        if (SnapshotFile != null) {
+            Overlay.put(purl, TOMBSTONE);
+        }
+    }
+
+    /**
+     * Records that every purl within the given range was deleted. Should only
+     * be called once the deletion is committed.
+     *
+     * @param range The purls of the deleted Citations
+     */
+    void recordDelete(PurlRange range) {
+        if (SnapshotFile == null) {
+            return;
+        }
+        DeletedRanges.add(new DeletedRange(range, Generation.incrementAndGet()));
+        // edits recorded before the delete must not outlive it
+        for (Map.Entry<String, String> entry : Overlay.entrySet()) {
+            if (range.contains(entry.getKey())) {
+                entry.setValue(TOMBSTONE);
+            }
+        }
+    }
+
+    /**
+     * Returns the generation of the most recently recorded deleted range. A
+     * snapshot should read it before it starts reading the database, and
+     * hand it to install, so that the ranges it reflects are dropped.
+     *
+     * @return the current generation
+     */
+    public long getGeneration() {
+        return Generation.get();
+    }
+
+    /**
+     * Opens the snapshot file, if it exists, and starts using it.
+     *
+     * @return true if a snapshot was loaded
+     * @throws IOException Thrown if the file exists but could not be opened
+     */
+    public boolean load() throws IOException {
+        if (SnapshotFile == null || !SnapshotFile.isFile()) {
+            return false;
+        }
+        install(UrlSnapshot.open(SnapshotFile));
+        return true;
+    }
+
+    /**
+     * Starts using the given snapshot and drops every overlay entry that it
+     * already reflects. Entries that changed concurrently are kept.
+     *
+     * @param snapshot The new snapshot
+     */
+    public void install(UrlSnapshot snapshot) {
+        install(snapshot, 0);
+    }
+
+    /**
+     * Starts using the given snapshot and drops every overlay entry that it
+     * already reflects, including the deleted ranges recorded up to the given
+     * generation.
+     *
+     * @param snapshot The new snapshot
+     * @param generation The generation read before the snapshot was started
+     */
+    public void install(UrlSnapshot snapshot, long generation) {
+        Snapshot = snapshot;
+        for (DeletedRange deleted : DeletedRanges) {
+            if (deleted.Generation <= generation) {
+                DeletedRanges.remove(deleted);
+            }
+        }
+        for (Map.Entry<String, String> entry : Overlay.entrySet()) {
+            String url = entry.getValue();
+            String snapshotUrl = snapshot.lookup(entry.getKey());
+            if ((url == TOMBSTONE) ? snapshotUrl == null : url.equals(snapshotUrl)) {
+                Overlay.remove(entry.getKey(), url);
+            }
+        }
+    }
+
+    /* typical getters */
+    public boolean isEnabled() {
+        return SnapshotFile != null;
+    }
+
+    public File getSnapshotFile() {
+        return SnapshotFile;
+    }
+
+    public int size() {
+        UrlSnapshot snapshot = Snapshot;
+        return (snapshot == null) ? 0 : snapshot.size();
+    }
+
+    public int getOverlaySize() {
+        return Overlay.size() + DeletedRanges.size();
+    }
+
+    /**
+     * A range of deleted purls and the generation it was recorded in
+     */
+    private static final class DeletedRange {
+
+        private final PurlRange Range;
+
+        private final long Generation;
+
+        private DeletedRange(PurlRange range, long generation) {
+            this.Range = range;
+            this.Generation = generation;
+        }
+    }
+}
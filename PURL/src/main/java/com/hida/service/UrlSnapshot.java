@@ -0,0 +1,311 @@
+package com.hida.service;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A read-only, memory-mapped snapshot of the purl to url mapping of every
+ * Citation. Lookups hash the requested purl and probe a table within the
+ * mapped file, comparing the purl against the mapped bytes in place, so a
+ * snapshot is usable as soon as it is opened and does not occupy the heap.
+ *
+ * The file is laid out as follows, with every number in big-endian order:
+ *
+ * <pre>
+ * header: magic (int), version (int), entry count (int), slot count (int)
+ * table:  slot count ints; each holds the offset of an entry within the data
+ *         section plus one, or 0 if the slot is empty
+ * data:   entries of hash (int), purl length (unsigned short), purl (UTF-8),
+ *         url length (int, -1 if null), url (UTF-8)
+ * </pre>
+ *
+ * Collisions are resolved by linear probing and the table is kept at most
+ * half full. Snapshots are limited to 2GB, the size of a single mapping.
+ *
+ * @author lruffin
+ */
+public class UrlSnapshot {
+
+    private static final int MAGIC = 0x5055524C;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final MappedByteBuffer Buffer;
+
+    private final int Count;
+
+    private final int Mask;
+
+    private final int DataOffset;
+
+    /**
+     * Creates a snapshot from a mapped file whose header was already read
+     *
+     * @param buffer The mapped file
+     * @param count The number of entries
+     * @param slots The number of slots in the table, a power of two
+     */
+    private UrlSnapshot(MappedByteBuffer buffer, int count, int slots) {
+        this.Buffer = buffer;
+        this.Count = count;
+        this.Mask = slots - 1;
+        this.DataOffset = HEADER_SIZE + slots * 4;
+    }
+
+    /**
+     * Maps the given snapshot file into memory. The file may be replaced
+     * after it has been opened without affecting the returned snapshot.
+     *
+     * @param file A file previously created by a Writer
+     * @return The opened snapshot
+     * @throws IOException Thrown if the file could not be read or is not a
+     * snapshot
+     */
+    public static UrlSnapshot open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("not a snapshot: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("not a snapshot: " + file);
+            }
+            int count = buffer.getInt(8);
+            int slots = buffer.getInt(12);
+            if (Integer.bitCount(slots) != 1 || HEADER_SIZE + (long) slots * 4 > buffer.capacity()) {
+                throw new IOException("corrupt snapshot: " + file);
+            }
+            return new UrlSnapshot(buffer, count, slots);
+        }
+    }
+
+    /**
+     * Looks up the url of the given purl. This method is safe to call from
+     * any number of threads.
+     *
+     * @param purl Unique identifier of a Citation
+     * @return The url, or null if the purl is absent or its url is null
+     */
+    public String lookup(String purl) {
+        byte[] key = purl.getBytes(UTF_8);
+        int hash = hash(key);
+        for (int slot = hash & Mask;; slot = (slot + 1) & Mask) {
+            int offset = Buffer.getInt(HEADER_SIZE + slot * 4);
+            if (offset == 0) {
+                return null;
+            }
+            int position = DataOffset + offset - 1;
+            if (Buffer.getInt(position) == hash && matches(position + 4, key)) {
+                return readUrl(position + 6 + key.length);
+            }
+        }
+    }
+
+    /**
+     * Compares the purl of an entry against the given key without copying it
+     *
+     * @param position The position of the entry's purl length
+     * @param key The UTF-8 encoded purl
+     * @return true if the purl of the entry equals the key
+     */
+    private boolean matches(int position, byte[] key) {
+        if ((Buffer.getShort(position) & 0xFFFF) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (Buffer.get(position + 2 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the url of an entry
+     *
+     * @param position The position of the entry's url length
+     * @return The url, or null if it was stored as null
+     */
+    private String readUrl(int position) {
+        int length = Buffer.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] url = new byte[length];
+        for (int i = 0; i < length; i++) {
+            url[i] = Buffer.get(position + 4 + i);
+        }
+        return new String(url, UTF_8);
+    }
+
+    /**
+     * Returns the number of purls held by this snapshot
+     *
+     * @return the number of purls
+     */
+    public int size() {
+        return Count;
+    }
+
+    /**
+     * A 32-bit FNV-1a hash of the given bytes. The hash is part of the file
+     * format and must not change between versions.
+     *
+     * @param bytes The bytes to hash
+     * @return The hash
+     */
+    private static int hash(byte[] bytes) {
+        int hash = 0x811C9DC5;
+        for (byte b : bytes) {
+            hash ^= (b & 0xFF);
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * Writes a snapshot file one entry at a time. Entries are streamed into a
+     * temporary data file and only their hashes and offsets are kept in
+     * memory; the table is written in front of the data once the Writer is
+     * closed. Every purl may only be added once.
+     */
+    public static class Writer implements Closeable {
+
+        private final File Target;
+
+        private final File DataFile;
+
+        private final DataOutputStream Data;
+
+        private int[] Hashes = new int[1024];
+
+        private int[] Offsets = new int[1024];
+
+        private int Count = 0;
+
+        private boolean Closed = false;
+
+        /**
+         * Creates a Writer that creates the given file once closed
+         *
+         * @param target The snapshot file to create or overwrite
+         * @throws IOException Thrown if the temporary data file could not be
+         * created
+         */
+        public Writer(File target) throws IOException {
+            this.Target = target;
+            this.DataFile = new File(target.getPath() + ".data");
+            this.Data = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(DataFile), 1 << 16));
+        }
+
+        /**
+         * Adds a purl and its url to the snapshot
+         *
+         * @param purl Unique identifier of a Citation
+         * @param url The url of the Citation, may be null
+         * @throws IOException Thrown if the entry could not be written or the
+         * snapshot would exceed 2GB
+         */
+        public void add(String purl, String url) throws IOException {
+            byte[] key = purl.getBytes(UTF_8);
+            if (key.length > 0xFFFF) {
+                throw new IOException("purl is too long to be stored: " + purl);
+            }
+            if (Count == Hashes.length) {
+                Hashes = Arrays.copyOf(Hashes, Count * 2);
+                Offsets = Arrays.copyOf(Offsets, Count * 2);
+            }
+            int hash = hash(key);
+            Hashes[Count] = hash;
+            Offsets[Count] = Data.size();
+            Count++;
+
+            Data.writeInt(hash);
+            Data.writeShort(key.length);
+            Data.write(key);
+            if (url == null) {
+                Data.writeInt(-1);
+            }
+            else {
+                byte[] value = url.getBytes(UTF_8);
+                Data.writeInt(value.length);
+                Data.write(value);
+            }
+            if (Data.size() == Integer.MAX_VALUE) {
+                // DataOutputStream saturates its counter at Integer.MAX_VALUE
+                throw new IOException("snapshot exceeds 2GB");
+            }
+        }
+
+        /**
+         * Returns the number of purls added so far
+         *
+         * @return the number of purls
+         */
+        public int size() {
+            return Count;
+        }
+
+        /**
+         * Writes the header and table followed by the data into the target
+         * file and removes the temporary data file.
+         *
+         * @throws IOException Thrown if the target could not be written
+         */
+        @Override
+        public void close() throws IOException {
+            if (Closed) {
+                return;
+            }
+            Closed = true;
+            Data.close();
+            try {
+                int slots = Integer.highestOneBit(Math.max(2, Count * 2 - 1)) << 1;
+                long size = HEADER_SIZE + (long) slots * 4 + DataFile.length();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("snapshot exceeds 2GB");
+                }
+
+                int[] table = new int[slots];
+                int mask = slots - 1;
+                for (int i = 0; i < Count; i++) {
+                    int slot = Hashes[i] & mask;
+                    while (table[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table[slot] = Offsets[i] + 1;
+                }
+
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(Target), 1 << 16))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(Count);
+                    out.writeInt(slots);
+                    for (int offset : table) {
+                        out.writeInt(offset);
+                    }
+                    Files.copy(DataFile.toPath(), out);
+                }
+            }
+            finally {
+                Files.deleteIfExists(DataFile.toPath());
+            }
+        }
+    }
+}
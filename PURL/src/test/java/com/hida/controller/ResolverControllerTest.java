@@ -1,17 +1,40 @@
 package com.hida.controller;
 
 import com.hida.model.Citation;
+import com.hida.model.CitationNotFoundException;
+import com.hida.model.HitCount;
+import com.hida.model.InsertStatus;
+import com.hida.model.ResolverBusyException;
+import com.hida.service.CacheWarmer;
+import com.hida.service.CitationSerializer;
+import com.hida.service.HitCounter;
+import com.hida.service.HitService;
+import com.hida.service.LookupQueue;
 import com.hida.service.ResolverService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.mockito.InjectMocks;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.ModelAndView;
 import org.testng.annotations.Test;
 import org.testng.Assert;
@@ -28,6 +51,18 @@ public class ResolverControllerTest {
     @Mock
     private ResolverService Service;
 
+    @Mock
+    private HitService HitService;
+
+    @Spy
+    private HitCounter Hits = new HitCounter(60000, 2);
+
+    @Mock
+    private CacheWarmer Warmer;
+
+    @Spy
+    private LookupQueue Lookups = new LookupQueue(1, 1, 1000);
+
     @InjectMocks
     private ResolverController Controller;
 
@@ -44,14 +79,20 @@ public class ResolverControllerTest {
     @Test
     public void testRetrieve() throws Exception {
         Citation entity = getSampleCitation();
-        when(Service.retrieveCitation(any(String.class))).thenReturn(entity);
+        when(Service.loadCitation(any(String.class))).thenReturn(entity);
 
         // test to see that the correct view is returned
-        ModelAndView mav = Controller.retrieve("");
+        ModelAndView mav = call(Controller.retrieve(""));
         Assert.assertEquals("result", mav.getViewName());
 
         // test to see that Service at least makes a call to get a Citation object
-        verify(Service, atLeastOnce()).retrieveCitation(any(String.class));
+        verify(Service, atLeastOnce()).loadCitation(any(String.class));
+
+        // test to see that a cached citation is answered without a lookup
+        when(Service.lookupCitation("cachedPid")).thenReturn(entity);
+        Assert.assertEquals(((ModelAndView) Controller.retrieve("cachedPid")).getViewName(),
+                "result");
+        verify(Service, never()).loadCitation("cachedPid");
 
         // test to see that Json is formated properly
         Map<String, Object> map = mav.getModel();
@@ -59,6 +100,201 @@ public class ResolverControllerTest {
         testJsonObject(jsonObject, entity);
     }
 
+    /**
+     * Test the resolve REST call, both for purls held in memory and for purls
+     * read from the database
+     */
+    @Test
+    public void testResolve() throws Exception {
+        when(Service.lookupUrl("resolvedPid")).thenReturn("http://www.google.com");
+        when(Service.loadUrl("storedPid")).thenReturn("http://www.google.com/stored");
+        when(Service.isMissing("knownMissingPid")).thenReturn(true);
+
+        ResponseEntity<Void> response = call(Controller.resolve("resolvedPid"));
+        Assert.assertEquals(response.getStatusCode(), HttpStatus.FOUND);
+        Assert.assertEquals(response.getHeaders().getFirst("Location"), "http://www.google.com");
+        verify(Service, never()).loadUrl("resolvedPid");
+
+        response = call(Controller.resolve("storedPid"));
+        Assert.assertEquals(response.getHeaders().getFirst("Location"),
+                "http://www.google.com/stored");
+
+        for (String purl : Arrays.asList("missingPid", "knownMissingPid")) {
+            try {
+                call(Controller.resolve(purl));
+                Assert.fail("expected CitationNotFoundException");
+            }
+            catch (CitationNotFoundException exception) {
+                Assert.assertEquals(exception.getPurl(), purl);
+            }
+        }
+        verify(Service, never()).loadUrl("knownMissingPid");
+    }
+
+    /**
+     * Test that lookups of the database are queued, that lookups beyond the
+     * queue are answered with a 503 and a small Json body, and that purls
+     * held in memory are still answered while the queue is full
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLookupsQueued() throws Exception {
+        when(Service.loadUrl("queuedPid")).thenReturn("http://www.google.com");
+        when(Service.lookupUrl("memoryPid")).thenReturn("http://www.google.com");
+        Object first = Controller.resolve("queuedPid");
+        Object second = Controller.resolve("queuedPid");
+        Assert.assertTrue(first instanceof WebAsyncTask);
+        Assert.assertEquals(Lookups.getQueued(), 2);
+        Assert.assertTrue(Controller.resolve("memoryPid") instanceof ResponseEntity);
+        try {
+            Controller.retrieveJson("queuedPid");
+            Assert.fail("expected ResolverBusyException");
+        }
+        catch (ResolverBusyException exception) {
+            ResponseEntity<byte[]> response = Controller.handleBusy(exception);
+            Assert.assertEquals(response.getStatusCode(), HttpStatus.SERVICE_UNAVAILABLE);
+            JSONObject body = new JSONObject(new String(response.getBody(), "UTF-8"));
+            Assert.assertEquals(body.getInt("status"), 503);
+        }
+
+        Assert.assertEquals(this.<ResponseEntity<Void>>call(first).getStatusCode(),
+                HttpStatus.FOUND);
+        Assert.assertEquals(this.<ResponseEntity<Void>>call(second).getStatusCode(),
+                HttpStatus.FOUND);
+        Assert.assertEquals(Lookups.getQueued(), 0);
+    }
+
+    /**
+     * Test that missing purls are answered with a 404 and a small Json body
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHandleCitationNotFound() throws Exception {
+        ResponseEntity<byte[]> response = Controller.handleCitationNotFound(
+                new CitationNotFoundException("missingPid"));
+
+        Assert.assertEquals(response.getStatusCode(), HttpStatus.NOT_FOUND);
+        JSONObject body = new JSONObject(new String(response.getBody(), "UTF-8"));
+        Assert.assertEquals(body.getInt("status"), 404);
+    }
+
+    /**
+     * Test the hit REST calls
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHits() throws Exception {
+        when(Service.lookupUrl("hitPid")).thenReturn("http://www.google.com");
+        when(HitService.retrieveHistory("hitPid")).thenReturn(
+                Arrays.asList(new HitCount("hitPid", 0, 5)));
+        call(Controller.resolve("hitPid"));
+        call(Controller.resolve("hitPid"));
+
+        JSONObject hits = new JSONObject(new String(
+                Controller.hits("hitPid").getBody(), "UTF-8"));
+        Assert.assertEquals(hits.getLong("hits"), 2);
+        Assert.assertEquals(hits.getJSONArray("buckets").getJSONObject(0).getLong("hits"), 2);
+
+        JSONObject top = new JSONObject(new String(
+                Controller.topHits(1).getBody(), "UTF-8"));
+        Assert.assertEquals(top.getJSONArray("top").getJSONObject(0).getString("purl"), "hitPid");
+
+        JSONObject history = new JSONObject(new String(
+                Controller.hitHistory("hitPid").getBody(), "UTF-8"));
+        Assert.assertEquals(history.getJSONArray("buckets").getJSONObject(0).getLong("hits"), 5);
+    }
+
+    /**
+     * Test the metrics REST call
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMetrics() throws Exception {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("cache.hits", 3L);
+        statistics.put("missing.hits", 2L);
+        when(Service.getStatistics()).thenReturn(statistics);
+        when(Warmer.getState()).thenReturn(CacheWarmer.State.RUNNING);
+        when(Warmer.getStatistics()).thenReturn(Collections.singletonMap("warmup.loaded", 7L));
+
+        ResponseEntity<byte[]> response = Controller.metrics();
+        JSONObject body = new JSONObject(new String(response.getBody(), "UTF-8"));
+        Assert.assertEquals(body.getLong("cache.hits"), 3L);
+        Assert.assertEquals(body.getLong("missing.hits"), 2L);
+        Assert.assertEquals(body.getString("warmup.state"), "running");
+        Assert.assertEquals(body.getLong("warmup.loaded"), 7L);
+    }
+
+    /**
+     * Test the Json variant of the retrieve REST call
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRetrieveJson() throws Exception {
+        Citation entity = getSampleCitation();
+        when(Service.lookupCitationJson(entity.getPurl()))
+                .thenReturn(CitationSerializer.toJson(entity));
+        when(Service.loadCitationJson("storedPid"))
+                .thenReturn(CitationSerializer.toJson(entity));
+
+        // test to see that the encoded Json is returned as is, without a
+        // lookup if it is cached
+        ResponseEntity<byte[]> response = call(Controller.retrieveJson(entity.getPurl()));
+        Assert.assertEquals(response.getStatusCode(), HttpStatus.OK);
+        Assert.assertEquals(response.getHeaders().getContentType().toString(),
+                "application/json;charset=UTF-8");
+        testJsonObject(new String(response.getBody(), "UTF-8"), entity);
+        verify(Service, never()).loadCitationJson(entity.getPurl());
+
+        response = call(Controller.retrieveJson("storedPid"));
+        testJsonObject(new String(response.getBody(), "UTF-8"), entity);
+
+        // test to see that a missing purl is reported as not found
+        when(Service.loadCitationJson("missingPid")).thenReturn(null);
+        try {
+            call(Controller.retrieveJson("missingPid"));
+            Assert.fail("expected CitationNotFoundException");
+        }
+        catch (CitationNotFoundException exception) {
+            Assert.assertEquals(exception.getPurl(), "missingPid");
+        }
+    }
+
+    /**
+     * Test the batch retrieve REST call
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRetrieveBatch() throws Exception {
+        Citation entity = getSampleCitation();
+        Map<String, Citation> citations = new LinkedHashMap<>();
+        citations.put(entity.getPurl(), entity);
+        when(Service.retrieveCitations(anyCollectionOf(String.class))).thenReturn(citations);
+
+        // test to see that Json is returned
+        List<String> purls = Arrays.asList(entity.getPurl(), "missingPid");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Controller.retrieveBatch(purls, response);
+        Assert.assertEquals(response.getStatus(), HttpStatus.OK.value());
+        Assert.assertEquals(response.getContentType(), "application/json;charset=UTF-8");
+
+        // test to see that found and missing purls are reported separately
+        JSONObject result = new JSONObject(response.getContentAsString());
+        JSONArray found = result.getJSONArray("citations");
+        JSONArray missing = result.getJSONArray("missing");
+
+        Assert.assertEquals(found.length(), 1);
+        testJsonObject(found.getJSONObject(0).toString(), entity);
+        Assert.assertEquals(missing.length(), 1);
+        Assert.assertEquals(missing.getString(0), "missingPid");
+    }
+
     /**
      * Test the edit REST call
      *
@@ -83,6 +319,36 @@ public class ResolverControllerTest {
         testJsonObject(jsonObject, entity);
     }
 
+    /**
+     * Tests the Json variants of the insert, edit and delete REST calls
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testModifyJson() throws Exception {
+        Citation entity = getSampleCitation();
+        doNothing().when(Service).insertCitation(any(Citation.class));
+        doNothing().when(Service).editUrl(any(String.class), any(String.class));
+        doNothing().when(Service).deleteCitation(any(String.class));
+        when(Service.retrieveCitationJson(entity.getPurl()))
+                .thenReturn(CitationSerializer.toJson(entity));
+
+        ResponseEntity<byte[]> response = Controller.insertJson(entity.getPurl(),
+                entity.getUrl(),
+                entity.getErc(),
+                entity.getWho(),
+                entity.getWhat(),
+                entity.getDate());
+        testJsonObject(new String(response.getBody(), "UTF-8"), entity);
+
+        response = Controller.editJson(entity.getPurl(), entity.getUrl());
+        testJsonObject(new String(response.getBody(), "UTF-8"), entity);
+
+        response = Controller.deleteJson(entity.getPurl());
+        Assert.assertEquals(new String(response.getBody(), "UTF-8"),
+                "{\"result\":\"deleted\"}");
+    }
+
     /**
      * Tests the insert REST call
      *
@@ -113,6 +379,51 @@ public class ResolverControllerTest {
         testJsonObject(jsonObject, entity);
     }
 
+    /**
+     * Tests the batch insert REST call
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInsertBatch() throws Exception {
+        // pretend the first citation was inserted and the second already existed
+        when(Service.insertCitations(anyListOf(Citation.class))).thenReturn(
+                Arrays.asList(InsertStatus.INSERTED, InsertStatus.DUPLICATE));
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContentType("text/csv");
+        request.setContent(("pid,url,erc,who,what,date\n"
+                + "a,http://a.com,e,w,x,d\n"
+                + "malformed\n"
+                + "b,http://b.com,e,w,x,d\n").getBytes("UTF-8"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Controller.insertBatch(request, response);
+
+        // test to see that every line has an outcome followed by a summary
+        String[] lines = response.getContentAsString().split("\n");
+        Assert.assertEquals(lines.length, 4);
+
+        JSONObject invalid = new JSONObject(lines[0]);
+        Assert.assertEquals(invalid.getInt("line"), 3);
+        Assert.assertEquals(invalid.getString("result"), "invalid");
+
+        JSONObject inserted = new JSONObject(lines[1]);
+        Assert.assertEquals(inserted.getInt("line"), 2);
+        Assert.assertEquals(inserted.getString("pid"), "a");
+        Assert.assertEquals(inserted.getString("result"), "inserted");
+
+        JSONObject duplicate = new JSONObject(lines[2]);
+        Assert.assertEquals(duplicate.getInt("line"), 4);
+        Assert.assertEquals(duplicate.getString("result"), "duplicate");
+
+        JSONObject summary = new JSONObject(lines[3]).getJSONObject("summary");
+        Assert.assertEquals(summary.getInt("inserted"), 1);
+        Assert.assertEquals(summary.getInt("duplicate"), 1);
+        Assert.assertEquals(summary.getInt("invalid"), 1);
+        Assert.assertEquals(summary.getInt("failed"), 0);
+    }
+
     /**
      * Tests the delete REST call
      *
@@ -136,6 +447,28 @@ public class ResolverControllerTest {
         Assert.assertEquals("{\"result\":\"deleted\"}", result);
     }   
 
+    /**
+     * Tests the bulk delete REST calls
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBulkDelete() throws Exception {
+        when(Service.deleteCitationsByPrefix("ark:/1/")).thenReturn(3);
+        when(Service.deleteCitationsInRange("a", "b")).thenReturn(2);
+
+        ResponseEntity<byte[]> response = Controller.deleteByPrefix("ark:/1/");
+        Assert.assertEquals(new String(response.getBody(), "UTF-8"), "{\"deleted\":3}");
+
+        response = Controller.deleteInRange("a", "b");
+        Assert.assertEquals(new String(response.getBody(), "UTF-8"), "{\"deleted\":2}");
+
+        // a blank prefix would match every purl
+        response = Controller.deleteByPrefix(" ");
+        Assert.assertEquals(response.getStatusCode(), HttpStatus.BAD_REQUEST);
+        verify(Service, never()).deleteCitationsByPrefix(" ");
+    }
+
     /**
      * Tests the given jsonObject to ensure that it matches the given entity
      *
@@ -160,6 +493,23 @@ public class ResolverControllerTest {
         Assert.assertEquals(entity.getDate(), time);
     }
 
+    /**
+     * Runs a queued lookup on the calling thread, or returns the response of
+     * a lookup that was answered right away
+     *
+     * @param <V> The response of the lookup
+     * @param lookup The queued lookup or the response
+     * @return the response of the lookup
+     * @throws Exception Thrown by the lookup
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> V call(Object lookup) throws Exception {
+        if (lookup instanceof WebAsyncTask) {
+            return (V) ((WebAsyncTask<?>) lookup).getCallable().call();
+        }
+        return (V) lookup;
+    }
+
     /**
      * Gets a sample Citation object for testing
      *
@@ -1,6 +1,9 @@
 package com.hida.dao;
 
 import com.hida.model.Citation;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import org.dbunit.dataset.IDataSet;
 import org.dbunit.dataset.xml.FlatXmlDataSet;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,6 +48,53 @@ public class CitationDaoImplTest extends EntityDaoImplTest {
         Assert.assertNull(entity3);        
     }
 
+    /**
+     * Tests to see if several Citation entities can be retrieved at once and
+     * that unknown identifiers are ignored
+     */
+    @Test
+    public void testFindByPurls() {
+        List<Citation> entities = Dao.findByPurls(Arrays.asList("abc123", "xyz", "null"));
+
+        Assert.assertEquals(entities.size(), 2);
+        for (Citation entity : entities) {
+            Assert.assertNotEquals(entity.getPurl(), "null");
+        }
+    }
+
+    /**
+     * Tests to see if urls are paged through in order of purl
+     */
+    @Test
+    public void testFindUrlsAfter() {
+        Map<String, String> first = Dao.findUrlsAfter(null, 1);
+        Assert.assertEquals(first.size(), 1);
+        Assert.assertEquals(first.get("abc123"), "http://www.google.com");
+
+        Map<String, String> second = Dao.findUrlsAfter("abc123", 1);
+        Assert.assertEquals(second.size(), 1);
+        Assert.assertTrue(second.containsKey("xyz"));
+
+        Assert.assertTrue(Dao.findUrlsAfter("xyz", 1).isEmpty());
+    }
+
+    /**
+     * Tests to see if Citations are paged through in order of purl and
+     * counted
+     */
+    @Test
+    public void testFindCitationsAfter() {
+        List<Citation> first = Dao.findCitationsAfter(null, 1);
+        Assert.assertEquals(first.size(), 1);
+        Assert.assertEquals(first.get(0).getPurl(), "abc123");
+
+        List<Citation> rest = Dao.findCitationsAfter("abc123", 10);
+        Assert.assertEquals(rest.size(), 1);
+        Assert.assertEquals(rest.get(0).getPurl(), "xyz");
+
+        Assert.assertEquals(Dao.countPurls(), 2);
+    }
+
     /**
      * Tests to see if a Citation object can be saved
      */
@@ -57,6 +107,68 @@ public class CitationDaoImplTest extends EntityDaoImplTest {
         Assert.assertNotNull(entity);
     }
 
+    /**
+     * Tests to see if several Citation objects can be saved at once
+     */
+    @Test
+    public void testSavePurls() {
+        Dao.savePurls(Arrays.asList(new Citation("pid1", "url", "erc", "who", "what", "date"),
+                new Citation("pid2", "url", "erc", "who", "what", "date")));
+
+        Assert.assertNotNull(Dao.findByPurl("pid1"));
+        Assert.assertNotNull(Dao.findByPurl("pid2"));
+    }
+
+    /**
+     * Tests to see if the url of a Citation can be updated without loading it
+     */
+    @Test
+    public void testUpdateUrl() {
+        Assert.assertEquals(Dao.updateUrl("abc123", "http://www.example.com"), 1);
+        Assert.assertEquals(Dao.updateUrl("null", "http://www.example.com"), 0);
+
+        Assert.assertEquals(Dao.findByPurl("abc123").getUrl(), "http://www.example.com");
+    }
+
+    /**
+     * Tests to see if a Citation can be removed without loading it
+     */
+    @Test
+    public void testDeleteByPurl() {
+        Assert.assertEquals(Dao.deleteByPurl("abc123"), 1);
+        Assert.assertEquals(Dao.deleteByPurl("abc123"), 0);
+
+        Assert.assertNull(Dao.findByPurl("abc123"));
+        Assert.assertNotNull(Dao.findByPurl("xyz"));
+    }
+
+    /**
+     * Tests to see if Citations can be removed by prefix with a single
+     * statement, treating wildcards within the prefix literally
+     */
+    @Test
+    public void testDeleteByPrefix() {
+        Assert.assertEquals(Dao.deleteByPrefix("ab%"), 0);
+        Assert.assertEquals(Dao.deleteByPrefix("a_c"), 0);
+        Assert.assertEquals(Dao.deleteByPrefix("abc"), 1);
+
+        Assert.assertNull(Dao.findByPurl("abc123"));
+        Assert.assertNotNull(Dao.findByPurl("xyz"));
+    }
+
+    /**
+     * Tests to see if Citations can be removed by range with a single
+     * statement
+     */
+    @Test
+    public void testDeleteInRange() {
+        Assert.assertEquals(Dao.deleteInRange("b", "xyz"), 0);
+        Assert.assertEquals(Dao.deleteInRange("b", "z"), 1);
+
+        Assert.assertNotNull(Dao.findByPurl("abc123"));
+        Assert.assertNull(Dao.findByPurl("xyz"));
+    }
+
     /**
      * Tests to see if a Citation entity can be removed
      */
@@ -0,0 +1,66 @@
+package com.hida.dao;
+
+import com.hida.model.HitCount;
+import java.util.Arrays;
+import java.util.List;
+import org.dbunit.dataset.IDataSet;
+import org.dbunit.dataset.xml.FlatXmlDataSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the functionality of HitCountDao and ensures that it properly
+ * interacts with Hibernate.
+ *
+ * @author lruffin
+ */
+public class HitCountDaoImplTest extends EntityDaoImplTest {
+
+    @Autowired
+    private HitCountDao Dao;
+
+    /**
+     * Retrieves data from an xml file sheet to mock HitCounts.
+     *
+     * @return a data set
+     * @throws Exception
+     */
+    @Override
+    protected IDataSet getDataSet() throws Exception {
+        IDataSet dataSet = new FlatXmlDataSet(this.getClass().getClassLoader().
+                getResourceAsStream("HitCount.xml"));
+        return dataSet;
+    }
+
+    /**
+     * Tests to see if hits are added to existing buckets and new buckets are
+     * created
+     */
+    @Test
+    public void testMergeHits() {
+        Dao.mergeHits(Arrays.asList(new HitCount("abc123", 0, 2),
+                new HitCount("abc123", 3600000, 1),
+                new HitCount("xyz", 0, 4)));
+
+        List<HitCount> hits = Dao.findByPurl("abc123");
+        Assert.assertEquals(hits.size(), 2);
+        Assert.assertEquals(hits.get(0).getBucket(), 0);
+        Assert.assertEquals(hits.get(0).getHits(), 7);
+        Assert.assertEquals(hits.get(1).getBucket(), 3600000);
+        Assert.assertEquals(hits.get(1).getHits(), 1);
+        Assert.assertEquals(Dao.findByPurl("xyz").get(0).getHits(), 4);
+    }
+
+    /**
+     * Tests to see if purls are ordered by their hits across all buckets
+     */
+    @Test
+    public void testFindTopPurls() {
+        Dao.mergeHits(Arrays.asList(new HitCount("xyz", 0, 4),
+                new HitCount("xyz", 3600000, 4),
+                new HitCount("def", 0, 1)));
+
+        Assert.assertEquals(Dao.findTopPurls(2), Arrays.asList("xyz", "abc123"));
+    }
+}
@@ -0,0 +1,124 @@
+package com.hida.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import org.mockito.InjectMocks;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.env.Environment;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the functionality of CacheWarmer to ensure that the cache is filled
+ * according to its mode and that its progress is reported.
+ *
+ * @author lruffin
+ */
+public class CacheWarmerTest {
+
+    @Mock
+    private ResolverService ResolverService;
+
+    @Mock
+    private HitService HitService;
+
+    @Mock
+    private ScheduledExecutorService Executor;
+
+    @Mock
+    private Environment Environment;
+
+    @Spy
+    private CitationCache Cache = new CitationCache(3);
+
+    @InjectMocks
+    private CacheWarmer Warmer;
+
+    /**
+     * Creates a new warmer for every test since its progress is not reset
+     *
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        Warmer = null;
+        MockitoAnnotations.initMocks(this);
+    }
+
+    /**
+     * Tests to see if the table is paged through whenever it fits into the
+     * cache
+     */
+    @Test
+    public void testWarmUpTable() {
+        when(ResolverService.countCitations()).thenReturn(3L);
+        when(ResolverService.preloadCitationsAfter(null, 3)).thenReturn(Arrays.asList("a", "b", "c"));
+
+        Warmer.warmUp(CacheWarmer.Mode.AUTO);
+
+        Assert.assertEquals(Warmer.getState(), CacheWarmer.State.DONE);
+        Assert.assertEquals(Warmer.getTarget(), 3);
+        Assert.assertEquals(Warmer.getLoaded(), 3);
+        verify(HitService, never()).retrieveTopPurls(anyInt());
+    }
+
+    /**
+     * Tests to see if the most hit purls are loaded whenever the table does
+     * not fit into the cache
+     */
+    @Test
+    public void testWarmUpHits() {
+        when(ResolverService.countCitations()).thenReturn(100L);
+        when(HitService.retrieveTopPurls(3)).thenReturn(Arrays.asList("a", "b"));
+
+        Warmer.warmUp(CacheWarmer.Mode.AUTO);
+
+        Assert.assertEquals(Warmer.getState(), CacheWarmer.State.DONE);
+        Assert.assertEquals(Warmer.getLoaded(), 2);
+        verify(ResolverService).preloadCitations(Arrays.asList("a", "b"));
+    }
+
+    /**
+     * Tests to see if the table is loaded whenever no hits were recorded and
+     * that failures are reported
+     */
+    @Test
+    public void testWarmUpWithoutHits() {
+        when(ResolverService.countCitations()).thenReturn(100L);
+        when(HitService.retrieveTopPurls(3)).thenReturn(Collections.<String>emptyList());
+        when(ResolverService.preloadCitationsAfter(null, 3))
+                .thenThrow(new IllegalStateException("database is down"));
+
+        Warmer.warmUp(CacheWarmer.Mode.HITS);
+
+        Assert.assertEquals(Warmer.getState(), CacheWarmer.State.FAILED);
+        verify(ResolverService, never()).preloadCitations(anyCollectionOf(String.class));
+        Assert.assertEquals(Warmer.getStatistics().get("warmup.loaded"), Long.valueOf(0));
+    }
+
+    /**
+     * Tests to see if the configured mode is read regardless of its case and
+     * that an unknown mode falls back to auto instead of failing the start
+     */
+    @Test
+    public void testStartModes() {
+        when(Environment.getProperty("resolver.warmup.mode", "auto")).thenReturn(" None ");
+        Warmer.start();
+        Assert.assertEquals(Warmer.getState(), CacheWarmer.State.DONE);
+        verify(Executor, never()).execute(any(Runnable.class));
+
+        when(Environment.getProperty("resolver.warmup.mode", "auto")).thenReturn("tabel");
+        Warmer.start();
+        verify(Executor).execute(any(Runnable.class));
+    }
+}
@@ -0,0 +1,92 @@
+package com.hida.service;
+
+import com.hida.model.Citation;
+import com.hida.model.MalformedCitationException;
+import java.io.StringReader;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the functionality of CitationReader to ensure that both supported
+ * formats are properly parsed line by line.
+ *
+ * @author lruffin
+ */
+public class CitationReaderTest {
+
+    /**
+     * Tests to see if newline-delimited Json is read and blank lines are
+     * skipped
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReadNdjson() throws Exception {
+        String body = "{\"pid\":\"a\",\"url\":\"u1\",\"erc\":\"e\",\"who\":\"w\","
+                + "\"what\":\"x\",\"date\":\"d\"}\n"
+                + "\n"
+                + "{\"pid\":\"b\",\"url\":\"u2\"}\n";
+        CitationReader reader = new CitationReader(new StringReader(body),
+                CitationReader.Format.NDJSON);
+
+        Citation first = reader.read();
+        Assert.assertEquals(first.getPurl(), "a");
+        Assert.assertEquals(first.getUrl(), "u1");
+        Assert.assertEquals(first.getDate(), "d");
+        Assert.assertEquals(reader.getLineNumber(), 1);
+
+        Citation second = reader.read();
+        Assert.assertEquals(second.getPurl(), "b");
+        Assert.assertNull(second.getErc());
+        Assert.assertEquals(reader.getLineNumber(), 3);
+
+        Assert.assertNull(reader.read());
+    }
+
+    /**
+     * Tests to see if CSV with a header and quoted fields is read
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReadCsv() throws Exception {
+        String body = "pid,url,erc,who,what,date\n"
+                + "a,http://a.com,e,w,x,d\n"
+                + "b,\"http://b.com/?q=1,2\",e,\"say \"\"hi\"\"\",x,d\n";
+        CitationReader reader = new CitationReader(new StringReader(body),
+                CitationReader.Format.CSV);
+
+        Citation first = reader.read();
+        Assert.assertEquals(first.getPurl(), "a");
+        Assert.assertEquals(first.getUrl(), "http://a.com");
+
+        Citation second = reader.read();
+        Assert.assertEquals(second.getUrl(), "http://b.com/?q=1,2");
+        Assert.assertEquals(second.getWho(), "say \"hi\"");
+
+        Assert.assertNull(reader.read());
+    }
+
+    /**
+     * Tests to see if a malformed line is reported and reading resumes on the
+     * following line
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMalformedLine() throws Exception {
+        String body = "a,b,c\n"
+                + "a,http://a.com,e,w,x,d\n";
+        CitationReader reader = new CitationReader(new StringReader(body),
+                CitationReader.Format.CSV);
+
+        try {
+            reader.read();
+            Assert.fail("expected MalformedCitationException");
+        }
+        catch (MalformedCitationException exception) {
+            Assert.assertEquals(exception.getLineNumber(), 1);
+        }
+        Assert.assertEquals(reader.read().getPurl(), "a");
+    }
+}
@@ -0,0 +1,124 @@
+package com.hida.service;
+
+import com.hida.model.HitCount;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the functionality of HitCounter to ensure that hits are counted per
+ * bucket, reported from memory and flushed exactly once.
+ *
+ * @author lruffin
+ */
+public class HitCounterTest {
+
+    private static final long BUCKET = 1000;
+
+    /**
+     * Tests to see if hits are counted in total and per bucket
+     */
+    @Test
+    public void testRecord() {
+        HitCounter counter = new HitCounter(BUCKET, 10);
+        counter.record("a", 0);
+        counter.record("a", 999);
+        counter.record("a", 1000);
+        counter.record("b", 1500);
+
+        Assert.assertEquals(counter.getHits("a"), 3);
+        Assert.assertEquals(counter.getHits("b"), 1);
+        Assert.assertEquals(counter.getHits("c"), 0);
+
+        Map<Long, Long> buckets = counter.getBucketHits("a");
+        Assert.assertEquals(buckets.get(0L), Long.valueOf(2));
+        Assert.assertEquals(buckets.get(1000L), Long.valueOf(1));
+    }
+
+    /**
+     * Tests to see if the most hit purls are listed in descending order
+     */
+    @Test
+    public void testTopHits() {
+        HitCounter counter = new HitCounter(BUCKET, 10);
+        for (int i = 0; i < 3; i++) {
+            counter.record("c", 0);
+        }
+        for (int i = 0; i < 2; i++) {
+            counter.record("b", 0);
+        }
+        counter.record("a", 0);
+
+        Map<String, Long> top = counter.getTopHits(2);
+        Assert.assertEquals(top.keySet().toArray(), new String[]{"c", "b"});
+        Assert.assertEquals(top.get("c"), Long.valueOf(3));
+        Assert.assertTrue(counter.getTopHits(0).isEmpty());
+    }
+
+    /**
+     * Tests to see if only committed hits are considered persisted and that
+     * flushed buckets beyond the retention are dropped
+     */
+    @Test
+    public void testFlush() {
+        HitCounter counter = new HitCounter(BUCKET, 1);
+        counter.record("a", 0);
+        counter.record("a", 0);
+
+        // an uncommitted flush is repeated by the next one
+        Assert.assertEquals(counter.flush().getHits().size(), 1);
+        HitCounter.Flush flush = counter.flush();
+        HitCount hit = flush.getHits().get(0);
+        Assert.assertEquals(hit.getPurl(), "a");
+        Assert.assertEquals(hit.getBucket(), 0);
+        Assert.assertEquals(hit.getHits(), 2);
+        flush.commit();
+        Assert.assertTrue(counter.flush().getHits().isEmpty());
+
+        // only the hits since the last commit are flushed
+        counter.record("a", 0);
+        counter.record("a", 2000);
+        flush = counter.flush();
+        Assert.assertEquals(flush.getHits().size(), 2);
+        flush.commit();
+
+        // the older bucket exceeds the retention once flushed
+        Assert.assertEquals(counter.getBucketHits("a").keySet(),
+                new HashSet<>(Arrays.asList(2000L)));
+        Assert.assertEquals(counter.getHits("a"), 4);
+    }
+
+    /**
+     * Tests to see if no hits are lost when they are recorded concurrently,
+     * including hits before the epoch
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentRecord() throws Exception {
+        final HitCounter counter = new HitCounter(BUCKET, 10);
+        final int hits = 10000;
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int hit = 0; hit < hits; hit++) {
+                        counter.record("a", hit % 2 == 0 ? -1 : 0);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(counter.getHits("a"), threads.length * hits);
+        Map<Long, Long> buckets = counter.getBucketHits("a");
+        Assert.assertEquals(buckets.get(-BUCKET), Long.valueOf(threads.length * hits / 2));
+        Assert.assertEquals(buckets.get(0L), Long.valueOf(threads.length * hits / 2));
+    }
+}
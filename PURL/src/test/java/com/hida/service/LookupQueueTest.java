@@ -0,0 +1,108 @@
+package com.hida.service;
+
+import com.hida.model.ResolverBusyException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * This class tests the functionality of LookupQueue.
+ *
+ * @author lruffin
+ */
+public class LookupQueueTest {
+
+    /**
+     * Returns a lookup that records that it has run
+     *
+     * @param ran Set once the lookup has run
+     * @return the lookup
+     */
+    private Callable<String> getLookup(final AtomicBoolean ran) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                ran.set(true);
+                return "url";
+            }
+        };
+    }
+
+    /**
+     * Tests that a queued lookup holds its place until it has run.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSubmit() throws Exception {
+        LookupQueue queue = new LookupQueue(1, 1, 1000);
+        try {
+            AtomicBoolean ran = new AtomicBoolean();
+            WebAsyncTask<String> task = queue.submit(getLookup(ran));
+            Assert.assertEquals(task.getTimeout(), Long.valueOf(1000));
+            Assert.assertEquals(queue.getQueued(), 1);
+
+            Assert.assertEquals(task.getCallable().call(), "url");
+            Assert.assertTrue(ran.get());
+            Assert.assertEquals(queue.getQueued(), 0);
+        }
+        finally {
+            queue.shutdown();
+        }
+    }
+
+    /**
+     * Tests that lookups are turned away once the running and waiting lookups
+     * fill the queue, until one of them has run.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFullQueue() throws Exception {
+        LookupQueue queue = new LookupQueue(1, 1, 1000);
+        try {
+            AtomicBoolean ran = new AtomicBoolean();
+            WebAsyncTask<String> first = queue.submit(getLookup(ran));
+            queue.submit(getLookup(ran));
+            try {
+                queue.submit(getLookup(ran));
+                Assert.fail("the queue should be full");
+            }
+            catch (ResolverBusyException exception) {
+                Assert.assertEquals(queue.getQueued(), 2);
+            }
+
+            first.getCallable().call();
+            queue.submit(getLookup(ran));
+            Assert.assertEquals(queue.getQueued(), 2);
+        }
+        finally {
+            queue.shutdown();
+        }
+    }
+
+    /**
+     * Tests that a lookup whose request timed out before it started is
+     * skipped and gives up its place.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCancelledLookup() throws Exception {
+        LookupQueue queue = new LookupQueue(1, 0, 1000);
+        try {
+            AtomicBoolean ran = new AtomicBoolean();
+            WebAsyncTask<String> task = queue.submit(getLookup(ran));
+            ((LookupQueue.LookupTask) task.getCallable()).cancel();
+
+            Assert.assertNull(task.getCallable().call());
+            Assert.assertFalse(ran.get());
+            Assert.assertEquals(queue.getQueued(), 0);
+        }
+        finally {
+            queue.shutdown();
+        }
+    }
+}
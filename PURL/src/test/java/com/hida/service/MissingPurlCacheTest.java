@@ -0,0 +1,65 @@
+package com.hida.service;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the functionality of MissingPurlCache to ensure that missing purls are
+ * remembered within its bounds.
+ *
+ * @author lruffin
+ */
+public class MissingPurlCacheTest {
+
+    /**
+     * Tests to see if missing purls are remembered until they are invalidated
+     * or evicted
+     */
+    @Test
+    public void testRecordMissing() {
+        MissingPurlCache cache = new MissingPurlCache(2, 60);
+        cache.recordMissing("a");
+        cache.recordMissing("b");
+        Assert.assertTrue(cache.isMissing("a"));
+        Assert.assertTrue(cache.isMissing("b"));
+        Assert.assertFalse(cache.isMissing("c"));
+
+        // the oldest purl is evicted first
+        cache.recordMissing("c");
+        Assert.assertFalse(cache.isMissing("a"));
+        Assert.assertTrue(cache.isMissing("c"));
+
+        cache.invalidate("c");
+        Assert.assertFalse(cache.isMissing("c"));
+        Assert.assertEquals(cache.getHits(), 3);
+        Assert.assertEquals(cache.getRecords(), 3);
+    }
+
+    /**
+     * Tests to see if a purl is not recorded when the cache was invalidated
+     * after the generation was taken
+     */
+    @Test
+    public void testRecordMissingAfterInvalidate() {
+        MissingPurlCache cache = new MissingPurlCache(10, 60);
+        long generation = cache.getGeneration();
+        cache.invalidate("a");
+
+        Assert.assertFalse(cache.recordMissing("a", generation));
+        Assert.assertFalse(cache.isMissing("a"));
+        Assert.assertTrue(cache.recordMissing("a", cache.getGeneration()));
+        Assert.assertTrue(cache.isMissing("a"));
+    }
+
+    /**
+     * Tests to see if a cache without a time to live remembers nothing
+     */
+    @Test
+    public void testDisabled() {
+        MissingPurlCache cache = new MissingPurlCache(100, 0);
+        cache.recordMissing("a");
+
+        Assert.assertFalse(cache.isMissing("a"));
+        Assert.assertEquals(cache.size(), 0);
+    }
+}
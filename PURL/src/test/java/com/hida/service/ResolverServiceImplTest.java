@@ -2,14 +2,39 @@ package com.hida.service;
 
 import com.hida.dao.CitationDao;
 import com.hida.model.Citation;
+import com.hida.model.CitationNotFoundException;
+import com.hida.model.InsertStatus;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import org.mockito.InjectMocks;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 import org.testng.annotations.BeforeClass;
 
@@ -23,6 +48,18 @@ public class ResolverServiceImplTest {
     @Mock
     private CitationDao Dao;
 
+    @Spy
+    private CitationCache Cache = new CitationCache(100);
+
+    @Spy
+    private SnapshotResolver Snapshot = new SnapshotResolver();
+
+    @Spy
+    private MissingPurlCache MissingPurls = new MissingPurlCache(100, 60);
+
+    @Mock
+    private PlatformTransactionManager TransactionManager;
+
     @InjectMocks
     private ResolverServiceImpl Service;
 
@@ -50,16 +87,176 @@ public class ResolverServiceImplTest {
         verify(Dao, atLeastOnce()).findByPurl(any(String.class));
     }
 
+    /**
+     * Tests to see if the URL of a purl is resolved by the snapshot without
+     * touching the database
+     */
+    @Test
+    public void testRetrieveUrlFromSnapshot() {
+        doReturn("snapshotUrl").when(Snapshot).lookup("snapshotPid");
+
+        Assert.assertEquals(Service.retrieveUrl("snapshotPid"), "snapshotUrl");
+        verify(Dao, never()).findByPurl("snapshotPid");
+    }
+
+    /**
+     * Tests to see if lookups only answer purls held in memory, and loads
+     * read the database and cache what they read
+     */
+    @Test
+    public void testLookupAndLoad() {
+        Citation entity = new Citation("loadedPid");
+        entity.setUrl("loadedUrl");
+        when(Dao.findByPurl("loadedPid")).thenReturn(entity);
+
+        Assert.assertNull(Service.lookupUrl("loadedPid"));
+        Assert.assertNull(Service.lookupCitation("loadedPid"));
+        Assert.assertNull(Service.lookupCitationJson("loadedPid"));
+        verify(Dao, never()).findByPurl("loadedPid");
+
+        Assert.assertEquals(Service.loadUrl("loadedPid"), "loadedUrl");
+        Assert.assertEquals(Service.lookupUrl("loadedPid"), "loadedUrl");
+        Assert.assertNotNull(Service.lookupCitation("loadedPid"));
+        Assert.assertNotNull(Service.lookupCitationJson("loadedPid"));
+        verify(Dao, times(1)).findByPurl("loadedPid");
+
+        Assert.assertNull(Service.loadCitation("absentPid"));
+        Assert.assertTrue(Service.isMissing("absentPid"));
+    }
+
+    /**
+     * Tests to see if lookups answered by the cache, the snapshot or the cache
+     * of missing purls never touch a transaction manager, while lookups that
+     * fall back to the database and changes do. The service is called through
+     * the transactional proxy Spring would create for it.
+     */
+    @Test
+    public void testLookupsFromMemoryAreNotTransactional() {
+        PlatformTransactionManager proxyManager = mock(PlatformTransactionManager.class);
+        ProxyFactory factory = new ProxyFactory(Service);
+        factory.addAdvice(new TransactionInterceptor(proxyManager,
+                new AnnotationTransactionAttributeSource()));
+        ResolverService proxy = (ResolverService) factory.getProxy();
+        reset(TransactionManager);
+
+        Citation cached = new Citation("memoryCached");
+        cached.setUrl("cachedUrl");
+        Cache.put(cached);
+        doReturn("snapshotUrl").when(Snapshot).lookup("memorySnapshot");
+        MissingPurls.recordMissing("memoryMissing");
+
+        Assert.assertEquals(proxy.retrieveUrl("memoryCached"), "cachedUrl");
+        Assert.assertNotNull(proxy.retrieveCitation("memoryCached"));
+        Assert.assertNotNull(proxy.retrieveCitationJson("memoryCached"));
+        Assert.assertEquals(proxy.retrieveUrl("memorySnapshot"), "snapshotUrl");
+        Assert.assertNull(proxy.retrieveUrl("memoryMissing"));
+        Assert.assertNull(proxy.retrieveCitation("memoryMissing"));
+        Assert.assertNull(proxy.retrieveCitationJson("memoryMissing"));
+        Assert.assertTrue(proxy.retrieveCitations(
+                Arrays.asList("memoryCached", "memoryMissing")).containsKey("memoryCached"));
+        verifyZeroInteractions(proxyManager, TransactionManager);
+
+        when(Dao.findByPurl("memoryStored")).thenReturn(new Citation("memoryStored"));
+        proxy.retrieveCitation("memoryStored");
+        verifyZeroInteractions(proxyManager);
+        verify(TransactionManager).getTransaction(any(TransactionDefinition.class));
+
+        when(Dao.updateUrl("memoryStored", "url")).thenReturn(1);
+        proxy.editUrl("memoryStored", "url");
+        verify(proxyManager).getTransaction(any(TransactionDefinition.class));
+    }
+
+    /**
+     * Tests to see if a missing purl is only sought after in the database once
+     * and is sought after again once it is inserted
+     */
+    @Test
+    public void testMissingPurl() {
+        when(Dao.findByPurl("missingPid")).thenReturn(null);
+
+        Assert.assertNull(Service.retrieveCitation("missingPid"));
+        Assert.assertNull(Service.retrieveCitationJson("missingPid"));
+        Assert.assertNull(Service.retrieveUrl("missingPid"));
+        try {
+            Service.editUrl("missingPid", "url");
+            Assert.fail("expected CitationNotFoundException");
+        }
+        catch (CitationNotFoundException exception) {
+            Assert.assertEquals(exception.getPurl(), "missingPid");
+        }
+        verify(Dao, times(1)).findByPurl("missingPid");
+
+        Service.insertCitation(new Citation("missingPid"));
+        Service.retrieveCitation("missingPid");
+        verify(Dao, times(2)).findByPurl("missingPid");
+    }
+
+    /**
+     * Tests to see if a purl that is inserted while a lookup of it reads the
+     * database is not remembered as missing by that lookup
+     */
+    @Test
+    public void testMissingPurlInsertedDuringLookup() {
+        when(Dao.findByPurl("racingPid")).thenAnswer(new Answer<Citation>() {
+            @Override
+            public Citation answer(InvocationOnMock invocation) {
+                // the insert commits after the lookup read the table
+                Service.insertCitation(new Citation("racingPid"));
+                return null;
+            }
+        });
+
+        Assert.assertNull(Service.retrieveCitation("racingPid"));
+        Assert.assertFalse(MissingPurls.isMissing("racingPid"));
+    }
+
+    /**
+     * Tests to see if preloading citations does not replace cached citations
+     */
+    @Test
+    public void testPreloadCitations() {
+        Citation cached = new Citation("preloadCached");
+        Cache.put(cached);
+        List<String> purls = Arrays.asList("preloadCached", "preloadStored");
+        when(Dao.findByPurls(purls)).thenReturn(Arrays.asList(
+                new Citation("preloadCached"), new Citation("preloadStored")));
+        when(Dao.findCitationsAfter("preloadStored", 10)).thenReturn(
+                Arrays.asList(new Citation("preloadNext")));
+
+        Assert.assertEquals(Service.preloadCitations(purls), 1);
+        Assert.assertSame(Cache.get("preloadCached"), cached);
+        Assert.assertEquals(Service.preloadCitationsAfter("preloadStored", 10),
+                Arrays.asList("preloadNext"));
+        Assert.assertNotNull(Cache.get("preloadNext"));
+    }
+
+    /**
+     * Tests to see if every url is paged through while writing a snapshot
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testWriteSnapshot() throws Exception {
+        Map<String, String> page = new LinkedHashMap<>();
+        page.put("a", "urlA");
+        page.put("b", "urlB");
+        when(Dao.findUrlsAfter(null, 10000)).thenReturn(page);
+
+        UrlSnapshot.Writer writer = mock(UrlSnapshot.Writer.class);
+        Assert.assertEquals(Service.writeSnapshot(writer), 2);
+        verify(writer).add("a", "urlA");
+        verify(writer).add("b", "urlB");
+    }
+
     /**
      * Tests to see if a Citation entity can be edited
      */
     @Test
     public void testEditUrl() {
-        Citation entity = new Citation();
-        when(Dao.findByPurl(any(String.class))).thenReturn(entity);
+        when(Dao.updateUrl("", "")).thenReturn(1);
 
         Service.editUrl("", "");
-        verify(Dao, atLeastOnce()).findByPurl(any(String.class));
+        verify(Dao, atLeastOnce()).updateUrl("", "");
     }
 
     /**
@@ -67,12 +264,94 @@ public class ResolverServiceImplTest {
      */
     @Test
     public void testDeleteCitation() {
-        Citation entity = new Citation();
-        when(Dao.findByPurl(any(String.class))).thenReturn(entity);
-        doNothing().when(Dao).deletePurl(entity);
+        when(Dao.deleteByPurl("")).thenReturn(1);
 
         Service.deleteCitation("");
-        verify(Dao, atLeastOnce()).deletePurl(any(Citation.class));
+        verify(Dao, atLeastOnce()).deleteByPurl("");
+    }
+
+    /**
+     * Tests to see if Citation entities can be deleted by prefix and range and
+     * that they are removed from the cache
+     */
+    @Test
+    public void testDeleteCitations() {
+        Cache.put(new Citation("ark:/1/cached"));
+        Cache.put(new Citation("ark:/2/cached"));
+        Cache.put(new Citation("ark:/3/cached"));
+        when(Dao.deleteByPrefix("ark:/1/")).thenReturn(2);
+        when(Dao.deleteInRange("ark:/2/", "ark:/3/")).thenReturn(1);
+
+        Assert.assertEquals(Service.deleteCitationsByPrefix("ark:/1/"), 2);
+        Assert.assertEquals(Service.deleteCitationsInRange("ark:/2/", "ark:/3/"), 1);
+        Assert.assertNull(Cache.get("ark:/1/cached"));
+        Assert.assertNull(Cache.get("ark:/2/cached"));
+        Assert.assertNotNull(Cache.get("ark:/3/cached"));
+    }
+
+    /**
+     * Tests to see if a blank prefix is refused rather than deleting every
+     * Citation
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDeleteCitationsBlankPrefix() {
+        try {
+            Service.deleteCitationsByPrefix(" ");
+        }
+        finally {
+            verify(Dao, never()).deleteByPrefix(" ");
+        }
+    }
+
+    /**
+     * Tests to see if a changed Citation stays cached until its transaction
+     * commits, so that the cache can not be refilled with the old row
+     */
+    @Test
+    public void testInvalidateAfterCommit() {
+        Cache.put(new Citation("ark:/4/edited"));
+        Cache.put(new Citation("ark:/5/cached"));
+        when(Dao.updateUrl("ark:/4/edited", "newUrl")).thenReturn(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Service.editUrl("ark:/4/edited", "newUrl");
+            Service.deleteCitationsByPrefix("ark:/5/");
+            Assert.assertNotNull(Cache.get("ark:/4/edited"));
+            Assert.assertNotNull(Cache.get("ark:/5/cached"));
+
+            for (TransactionSynchronization synchronization
+                    : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+            Assert.assertNull(Cache.get("ark:/4/edited"));
+            Assert.assertNull(Cache.get("ark:/5/cached"));
+        }
+        finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Tests to see if a lookup that read a Citation before an edit of it
+     * committed does not cache the old row afterwards
+     */
+    @Test
+    public void testLookupInterleavedWithEdit() {
+        final Citation old = new Citation("ark:/6/racing");
+        old.setUrl("oldUrl");
+        when(Dao.updateUrl("ark:/6/racing", "newUrl")).thenReturn(1);
+        when(Dao.findByPurl("ark:/6/racing")).thenAnswer(new Answer<Citation>() {
+            @Override
+            public Citation answer(InvocationOnMock invocation) {
+                // the edit commits after the lookup read the old row
+                Service.editUrl("ark:/6/racing", "newUrl");
+                return old;
+            }
+        });
+
+        Assert.assertEquals(Service.retrieveUrl("ark:/6/racing"), "oldUrl");
+        Assert.assertNull(Cache.get("ark:/6/racing"));
     }
 
     /**
@@ -86,6 +365,77 @@ public class ResolverServiceImplTest {
         verify(Dao, atLeastOnce()).findByPurl(any(String.class));
     }
 
+    /**
+     * Tests to see if the encoded Json of a Citation is retrieved from the
+     * database once and served from the cache afterwards
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRetrieveCitationJson() throws Exception {
+        Citation entity = new Citation("jsonPid", "url", "erc", "who", "what", "date");
+        when(Dao.findByPurl("jsonPid")).thenReturn(entity);
+        when(Dao.findByPurl("missingJsonPid")).thenReturn(null);
+
+        byte[] first = Service.retrieveCitationJson("jsonPid");
+        byte[] second = Service.retrieveCitationJson("jsonPid");
+
+        Assert.assertEquals(new String(first, "UTF-8"),
+                "{\"pid\":\"jsonPid\",\"url\":\"url\",\"erc\":\"erc\","
+                + "\"who\":\"who\",\"what\":\"what\",\"date\":\"date\"}");
+        Assert.assertSame(second, first);
+        verify(Dao, times(1)).findByPurl("jsonPid");
+        Assert.assertNull(Service.retrieveCitationJson("missingJsonPid"));
+    }
+
+    /**
+     * Tests to see if several Citation entities are retrievable at once, that
+     * cached entities are not sought after in the database and that missing
+     * entities are left out
+     */
+    @Test
+    public void testRetrieveCitations() {
+        Citation cached = new Citation("cached");
+        Citation stored = new Citation("stored");
+        Cache.put(cached);
+        when(Dao.findByPurls(anyCollectionOf(String.class))).thenReturn(Arrays.asList(stored));
+
+        Map<String, Citation> citations = Service.retrieveCitations(
+                Arrays.asList("cached", "stored", "missing"));
+
+        Assert.assertEquals(citations.size(), 2);
+        Assert.assertSame(citations.get("cached"), cached);
+        Assert.assertSame(citations.get("stored"), stored);
+        Assert.assertFalse(citations.containsKey("missing"));
+        verify(Dao, atLeastOnce()).findByPurls(Arrays.asList("stored", "missing"));
+
+        // the loaded entity should now be cached
+        Assert.assertSame(Cache.get("stored"), stored);
+    }
+
+    /**
+     * Tests to see if a chunk of Citation objects is persisted and that the
+     * outcome of each Citation is reported
+     */
+    @Test
+    public void testInsertCitations() {
+        Citation existing = new Citation("existing");
+        when(Dao.findByPurls(anyCollectionOf(String.class))).thenReturn(Arrays.asList(existing));
+        doNothing().when(Dao).savePurls(anyListOf(Citation.class));
+
+        List<InsertStatus> statuses = Service.insertCitations(Arrays.asList(
+                new Citation("new", "url", "erc", "who", "what", "date"),
+                new Citation("existing", "url", "erc", "who", "what", "date"),
+                new Citation("new", "url", "erc", "who", "what", "date"),
+                new Citation(null, "url", "erc", "who", "what", "date")));
+
+        Assert.assertEquals(statuses, Arrays.asList(InsertStatus.INSERTED,
+                InsertStatus.DUPLICATE,
+                InsertStatus.DUPLICATE,
+                InsertStatus.INVALID));
+        verify(Dao, atLeastOnce()).savePurls(anyListOf(Citation.class));
+    }
+
     /**
      * Tests to see if a Citation object can be persisted
      */
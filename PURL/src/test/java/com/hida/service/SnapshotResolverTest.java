@@ -0,0 +1,125 @@
+package com.hida.service;
+
+import java.io.File;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the functionality of SnapshotResolver to ensure that changes made
+ * since the snapshot was written take precedence over it.
+ *
+ * @author lruffin
+ */
+public class SnapshotResolverTest {
+
+    private File SnapshotFile;
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+        SnapshotFile = File.createTempFile("snapshotresolver", ".bin");
+        try (UrlSnapshot.Writer writer = new UrlSnapshot.Writer(SnapshotFile)) {
+            writer.add("edited", "oldUrl");
+            writer.add("deleted", "deletedUrl");
+            writer.add("unchanged", "unchangedUrl");
+        }
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+        SnapshotFile.delete();
+    }
+
+    /**
+     * Tests to see if edits and deletions hide the snapshot until a snapshot
+     * that reflects them is installed
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testOverlay() throws Exception {
+        SnapshotResolver resolver = new SnapshotResolver(SnapshotFile);
+        Assert.assertTrue(resolver.load());
+        Assert.assertEquals(resolver.lookup("unchanged"), "unchangedUrl");
+        Assert.assertNull(resolver.lookup("missing"));
+
+        resolver.recordEdit("edited", "newUrl");
+        resolver.recordDelete("deleted");
+        Assert.assertEquals(resolver.lookup("edited"), "newUrl");
+        Assert.assertNull(resolver.lookup("deleted"));
+        Assert.assertEquals(resolver.getOverlaySize(), 2);
+
+        // reinstalling the same snapshot must keep both changes
+        resolver.install(UrlSnapshot.open(SnapshotFile));
+        Assert.assertEquals(resolver.getOverlaySize(), 2);
+
+        // a snapshot that reflects the edit drops it from the overlay
+        File nextFile = File.createTempFile("snapshotresolver", ".bin");
+        try {
+            try (UrlSnapshot.Writer writer = new UrlSnapshot.Writer(nextFile)) {
+                writer.add("edited", "newUrl");
+                writer.add("unchanged", "unchangedUrl");
+            }
+            resolver.install(UrlSnapshot.open(nextFile));
+            Assert.assertEquals(resolver.getOverlaySize(), 0);
+            Assert.assertEquals(resolver.lookup("edited"), "newUrl");
+            Assert.assertNull(resolver.lookup("deleted"));
+        }
+        finally {
+            nextFile.delete();
+        }
+    }
+
+    /**
+     * Tests to see if a deleted range hides the snapshot, and edits recorded
+     * before it, until a snapshot started after the delete is installed
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDeletedRange() throws Exception {
+        SnapshotResolver resolver = new SnapshotResolver(SnapshotFile);
+        Assert.assertTrue(resolver.load());
+        resolver.recordEdit("edited", "newUrl");
+
+        long generation = resolver.getGeneration();
+        resolver.recordDelete(PurlRange.ofPrefix("ed"));
+        resolver.recordDelete(PurlRange.ofRange("da", "dz"));
+        Assert.assertNull(resolver.lookup("edited"));
+        Assert.assertNull(resolver.lookup("deleted"));
+        Assert.assertEquals(resolver.lookup("unchanged"), "unchangedUrl");
+
+        // a snapshot started before the delete may still hold the purls
+        resolver.install(UrlSnapshot.open(SnapshotFile), generation);
+        Assert.assertNull(resolver.lookup("edited"));
+        Assert.assertNull(resolver.lookup("deleted"));
+
+        File nextFile = File.createTempFile("snapshotresolver", ".bin");
+        try {
+            generation = resolver.getGeneration();
+            try (UrlSnapshot.Writer writer = new UrlSnapshot.Writer(nextFile)) {
+                writer.add("unchanged", "unchangedUrl");
+            }
+            resolver.install(UrlSnapshot.open(nextFile), generation);
+            Assert.assertEquals(resolver.getOverlaySize(), 0);
+            Assert.assertEquals(resolver.lookup("unchanged"), "unchangedUrl");
+        }
+        finally {
+            nextFile.delete();
+        }
+    }
+
+    /**
+     * Tests to see if a disabled resolver never answers lookups
+     */
+    @Test
+    public void testDisabled() {
+        SnapshotResolver resolver = new SnapshotResolver();
+        resolver.recordEdit("edited", "newUrl");
+
+        Assert.assertFalse(resolver.isEnabled());
+        Assert.assertNull(resolver.lookup("edited"));
+        Assert.assertEquals(resolver.getOverlaySize(), 0);
+    }
+}
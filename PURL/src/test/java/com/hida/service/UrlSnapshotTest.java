@@ -0,0 +1,76 @@
+package com.hida.service;
+
+import java.io.File;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the functionality of UrlSnapshot to ensure that the urls written to a
+ * snapshot file can be looked up once it is mapped.
+ *
+ * @author lruffin
+ */
+public class UrlSnapshotTest {
+
+    private File SnapshotFile;
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+        SnapshotFile = File.createTempFile("urlsnapshot", ".bin");
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+        SnapshotFile.delete();
+    }
+
+    /**
+     * Tests to see if every written url can be found, including those of
+     * purls whose hashes collide, and that unknown purls are not found
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testWriteAndLookup() throws Exception {
+        int amount = 5000;
+        try (UrlSnapshot.Writer writer = new UrlSnapshot.Writer(SnapshotFile)) {
+            for (int i = 0; i < amount; i++) {
+                writer.add("ark:/13030/" + i, "http://example.com/" + i);
+            }
+            writer.add("nullUrl", null);
+            writer.add("ünicode", "http://example.com/é");
+        }
+
+        UrlSnapshot snapshot = UrlSnapshot.open(SnapshotFile);
+        Assert.assertEquals(snapshot.size(), amount + 2);
+        for (int i = 0; i < amount; i++) {
+            Assert.assertEquals(snapshot.lookup("ark:/13030/" + i), "http://example.com/" + i);
+        }
+        Assert.assertNull(snapshot.lookup("nullUrl"));
+        Assert.assertEquals(snapshot.lookup("ünicode"), "http://example.com/é");
+        Assert.assertNull(snapshot.lookup("ark:/13030/" + amount));
+        Assert.assertNull(snapshot.lookup(""));
+    }
+
+    /**
+     * Tests to see if an empty snapshot can be written and opened
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEmptySnapshot() throws Exception {
+        File emptyFile = File.createTempFile("emptysnapshot", ".bin");
+        try {
+            new UrlSnapshot.Writer(emptyFile).close();
+
+            UrlSnapshot snapshot = UrlSnapshot.open(emptyFile);
+            Assert.assertEquals(snapshot.size(), 0);
+            Assert.assertNull(snapshot.lookup("pid"));
+        }
+        finally {
+            emptyFile.delete();
+        }
+    }
+}